@@ -0,0 +1,13 @@
+package com.musicschool.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Asynchronous execution configuration for the Music School Management System.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+    // @Async methods run on Spring Boot's task executor (spring.task.execution)
+}
@@ -0,0 +1,13 @@
+package com.musicschool.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cache configuration for the Music School Management System.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    // Caches are defined in ehcache.xml and exposed through JCache (spring.cache.jcache.config)
+}
@@ -0,0 +1,124 @@
+package com.musicschool.config;
+
+import com.musicschool.entity.Course;
+import com.musicschool.entity.Enrollment;
+import com.musicschool.entity.Instructor;
+import com.musicschool.service.InsightsLeaderboard;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Hibernate event listener feeding InsightsLeaderboard with enrollment, course and instructor
+ * changes. Registered on the session factory, so the entities stay free of service code; the
+ * instructor of a course and the course of an enrollment before an update or delete come from
+ * the state Hibernate loaded.
+ */
+@Component
+public class InsightsLeaderboardListener implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private InsightsLeaderboard leaderboard;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Course course) {
+            leaderboard.courseAdded(course.getId(), true);
+            leaderboard.coursesChanged(idOf(course.getInstructor()), 1);
+        } else if (entity instanceof Enrollment enrollment) {
+            leaderboard.enrollmentsChanged(idOf(enrollment.getCourse()), 1);
+        } else if (entity instanceof Instructor instructor) {
+            leaderboard.instructorAdded(instructor.getId(), true);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getOldState() == null) {
+            // Updated without a loaded snapshot; the periodic reload catches up
+            return;
+        }
+        Object entity = event.getEntity();
+        if (entity instanceof Course course) {
+            Long previous = idOf(event.getPersister(), event.getOldState(), "instructor");
+            Long instructorId = idOf(course.getInstructor());
+            if (!Objects.equals(instructorId, previous)) {
+                leaderboard.coursesChanged(previous, -1);
+                leaderboard.coursesChanged(instructorId, 1);
+            }
+        } else if (entity instanceof Enrollment enrollment) {
+            Long previous = idOf(event.getPersister(), event.getOldState(), "course");
+            Long courseId = idOf(enrollment.getCourse());
+            if (!Objects.equals(courseId, previous)) {
+                leaderboard.enrollmentsChanged(previous, -1);
+                leaderboard.enrollmentsChanged(courseId, 1);
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        Object entity = event.getEntity();
+        if (entity instanceof Course course) {
+            leaderboard.courseAdded(course.getId(), false);
+            leaderboard.coursesChanged(idOf(event.getPersister(), event.getDeletedState(), "instructor"), -1);
+        } else if (entity instanceof Enrollment) {
+            leaderboard.enrollmentsChanged(idOf(event.getPersister(), event.getDeletedState(), "course"), -1);
+        } else if (entity instanceof Instructor instructor) {
+            leaderboard.instructorAdded(instructor.getId(), false);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        // InsightsLeaderboard defers the changes to the commit itself
+        return false;
+    }
+
+    // Helper methods
+    private static Long idOf(EntityPersister persister, Object[] state, String property) {
+        if (state == null) {
+            return null;
+        }
+        Object value = state[persister.getEntityMetamodel().getPropertyIndex(property)];
+        if (value instanceof Course course) {
+            return course.getId();
+        }
+        return value instanceof Instructor instructor ? instructor.getId() : null;
+    }
+
+    private static Long idOf(Course course) {
+        return course != null ? course.getId() : null;
+    }
+
+    private static Long idOf(Instructor instructor) {
+        return instructor != null ? instructor.getId() : null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.musicschool.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduled task configuration for the Music School Management System.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    // @Scheduled methods run on Spring Boot's task scheduler (spring.task.scheduling)
+}
@@ -0,0 +1,46 @@
+package com.musicschool.config;
+
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.relational.QualifiedName;
+import org.hibernate.boot.model.relational.QualifiedNameParser;
+import org.hibernate.boot.model.relational.QualifiedSequenceName;
+import org.hibernate.engine.jdbc.env.spi.JdbcEnvironment;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.ImplicitDatabaseObjectNamingStrategy;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+
+import java.util.Map;
+
+/**
+ * Names implicit id sequences "<table>_id_seq" so entities reuse the sequences
+ * PostgreSQL creates for the SERIAL primary keys in the Flyway migrations.
+ */
+public class TableSequenceNamingStrategy implements ImplicitDatabaseObjectNamingStrategy {
+
+    private static final String SEQUENCE_SUFFIX = "_id_seq";
+    private static final String FALLBACK_SEQUENCE = "hibernate_sequence";
+    private static final String FALLBACK_TABLE = "hibernate_sequences";
+
+    @Override
+    public QualifiedName determineSequenceName(Identifier catalogName, Identifier schemaName,
+                                               Map<?, ?> configValues, ServiceRegistry serviceRegistry) {
+        String tableName = ConfigurationHelper.getString(PersistentIdentifierGenerator.TABLE, configValues);
+        if (tableName == null) {
+            return new QualifiedSequenceName(catalogName, schemaName, Identifier.toIdentifier(FALLBACK_SEQUENCE));
+        }
+        String sequenceName = tableName + SEQUENCE_SUFFIX;
+        if (sequenceName.contains(".")) {
+            return QualifiedNameParser.INSTANCE.parse(sequenceName);
+        }
+        JdbcEnvironment jdbcEnvironment = serviceRegistry.getService(JdbcEnvironment.class);
+        return new QualifiedSequenceName(catalogName, schemaName,
+            jdbcEnvironment.getIdentifierHelper().toIdentifier(sequenceName));
+    }
+
+    @Override
+    public QualifiedName determineTableName(Identifier catalogName, Identifier schemaName,
+                                            Map<?, ?> configValues, ServiceRegistry serviceRegistry) {
+        return new QualifiedNameParser.NameParts(catalogName, schemaName, Identifier.toIdentifier(FALLBACK_TABLE));
+    }
+}
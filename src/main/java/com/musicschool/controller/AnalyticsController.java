@@ -1,12 +1,25 @@
 package com.musicschool.controller;
 
+import com.musicschool.service.AnalyticsRollupService;
 import com.musicschool.service.AnalyticsService;
+import com.musicschool.service.AnalyticsSketchService;
+import com.musicschool.service.MetricSeriesService;
+import com.musicschool.service.MetricStore;
+import com.musicschool.service.metrics.MetricBackfillService;
+import com.musicschool.service.metrics.MetricCollectionLeases;
+import com.musicschool.service.metrics.MetricCollectionPipeline;
+import com.musicschool.service.metrics.MetricCollectionScheduler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,6 +33,15 @@ public class AnalyticsController {
     @Autowired
     private AnalyticsService analyticsService;
 
+    @Autowired
+    private AnalyticsSketchService analyticsSketchService;
+
+    @Autowired
+    private MetricSeriesService metricSeriesService;
+
+    @Autowired
+    private MetricCollectionScheduler metricCollectionScheduler;
+
     /**
      * Get analytics dashboard data
      */
@@ -32,6 +54,55 @@ public class AnalyticsController {
         return ResponseEntity.ok(dashboard);
     }
 
+    /**
+     * Get the daily trend of one metric, for the whole school or one tenant
+     */
+    @GetMapping("/metrics/{metricName}/trend")
+    public ResponseEntity<List<AnalyticsRollupService.TrendPoint>> getMetricTrend(
+            @PathVariable String metricName,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "SUM") MetricStore.Aggregation aggregation,
+            @RequestParam(required = false) Long tenantId) {
+        
+        List<AnalyticsRollupService.TrendPoint> trend = analyticsService.getMetricTrend(
+            metricName, tenantId, startDate, endDate, aggregation);
+        return ResponseEntity.ok(trend);
+    }
+
+    /**
+     * Stream one metric for charting as columnar JSON or CSV. With a step (ISO-8601 duration,
+     * e.g. PT1H or P7D) points are aggregated per step; the result is then downsampled (LTTB)
+     * to at most maxPoints, normally the chart width in pixels. With a tenantId the tenant's
+     * own series is returned instead of the school-wide one.
+     */
+    @GetMapping("/series/{metricName}")
+    public ResponseEntity<StreamingResponseBody> getMetricSeries(
+            @PathVariable String metricName,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String step,
+            @RequestParam(defaultValue = "SUM") MetricStore.Aggregation aggregation,
+            @RequestParam(defaultValue = "1000") int maxPoints,
+            @RequestParam(defaultValue = "JSON") MetricSeriesService.Format format,
+            @RequestParam(required = false) Long tenantId) {
+        
+        Long stepMillis;
+        try {
+            stepMillis = step != null ? Duration.parse(step).toMillis() : null;
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Invalid step " + step);
+        }
+        // Queried before the response starts, so errors are not reported mid-stream
+        MetricSeriesService.MetricSeries series = metricSeriesService.query(
+            metricName, tenantId, startDate, endDate, stepMillis, aggregation, maxPoints);
+        StreamingResponseBody body = out -> metricSeriesService.write(series, format, out);
+        return ResponseEntity.ok()
+            .contentType(format == MetricSeriesService.Format.CSV
+                ? MediaType.parseMediaType("text/csv;charset=UTF-8") : MediaType.APPLICATION_JSON)
+            .body(body);
+    }
+
     /**
      * Get performance insights
      */
@@ -49,4 +120,99 @@ public class AnalyticsController {
         analyticsService.collectDailyMetrics();
         return ResponseEntity.ok("Metrics collection started");
     }
+
+    /**
+     * Collect the metrics of one day synchronously and report how long each collector took
+     */
+    @PostMapping("/collect-metrics/run")
+    public ResponseEntity<MetricCollectionPipeline.CollectionReport> runMetricsCollection(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        
+        LocalDate day = date != null ? date : LocalDate.now();
+        return ResponseEntity.ok(analyticsService.collectMetricsForDate(day));
+    }
+
+    /**
+     * Open a tenant-sharded collection run for a date; scheduler nodes pick up its shards on
+     * their next poll
+     */
+    @PostMapping("/collect-metrics/runs")
+    public ResponseEntity<List<MetricCollectionLeases.LeaseStatus>> startCollectionRun(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        
+        return ResponseEntity.ok(metricCollectionScheduler.startRun(date));
+    }
+
+    /**
+     * Leader and shard leases of a sharded collection run, with each shard's checkpoint
+     */
+    @GetMapping("/collect-metrics/runs")
+    public ResponseEntity<List<MetricCollectionLeases.LeaseStatus>> getCollectionRun(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        
+        return ResponseEntity.ok(metricCollectionScheduler.getRunStatus(date));
+    }
+
+    /**
+     * Recompute revenue and enrollment metrics for a historical date range; reruns replace
+     * the metrics of the range instead of duplicating them
+     */
+    @PostMapping("/backfill")
+    public ResponseEntity<MetricBackfillService.BackfillReport> backfillMetrics(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        return ResponseEntity.ok(analyticsService.backfillMetrics(startDate, endDate));
+    }
+
+    /**
+     * Estimated distinct count of a sketched metric (e.g. active_students) per period
+     */
+    @GetMapping("/sketches/{metricName}/distinct")
+    public ResponseEntity<List<AnalyticsSketchService.SketchPoint>> getDistinctCounts(
+            @PathVariable String metricName,
+            @RequestParam(defaultValue = AnalyticsSketchService.ALL) String dimension,
+            @RequestParam(defaultValue = "WEEK") AnalyticsSketchService.Period period,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        return ResponseEntity.ok(analyticsSketchService.getDistinctCounts(metricName, dimension, period,
+            startDate, endDate));
+    }
+
+    /**
+     * Quantile of a sketched metric (e.g. lesson_duration_minutes) per period
+     */
+    @GetMapping("/sketches/{metricName}/quantile")
+    public ResponseEntity<List<AnalyticsSketchService.SketchPoint>> getQuantiles(
+            @PathVariable String metricName,
+            @RequestParam(defaultValue = AnalyticsSketchService.ALL) String dimension,
+            @RequestParam(defaultValue = "0.95") double quantile,
+            @RequestParam(defaultValue = "WEEK") AnalyticsSketchService.Period period,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        return ResponseEntity.ok(analyticsSketchService.getQuantiles(metricName, dimension, quantile, period,
+            startDate, endDate));
+    }
+
+    /**
+     * Dimensions a sketched metric can be queried by
+     */
+    @GetMapping("/sketches/{metricName}/dimensions")
+    public ResponseEntity<List<String>> getSketchDimensions(@PathVariable String metricName) {
+        return ResponseEntity.ok(analyticsSketchService.getDimensions(metricName));
+    }
+
+    /**
+     * Build (or rebuild) the daily sketches of a historical date range
+     */
+    @PostMapping("/sketches/build")
+    public ResponseEntity<Map<String, Object>> buildSketches(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        int written = analyticsSketchService.buildSketches(startDate, endDate);
+        return ResponseEntity.ok(Map.of("startDate", startDate, "endDate", endDate, "sketchesWritten", written));
+    }
 }
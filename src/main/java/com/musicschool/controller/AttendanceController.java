@@ -0,0 +1,93 @@
+package com.musicschool.controller;
+
+import com.musicschool.service.AttendanceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * REST Controller for attendance check-ins and attendance statistics.
+ */
+@RestController
+@RequestMapping("/api/attendance")
+@CrossOrigin(origins = "*")
+public class AttendanceController {
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    /**
+     * Check a class in at once; occurrenceStart identifies the occurrence of a recurring series
+     */
+    @PostMapping("/schedule/{scheduleId}/check-in")
+    public ResponseEntity<AttendanceService.CheckInResult> checkIn(
+            @PathVariable Long scheduleId,
+            @RequestBody CheckInRequest request) {
+        
+        AttendanceService.CheckInResult result = attendanceService.checkIn(scheduleId,
+            request.getOccurrenceStart(), request.getStudentIds(), request.getCheckedInAt());
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Record expected students who did not check in as absent
+     */
+    @PostMapping("/schedule/{scheduleId}/absentees")
+    public ResponseEntity<Integer> markAbsentees(
+            @PathVariable Long scheduleId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime occurrenceStart) {
+        
+        return ResponseEntity.ok(attendanceService.markAbsentees(scheduleId, occurrenceStart));
+    }
+
+    /**
+     * Attendance recorded for one occurrence
+     */
+    @GetMapping("/schedule/{scheduleId}")
+    public ResponseEntity<List<AttendanceService.AttendanceEntry>> getOccurrenceAttendance(
+            @PathVariable Long scheduleId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime occurrenceStart) {
+        
+        return ResponseEntity.ok(attendanceService.getOccurrenceAttendance(scheduleId, occurrenceStart));
+    }
+
+    /**
+     * Attendance totals and rate of a course
+     */
+    @GetMapping("/course/{courseId}")
+    public ResponseEntity<AttendanceService.CourseAttendance> getCourseAttendance(@PathVariable Long courseId) {
+        return ResponseEntity.ok(attendanceService.getCourseAttendance(courseId));
+    }
+
+    /**
+     * Attendance per lesson start hour of one day
+     */
+    @GetMapping("/hours")
+    public ResponseEntity<List<AttendanceService.HourAttendance>> getHourlyAttendance(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        
+        return ResponseEntity.ok(attendanceService.getHourlyAttendance(date));
+    }
+
+    /**
+     * Request body for class check-ins
+     */
+    public static class CheckInRequest {
+        private List<Long> studentIds;
+        private LocalDateTime occurrenceStart;
+        private LocalDateTime checkedInAt;
+
+        // Getters and setters
+        public List<Long> getStudentIds() { return studentIds; }
+        public void setStudentIds(List<Long> studentIds) { this.studentIds = studentIds; }
+        public LocalDateTime getOccurrenceStart() { return occurrenceStart; }
+        public void setOccurrenceStart(LocalDateTime occurrenceStart) { this.occurrenceStart = occurrenceStart; }
+        public LocalDateTime getCheckedInAt() { return checkedInAt; }
+        public void setCheckedInAt(LocalDateTime checkedInAt) { this.checkedInAt = checkedInAt; }
+    }
+}
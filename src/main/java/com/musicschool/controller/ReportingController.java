@@ -1,11 +1,17 @@
 package com.musicschool.controller;
 
 import com.musicschool.entity.Report;
+import com.musicschool.service.ReportExportService;
+import com.musicschool.service.ReportJobService;
 import com.musicschool.service.ReportingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.Map;
@@ -21,6 +27,12 @@ public class ReportingController {
     @Autowired
     private ReportingService reportingService;
 
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @Autowired
+    private ReportExportService reportExportService;
+
     /**
      * Generate student enrollment report
      */
@@ -95,4 +107,72 @@ public class ReportingController {
         Report report = reportingService.saveReport(name, description, type, data, createdBy);
         return ResponseEntity.ok(report);
     }
+
+    /**
+     * Data of a saved report, read back from its stored payload without recomputing it
+     */
+    @GetMapping("/{id}/data")
+    public ResponseEntity<Map<String, Object>> getReportData(@PathVariable Long id) {
+        return ResponseEntity.ok(reportingService.getReportData(id));
+    }
+
+    /**
+     * Submit a report for background generation; poll /jobs/{id} for its status and progress
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<Report> submitReport(
+            @RequestParam Report.ReportType type,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam String createdBy) {
+        
+        Report report = reportJobService.submit(type, startDate, endDate, createdBy);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(report);
+    }
+
+    /**
+     * Status and progress of a submitted report
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<Report> getReportJob(@PathVariable Long id) {
+        return ResponseEntity.ok(reportJobService.getReport(id));
+    }
+
+    /**
+     * Result of a completed report; 409 while it is still being generated, 410 once it expired
+     */
+    @GetMapping("/jobs/{id}/result")
+    public ResponseEntity<StreamingResponseBody> getReportResult(@PathVariable Long id) {
+        Report report = reportJobService.getReport(id);
+        if (report.getStatus() != Report.ReportStatus.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (report.getPayload() == null) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        StreamingResponseBody body = out -> reportJobService.writeResult(report, out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"report-" + id + ".json\"")
+            .body(body);
+    }
+
+    /**
+     * Export a report as PDF or XLSX, with its payment or enrollment lines streamed from the database
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportReport(
+            @RequestParam Report.ReportType type,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "PDF") ReportExportService.ExportFormat format) {
+        
+        reportExportService.validate(type, startDate, endDate);
+        StreamingResponseBody body = out -> reportExportService.export(type, startDate, endDate, format, out);
+        String filename = type.name().toLowerCase() + "-" + startDate + "-" + endDate + "." + format.getExtension();
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(format.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .body(body);
+    }
 }
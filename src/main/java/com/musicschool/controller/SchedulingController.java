@@ -2,14 +2,29 @@ package com.musicschool.controller;
 
 import com.musicschool.entity.Schedule;
 import com.musicschool.entity.ScheduleConflict;
+import com.musicschool.entity.ScheduleException;
+import com.musicschool.service.BookingConflictException;
+import com.musicschool.service.CalendarFeedService;
 import com.musicschool.service.SchedulingService;
+import com.musicschool.service.SerializationRetry;
+import com.musicschool.service.TimetableInfeasibleException;
+import com.musicschool.service.TimetableService;
+import com.musicschool.service.TimetableSolver;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * REST Controller for advanced scheduling endpoints.
@@ -22,25 +37,73 @@ public class SchedulingController {
     @Autowired
     private SchedulingService schedulingService;
 
+    @Autowired
+    private TimetableService timetableService;
+
+    @Autowired
+    private CalendarFeedService calendarFeedService;
+
+    @Autowired
+    private SerializationRetry serializationRetry;
+
+    @Value("${scheduling.free-slots.max-limit:100}")
+    private int maxFreeSlotLimit;
+
     /**
      * Create a new schedule entry
      */
     @PostMapping("/schedule")
-    public ResponseEntity<Schedule> createSchedule(@RequestBody Schedule schedule) {
-        Schedule createdSchedule = schedulingService.createSchedule(schedule);
-        return ResponseEntity.ok(createdSchedule);
+    public ResponseEntity<?> createSchedule(@RequestBody Schedule schedule) {
+        try {
+            Schedule createdSchedule = serializationRetry.run(() -> schedulingService.createSchedule(schedule));
+            return ResponseEntity.ok(createdSchedule);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * Book a schedule entry, rejecting it when it conflicts with existing bookings
+     */
+    @PostMapping("/book")
+    public ResponseEntity<?> bookSchedule(@RequestBody Schedule schedule) {
+        try {
+            Schedule bookedSchedule = serializationRetry.run(() -> schedulingService.bookSchedule(schedule));
+            return ResponseEntity.ok(bookedSchedule);
+        } catch (BookingConflictException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            response.put("conflicts", e.getConflicts().stream()
+                .map(ScheduleConflict::getDescription)
+                .collect(Collectors.toList()));
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
     }
 
     /**
-     * Create recurring schedule entries
+     * Create a recurring series. The returned occurrences have no id of their own;
+     * parentScheduleId is the id of the stored series
      */
     @PostMapping("/recurring")
-    public ResponseEntity<List<Schedule>> createRecurringSchedule(
+    public ResponseEntity<?> createRecurringSchedule(
             @RequestBody Schedule template,
             @RequestBody SchedulingService.RecurrencePattern pattern) {
         
-        List<Schedule> schedules = schedulingService.createRecurringSchedule(template, pattern);
-        return ResponseEntity.ok(schedules);
+        try {
+            List<Schedule> schedules = serializationRetry.run(
+                () -> schedulingService.createRecurringSchedule(template, pattern));
+            return ResponseEntity.ok(schedules);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
     }
 
     /**
@@ -68,30 +131,127 @@ public class SchedulingController {
      * Get instructor availability
      */
     @GetMapping("/instructor/{instructorId}/availability")
-    public ResponseEntity<List<SchedulingService.TimeSlot>> getInstructorAvailability(
+    public ResponseEntity<?> getInstructorAvailability(
             @PathVariable Long instructorId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "60") int slotMinutes) {
+        
+        if (slotMinutes <= 0) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "slotMinutes must be positive");
+            return ResponseEntity.badRequest().body(response);
+        }
         
         List<SchedulingService.TimeSlot> availability = schedulingService.getInstructorAvailability(
-            instructorId, startDate, endDate);
+            instructorId, startDate, endDate, slotMinutes);
         return ResponseEntity.ok(availability);
     }
 
+    /**
+     * Get merged free intervals of an instructor
+     */
+    @GetMapping("/instructor/{instructorId}/free-intervals")
+    public ResponseEntity<List<SchedulingService.TimeSlot>> getInstructorFreeIntervals(
+            @PathVariable Long instructorId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        
+        List<SchedulingService.TimeSlot> freeIntervals = schedulingService.getInstructorFreeIntervals(
+            instructorId, startDate, endDate);
+        return ResponseEntity.ok(freeIntervals);
+    }
+
     /**
      * Get room availability
      */
     @GetMapping("/room/{room}/availability")
-    public ResponseEntity<List<SchedulingService.TimeSlot>> getRoomAvailability(
+    public ResponseEntity<?> getRoomAvailability(
             @PathVariable String room,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "60") int slotMinutes) {
+        
+        if (slotMinutes <= 0) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "slotMinutes must be positive");
+            return ResponseEntity.badRequest().body(response);
+        }
         
         List<SchedulingService.TimeSlot> availability = schedulingService.getRoomAvailability(
-            room, startDate, endDate);
+            room, startDate, endDate, slotMinutes);
         return ResponseEntity.ok(availability);
     }
 
+    /**
+     * Get merged free intervals of a room
+     */
+    @GetMapping("/room/{room}/free-intervals")
+    public ResponseEntity<List<SchedulingService.TimeSlot>> getRoomFreeIntervals(
+            @PathVariable String room,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        
+        List<SchedulingService.TimeSlot> freeIntervals = schedulingService.getRoomFreeIntervals(
+            room, startDate, endDate);
+        return ResponseEntity.ok(freeIntervals);
+    }
+
+    /**
+     * Find slots where an instructor, a student and one of the candidate rooms are all free
+     */
+    @GetMapping("/common-free-slots")
+    public ResponseEntity<?> findCommonFreeSlots(
+            @RequestParam Long instructorId,
+            @RequestParam Long studentId,
+            @RequestParam List<String> rooms,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "60") int durationMinutes,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        if (durationMinutes <= 0) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "durationMinutes must be positive");
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (limit <= 0 || limit > maxFreeSlotLimit) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "limit must be between 1 and " + maxFreeSlotLimit);
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        List<SchedulingService.SlotCandidate> slots = schedulingService.findCommonFreeSlots(
+            instructorId, studentId, rooms, startDate, endDate, durationMinutes, limit);
+        return ResponseEntity.ok(slots);
+    }
+
+    /**
+     * Generate a conflict-free weekly timetable for the term; with apply=true the result is
+     * stored on the courses and expanded into recurring schedules. Answers 409 with the
+     * courses left conflicting when no conflict-free timetable was found
+     */
+    @PostMapping("/timetable")
+    public ResponseEntity<?> generateTimetable(
+            @RequestBody TimetableService.TimetableRequest request,
+            @RequestParam(defaultValue = "false") boolean apply) {
+        try {
+            TimetableSolver.Result result = apply
+                ? timetableService.solveAndApply(request)
+                : timetableService.solve(request);
+            return ResponseEntity.ok(result);
+        } catch (TimetableInfeasibleException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            response.put("conflictedCourseIds", e.getConflictedCourseIds());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
     /**
      * Get schedule for a specific date range
      */
@@ -132,6 +292,33 @@ public class SchedulingController {
         return ResponseEntity.ok(schedules);
     }
 
+    /**
+     * iCalendar feed of an instructor's schedule
+     */
+    @GetMapping("/instructor/{instructorId}/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> getInstructorCalendar(
+            @PathVariable Long instructorId, WebRequest request) {
+        return calendarFeed(CalendarFeedService.FeedType.INSTRUCTOR, String.valueOf(instructorId), request);
+    }
+
+    /**
+     * iCalendar feed of a student's schedule
+     */
+    @GetMapping("/student/{studentId}/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> getStudentCalendar(
+            @PathVariable Long studentId, WebRequest request) {
+        return calendarFeed(CalendarFeedService.FeedType.STUDENT, String.valueOf(studentId), request);
+    }
+
+    /**
+     * iCalendar feed of a room's schedule
+     */
+    @GetMapping("/room/{room}/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> getRoomCalendar(
+            @PathVariable String room, WebRequest request) {
+        return calendarFeed(CalendarFeedService.FeedType.ROOM, room, request);
+    }
+
     /**
      * Cancel a schedule entry
      */
@@ -140,7 +327,7 @@ public class SchedulingController {
             @PathVariable Long scheduleId,
             @RequestParam String reason) {
         
-        Schedule schedule = schedulingService.cancelSchedule(scheduleId, reason);
+        Schedule schedule = serializationRetry.run(() -> schedulingService.cancelSchedule(scheduleId, reason));
         return ResponseEntity.ok(schedule);
     }
 
@@ -148,12 +335,71 @@ public class SchedulingController {
      * Reschedule an entry
      */
     @PostMapping("/schedule/{scheduleId}/reschedule")
-    public ResponseEntity<Schedule> reschedule(
+    public ResponseEntity<?> reschedule(
             @PathVariable Long scheduleId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime newStartTime,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime newEndTime) {
         
-        Schedule schedule = schedulingService.reschedule(scheduleId, newStartTime, newEndTime);
-        return ResponseEntity.ok(schedule);
+        try {
+            Schedule schedule = serializationRetry.run(
+                () -> schedulingService.reschedule(scheduleId, newStartTime, newEndTime));
+            return ResponseEntity.ok(schedule);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * Cancel a single occurrence of a recurring series
+     */
+    @PostMapping("/series/{seriesId}/occurrences/cancel")
+    public ResponseEntity<ScheduleException> cancelOccurrence(
+            @PathVariable Long seriesId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime originalStart,
+            @RequestParam String reason) {
+        
+        ScheduleException exclusion = serializationRetry.run(
+            () -> schedulingService.cancelOccurrence(seriesId, originalStart, reason));
+        return ResponseEntity.ok(exclusion);
+    }
+
+    /**
+     * Move a single occurrence of a recurring series
+     */
+    @PostMapping("/series/{seriesId}/occurrences/reschedule")
+    public ResponseEntity<?> rescheduleOccurrence(
+            @PathVariable Long seriesId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime originalStart,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime newStartTime,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime newEndTime) {
+        
+        try {
+            Schedule schedule = serializationRetry.run(
+                () -> schedulingService.rescheduleOccurrence(seriesId, originalStart, newStartTime, newEndTime));
+            return ResponseEntity.ok(schedule);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+
+    /**
+     * Answer 304 when the client's ETag or If-Modified-Since still matches, otherwise stream the feed
+     */
+    private ResponseEntity<StreamingResponseBody> calendarFeed(CalendarFeedService.FeedType type, String key,
+                                                               WebRequest request) {
+        CalendarFeedService.FeedVersion version = calendarFeedService.getFeedVersion(type, key);
+        if (request.checkNotModified(version.getETag(), version.getLastModifiedMillis())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(version.getETag()).build();
+        }
+        StreamingResponseBody body = out -> calendarFeedService.writeFeed(version, out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("text/calendar;charset=UTF-8"))
+            .eTag(version.getETag())
+            .lastModified(version.getLastModifiedMillis())
+            .body(body);
     }
 }
@@ -37,6 +37,10 @@ public class Analytics extends BaseEntity {
     @Column(name = "category")
     private String category;
 
+    // Set when the metric covers one tenant (0 for rows without a tenant), null for the whole school
+    @Column(name = "tenant_id")
+    private Long tenantId;
+
     // Constructors
     public Analytics() {}
 
@@ -105,6 +109,14 @@ public class Analytics extends BaseEntity {
         this.category = category;
     }
 
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(Long tenantId) {
+        this.tenantId = tenantId;
+    }
+
     public enum MetricType {
         REVENUE,
         ENROLLMENT,
@@ -0,0 +1,111 @@
+package com.musicschool.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Entity holding a pre-summed metric per tenant for one day, week or month.
+ * Rows are only written through AnalyticsRollupRepository.addDelta, which upserts increments.
+ */
+@Entity
+@Table(name = "analytics_rollups", uniqueConstraints = @UniqueConstraint(
+    columnNames = {"tenant_id", "granularity", "period_start", "metric_name"}))
+public class AnalyticsRollup extends BaseEntity {
+
+    @NotNull(message = "Tenant is required")
+    @Column(name = "tenant_id", nullable = false)
+    private Long tenantId = 0L;
+
+    @NotNull(message = "Granularity is required")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "granularity", nullable = false, length = 10)
+    private Granularity granularity;
+
+    @NotNull(message = "Period start is required")
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @NotNull(message = "Metric name is required")
+    @Column(name = "metric_name", nullable = false, length = 100)
+    private String metricName;
+
+    @Column(name = "metric_value", precision = 19, scale = 4, nullable = false)
+    private BigDecimal metricValue = BigDecimal.ZERO;
+
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount = 0L;
+
+    // Constructors
+    public AnalyticsRollup() {}
+
+    // Getters and Setters
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(Long tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public void setGranularity(Granularity granularity) {
+        this.granularity = granularity;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+
+    public void setMetricName(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public BigDecimal getMetricValue() {
+        return metricValue;
+    }
+
+    public void setMetricValue(BigDecimal metricValue) {
+        this.metricValue = metricValue;
+    }
+
+    public Long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(Long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public enum Granularity {
+        DAY,
+        WEEK,
+        MONTH;
+
+        /**
+         * First day of the period containing the date; weeks start on Monday
+         */
+        public LocalDate periodStart(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> date.withDayOfMonth(1);
+            };
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.musicschool.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+
+/**
+ * Entity holding a serialized mergeable sketch of one metric and dimension for one day.
+ * Longer periods are answered by merging the daily sketches, see AnalyticsSketchService.
+ */
+@Entity
+@Table(name = "analytics_sketches", uniqueConstraints = @UniqueConstraint(
+    columnNames = {"sketch_type", "metric_name", "dimension", "sketch_date"}))
+public class AnalyticsSketch extends BaseEntity {
+
+    @NotNull(message = "Sketch date is required")
+    @Column(name = "sketch_date", nullable = false)
+    private LocalDate sketchDate;
+
+    @NotNull(message = "Sketch type is required")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "sketch_type", nullable = false, length = 20)
+    private SketchType sketchType;
+
+    @NotNull(message = "Metric name is required")
+    @Column(name = "metric_name", nullable = false, length = 100)
+    private String metricName;
+
+    @NotNull(message = "Dimension is required")
+    @Column(name = "dimension", nullable = false, length = 100)
+    private String dimension;
+
+    @NotNull(message = "Payload is required")
+    @Column(name = "payload", nullable = false)
+    private byte[] payload;
+
+    @Column(name = "sample_count", nullable = false)
+    private Long sampleCount = 0L;
+
+    // Constructors
+    public AnalyticsSketch() {}
+
+    public AnalyticsSketch(LocalDate sketchDate, SketchType sketchType, String metricName, String dimension,
+                           byte[] payload, long sampleCount) {
+        this.sketchDate = sketchDate;
+        this.sketchType = sketchType;
+        this.metricName = metricName;
+        this.dimension = dimension;
+        this.payload = payload;
+        this.sampleCount = sampleCount;
+    }
+
+    // Getters and Setters
+    public LocalDate getSketchDate() {
+        return sketchDate;
+    }
+
+    public void setSketchDate(LocalDate sketchDate) {
+        this.sketchDate = sketchDate;
+    }
+
+    public SketchType getSketchType() {
+        return sketchType;
+    }
+
+    public void setSketchType(SketchType sketchType) {
+        this.sketchType = sketchType;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+
+    public void setMetricName(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String getDimension() {
+        return dimension;
+    }
+
+    public void setDimension(String dimension) {
+        this.dimension = dimension;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public Long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(Long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public enum SketchType {
+        HLL,        // distinct counts
+        DDSKETCH    // quantiles
+    }
+}
@@ -0,0 +1,100 @@
+package com.musicschool.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording whether a student attended one occurrence of a schedule.
+ * Rows are only written through AttendanceService, which inserts whole classes in one
+ * statement and keeps the attendance counters in step.
+ */
+@Entity
+@Table(name = "attendance_records", uniqueConstraints = @UniqueConstraint(
+    columnNames = {"schedule_id", "occurrence_start", "student_id"}))
+public class Attendance extends BaseEntity {
+
+    @NotNull(message = "Schedule is required")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "schedule_id", nullable = false)
+    private Schedule schedule;
+
+    // Start of the occurrence attended; recurring series share one schedule row
+    @NotNull(message = "Occurrence start is required")
+    @Column(name = "occurrence_start", nullable = false)
+    private LocalDateTime occurrenceStart;
+
+    @NotNull(message = "Student is required")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "student_id", nullable = false)
+    private Student student;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "course_id")
+    private Course course;
+
+    @NotNull(message = "Status is required")
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private AttendanceStatus status;
+
+    @Column(name = "checked_in_at")
+    private LocalDateTime checkedInAt;
+
+    // Constructors
+    public Attendance() {}
+
+    // Getters and Setters
+    public Schedule getSchedule() {
+        return schedule;
+    }
+
+    public void setSchedule(Schedule schedule) {
+        this.schedule = schedule;
+    }
+
+    public LocalDateTime getOccurrenceStart() {
+        return occurrenceStart;
+    }
+
+    public void setOccurrenceStart(LocalDateTime occurrenceStart) {
+        this.occurrenceStart = occurrenceStart;
+    }
+
+    public Student getStudent() {
+        return student;
+    }
+
+    public void setStudent(Student student) {
+        this.student = student;
+    }
+
+    public Course getCourse() {
+        return course;
+    }
+
+    public void setCourse(Course course) {
+        this.course = course;
+    }
+
+    public AttendanceStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AttendanceStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCheckedInAt() {
+        return checkedInAt;
+    }
+
+    public void setCheckedInAt(LocalDateTime checkedInAt) {
+        this.checkedInAt = checkedInAt;
+    }
+
+    public enum AttendanceStatus {
+        PRESENT, LATE, ABSENT
+    }
+}
@@ -14,8 +14,10 @@ import java.time.LocalDateTime;
 @EntityListeners(AuditingEntityListener.class)
 public abstract class BaseEntity {
 
+    // Sequence ids (one "<table>_id_seq" per table, see TableSequenceNamingStrategy) keep
+    // JDBC insert batching available, which IDENTITY columns disable.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @CreatedDate
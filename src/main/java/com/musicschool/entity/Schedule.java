@@ -3,6 +3,7 @@ package com.musicschool.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
@@ -14,6 +15,9 @@ import java.util.List;
 @Table(name = "schedules")
 public class Schedule extends BaseEntity {
 
+    // Longest allowed entry (V21 CHECK); overlap lookups use it to bound their index range scans
+    public static final Duration MAX_DURATION = Duration.ofHours(12);
+
     @NotNull(message = "Start time is required")
     @Column(name = "start_time", nullable = false)
     private LocalDateTime startTime;
@@ -43,7 +47,20 @@ public class Schedule extends BaseEntity {
     private Boolean recurring = false;
 
     @Column(name = "recurrence_pattern")
-    private String recurrencePattern; // JSON string for recurrence rules
+    private String recurrencePattern; // JSON string for recurrence rules (legacy materialized series)
+
+    // RRULE of a series template; start/end time hold the first occurrence
+    @Column(name = "recurrence_rule")
+    private String recurrenceRule;
+
+    // End of the last occurrence of a series, null when the series is unbounded
+    @Column(name = "series_end")
+    private LocalDateTime seriesEnd;
+
+    // Whether the series' occurrences are included in the analytics rollups; series created
+    // before the rollups were seeded (V11) are not
+    @Column(name = "counted_in_rollups")
+    private Boolean countedInRollups;
 
     @Column(name = "parent_schedule_id")
     private Long parentScheduleId;
@@ -75,6 +92,11 @@ public class Schedule extends BaseEntity {
     @OneToMany(mappedBy = "schedule", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<ScheduleConflict> conflicts;
 
+    // Optimistic lock: concurrent updates of the same entry (reschedule, cancel) fail instead of overwriting
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     // Constructors
     public Schedule() {}
 
@@ -157,6 +179,34 @@ public class Schedule extends BaseEntity {
         this.recurrencePattern = recurrencePattern;
     }
 
+    public String getRecurrenceRule() {
+        return recurrenceRule;
+    }
+
+    public void setRecurrenceRule(String recurrenceRule) {
+        this.recurrenceRule = recurrenceRule;
+    }
+
+    public LocalDateTime getSeriesEnd() {
+        return seriesEnd;
+    }
+
+    public void setSeriesEnd(LocalDateTime seriesEnd) {
+        this.seriesEnd = seriesEnd;
+    }
+
+    public boolean isSeries() {
+        return recurrenceRule != null;
+    }
+
+    public Boolean getCountedInRollups() {
+        return countedInRollups;
+    }
+
+    public void setCountedInRollups(Boolean countedInRollups) {
+        this.countedInRollups = countedInRollups;
+    }
+
     public Long getParentScheduleId() {
         return parentScheduleId;
     }
@@ -229,6 +279,14 @@ public class Schedule extends BaseEntity {
         this.conflicts = conflicts;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public enum ScheduleType {
         LESSON,
         GROUP_CLASS,
@@ -0,0 +1,70 @@
+package com.musicschool.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing an excluded occurrence (EXDATE) of a recurring schedule series.
+ * A moved occurrence is excluded here and stored as a detached schedule row.
+ */
+@Entity
+@Table(name = "schedule_exceptions")
+public class ScheduleException extends BaseEntity {
+
+    @NotNull(message = "Series is required")
+    @Column(name = "series_id", nullable = false)
+    private Long seriesId;
+
+    @NotNull(message = "Original start is required")
+    @Column(name = "original_start", nullable = false)
+    private LocalDateTime originalStart;
+
+    @Column(name = "replacement_schedule_id")
+    private Long replacementScheduleId;
+
+    @Column(name = "reason")
+    private String reason;
+
+    // Constructors
+    public ScheduleException() {}
+
+    public ScheduleException(Long seriesId, LocalDateTime originalStart) {
+        this.seriesId = seriesId;
+        this.originalStart = originalStart;
+    }
+
+    // Getters and Setters
+    public Long getSeriesId() {
+        return seriesId;
+    }
+
+    public void setSeriesId(Long seriesId) {
+        this.seriesId = seriesId;
+    }
+
+    public LocalDateTime getOriginalStart() {
+        return originalStart;
+    }
+
+    public void setOriginalStart(LocalDateTime originalStart) {
+        this.originalStart = originalStart;
+    }
+
+    public Long getReplacementScheduleId() {
+        return replacementScheduleId;
+    }
+
+    public void setReplacementScheduleId(Long replacementScheduleId) {
+        this.replacementScheduleId = replacementScheduleId;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
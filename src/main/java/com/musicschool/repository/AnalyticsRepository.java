@@ -1,12 +1,16 @@
 package com.musicschool.repository;
 
 import com.musicschool.entity.Analytics;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -23,6 +27,12 @@ public interface AnalyticsRepository extends JpaRepository<Analytics, Long> {
     
     List<Analytics> findByMetricTypeAndDateRecordedBetween(Analytics.MetricType metricType, 
                                                           LocalDate startDate, LocalDate endDate);
+
+    /**
+     * School-wide metrics of a type in a date range, leaving out per-tenant rows of sharded collection
+     */
+    List<Analytics> findByMetricTypeAndTenantIdIsNullAndDateRecordedBetween(Analytics.MetricType metricType,
+                                                                          LocalDate startDate, LocalDate endDate);
     
     @Query("SELECT a FROM Analytics a WHERE a.metricType = :metricType AND a.dateRecorded = :date")
     List<Analytics> findByMetricTypeAndDate(@Param("metricType") Analytics.MetricType metricType, 
@@ -35,4 +45,65 @@ public interface AnalyticsRepository extends JpaRepository<Analytics, Long> {
     
     @Query("SELECT a.metricName, AVG(a.metricValue) FROM Analytics a WHERE a.metricType = :metricType GROUP BY a.metricName")
     List<Object[]> getAverageMetricsByType(@Param("metricType") Analytics.MetricType metricType);
+    
+    @Query("SELECT a.id, a.metricType, a.metricName, a.timestamp, a.dateRecorded, a.metricValue, a.tenantId, " +
+           "a.createdAt FROM Analytics a WHERE a.id > :afterId ORDER BY a.id")
+    List<Object[]> findMetricPointsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Same columns as findMetricPointsAfter, for the rows created at or after a time
+     */
+    @Query("SELECT a.id, a.metricType, a.metricName, a.timestamp, a.dateRecorded, a.metricValue, a.tenantId, " +
+           "a.createdAt FROM Analytics a WHERE a.createdAt >= :since")
+    List<Object[]> findMetricPointsCreatedSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Timestamp and value of the points of one metric of one tenant (-1 for school-wide rows)
+     * in [startTime, endTime), in time order
+     */
+    @Query("SELECT a.timestamp, a.metricValue FROM Analytics a WHERE a.metricName = :metricName " +
+           "AND COALESCE(a.tenantId, -1) = :tenantKey AND a.metricValue IS NOT NULL " +
+           "AND a.timestamp >= :startTime AND a.timestamp < :endTime ORDER BY a.timestamp")
+    List<Object[]> findMetricPoints(@Param("metricName") String metricName,
+                                    @Param("tenantKey") Long tenantKey,
+                                    @Param("startTime") LocalDateTime startTime,
+                                    @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Number of rows holding a metric point (a name and a value)
+     */
+    @Query("SELECT COUNT(a) FROM Analytics a WHERE a.metricName IS NOT NULL AND a.metricValue IS NOT NULL")
+    long countMetricPoints();
+
+    /**
+     * Delete the rows of the given types recorded in [startDate, endDate] for the whole school
+     * (no tenant) or for one of the given tenants; rows of other tenants are kept
+     */
+    @Modifying
+    @Query("DELETE FROM Analytics a WHERE a.metricType IN :metricTypes " +
+           "AND a.dateRecorded >= :startDate AND a.dateRecorded <= :endDate " +
+           "AND (a.tenantId IS NULL OR a.tenantId IN :tenantIds)")
+    int deleteByMetricTypesAndDateRange(@Param("metricTypes") Collection<Analytics.MetricType> metricTypes,
+                                        @Param("startDate") LocalDate startDate,
+                                        @Param("endDate") LocalDate endDate,
+                                        @Param("tenantIds") Collection<Long> tenantIds);
+
+    /**
+     * Delete the school-wide rows of the given metrics recorded on a day
+     */
+    @Modifying
+    @Query("DELETE FROM Analytics a WHERE a.dateRecorded = :date AND a.tenantId IS NULL " +
+           "AND a.metricName IN :metricNames")
+    int deleteSchoolMetrics(@Param("date") LocalDate date,
+                            @Param("metricNames") Collection<String> metricNames);
+
+    /**
+     * Delete the rows of one tenant for the given metrics recorded on a day
+     */
+    @Modifying
+    @Query("DELETE FROM Analytics a WHERE a.dateRecorded = :date AND a.tenantId = :tenantId " +
+           "AND a.metricName IN :metricNames")
+    int deleteTenantMetrics(@Param("date") LocalDate date,
+                            @Param("tenantId") Long tenantId,
+                            @Param("metricNames") Collection<String> metricNames);
 }
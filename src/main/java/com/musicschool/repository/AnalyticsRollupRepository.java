@@ -0,0 +1,57 @@
+package com.musicschool.repository;
+
+import com.musicschool.entity.AnalyticsRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for AnalyticsRollup entity.
+ */
+@Repository
+public interface AnalyticsRollupRepository extends JpaRepository<AnalyticsRollup, Long> {
+
+    /**
+     * Add a delta to one rollup row, creating it on first use. A single upsert statement,
+     * so concurrent writers never race on the insert.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO analytics_rollups (tenant_id, granularity, period_start, metric_name, " +
+                   "metric_value, sample_count, created_at, updated_at) " +
+                   "VALUES (:tenantId, :granularity, :periodStart, :metricName, :delta, :samples, NOW(), NOW()) " +
+                   "ON CONFLICT (tenant_id, granularity, period_start, metric_name) DO UPDATE SET " +
+                   "metric_value = analytics_rollups.metric_value + EXCLUDED.metric_value, " +
+                   "sample_count = analytics_rollups.sample_count + EXCLUDED.sample_count, " +
+                   "updated_at = NOW()",
+           nativeQuery = true)
+    int addDelta(@Param("tenantId") Long tenantId,
+                 @Param("granularity") String granularity,
+                 @Param("periodStart") LocalDate periodStart,
+                 @Param("metricName") String metricName,
+                 @Param("delta") BigDecimal delta,
+                 @Param("samples") long samples);
+
+    @Query("SELECT r FROM AnalyticsRollup r WHERE r.tenantId = :tenantId AND r.granularity = :granularity " +
+           "AND r.metricName = :metricName AND r.periodStart >= :startDate AND r.periodStart <= :endDate " +
+           "ORDER BY r.periodStart")
+    List<AnalyticsRollup> findSeries(@Param("tenantId") Long tenantId,
+                                     @Param("granularity") AnalyticsRollup.Granularity granularity,
+                                     @Param("metricName") String metricName,
+                                     @Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT r.periodStart, SUM(r.metricValue), SUM(r.sampleCount) FROM AnalyticsRollup r " +
+           "WHERE r.granularity = :granularity AND r.metricName = :metricName " +
+           "AND r.periodStart >= :startDate AND r.periodStart <= :endDate " +
+           "GROUP BY r.periodStart ORDER BY r.periodStart")
+    List<Object[]> sumSeriesAcrossTenants(@Param("granularity") AnalyticsRollup.Granularity granularity,
+                                          @Param("metricName") String metricName,
+                                          @Param("startDate") LocalDate startDate,
+                                          @Param("endDate") LocalDate endDate);
+}
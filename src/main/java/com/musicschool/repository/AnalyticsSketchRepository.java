@@ -0,0 +1,39 @@
+package com.musicschool.repository;
+
+import com.musicschool.entity.AnalyticsSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for AnalyticsSketch entity.
+ */
+@Repository
+public interface AnalyticsSketchRepository extends JpaRepository<AnalyticsSketch, Long> {
+
+    /**
+     * (sketch date, payload) of one metric and dimension in [startDate, endDate], oldest first.
+     */
+    @Query("SELECT s.sketchDate, s.payload FROM AnalyticsSketch s " +
+           "WHERE s.sketchType = :sketchType AND s.metricName = :metricName AND s.dimension = :dimension " +
+           "AND s.sketchDate >= :startDate AND s.sketchDate <= :endDate ORDER BY s.sketchDate")
+    List<Object[]> findPayloads(@Param("sketchType") AnalyticsSketch.SketchType sketchType,
+                                @Param("metricName") String metricName,
+                                @Param("dimension") String dimension,
+                                @Param("startDate") LocalDate startDate,
+                                @Param("endDate") LocalDate endDate);
+
+    @Query("SELECT DISTINCT s.dimension FROM AnalyticsSketch s WHERE s.metricName = :metricName ORDER BY s.dimension")
+    List<String> findDimensions(@Param("metricName") String metricName);
+
+    @Modifying
+    @Query("DELETE FROM AnalyticsSketch s WHERE s.sketchDate = :sketchDate AND s.metricName IN :metricNames")
+    int deleteBySketchDateAndMetricNames(@Param("sketchDate") LocalDate sketchDate,
+                                         @Param("metricNames") Collection<String> metricNames);
+}
@@ -0,0 +1,106 @@
+package com.musicschool.repository;
+
+import com.musicschool.entity.Attendance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for Attendance entity and the attendance counters.
+ */
+@Repository
+public interface AttendanceRepository extends JpaRepository<Attendance, Long> {
+
+    /**
+     * (student id, status, checked-in time) of everyone recorded for one occurrence.
+     */
+    @Query("SELECT a.student.id, a.status, a.checkedInAt FROM Attendance a " +
+           "WHERE a.schedule.id = :scheduleId AND a.occurrenceStart = :occurrenceStart ORDER BY a.student.id")
+    List<Object[]> findOccurrenceAttendance(@Param("scheduleId") Long scheduleId,
+                                            @Param("occurrenceStart") LocalDateTime occurrenceStart);
+
+    /**
+     * (student id, course instrument) of every attendance with one of the statuses in [startTime, endTime).
+     */
+    @Query("SELECT a.student.id, c.instrument FROM Attendance a LEFT JOIN a.course c " +
+           "WHERE a.occurrenceStart >= :startTime AND a.occurrenceStart < :endTime AND a.status IN :statuses")
+    List<Object[]> findStudentsByStatusInRange(@Param("startTime") LocalDateTime startTime,
+                                               @Param("endTime") LocalDateTime endTime,
+                                               @Param("statuses") Collection<Attendance.AttendanceStatus> statuses);
+
+    /**
+     * (hour of the lesson start, attended, absent) in [startTime, endTime) for one tenant's students
+     * (0 for students without a tenant).
+     */
+    @Query("SELECT EXTRACT(HOUR FROM a.occurrenceStart), " +
+           "SUM(CASE WHEN a.status = com.musicschool.entity.Attendance$AttendanceStatus.ABSENT THEN 0 ELSE 1 END), " +
+           "SUM(CASE WHEN a.status = com.musicschool.entity.Attendance$AttendanceStatus.ABSENT THEN 1 ELSE 0 END) " +
+           "FROM Attendance a WHERE a.occurrenceStart >= :startTime AND a.occurrenceStart < :endTime " +
+           "AND COALESCE(a.student.tenant.id, 0) = :tenantId " +
+           "GROUP BY EXTRACT(HOUR FROM a.occurrenceStart) ORDER BY EXTRACT(HOUR FROM a.occurrenceStart)")
+    List<Object[]> countByHourForTenant(@Param("startTime") LocalDateTime startTime,
+                                        @Param("endTime") LocalDateTime endTime,
+                                        @Param("tenantId") Long tenantId);
+
+    /**
+     * Add to the running totals of a course.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO attendance_course_counters (course_id, present_count, late_count, absent_count, updated_at) " +
+                   "VALUES (:courseId, :present, :late, :absent, NOW()) " +
+                   "ON CONFLICT (course_id) DO UPDATE SET " +
+                   "present_count = attendance_course_counters.present_count + EXCLUDED.present_count, " +
+                   "late_count = attendance_course_counters.late_count + EXCLUDED.late_count, " +
+                   "absent_count = attendance_course_counters.absent_count + EXCLUDED.absent_count, " +
+                   "updated_at = NOW()",
+           nativeQuery = true)
+    int addCourseCounts(@Param("courseId") Long courseId,
+                        @Param("present") long present,
+                        @Param("late") long late,
+                        @Param("absent") long absent);
+
+    /**
+     * Add to the running totals of one hour of one day.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO attendance_hour_counters (counter_date, hour_of_day, attended_count, absent_count, updated_at) " +
+                   "VALUES (:counterDate, :hourOfDay, :attended, :absent, NOW()) " +
+                   "ON CONFLICT (counter_date, hour_of_day) DO UPDATE SET " +
+                   "attended_count = attendance_hour_counters.attended_count + EXCLUDED.attended_count, " +
+                   "absent_count = attendance_hour_counters.absent_count + EXCLUDED.absent_count, " +
+                   "updated_at = NOW()",
+           nativeQuery = true)
+    int addHourCounts(@Param("counterDate") LocalDate counterDate,
+                      @Param("hourOfDay") int hourOfDay,
+                      @Param("attended") long attended,
+                      @Param("absent") long absent);
+
+    /**
+     * (present, late, absent) totals of one course; empty before its first record.
+     */
+    @Query(value = "SELECT present_count, late_count, absent_count FROM attendance_course_counters WHERE course_id = :courseId",
+           nativeQuery = true)
+    List<Object[]> findCourseCounts(@Param("courseId") Long courseId);
+
+    /**
+     * (course id, present, late, absent) totals of every course with records.
+     */
+    @Query(value = "SELECT course_id, present_count, late_count, absent_count FROM attendance_course_counters",
+           nativeQuery = true)
+    List<Object[]> findAllCourseCounts();
+
+    /**
+     * (hour, attended, absent) totals of one day, by hour.
+     */
+    @Query(value = "SELECT hour_of_day, attended_count, absent_count FROM attendance_hour_counters " +
+                   "WHERE counter_date = :counterDate ORDER BY hour_of_day",
+           nativeQuery = true)
+    List<Object[]> findHourCounts(@Param("counterDate") LocalDate counterDate);
+}
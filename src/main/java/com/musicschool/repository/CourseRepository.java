@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -76,4 +77,46 @@ public interface CourseRepository extends JpaRepository<Course, Long> {
     @Query("SELECT c FROM Course c WHERE c.status = 'ACTIVE' AND " +
            "(SELECT COUNT(e) FROM Enrollment e WHERE e.course = c AND e.status = 'ACTIVE') < c.maxStudents")
     List<Course> findCoursesWithAvailableSpots();
+
+    /**
+     * Id and duration of every course.
+     */
+    @Query("SELECT c.id, c.durationMinutes FROM Course c")
+    List<Object[]> findCourseDurations();
+
+    /**
+     * Id and duration of every course of a tenant.
+     */
+    @Query("SELECT c.id, c.durationMinutes FROM Course c WHERE c.tenant.id = :tenantId")
+    List<Object[]> findCourseDurationsForTenant(@Param("tenantId") Long tenantId);
+
+    /**
+     * Courses with the most enrollments: (id, name, instrument, enrollment count), ties by id.
+     */
+    @Query("SELECT c.id, c.name, c.instrument, COUNT(e) FROM Course c LEFT JOIN c.enrollments e " +
+           "GROUP BY c.id, c.name, c.instrument ORDER BY COUNT(e) DESC, c.id")
+    List<Object[]> findTopByEnrollmentCount(Pageable pageable);
+
+    /**
+     * Number of enrollments per course, including courses without enrollments.
+     */
+    @Query("SELECT c.id, COUNT(e) FROM Course c LEFT JOIN c.enrollments e GROUP BY c.id")
+    List<Object[]> countEnrollmentsPerCourse();
+
+    /**
+     * Id, name and instrument of the given courses.
+     */
+    @Query("SELECT c.id, c.name, c.instrument FROM Course c WHERE c.id IN :ids")
+    List<Object[]> findNamesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Count courses taught by an instructor.
+     */
+    long countByInstructorId(Long instructorId);
+
+    /**
+     * Row count and latest change of all courses, part of the data version of cached reports.
+     */
+    @Query("SELECT COUNT(c), MAX(COALESCE(c.updatedAt, c.createdAt)) FROM Course c")
+    List<Object[]> findDataVersion();
 }
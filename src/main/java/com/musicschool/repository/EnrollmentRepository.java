@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -45,6 +46,12 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
     @Query("SELECT e FROM Enrollment e WHERE e.course.id = :courseId AND e.status = 'ACTIVE'")
     List<Enrollment> findActiveEnrollmentsByCourse(@Param("courseId") Long courseId);
 
+    /**
+     * Find (course id, student id) pairs of active enrollments for the given courses.
+     */
+    @Query("SELECT e.course.id, e.student.id FROM Enrollment e WHERE e.status = 'ACTIVE' AND e.course.id IN :courseIds")
+    List<Object[]> findActiveCourseStudentPairs(@Param("courseIds") Collection<Long> courseIds);
+
     /**
      * Find enrollments with pagination and search.
      */
@@ -90,4 +97,28 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
      */
     @Query("SELECT COUNT(e) > 0 FROM Enrollment e WHERE e.student.id = :studentId AND e.course.id = :courseId AND e.status = 'ACTIVE'")
     boolean existsByStudentAndCourse(@Param("studentId") Long studentId, @Param("courseId") Long courseId);
+
+    /**
+     * Count enrollments of a course, whatever their status.
+     */
+    long countByCourseId(Long courseId);
+
+    /**
+     * Number of enrollments per (course id, status).
+     */
+    @Query("SELECT e.course.id, e.status, COUNT(e) FROM Enrollment e GROUP BY e.course.id, e.status")
+    List<Object[]> countByCourseAndStatus();
+
+    /**
+     * Same as countByCourseAndStatus, for the courses of one tenant.
+     */
+    @Query("SELECT e.course.id, e.status, COUNT(e) FROM Enrollment e WHERE e.course.tenant.id = :tenantId " +
+           "GROUP BY e.course.id, e.status")
+    List<Object[]> countByCourseAndStatusForTenant(@Param("tenantId") Long tenantId);
+
+    /**
+     * Row count and latest change of all enrollments, part of the data version of cached reports.
+     */
+    @Query("SELECT COUNT(e), MAX(COALESCE(e.updatedAt, e.createdAt)) FROM Enrollment e")
+    List<Object[]> findDataVersion();
 }
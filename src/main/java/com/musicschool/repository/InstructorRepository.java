@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -53,4 +54,36 @@ public interface InstructorRepository extends JpaRepository<Instructor, Long> {
      */
     @Query("SELECT i FROM Instructor i WHERE i.status = 'ACTIVE' ORDER BY i.lastName, i.firstName")
     List<Instructor> findActiveInstructors();
+
+    /**
+     * Number of courses per instructor, including instructors without courses.
+     */
+    @Query("SELECT i.id, COUNT(c) FROM Instructor i LEFT JOIN i.courses c GROUP BY i.id")
+    List<Object[]> countCoursesPerInstructor();
+
+    /**
+     * Same as countCoursesPerInstructor, for one tenant (0 for instructors without a tenant).
+     */
+    @Query("SELECT i.id, COUNT(c) FROM Instructor i LEFT JOIN i.courses c " +
+           "WHERE COALESCE(i.tenant.id, 0) = :tenantId GROUP BY i.id")
+    List<Object[]> countCoursesPerInstructorForTenant(@Param("tenantId") Long tenantId);
+
+    /**
+     * Instructors with the most courses: (id, first name, last name, course count), ties by id.
+     */
+    @Query("SELECT i.id, i.firstName, i.lastName, COUNT(c) FROM Instructor i LEFT JOIN i.courses c " +
+           "GROUP BY i.id, i.firstName, i.lastName ORDER BY COUNT(c) DESC, i.id")
+    List<Object[]> findTopByCourseCount(Pageable pageable);
+
+    /**
+     * Id, first name and last name of the given instructors.
+     */
+    @Query("SELECT i.id, i.firstName, i.lastName FROM Instructor i WHERE i.id IN :ids")
+    List<Object[]> findNamesByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Row count and latest change of all instructors, part of the data version of cached reports.
+     */
+    @Query("SELECT COUNT(i), MAX(COALESCE(i.updatedAt, i.createdAt)) FROM Instructor i")
+    List<Object[]> findDataVersion();
 }
@@ -1,14 +1,19 @@
 package com.musicschool.repository;
 
 import com.musicschool.entity.Payment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository for Payment entity.
@@ -52,4 +57,79 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     List<Object[]> getRevenueByPaymentType(@Param("status") Payment.PaymentStatus status, 
                                           @Param("startDate") LocalDateTime startDate, 
                                           @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * Revenue per course instrument for payments processed in [startTime, endTime); payments
+     * without a course are grouped under a null instrument
+     */
+    @Query("SELECT c.instrument, SUM(p.amount) FROM Payment p LEFT JOIN p.course c " +
+           "WHERE p.status = :status AND p.processedAt >= :startTime AND p.processedAt < :endTime " +
+           "GROUP BY c.instrument")
+    List<Object[]> sumRevenueByInstrument(@Param("status") Payment.PaymentStatus status,
+                                          @Param("startTime") LocalDateTime startTime,
+                                          @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Same as sumRevenueByInstrument, for payments of one tenant's students (0 for students without a tenant).
+     */
+    @Query("SELECT c.instrument, SUM(p.amount) FROM Payment p LEFT JOIN p.course c LEFT JOIN p.student s " +
+           "WHERE p.status = :status AND p.processedAt >= :startTime AND p.processedAt < :endTime " +
+           "AND COALESCE(s.tenant.id, 0) = :tenantId GROUP BY c.instrument")
+    List<Object[]> sumRevenueByInstrumentForTenant(@Param("status") Payment.PaymentStatus status,
+                                                   @Param("startTime") LocalDateTime startTime,
+                                                   @Param("endTime") LocalDateTime endTime,
+                                                   @Param("tenantId") Long tenantId);
+
+    /**
+     * Processed time, course instrument, amount and student tenant (0 for students without a
+     * tenant) of every payment processed in [startTime, endTime), read in one scan by metric backfills
+     */
+    @Query("SELECT p.processedAt, c.instrument, p.amount, COALESCE(s.tenant.id, 0) FROM Payment p " +
+           "LEFT JOIN p.course c LEFT JOIN p.student s " +
+           "WHERE p.status = :status AND p.processedAt >= :startTime AND p.processedAt < :endTime")
+    List<Object[]> findRevenueFacts(@Param("status") Payment.PaymentStatus status,
+                                    @Param("startTime") LocalDateTime startTime,
+                                    @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Year, month, course name, status, amount and refunded amount of the payments processed in
+     * [startTime, endTime) with one of the given statuses, grouped in one scan for revenue reports;
+     * payments without a course have a null course name
+     */
+    @Query("SELECT EXTRACT(YEAR FROM p.processedAt), EXTRACT(MONTH FROM p.processedAt), c.name, p.status, " +
+           "SUM(p.amount), SUM(COALESCE(p.refundAmount, 0)) FROM Payment p LEFT JOIN p.course c " +
+           "WHERE p.status IN :statuses AND p.processedAt >= :startTime AND p.processedAt < :endTime " +
+           "GROUP BY EXTRACT(YEAR FROM p.processedAt), EXTRACT(MONTH FROM p.processedAt), c.name, p.status")
+    List<Object[]> sumRevenueByMonthCourseAndStatus(@Param("statuses") Collection<Payment.PaymentStatus> statuses,
+                                                    @Param("startTime") LocalDateTime startTime,
+                                                    @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Count and latest change of the payments processed in [startTime, endTime) and latest change of
+     * their courses, the data version of cached revenue reports
+     */
+    @Query("SELECT COUNT(p), MAX(COALESCE(p.updatedAt, p.createdAt)), MAX(COALESCE(c.updatedAt, c.createdAt)) " +
+           "FROM Payment p LEFT JOIN p.course c WHERE p.processedAt >= :startTime AND p.processedAt < :endTime")
+    List<Object[]> findProcessedDataVersion(@Param("startTime") LocalDateTime startTime,
+                                            @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Payment lines of report exports: id, processed time, student name, course name, type, status,
+     * amount and refunded amount of the payments processed in [startTime, endTime). Streamed with a
+     * JDBC fetch size; the stream must be consumed and closed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p.id, p.processedAt, s.firstName, s.lastName, c.name, p.paymentType, p.status, " +
+           "p.amount, p.refundAmount FROM Payment p LEFT JOIN p.student s LEFT JOIN p.course c " +
+           "WHERE p.status IN :statuses AND p.processedAt >= :startTime AND p.processedAt < :endTime " +
+           "ORDER BY p.processedAt, p.id")
+    Stream<Object[]> streamPaymentLines(@Param("statuses") Collection<Payment.PaymentStatus> statuses,
+                                        @Param("startTime") LocalDateTime startTime,
+                                        @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Total amount of all payments in a status.
+     */
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.status = :status")
+    BigDecimal sumAmountByStatus(@Param("status") Payment.PaymentStatus status);
 }
@@ -2,6 +2,7 @@ package com.musicschool.repository;
 
 import com.musicschool.entity.Report;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -31,4 +32,45 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
     @Query("SELECT r FROM Report r WHERE r.status = :status AND r.generatedAt < :cutoffDate")
     List<Report> findOldPendingReports(@Param("status") Report.ReportStatus status, 
                                       @Param("cutoffDate") LocalDateTime cutoffDate);
+
+    /**
+     * Generating reports whose current attempt started before the cutoff.
+     */
+    @Query("SELECT r FROM Report r WHERE r.status = com.musicschool.entity.Report$ReportStatus.GENERATING " +
+           "AND r.startedAt < :cutoffDate")
+    List<Report> findStalledReports(@Param("cutoffDate") LocalDateTime cutoffDate);
+
+    /**
+     * Drop the results of generated reports completed before the cutoff; saved reports, which
+     * have no completion time, keep theirs.
+     */
+    @Modifying
+    @Query("UPDATE Report r SET r.payload = NULL, r.fileSize = NULL " +
+           "WHERE r.payload IS NOT NULL AND r.completedAt < :cutoffDate")
+    int clearExpiredPayloads(@Param("cutoffDate") LocalDateTime cutoffDate);
+
+    /**
+     * Move a report from PENDING to GENERATING; returns 0 when another worker already took it.
+     */
+    @Modifying
+    @Query("UPDATE Report r SET r.status = com.musicschool.entity.Report$ReportStatus.GENERATING, r.startedAt = :now, " +
+           "r.attempts = r.attempts + 1, r.progress = 0, r.errorMessage = NULL " +
+           "WHERE r.id = :id AND r.status = com.musicschool.entity.Report$ReportStatus.PENDING")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Put a report interrupted by a shutdown back to PENDING without counting the attempt;
+     * returns 0 when the attempt has already ended.
+     */
+    @Modifying
+    @Query("UPDATE Report r SET r.status = com.musicschool.entity.Report$ReportStatus.PENDING, " +
+           "r.attempts = r.attempts - 1, r.progress = 0, r.startedAt = NULL " +
+           "WHERE r.id = :id AND r.attempts = :attempt " +
+           "AND r.status = com.musicschool.entity.Report$ReportStatus.GENERATING")
+    int requeue(@Param("id") Long id, @Param("attempt") int attempt);
+
+    @Modifying
+    @Query("UPDATE Report r SET r.progress = :progress " +
+           "WHERE r.id = :id AND r.status = com.musicschool.entity.Report$ReportStatus.GENERATING")
+    int updateProgress(@Param("id") Long id, @Param("progress") int progress);
 }
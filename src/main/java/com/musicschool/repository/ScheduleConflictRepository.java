@@ -28,6 +28,11 @@ public interface ScheduleConflictRepository extends JpaRepository<ScheduleConfli
     @Query("SELECT sc FROM ScheduleConflict sc WHERE sc.resolved = false")
     List<ScheduleConflict> findUnresolvedConflicts();
     
+    // Adjacent edges of one schedule; served by the partial indexes on unresolved rows (V8)
+    @Query("SELECT sc FROM ScheduleConflict sc WHERE sc.resolved = false AND " +
+           "(sc.schedule.id = :scheduleId OR sc.conflictingSchedule.id = :scheduleId)")
+    List<ScheduleConflict> findUnresolvedConflictsForSchedule(@Param("scheduleId") Long scheduleId);
+    
     @Query("SELECT sc FROM ScheduleConflict sc WHERE sc.conflictType = :conflictType AND sc.resolved = false")
     List<ScheduleConflict> findUnresolvedConflictsByType(@Param("conflictType") ScheduleConflict.ConflictType conflictType);
     
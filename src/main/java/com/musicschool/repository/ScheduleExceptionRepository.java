@@ -0,0 +1,43 @@
+package com.musicschool.repository;
+
+import com.musicschool.entity.ScheduleException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for ScheduleException entity.
+ */
+@Repository
+public interface ScheduleExceptionRepository extends JpaRepository<ScheduleException, Long> {
+    
+    List<ScheduleException> findBySeriesId(Long seriesId);
+    
+    boolean existsBySeriesIdAndOriginalStart(Long seriesId, LocalDateTime originalStart);
+    
+    @Query("SELECT e.seriesId, e.originalStart FROM ScheduleException e " +
+           "WHERE e.seriesId IN :seriesIds AND e.originalStart >= :from AND e.originalStart < :to")
+    List<Object[]> findExcludedStarts(@Param("seriesIds") Collection<Long> seriesIds,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to);
+    
+    @Query("SELECT e.seriesId, e.originalStart FROM ScheduleException e WHERE e.originalStart >= :horizon")
+    List<Object[]> findExcludedStartsAfter(@Param("horizon") LocalDateTime horizon);
+    
+    @Query("SELECT e.seriesId, e.originalStart FROM ScheduleException e WHERE e.seriesId IN " +
+           "(SELECT s.id FROM Schedule s WHERE s.instructor.id = :instructorId AND s.recurrenceRule IS NOT NULL)")
+    List<Object[]> findExcludedStartsForInstructor(@Param("instructorId") Long instructorId);
+    
+    @Query("SELECT e.seriesId, e.originalStart FROM ScheduleException e WHERE e.seriesId IN " +
+           "(SELECT s.id FROM Schedule s WHERE s.student.id = :studentId AND s.recurrenceRule IS NOT NULL)")
+    List<Object[]> findExcludedStartsForStudent(@Param("studentId") Long studentId);
+    
+    @Query("SELECT e.seriesId, e.originalStart FROM ScheduleException e WHERE e.seriesId IN " +
+           "(SELECT s.id FROM Schedule s WHERE s.room = :room AND s.recurrenceRule IS NOT NULL)")
+    List<Object[]> findExcludedStartsForRoom(@Param("room") String room);
+}
@@ -3,13 +3,18 @@ package com.musicschool.repository;
 import com.musicschool.entity.Instructor;
 import com.musicschool.entity.Schedule;
 import com.musicschool.entity.Student;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository for Schedule entity.
@@ -17,22 +22,83 @@ import java.util.List;
 @Repository
 public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
 
-    @Query("SELECT s FROM Schedule s WHERE s.instructor = :instructor AND s.startTime BETWEEN :startTime AND :endTime")
+    // Overlap lookups: a schedule conflicts with [startTime, endTime) when it starts before the
+    // window ends and ends after it starts. Backed by the composite indexes added in V5; since
+    // no entry lasts longer than Schedule.MAX_DURATION, a lower bound on start_time keeps the
+    // index range scan to the window instead of the resource's whole history.
+    // Series templates are fetched separately (find*SeriesInRange): ORing them in here would
+    // keep the end_time check out of the index scan.
+    String SINGLE_OVERLAP = "s.recurrenceRule IS NULL AND s.startTime > :earliestStart " +
+                            "AND s.startTime < :endTime AND s.endTime > :startTime";
+
+    @Query("SELECT s FROM Schedule s WHERE s.instructor = :instructor AND " + SINGLE_OVERLAP)
     List<Schedule> findByInstructorAndTimeRange(@Param("instructor") Instructor instructor,
+                                                @Param("earliestStart") LocalDateTime earliestStart,
                                                 @Param("startTime") LocalDateTime startTime,
                                                 @Param("endTime") LocalDateTime endTime);
 
-    @Query("SELECT s FROM Schedule s WHERE s.student = :student AND s.startTime BETWEEN :startTime AND :endTime")
+    default List<Schedule> findByInstructorAndTimeRange(Instructor instructor, LocalDateTime startTime,
+                                                        LocalDateTime endTime) {
+        return findByInstructorAndTimeRange(instructor, startTime.minus(Schedule.MAX_DURATION), startTime, endTime);
+    }
+
+    @Query("SELECT s FROM Schedule s WHERE s.student = :student AND " + SINGLE_OVERLAP)
     List<Schedule> findByStudentAndTimeRange(@Param("student") Student student,
+                                             @Param("earliestStart") LocalDateTime earliestStart,
                                              @Param("startTime") LocalDateTime startTime,
                                              @Param("endTime") LocalDateTime endTime);
 
-    @Query("SELECT s FROM Schedule s WHERE s.room = :room AND s.startTime BETWEEN :startTime AND :endTime")
+    default List<Schedule> findByStudentAndTimeRange(Student student, LocalDateTime startTime,
+                                                     LocalDateTime endTime) {
+        return findByStudentAndTimeRange(student, startTime.minus(Schedule.MAX_DURATION), startTime, endTime);
+    }
+
+    @Query("SELECT s FROM Schedule s WHERE s.room = :room AND " + SINGLE_OVERLAP)
     List<Schedule> findByRoomAndTimeRange(@Param("room") String room,
+                                          @Param("earliestStart") LocalDateTime earliestStart,
                                           @Param("startTime") LocalDateTime startTime,
                                           @Param("endTime") LocalDateTime endTime);
+
+    default List<Schedule> findByRoomAndTimeRange(String room, LocalDateTime startTime, LocalDateTime endTime) {
+        return findByRoomAndTimeRange(room, startTime.minus(Schedule.MAX_DURATION), startTime, endTime);
+    }
+
+    @Query("SELECT s FROM Schedule s WHERE s.room IN :rooms AND " + SINGLE_OVERLAP)
+    List<Schedule> findByRoomsAndTimeRange(@Param("rooms") Collection<String> rooms,
+                                           @Param("earliestStart") LocalDateTime earliestStart,
+                                           @Param("startTime") LocalDateTime startTime,
+                                           @Param("endTime") LocalDateTime endTime);
+
+    default List<Schedule> findByRoomsAndTimeRange(Collection<String> rooms, LocalDateTime startTime,
+                                                   LocalDateTime endTime) {
+        return findByRoomsAndTimeRange(rooms, startTime.minus(Schedule.MAX_DURATION), startTime, endTime);
+    }
+
+    // Series templates of a resource spanning [startTime, endTime) (first start to series_end),
+    // from the partial indexes added in V20. The caller expands them, see RecurrenceExpander.
+    String SERIES_OVERLAP = "s.recurrenceRule IS NOT NULL AND s.startTime < :endTime " +
+                            "AND (s.seriesEnd IS NULL OR s.seriesEnd > :startTime)";
+
+    @Query("SELECT s FROM Schedule s WHERE s.instructor = :instructor AND " + SERIES_OVERLAP)
+    List<Schedule> findInstructorSeriesInRange(@Param("instructor") Instructor instructor,
+                                               @Param("startTime") LocalDateTime startTime,
+                                               @Param("endTime") LocalDateTime endTime);
+
+    @Query("SELECT s FROM Schedule s WHERE s.student = :student AND " + SERIES_OVERLAP)
+    List<Schedule> findStudentSeriesInRange(@Param("student") Student student,
+                                            @Param("startTime") LocalDateTime startTime,
+                                            @Param("endTime") LocalDateTime endTime);
+
+    @Query("SELECT s FROM Schedule s WHERE s.room IN :rooms AND " + SERIES_OVERLAP)
+    List<Schedule> findRoomSeriesInRange(@Param("rooms") Collection<String> rooms,
+                                         @Param("startTime") LocalDateTime startTime,
+                                         @Param("endTime") LocalDateTime endTime);
     
     List<Schedule> findByStartTimeBetweenOrderByStartTime(LocalDateTime startTime, LocalDateTime endTime);
+
+    @Query("SELECT s FROM Schedule s WHERE " + SERIES_OVERLAP)
+    List<Schedule> findSeriesInRange(@Param("startTime") LocalDateTime startTime,
+                                     @Param("endTime") LocalDateTime endTime);
     
     List<Schedule> findByStatus(Schedule.ScheduleStatus status);
     
@@ -66,4 +132,41 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
     
     @Query("SELECT s FROM Schedule s WHERE s.parentScheduleId = :parentId")
     List<Schedule> findRecurringInstances(@Param("parentId") Long parentId);
+
+    // Calendar feeds: rows still relevant at :from (series by their whole span), streamed with a
+    // JDBC fetch size so a feed never holds the full result set. Streams must be consumed and
+    // closed inside a transaction. The version queries give the count and latest change of the
+    // same rows for ETag / Last-Modified.
+    String FEED_COLUMNS = "SELECT s.id, s.startTime, s.endTime, s.title, s.description, s.room, s.status, " +
+                          "s.recurrenceRule, COALESCE(s.updatedAt, s.createdAt) FROM Schedule s ";
+    String FEED_VERSION = "SELECT COUNT(s), MAX(COALESCE(s.updatedAt, s.createdAt)) FROM Schedule s ";
+    String FEED_WINDOW = "(s.endTime > :from OR (s.recurrenceRule IS NOT NULL " +
+                         "AND (s.seriesEnd IS NULL OR s.seriesEnd > :from)))";
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(FEED_COLUMNS + "WHERE s.instructor.id = :instructorId AND " + FEED_WINDOW + " ORDER BY s.startTime")
+    Stream<Object[]> streamInstructorFeed(@Param("instructorId") Long instructorId,
+                                          @Param("from") LocalDateTime from);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(FEED_COLUMNS + "WHERE s.student.id = :studentId AND " + FEED_WINDOW + " ORDER BY s.startTime")
+    Stream<Object[]> streamStudentFeed(@Param("studentId") Long studentId,
+                                       @Param("from") LocalDateTime from);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(FEED_COLUMNS + "WHERE s.room = :room AND " + FEED_WINDOW + " ORDER BY s.startTime")
+    Stream<Object[]> streamRoomFeed(@Param("room") String room,
+                                    @Param("from") LocalDateTime from);
+
+    @Query(FEED_VERSION + "WHERE s.instructor.id = :instructorId AND " + FEED_WINDOW)
+    List<Object[]> findInstructorFeedVersion(@Param("instructorId") Long instructorId,
+                                             @Param("from") LocalDateTime from);
+
+    @Query(FEED_VERSION + "WHERE s.student.id = :studentId AND " + FEED_WINDOW)
+    List<Object[]> findStudentFeedVersion(@Param("studentId") Long studentId,
+                                          @Param("from") LocalDateTime from);
+
+    @Query(FEED_VERSION + "WHERE s.room = :room AND " + FEED_WINDOW)
+    List<Object[]> findRoomFeedVersion(@Param("room") String room,
+                                       @Param("from") LocalDateTime from);
 }
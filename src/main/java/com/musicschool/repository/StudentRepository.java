@@ -1,16 +1,20 @@
 package com.musicschool.repository;
 
 import com.musicschool.entity.Student;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Student entity operations.
@@ -59,4 +63,49 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
      * Count students created between two dates.
      */
     long countByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Count students created in [startTime, endTime) per level.
+     */
+    @Query("SELECT s.level, COUNT(s) FROM Student s " +
+           "WHERE s.createdAt >= :startTime AND s.createdAt < :endTime GROUP BY s.level")
+    List<Object[]> countCreatedByLevel(@Param("startTime") LocalDateTime startTime,
+                                       @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Same as countCreatedByLevel, for one tenant (0 for students without a tenant).
+     */
+    @Query("SELECT s.level, COUNT(s) FROM Student s WHERE s.createdAt >= :startTime AND s.createdAt < :endTime " +
+           "AND COALESCE(s.tenant.id, 0) = :tenantId GROUP BY s.level")
+    List<Object[]> countCreatedByLevelForTenant(@Param("startTime") LocalDateTime startTime,
+                                                @Param("endTime") LocalDateTime endTime,
+                                                @Param("tenantId") Long tenantId);
+
+    /**
+     * Creation time, level and tenant (0 for students without a tenant) of every student created
+     * in [startTime, endTime).
+     */
+    @Query("SELECT s.createdAt, s.level, COALESCE(s.tenant.id, 0) FROM Student s " +
+           "WHERE s.createdAt >= :startTime AND s.createdAt < :endTime")
+    List<Object[]> findEnrollmentFacts(@Param("startTime") LocalDateTime startTime,
+                                       @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Id, creation time, name and level of every student created in [startTime, endTime), for
+     * report exports. Streamed with a JDBC fetch size inside the caller's transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT s.id, s.createdAt, s.firstName, s.lastName, s.level FROM Student s " +
+           "WHERE s.createdAt >= :startTime AND s.createdAt < :endTime ORDER BY s.createdAt, s.id")
+    Stream<Object[]> streamEnrollmentLines(@Param("startTime") LocalDateTime startTime,
+                                           @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * Count and latest change of the students created in [startTime, endTime), the data version of
+     * cached enrollment reports.
+     */
+    @Query("SELECT COUNT(s), MAX(COALESCE(s.updatedAt, s.createdAt)) FROM Student s " +
+           "WHERE s.createdAt >= :startTime AND s.createdAt < :endTime")
+    List<Object[]> findCreatedDataVersion(@Param("startTime") LocalDateTime startTime,
+                                          @Param("endTime") LocalDateTime endTime);
 }
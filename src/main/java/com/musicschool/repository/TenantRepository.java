@@ -36,4 +36,7 @@ public interface TenantRepository extends JpaRepository<Tenant, Long> {
     
     @Query("SELECT t.subscriptionPlan, COUNT(t) FROM Tenant t GROUP BY t.subscriptionPlan")
     List<Object[]> getTenantCountBySubscriptionPlan();
+
+    @Query("SELECT t.id FROM Tenant t ORDER BY t.id")
+    List<Long> findAllIds();
 }
@@ -0,0 +1,291 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.AnalyticsRollup;
+import com.musicschool.entity.AnalyticsRollup.Granularity;
+import com.musicschool.entity.Course;
+import com.musicschool.entity.Payment;
+import com.musicschool.entity.Schedule;
+import com.musicschool.entity.Student;
+import com.musicschool.repository.AnalyticsRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service maintaining daily, weekly and monthly rollups of business metrics per tenant.
+ *
+ * Payments, new students and lessons record deltas as they change. Deltas of a transaction
+ * are merged in memory and upserted just before it commits, in a fixed key order, so the
+ * rollups change atomically with the source rows and hot rows stay locked only briefly.
+ * Dashboards then read one row per period instead of scanning history. Recurring series are
+ * counted per occurrence; unbounded series for their first year, the window checked for
+ * conflicts when they are created. Series created before the rollups were seeded were never
+ * counted and are left out of every change.
+ */
+@Service
+@Transactional
+public class AnalyticsRollupService {
+
+    public static final String REVENUE = "revenue";
+    public static final String REFUNDS = "refunds";
+    public static final String PAYMENTS_COMPLETED = "payments_completed";
+    public static final String ENROLLMENTS = "enrollments";
+    public static final String LESSONS_SCHEDULED = "lessons_scheduled";
+    public static final String LESSON_MINUTES = "lesson_minutes";
+    public static final String LESSONS_CANCELLED = "lessons_cancelled";
+
+    // Dashboards switch to coarser periods as the requested range grows
+    private static final int MAX_DAILY_POINTS = 62;
+    private static final int MAX_WEEKLY_POINTS = 104;
+
+    // Occurrences of series without COUNT or UNTIL counted from the series start
+    private static final int UNBOUNDED_SERIES_DAYS = 365;
+
+    @Autowired
+    private AnalyticsRollupRepository rollupRepository;
+
+    @Autowired
+    private RecurrenceExpander recurrenceExpander;
+
+    @Value("${analytics.rollups.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Record a payment that just completed
+     */
+    public void recordPaymentCompleted(Payment payment) {
+        LocalDate day = (payment.getProcessedAt() != null ? payment.getProcessedAt() : LocalDateTime.now()).toLocalDate();
+        long tenantId = tenantOf(payment.getStudent());
+        add(tenantId, day, REVENUE, payment.getAmount(), 1);
+        add(tenantId, day, PAYMENTS_COMPLETED, BigDecimal.ONE, 1);
+    }
+
+    /**
+     * Record a refund issued today
+     */
+    public void recordRefund(Payment payment, BigDecimal refundAmount) {
+        add(tenantOf(payment.getStudent()), LocalDate.now(), REFUNDS, refundAmount, 1);
+    }
+
+    /**
+     * Record a newly registered student
+     */
+    public void recordEnrollment(Student student) {
+        LocalDate day = (student.getCreatedAt() != null ? student.getCreatedAt() : LocalDateTime.now()).toLocalDate();
+        add(tenantOf(student), day, ENROLLMENTS, BigDecimal.ONE, 1);
+    }
+
+    /**
+     * Add (sign 1) or remove (sign -1) a lesson on the day it starts; a series adds or removes
+     * each of its occurrences not excluded so far
+     */
+    public void recordLesson(Schedule schedule, int sign) {
+        if (!enabled) {
+            return;
+        }
+        for (Schedule lesson : lessons(schedule)) {
+            LocalDate day = lesson.getStartTime().toLocalDate();
+            long tenantId = tenantOf(lesson.getCourse());
+            long minutes = Duration.between(lesson.getStartTime(), lesson.getEndTime()).toMinutes();
+            add(tenantId, day, LESSONS_SCHEDULED, BigDecimal.valueOf(sign), sign);
+            add(tenantId, day, LESSON_MINUTES, BigDecimal.valueOf(sign * minutes), sign);
+        }
+    }
+
+    /**
+     * Record a lesson cancellation on the day the lesson would have taken place; a series
+     * records one per occurrence not excluded so far
+     */
+    public void recordCancellation(Schedule schedule) {
+        if (!enabled) {
+            return;
+        }
+        for (Schedule lesson : lessons(schedule)) {
+            add(tenantOf(lesson.getCourse()), lesson.getStartTime().toLocalDate(), LESSONS_CANCELLED, BigDecimal.ONE, 1);
+        }
+    }
+
+    /**
+     * Remove an occurrence that is about to be excluded from its series, counting it as
+     * cancelled unless it is moved. Occurrences beyond the counted window were never added.
+     */
+    public void recordOccurrenceExcluded(Schedule series, LocalDateTime originalStart, boolean cancelled) {
+        if (!enabled || series.getStatus() == Schedule.ScheduleStatus.CANCELLED || !isCounted(series)
+                || !originalStart.isBefore(countedUntil(series))) {
+            return;
+        }
+        Schedule occurrence = recurrenceExpander.occurrence(series, originalStart,
+            Duration.between(series.getStartTime(), series.getEndTime()));
+        recordLesson(occurrence, -1);
+        if (cancelled) {
+            recordCancellation(occurrence);
+        }
+    }
+
+    /**
+     * Granularity keeping a dashboard range to a bounded number of points
+     */
+    public Granularity granularityFor(LocalDate startDate, LocalDate endDate) {
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (days <= MAX_DAILY_POINTS) {
+            return Granularity.DAY;
+        }
+        return days / 7 <= MAX_WEEKLY_POINTS ? Granularity.WEEK : Granularity.MONTH;
+    }
+
+    /**
+     * Metric values per period over all tenants, one point per period that has data
+     */
+    @Transactional(readOnly = true)
+    public List<TrendPoint> getTrend(String metricName, Granularity granularity, LocalDate startDate, LocalDate endDate) {
+        List<TrendPoint> points = new ArrayList<>();
+        for (Object[] row : rollupRepository.sumSeriesAcrossTenants(granularity, metricName,
+                granularity.periodStart(startDate), endDate)) {
+            points.add(new TrendPoint((LocalDate) row[0], (BigDecimal) row[1], ((Number) row[2]).longValue()));
+        }
+        return points;
+    }
+
+    /**
+     * Metric values per period for one tenant
+     */
+    @Transactional(readOnly = true)
+    public List<AnalyticsRollup> getTenantTrend(Long tenantId, String metricName, Granularity granularity,
+                                                LocalDate startDate, LocalDate endDate) {
+        return rollupRepository.findSeries(tenantId, granularity, metricName, granularity.periodStart(startDate), endDate);
+    }
+
+    // Helper methods
+    private List<Schedule> lessons(Schedule schedule) {
+        if (!schedule.isSeries()) {
+            return List.of(schedule);
+        }
+        if (!isCounted(schedule)) {
+            return List.of();
+        }
+        return recurrenceExpander.expand(List.of(schedule), schedule.getStartTime(), countedUntil(schedule));
+    }
+
+    private static boolean isCounted(Schedule series) {
+        return Boolean.TRUE.equals(series.getCountedInRollups());
+    }
+
+    private static LocalDateTime countedUntil(Schedule series) {
+        return series.getSeriesEnd() != null
+            ? series.getSeriesEnd() : series.getStartTime().plusDays(UNBOUNDED_SERIES_DAYS);
+    }
+
+    private void add(long tenantId, LocalDate day, String metricName, BigDecimal delta, long samples) {
+        if (!enabled || delta == null) {
+            return;
+        }
+        Map<RollupKey, Delta> pending = pendingDeltas();
+        for (Granularity granularity : Granularity.values()) {
+            RollupKey key = new RollupKey(tenantId, granularity, granularity.periodStart(day), metricName);
+            if (pending == null) {
+                rollupRepository.addDelta(key.tenantId, key.granularity.name(), key.periodStart, key.metricName,
+                    delta, samples);
+            } else {
+                pending.computeIfAbsent(key, k -> new Delta()).add(delta, samples);
+            }
+        }
+    }
+
+    /**
+     * Deltas buffered for the current transaction, or null when none is active
+     */
+    @SuppressWarnings("unchecked")
+    private Map<RollupKey, Delta> pendingDeltas() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<RollupKey, Delta> pending = (Map<RollupKey, Delta>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Map<RollupKey, Delta> deltas = new TreeMap<>(RollupKey.ORDER);
+            TransactionSynchronizationManager.bindResource(this, deltas);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    for (Map.Entry<RollupKey, Delta> entry : deltas.entrySet()) {
+                        RollupKey key = entry.getKey();
+                        Delta delta = entry.getValue();
+                        if (delta.value.signum() != 0 || delta.samples != 0) {
+                            rollupRepository.addDelta(key.tenantId, key.granularity.name(), key.periodStart,
+                                key.metricName, delta.value, delta.samples);
+                        }
+                    }
+                    deltas.clear();
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AnalyticsRollupService.this);
+                }
+            });
+            pending = deltas;
+        }
+        return pending;
+    }
+
+    private static long tenantOf(Student student) {
+        return student != null && student.getTenant() != null && student.getTenant().getId() != null
+            ? student.getTenant().getId() : 0L;
+    }
+
+    private static long tenantOf(Course course) {
+        return course != null && course.getTenant() != null && course.getTenant().getId() != null
+            ? course.getTenant().getId() : 0L;
+    }
+
+    private record RollupKey(long tenantId, Granularity granularity, LocalDate periodStart, String metricName) {
+        // Upserts always lock rollup rows in this order, so two transactions cannot deadlock on them
+        static final Comparator<RollupKey> ORDER = Comparator.comparingLong(RollupKey::tenantId)
+            .thenComparing(RollupKey::granularity)
+            .thenComparing(RollupKey::periodStart)
+            .thenComparing(RollupKey::metricName);
+    }
+
+    private static final class Delta {
+        private BigDecimal value = BigDecimal.ZERO;
+        private long samples;
+
+        void add(BigDecimal delta, long count) {
+            value = value.add(delta);
+            samples += count;
+        }
+    }
+
+    /**
+     * Inner class for trend points
+     */
+    public static class TrendPoint {
+        private final LocalDate periodStart;
+        private final BigDecimal value;
+        private final long samples;
+
+        public TrendPoint(LocalDate periodStart, BigDecimal value, long samples) {
+            this.periodStart = periodStart;
+            this.value = value;
+            this.samples = samples;
+        }
+
+        // Getters
+        public LocalDate getPeriodStart() { return periodStart; }
+        public BigDecimal getValue() { return value; }
+        public long getSamples() { return samples; }
+    }
+}
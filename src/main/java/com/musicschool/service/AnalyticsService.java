@@ -1,23 +1,27 @@
 package com.musicschool.service;
 
 import com.musicschool.entity.Analytics;
-import com.musicschool.entity.Student;
+import com.musicschool.entity.AnalyticsRollup;
 import com.musicschool.entity.Course;
-import com.musicschool.entity.Instructor;
 import com.musicschool.entity.Payment;
 import com.musicschool.repository.AnalyticsRepository;
 import com.musicschool.repository.StudentRepository;
 import com.musicschool.repository.CourseRepository;
 import com.musicschool.repository.InstructorRepository;
 import com.musicschool.repository.PaymentRepository;
+import com.musicschool.service.metrics.MetricBackfillService;
+import com.musicschool.service.metrics.MetricCollectionPipeline;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +33,8 @@ import java.util.Map;
 @Transactional
 public class AnalyticsService {
 
+    private static final int TOP_INSIGHTS = 5;
+
     @Autowired
     private AnalyticsRepository analyticsRepository;
 
@@ -44,140 +50,52 @@ public class AnalyticsService {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Autowired
+    private MetricStore metricStore;
+
+    @Autowired
+    private MetricCollectionPipeline metricCollectionPipeline;
+
+    @Autowired
+    private MetricBackfillService metricBackfillService;
+
+    @Autowired
+    private InsightsLeaderboard insightsLeaderboard;
+
+    @Autowired
+    private AnalyticsSketchService analyticsSketchService;
+
     /**
      * Collect daily analytics metrics
      */
     @Async
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void collectDailyMetrics() {
         LocalDate today = LocalDate.now();
-        
-        // Revenue metrics
-        collectRevenueMetrics(today);
-        
-        // Enrollment metrics
-        collectEnrollmentMetrics(today);
-        
-        // Attendance metrics
-        collectAttendanceMetrics(today);
-        
-        // Instructor performance metrics
-        collectInstructorMetrics(today);
-        
-        // Course completion metrics
-        collectCourseCompletionMetrics(today);
+        metricCollectionPipeline.collect(today);
+        analyticsSketchService.buildDailySketches(today);
     }
 
     /**
-     * Collect revenue analytics
+     * Collect the metrics and sketches of one day. Collectors run in their own transactions,
+     * so none is held open here while they work.
      */
-    private void collectRevenueMetrics(LocalDate date) {
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.atTime(23, 59, 59);
-        
-        // Total daily revenue
-        BigDecimal dailyRevenue = paymentRepository.findByProcessedAtBetween(startOfDay, endOfDay)
-            .stream()
-            .filter(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED)
-            .map(Payment::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        saveMetric(Analytics.MetricType.REVENUE, "daily_revenue", dailyRevenue, date);
-        
-        // Revenue by course type
-        Map<String, BigDecimal> revenueByCourse = paymentRepository.findByProcessedAtBetween(startOfDay, endOfDay)
-            .stream()
-            .filter(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED && p.getCourse() != null)
-            .collect(java.util.stream.Collectors.groupingBy(
-                p -> p.getCourse().getInstrument().toString(),
-                java.util.stream.Collectors.reducing(BigDecimal.ZERO, Payment::getAmount, BigDecimal::add)
-            ));
-        
-        for (Map.Entry<String, BigDecimal> entry : revenueByCourse.entrySet()) {
-            saveMetric(Analytics.MetricType.REVENUE, "revenue_by_instrument_" + entry.getKey(), 
-                      entry.getValue(), date);
-        }
-    }
-
-    /**
-     * Collect enrollment analytics
-     */
-    private void collectEnrollmentMetrics(LocalDate date) {
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.atTime(23, 59, 59);
-        
-        // Daily enrollments
-        long dailyEnrollments = studentRepository.countByCreatedAtBetween(startOfDay, endOfDay);
-        saveMetric(Analytics.MetricType.ENROLLMENT, "daily_enrollments", 
-                  new BigDecimal(dailyEnrollments), date);
-        
-        // Enrollments by level
-        Map<String, Long> enrollmentsByLevel = studentRepository.findAll()
-            .stream()
-            .filter(s -> s.getCreatedAt().toLocalDate().equals(date))
-            .collect(java.util.stream.Collectors.groupingBy(
-                s -> s.getLevel().toString(),
-                java.util.stream.Collectors.counting()
-            ));
-        
-        for (Map.Entry<String, Long> entry : enrollmentsByLevel.entrySet()) {
-            saveMetric(Analytics.MetricType.ENROLLMENT, "enrollments_by_level_" + entry.getKey(), 
-                      new BigDecimal(entry.getValue()), date);
-        }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public MetricCollectionPipeline.CollectionReport collectMetricsForDate(LocalDate date) {
+        MetricCollectionPipeline.CollectionReport report = metricCollectionPipeline.collect(date);
+        analyticsSketchService.buildDailySketches(date);
+        return report;
     }
 
     /**
-     * Collect attendance analytics
+     * Recompute revenue and enrollment metrics of a past date range, replacing stored ones
      */
-    private void collectAttendanceMetrics(LocalDate date) {
-        // This would typically integrate with attendance tracking system
-        // For now, we'll use mock data
-        
-        // Average attendance rate
-        BigDecimal attendanceRate = new BigDecimal("0.85");
-        saveMetric(Analytics.MetricType.ATTENDANCE, "average_attendance_rate", attendanceRate, date);
-        
-        // Peak hours (mock data)
-        saveMetric(Analytics.MetricType.PEAK_HOURS, "peak_hour_14_00", new BigDecimal("1"), date);
-        saveMetric(Analytics.MetricType.PEAK_HOURS, "peak_hour_15_00", new BigDecimal("1"), date);
-        saveMetric(Analytics.MetricType.PEAK_HOURS, "peak_hour_16_00", new BigDecimal("1"), date);
-    }
-
-    /**
-     * Collect instructor performance metrics
-     */
-    private void collectInstructorMetrics(LocalDate date) {
-        List<Instructor> instructors = instructorRepository.findAll();
-        
-        for (Instructor instructor : instructors) {
-            // Hours worked (mock calculation)
-            BigDecimal hoursWorked = new BigDecimal(instructor.getCourses().size() * 2); // 2 hours per course
-            saveMetric(Analytics.MetricType.INSTRUCTOR_HOURS, 
-                      "instructor_hours_" + instructor.getId(), hoursWorked, date);
-            
-            // Student satisfaction (mock data)
-            BigDecimal satisfaction = new BigDecimal("4.5");
-            saveMetric(Analytics.MetricType.STUDENT_SATISFACTION, 
-                      "instructor_satisfaction_" + instructor.getId(), satisfaction, date);
-        }
-    }
-
-    /**
-     * Collect course completion metrics
-     */
-    private void collectCourseCompletionMetrics(LocalDate date) {
-        List<Course> courses = courseRepository.findAll();
-        
-        for (Course course : courses) {
-            // Course completion rate (mock calculation)
-            BigDecimal completionRate = new BigDecimal("0.78");
-            saveMetric(Analytics.MetricType.COURSE_COMPLETION_RATE, 
-                      "course_completion_" + course.getId(), completionRate, date);
-            
-            // Average course duration
-            BigDecimal avgDuration = new BigDecimal(course.getDurationMinutes());
-            saveMetric(Analytics.MetricType.AVERAGE_COURSE_DURATION, 
-                      "avg_duration_" + course.getId(), avgDuration, date);
-        }
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public MetricBackfillService.BackfillReport backfillMetrics(LocalDate startDate, LocalDate endDate) {
+        return metricBackfillService.backfill(startDate, endDate);
     }
 
     /**
@@ -186,18 +104,18 @@ public class AnalyticsService {
     public Map<String, Object> getDashboardData(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> dashboard = new HashMap<>();
         
-        // Revenue trends
-        List<Analytics> revenueData = analyticsRepository.findByMetricTypeAndDateRecordedBetween(
-            Analytics.MetricType.REVENUE, startDate, endDate);
-        dashboard.put("revenueTrends", revenueData);
-        
-        // Enrollment trends
-        List<Analytics> enrollmentData = analyticsRepository.findByMetricTypeAndDateRecordedBetween(
-            Analytics.MetricType.ENROLLMENT, startDate, endDate);
-        dashboard.put("enrollmentTrends", enrollmentData);
+        // Trends come from the rollups: one pre-summed row per period, whatever the history size
+        AnalyticsRollup.Granularity granularity = analyticsRollupService.granularityFor(startDate, endDate);
+        dashboard.put("trendGranularity", granularity);
+        dashboard.put("revenueTrends", analyticsRollupService.getTrend(
+            AnalyticsRollupService.REVENUE, granularity, startDate, endDate));
+        dashboard.put("enrollmentTrends", analyticsRollupService.getTrend(
+            AnalyticsRollupService.ENROLLMENTS, granularity, startDate, endDate));
+        dashboard.put("lessonTrends", analyticsRollupService.getTrend(
+            AnalyticsRollupService.LESSONS_SCHEDULED, granularity, startDate, endDate));
         
         // Attendance trends
-        List<Analytics> attendanceData = analyticsRepository.findByMetricTypeAndDateRecordedBetween(
+        List<Analytics> attendanceData = analyticsRepository.findByMetricTypeAndTenantIdIsNullAndDateRecordedBetween(
             Analytics.MetricType.ATTENDANCE, startDate, endDate);
         dashboard.put("attendanceTrends", attendanceData);
         
@@ -205,51 +123,148 @@ public class AnalyticsService {
         dashboard.put("totalStudents", studentRepository.count());
         dashboard.put("totalCourses", courseRepository.count());
         dashboard.put("totalInstructors", instructorRepository.count());
-        dashboard.put("activeCourses", courseRepository.findAll().stream()
-            .filter(c -> c.getStatus() == Course.CourseStatus.ACTIVE)
-            .count());
+        dashboard.put("activeCourses", courseRepository.countByStatus(Course.CourseStatus.ACTIVE));
         
         return dashboard;
     }
 
+    /**
+     * Daily trend of one metric for the whole school, or for one tenant when tenantId is set,
+     * aggregated from the metric store (or the analytics table until it is loaded); days without
+     * points are left out
+     */
+    public List<AnalyticsRollupService.TrendPoint> getMetricTrend(String metricName, Long tenantId, LocalDate startDate,
+                                                                  LocalDate endDate, MetricStore.Aggregation aggregation) {
+        MetricStore.Buckets buckets = metricStore.aggregate(metricName, tenantId,
+            MetricStore.epochMillis(startDate.atStartOfDay()), MetricStore.epochMillis(endDate.plusDays(1).atStartOfDay()),
+            Duration.ofDays(1).toMillis(), aggregation);
+        List<AnalyticsRollupService.TrendPoint> trend = new ArrayList<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            if (buckets.count(i) > 0) {
+                trend.add(new AnalyticsRollupService.TrendPoint(startDate.plusDays(i),
+                    BigDecimal.valueOf(buckets.value(i)), buckets.count(i)));
+            }
+        }
+        return trend;
+    }
+
     /**
      * Get performance insights
      */
+    @Transactional(readOnly = true)
     public Map<String, Object> getPerformanceInsights() {
         Map<String, Object> insights = new HashMap<>();
         
         // Top performing instructors
-        List<Instructor> topInstructors = instructorRepository.findAll().stream()
-            .sorted((i1, i2) -> Integer.compare(i2.getCourses().size(), i1.getCourses().size()))
-            .limit(5)
-            .collect(java.util.stream.Collectors.toList());
-        insights.put("topInstructors", topInstructors);
+        insights.put("topInstructors", findTopInstructors(TOP_INSIGHTS));
         
         // Most popular courses
-        List<Course> popularCourses = courseRepository.findAll().stream()
-            .sorted((c1, c2) -> Integer.compare(c2.getEnrollments().size(), c1.getEnrollments().size()))
-            .limit(5)
-            .collect(java.util.stream.Collectors.toList());
-        insights.put("popularCourses", popularCourses);
+        insights.put("popularCourses", findPopularCourses(TOP_INSIGHTS));
         
         // Revenue insights
-        BigDecimal totalRevenue = paymentRepository.findAll().stream()
-            .filter(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED)
-            .map(Payment::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        insights.put("totalRevenue", totalRevenue);
+        insights.put("totalRevenue", paymentRepository.sumAmountByStatus(Payment.PaymentStatus.COMPLETED));
         
         return insights;
     }
 
     /**
-     * Save a metric to the database
+     * Instructors with the most courses, from the leaderboard when loaded, else one
+     * GROUP BY ... LIMIT query
+     */
+    private List<InstructorInsight> findTopInstructors(int limit) {
+        List<InstructorInsight> top = new ArrayList<>();
+        if (insightsLeaderboard.isLoaded()) {
+            List<Long> ids = insightsLeaderboard.topInstructors(limit);
+            Map<Long, Object[]> names = new HashMap<>();
+            for (Object[] row : instructorRepository.findNamesByIds(ids)) {
+                names.put((Long) row[0], row);
+            }
+            for (Long id : ids) {
+                Object[] row = names.get(id);
+                if (row != null) {
+                    top.add(new InstructorInsight(id, (String) row[1], (String) row[2],
+                        insightsLeaderboard.instructorCourseCount(id)));
+                }
+            }
+            return top;
+        }
+        for (Object[] row : instructorRepository.findTopByCourseCount(PageRequest.of(0, limit))) {
+            top.add(new InstructorInsight((Long) row[0], (String) row[1], (String) row[2], ((Number) row[3]).longValue()));
+        }
+        return top;
+    }
+
+    /**
+     * Courses with the most enrollments, from the leaderboard when loaded, else one
+     * GROUP BY ... LIMIT query
+     */
+    private List<CourseInsight> findPopularCourses(int limit) {
+        List<CourseInsight> top = new ArrayList<>();
+        if (insightsLeaderboard.isLoaded()) {
+            List<Long> ids = insightsLeaderboard.topCourses(limit);
+            Map<Long, Object[]> names = new HashMap<>();
+            for (Object[] row : courseRepository.findNamesByIds(ids)) {
+                names.put((Long) row[0], row);
+            }
+            for (Long id : ids) {
+                Object[] row = names.get(id);
+                if (row != null) {
+                    top.add(new CourseInsight(id, (String) row[1], (Course.Instrument) row[2],
+                        insightsLeaderboard.courseEnrollmentCount(id)));
+                }
+            }
+            return top;
+        }
+        for (Object[] row : courseRepository.findTopByEnrollmentCount(PageRequest.of(0, limit))) {
+            top.add(new CourseInsight((Long) row[0], (String) row[1], (Course.Instrument) row[2],
+                ((Number) row[3]).longValue()));
+        }
+        return top;
+    }
+
+    /**
+     * Inner class for instructor insights
+     */
+    public static class InstructorInsight {
+        private final Long id;
+        private final String firstName;
+        private final String lastName;
+        private final long courseCount;
+
+        public InstructorInsight(Long id, String firstName, String lastName, long courseCount) {
+            this.id = id;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.courseCount = courseCount;
+        }
+
+        // Getters
+        public Long getId() { return id; }
+        public String getFirstName() { return firstName; }
+        public String getLastName() { return lastName; }
+        public long getCourseCount() { return courseCount; }
+    }
+
+    /**
+     * Inner class for course insights
      */
-    private void saveMetric(Analytics.MetricType metricType, String metricName, 
-                           BigDecimal metricValue, LocalDate date) {
-        Analytics analytics = new Analytics(metricType, metricName, metricValue);
-        analytics.setDateRecorded(date);
-        analytics.setTimestamp(LocalDateTime.now());
-        analyticsRepository.save(analytics);
+    public static class CourseInsight {
+        private final Long id;
+        private final String name;
+        private final Course.Instrument instrument;
+        private final long enrollmentCount;
+
+        public CourseInsight(Long id, String name, Course.Instrument instrument, long enrollmentCount) {
+            this.id = id;
+            this.name = name;
+            this.instrument = instrument;
+            this.enrollmentCount = enrollmentCount;
+        }
+
+        // Getters
+        public Long getId() { return id; }
+        public String getName() { return name; }
+        public Course.Instrument getInstrument() { return instrument; }
+        public long getEnrollmentCount() { return enrollmentCount; }
     }
 }
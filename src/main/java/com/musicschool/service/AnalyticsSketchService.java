@@ -0,0 +1,232 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.AnalyticsSketch;
+import com.musicschool.entity.Attendance;
+import com.musicschool.entity.Schedule;
+import com.musicschool.repository.AnalyticsSketchRepository;
+import com.musicschool.repository.AttendanceRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Service building daily distinct-count and quantile sketches and answering period queries from them.
+ *
+ * Each day gets one HyperLogLog of the students who attended and one DDSketch of lesson
+ * durations, overall ("all") and per instrument ("instrument:PIANO"). Sketches are merged
+ * per week, month or year at query time, so questions such as unique active students per
+ * week or p95 lesson length per instrument read one small row per day instead of rescanning
+ * attendance and schedules.
+ */
+@Service
+@Transactional
+public class AnalyticsSketchService {
+
+    public static final String ACTIVE_STUDENTS = "active_students";
+    public static final String LESSON_DURATION_MINUTES = "lesson_duration_minutes";
+    public static final String ALL = "all";
+
+    private static final Set<Attendance.AttendanceStatus> ATTENDED =
+        EnumSet.of(Attendance.AttendanceStatus.PRESENT, Attendance.AttendanceStatus.LATE);
+
+    @Autowired
+    private AnalyticsSketchRepository sketchRepository;
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private SchedulingService schedulingService;
+
+    @Value("${analytics.sketches.hll-precision:12}")
+    private int hllPrecision;
+
+    @Value("${analytics.sketches.relative-accuracy:0.01}")
+    private double relativeAccuracy;
+
+    @Value("${analytics.sketches.max-bins:2048}")
+    private int maxBins;
+
+    @Value("${analytics.backfill.max-days:3660}")
+    private int maxDays;
+
+    /**
+     * Build the sketches of one day, replacing any built before; returns the number written
+     */
+    public int buildDailySketches(LocalDate date) {
+        LocalDateTime from = date.atStartOfDay();
+        LocalDateTime to = from.plusDays(1);
+
+        Map<String, HyperLogLog> activeStudents = new TreeMap<>();
+        Map<String, Long> attendances = new TreeMap<>();
+        for (Object[] row : attendanceRepository.findStudentsByStatusInRange(from, to, ATTENDED)) {
+            for (String dimension : dimensions(row[1])) {
+                activeStudents.computeIfAbsent(dimension, d -> new HyperLogLog(hllPrecision)).add((Long) row[0]);
+                attendances.merge(dimension, 1L, Long::sum);
+            }
+        }
+
+        Map<String, QuantileSketch> durations = new TreeMap<>();
+        for (Schedule schedule : schedulingService.getScheduleForDateRange(from, to.minusNanos(1))) {
+            if (schedule.getStatus() == Schedule.ScheduleStatus.CANCELLED) {
+                continue;
+            }
+            double minutes = Duration.between(schedule.getStartTime(), schedule.getEndTime()).toSeconds() / 60.0;
+            if (minutes < 0) {
+                continue;
+            }
+            Object instrument = schedule.getCourse() != null ? schedule.getCourse().getInstrument() : null;
+            for (String dimension : dimensions(instrument)) {
+                durations.computeIfAbsent(dimension, d -> new QuantileSketch(relativeAccuracy, maxBins)).add(minutes);
+            }
+        }
+
+        List<AnalyticsSketch> sketches = new ArrayList<>();
+        activeStudents.forEach((dimension, sketch) -> sketches.add(new AnalyticsSketch(date,
+            AnalyticsSketch.SketchType.HLL, ACTIVE_STUDENTS, dimension, sketch.toBytes(), attendances.get(dimension))));
+        durations.forEach((dimension, sketch) -> sketches.add(new AnalyticsSketch(date,
+            AnalyticsSketch.SketchType.DDSKETCH, LESSON_DURATION_MINUTES, dimension, sketch.toBytes(), sketch.getCount())));
+
+        // Replace the whole day, so dimensions that no longer occur do not keep stale sketches
+        sketchRepository.deleteBySketchDateAndMetricNames(date, List.of(ACTIVE_STUDENTS, LESSON_DURATION_MINUTES));
+        sketchRepository.saveAll(sketches);
+        return sketches.size();
+    }
+
+    /**
+     * Build the sketches of every day in [startDate, endDate]; returns the number written
+     */
+    public int buildSketches(LocalDate startDate, LocalDate endDate) {
+        checkRange(startDate, endDate);
+        int written = 0;
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            written += buildDailySketches(date);
+        }
+        return written;
+    }
+
+    /**
+     * Estimated distinct count per period, from the merged daily HyperLogLogs. The first period
+     * starts on or before startDate so that it is complete.
+     */
+    @Transactional(readOnly = true)
+    public List<SketchPoint> getDistinctCounts(String metricName, String dimension, Period period,
+                                               LocalDate startDate, LocalDate endDate) {
+        checkRange(startDate, endDate);
+        Map<LocalDate, HyperLogLog> merged = new TreeMap<>();
+        for (Object[] row : sketchRepository.findPayloads(AnalyticsSketch.SketchType.HLL, metricName, dimension,
+                period.periodStart(startDate), endDate)) {
+            HyperLogLog day = HyperLogLog.fromBytes((byte[]) row[1]);
+            HyperLogLog total = merged.putIfAbsent(period.periodStart((LocalDate) row[0]), day);
+            if (total != null) {
+                total.merge(day);
+            }
+        }
+        List<SketchPoint> points = new ArrayList<>();
+        merged.forEach((periodStart, sketch) -> points.add(new SketchPoint(periodStart, sketch.estimate(), null)));
+        return points;
+    }
+
+    /**
+     * Value at quantile q per period, from the merged daily DDSketches
+     */
+    @Transactional(readOnly = true)
+    public List<SketchPoint> getQuantiles(String metricName, String dimension, double quantile, Period period,
+                                          LocalDate startDate, LocalDate endDate) {
+        checkRange(startDate, endDate);
+        if (quantile < 0 || quantile > 1) {
+            throw new RuntimeException("Quantile must be between 0 and 1");
+        }
+        Map<LocalDate, QuantileSketch> merged = new TreeMap<>();
+        for (Object[] row : sketchRepository.findPayloads(AnalyticsSketch.SketchType.DDSKETCH, metricName, dimension,
+                period.periodStart(startDate), endDate)) {
+            QuantileSketch day = QuantileSketch.fromBytes((byte[]) row[1]);
+            QuantileSketch total = merged.putIfAbsent(period.periodStart((LocalDate) row[0]), day);
+            if (total != null) {
+                total.merge(day);
+            }
+        }
+        List<SketchPoint> points = new ArrayList<>();
+        merged.forEach((periodStart, sketch) ->
+            points.add(new SketchPoint(periodStart, sketch.getCount(), sketch.quantile(quantile))));
+        return points;
+    }
+
+    /**
+     * Dimensions with sketches of a metric
+     */
+    @Transactional(readOnly = true)
+    public List<String> getDimensions(String metricName) {
+        return sketchRepository.findDimensions(metricName);
+    }
+
+    // Helper methods
+    private static List<String> dimensions(Object instrument) {
+        return instrument != null ? List.of(ALL, "instrument:" + instrument) : List.of(ALL);
+    }
+
+    private void checkRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new RuntimeException("Invalid date range");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) + 1 > maxDays) {
+            throw new RuntimeException("Date range exceeds " + maxDays + " days");
+        }
+    }
+
+    /**
+     * Periods daily sketches are merged into
+     */
+    public enum Period {
+        DAY,
+        WEEK,
+        MONTH,
+        YEAR;
+
+        /**
+         * First day of the period containing the date; weeks start on Monday
+         */
+        public LocalDate periodStart(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> date.withDayOfMonth(1);
+                case YEAR -> date.withDayOfYear(1);
+            };
+        }
+    }
+
+    /**
+     * Inner class for one period of a sketch query; value is the quantile for quantile queries
+     */
+    public static class SketchPoint {
+        private final LocalDate periodStart;
+        private final long count;
+        private final Double value;
+
+        public SketchPoint(LocalDate periodStart, long count, Double value) {
+            this.periodStart = periodStart;
+            this.count = count;
+            this.value = value;
+        }
+
+        // Getters
+        public LocalDate getPeriodStart() { return periodStart; }
+        public long getCount() { return count; }
+        public Double getValue() { return value; }
+    }
+}
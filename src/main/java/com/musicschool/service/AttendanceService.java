@@ -0,0 +1,351 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Attendance;
+import com.musicschool.entity.Schedule;
+import com.musicschool.repository.AttendanceRepository;
+import com.musicschool.repository.ScheduleExceptionRepository;
+import com.musicschool.repository.ScheduleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service recording attendance against schedule occurrences and keeping attendance counters.
+ *
+ * A class checks in with a single INSERT ... SELECT over the student ids, so a full room costs
+ * one statement; duplicates are skipped by the unique key, which makes check-ins safe to
+ * retry. The number of rows actually inserted is added to the course and hour counters in
+ * the same transaction, so rates and peak hours are read from one row per course or hour.
+ */
+@Service
+@Transactional
+public class AttendanceService {
+
+    private static final String INSERT_COURSE_CHECK_INS =
+        "INSERT INTO attendance_records (schedule_id, occurrence_start, student_id, course_id, status, " +
+        "checked_in_at, created_at, updated_at) " +
+        "SELECT ?, ?, e.student_id, e.course_id, ?, ?, NOW(), NOW() FROM enrollments e " +
+        "WHERE e.course_id = ? AND e.status = 'ACTIVE' AND e.student_id = ANY (?) " +
+        "ON CONFLICT (schedule_id, occurrence_start, student_id) DO NOTHING";
+
+    private static final String INSERT_STUDENT_CHECK_IN =
+        "INSERT INTO attendance_records (schedule_id, occurrence_start, student_id, status, checked_in_at, " +
+        "created_at, updated_at) VALUES (?, ?, ?, ?, ?, NOW(), NOW()) " +
+        "ON CONFLICT (schedule_id, occurrence_start, student_id) DO NOTHING";
+
+    private static final String INSERT_COURSE_ABSENTEES =
+        "INSERT INTO attendance_records (schedule_id, occurrence_start, student_id, course_id, status, " +
+        "created_at, updated_at) " +
+        "SELECT ?, ?, e.student_id, e.course_id, 'ABSENT', NOW(), NOW() FROM enrollments e " +
+        "WHERE e.course_id = ? AND e.status = 'ACTIVE' " +
+        "ON CONFLICT (schedule_id, occurrence_start, student_id) DO NOTHING";
+
+    private static final String INSERT_STUDENT_ABSENTEE =
+        "INSERT INTO attendance_records (schedule_id, occurrence_start, student_id, status, created_at, updated_at) " +
+        "VALUES (?, ?, ?, 'ABSENT', NOW(), NOW()) " +
+        "ON CONFLICT (schedule_id, occurrence_start, student_id) DO NOTHING";
+
+    @Autowired
+    private AttendanceRepository attendanceRepository;
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @Autowired
+    private ScheduleExceptionRepository scheduleExceptionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${attendance.late-after-minutes:10}")
+    private int lateAfterMinutes;
+
+    /**
+     * Check students in to an occurrence; occurrenceStart is only needed for recurring series.
+     * Only students expected at the occurrence are recorded, as for markAbsentees; students
+     * already recorded for the occurrence are left unchanged.
+     */
+    public CheckInResult checkIn(Long scheduleId, LocalDateTime occurrenceStart, List<Long> studentIds,
+                                 LocalDateTime checkedInAt) {
+        Schedule schedule = findSchedule(scheduleId);
+        LocalDateTime start = resolveOccurrence(schedule, occurrenceStart);
+        LocalDateTime at = checkedInAt != null ? checkedInAt : LocalDateTime.now();
+        Attendance.AttendanceStatus status = at.isAfter(start.plusMinutes(lateAfterMinutes))
+            ? Attendance.AttendanceStatus.LATE : Attendance.AttendanceStatus.PRESENT;
+        Long courseId = schedule.getCourse() != null ? schedule.getCourse().getId() : null;
+
+        Long[] ids = studentIds == null ? new Long[0] : new LinkedHashSet<>(studentIds).stream()
+            .filter(id -> id != null).toArray(Long[]::new);
+        int recorded;
+        if (ids.length == 0) {
+            recorded = 0;
+        } else if (courseId != null) {
+            recorded = jdbcTemplate.update(INSERT_COURSE_CHECK_INS, ps -> {
+                ps.setLong(1, scheduleId);
+                ps.setTimestamp(2, Timestamp.valueOf(start));
+                ps.setString(3, status.name());
+                ps.setTimestamp(4, Timestamp.valueOf(at));
+                ps.setLong(5, courseId);
+                ps.setArray(6, ps.getConnection().createArrayOf("bigint", ids));
+            });
+        } else if (schedule.getStudent() != null && Arrays.asList(ids).contains(schedule.getStudent().getId())) {
+            recorded = jdbcTemplate.update(INSERT_STUDENT_CHECK_IN, scheduleId, Timestamp.valueOf(start),
+                schedule.getStudent().getId(), status.name(), Timestamp.valueOf(at));
+        } else {
+            recorded = 0;
+        }
+
+        if (recorded > 0) {
+            boolean late = status == Attendance.AttendanceStatus.LATE;
+            addCounts(courseId, start, late ? 0 : recorded, late ? recorded : 0, 0);
+        }
+        return new CheckInResult(start, status, ids.length, recorded);
+    }
+
+    /**
+     * Record everyone expected at an occurrence who has not checked in as absent; returns the
+     * number of absences recorded. Course lessons expect their active enrollments, private
+     * lessons their student.
+     */
+    public int markAbsentees(Long scheduleId, LocalDateTime occurrenceStart) {
+        Schedule schedule = findSchedule(scheduleId);
+        LocalDateTime start = resolveOccurrence(schedule, occurrenceStart);
+        Long courseId = schedule.getCourse() != null ? schedule.getCourse().getId() : null;
+
+        int absent;
+        if (courseId != null) {
+            absent = jdbcTemplate.update(INSERT_COURSE_ABSENTEES, scheduleId, Timestamp.valueOf(start), courseId);
+        } else if (schedule.getStudent() != null) {
+            absent = jdbcTemplate.update(INSERT_STUDENT_ABSENTEE, scheduleId, Timestamp.valueOf(start),
+                schedule.getStudent().getId());
+        } else {
+            absent = 0;
+        }
+        if (absent > 0) {
+            addCounts(courseId, start, 0, 0, absent);
+        }
+        return absent;
+    }
+
+    /**
+     * Attendance recorded for one occurrence
+     */
+    @Transactional(readOnly = true)
+    public List<AttendanceEntry> getOccurrenceAttendance(Long scheduleId, LocalDateTime occurrenceStart) {
+        Schedule schedule = findSchedule(scheduleId);
+        LocalDateTime start = occurrenceStart != null ? occurrenceStart : schedule.getStartTime();
+        List<AttendanceEntry> entries = new ArrayList<>();
+        for (Object[] row : attendanceRepository.findOccurrenceAttendance(scheduleId, start)) {
+            entries.add(new AttendanceEntry((Long) row[0], (Attendance.AttendanceStatus) row[1], (LocalDateTime) row[2]));
+        }
+        return entries;
+    }
+
+    /**
+     * Attendance totals of a course
+     */
+    @Transactional(readOnly = true)
+    public CourseAttendance getCourseAttendance(Long courseId) {
+        List<Object[]> rows = attendanceRepository.findCourseCounts(courseId);
+        if (rows.isEmpty()) {
+            return new CourseAttendance(courseId, 0, 0, 0);
+        }
+        Object[] row = rows.get(0);
+        return new CourseAttendance(courseId, count(row[0]), count(row[1]), count(row[2]));
+    }
+
+    /**
+     * Attendance totals of every course with records, by course id
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, CourseAttendance> getAllCourseAttendance() {
+        Map<Long, CourseAttendance> totals = new HashMap<>();
+        for (Object[] row : attendanceRepository.findAllCourseCounts()) {
+            Long courseId = count(row[0]);
+            totals.put(courseId, new CourseAttendance(courseId, count(row[1]), count(row[2]), count(row[3])));
+        }
+        return totals;
+    }
+
+    /**
+     * Attendance per lesson start hour of one day, for hours with records
+     */
+    @Transactional(readOnly = true)
+    public List<HourAttendance> getHourlyAttendance(LocalDate date) {
+        List<HourAttendance> hours = new ArrayList<>();
+        for (Object[] row : attendanceRepository.findHourCounts(date)) {
+            hours.add(new HourAttendance(((Number) row[0]).intValue(), count(row[1]), count(row[2])));
+        }
+        return hours;
+    }
+
+    /**
+     * Attendance per lesson start hour of one day for one tenant's students, counted from the
+     * records since the counters are school-wide
+     */
+    @Transactional(readOnly = true)
+    public List<HourAttendance> getHourlyAttendance(LocalDate date, Long tenantId) {
+        List<HourAttendance> hours = new ArrayList<>();
+        for (Object[] row : attendanceRepository.countByHourForTenant(date.atStartOfDay(),
+                date.plusDays(1).atStartOfDay(), tenantId)) {
+            hours.add(new HourAttendance(((Number) row[0]).intValue(), count(row[1]), count(row[2])));
+        }
+        return hours;
+    }
+
+    // Helper methods
+    private Schedule findSchedule(Long scheduleId) {
+        return scheduleRepository.findById(scheduleId)
+            .orElseThrow(() -> new RuntimeException("Schedule not found"));
+    }
+
+    /**
+     * Start of the occurrence attendance is taken for: the schedule itself, or an occurrence
+     * of a series that has not been cancelled or moved
+     */
+    private LocalDateTime resolveOccurrence(Schedule schedule, LocalDateTime occurrenceStart) {
+        if (schedule.getStatus() == Schedule.ScheduleStatus.CANCELLED) {
+            throw new RuntimeException("Schedule is cancelled");
+        }
+        if (!schedule.isSeries()) {
+            if (occurrenceStart != null && !occurrenceStart.equals(schedule.getStartTime())) {
+                throw new RuntimeException("Occurrence not found");
+            }
+            return schedule.getStartTime();
+        }
+        if (occurrenceStart == null) {
+            throw new RuntimeException("Occurrence start is required for a recurring series");
+        }
+        List<LocalDateTime> starts = RecurrenceRule.parse(schedule.getRecurrenceRule())
+            .between(schedule.getStartTime(), Duration.between(schedule.getStartTime(), schedule.getEndTime()),
+                occurrenceStart, occurrenceStart.plusSeconds(1));
+        if (!starts.contains(occurrenceStart)
+            || scheduleExceptionRepository.existsBySeriesIdAndOriginalStart(schedule.getId(), occurrenceStart)) {
+            throw new RuntimeException("Occurrence not found");
+        }
+        return occurrenceStart;
+    }
+
+    /**
+     * Add to the course and hour counters; always in this order, so concurrent classes lock
+     * counter rows in the same sequence
+     */
+    private void addCounts(Long courseId, LocalDateTime start, long present, long late, long absent) {
+        if (courseId != null) {
+            attendanceRepository.addCourseCounts(courseId, present, late, absent);
+        }
+        attendanceRepository.addHourCounts(start.toLocalDate(), start.getHour(), present + late, absent);
+    }
+
+    private static long count(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+
+    /**
+     * Inner class for check-in results
+     */
+    public static class CheckInResult {
+        private final LocalDateTime occurrenceStart;
+        private final Attendance.AttendanceStatus status;
+        private final int requested;
+        private final int recorded;
+
+        public CheckInResult(LocalDateTime occurrenceStart, Attendance.AttendanceStatus status, int requested, int recorded) {
+            this.occurrenceStart = occurrenceStart;
+            this.status = status;
+            this.requested = requested;
+            this.recorded = recorded;
+        }
+
+        // Getters
+        public LocalDateTime getOccurrenceStart() { return occurrenceStart; }
+        public Attendance.AttendanceStatus getStatus() { return status; }
+        public int getRequested() { return requested; }
+        public int getRecorded() { return recorded; }
+        public int getSkipped() { return requested - recorded; }
+    }
+
+    /**
+     * Inner class for one student's attendance
+     */
+    public static class AttendanceEntry {
+        private final Long studentId;
+        private final Attendance.AttendanceStatus status;
+        private final LocalDateTime checkedInAt;
+
+        public AttendanceEntry(Long studentId, Attendance.AttendanceStatus status, LocalDateTime checkedInAt) {
+            this.studentId = studentId;
+            this.status = status;
+            this.checkedInAt = checkedInAt;
+        }
+
+        // Getters
+        public Long getStudentId() { return studentId; }
+        public Attendance.AttendanceStatus getStatus() { return status; }
+        public LocalDateTime getCheckedInAt() { return checkedInAt; }
+    }
+
+    /**
+     * Inner class for course attendance totals
+     */
+    public static class CourseAttendance {
+        private final Long courseId;
+        private final long present;
+        private final long late;
+        private final long absent;
+
+        public CourseAttendance(Long courseId, long present, long late, long absent) {
+            this.courseId = courseId;
+            this.present = present;
+            this.late = late;
+            this.absent = absent;
+        }
+
+        /**
+         * Share of expected attendances that were attended, late included; 0 without records
+         */
+        public double getAttendanceRate() {
+            long expected = present + late + absent;
+            return expected == 0 ? 0.0 : (double) (present + late) / expected;
+        }
+
+        // Getters
+        public Long getCourseId() { return courseId; }
+        public long getPresent() { return present; }
+        public long getLate() { return late; }
+        public long getAbsent() { return absent; }
+    }
+
+    /**
+     * Inner class for attendance in one lesson start hour
+     */
+    public static class HourAttendance {
+        private final int hour;
+        private final long attended;
+        private final long absent;
+
+        public HourAttendance(int hour, long attended, long absent) {
+            this.hour = hour;
+            this.attended = attended;
+            this.absent = absent;
+        }
+
+        // Getters
+        public int getHour() { return hour; }
+        public long getAttended() { return attended; }
+        public long getAbsent() { return absent; }
+    }
+}
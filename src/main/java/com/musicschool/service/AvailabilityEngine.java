@@ -0,0 +1,170 @@
+package com.musicschool.service;
+
+import com.musicschool.service.SchedulingService.TimeSlot;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sweep-line availability calculations over sorted busy intervals.
+ *
+ * Busy intervals are sorted and merged once, then subtracted from the working-hour
+ * windows of the requested range in a single linear pass. All intervals are half-open.
+ */
+public final class AvailabilityEngine {
+
+    private AvailabilityEngine() {}
+
+    /**
+     * Sort busy intervals by start and merge the ones that overlap or touch
+     */
+    public static List<TimeSlot> merge(List<TimeSlot> busy) {
+        List<TimeSlot> sorted = new ArrayList<>(busy);
+        sorted.sort(Comparator.comparing(TimeSlot::getStartTime));
+        List<TimeSlot> merged = new ArrayList<>();
+        LocalDateTime currentStart = null;
+        LocalDateTime currentEnd = null;
+        for (TimeSlot slot : sorted) {
+            if (!slot.getEndTime().isAfter(slot.getStartTime())) {
+                continue;
+            }
+            if (currentEnd != null && !slot.getStartTime().isAfter(currentEnd)) {
+                if (slot.getEndTime().isAfter(currentEnd)) {
+                    currentEnd = slot.getEndTime();
+                }
+            } else {
+                if (currentEnd != null) {
+                    merged.add(new TimeSlot(currentStart, currentEnd));
+                }
+                currentStart = slot.getStartTime();
+                currentEnd = slot.getEndTime();
+            }
+        }
+        if (currentEnd != null) {
+            merged.add(new TimeSlot(currentStart, currentEnd));
+        }
+        return merged;
+    }
+
+    /**
+     * Working-hour windows of each day in the range; equal bounds mean the whole day
+     */
+    public static List<TimeSlot> workingWindows(LocalDateTime start, LocalDateTime end,
+                                                LocalTime dayStart, LocalTime dayEnd) {
+        List<TimeSlot> windows = new ArrayList<>();
+        // Start a day early so overnight hours carried over from the previous day are included
+        for (LocalDate day = start.toLocalDate().minusDays(1); day.atStartOfDay().isBefore(end); day = day.plusDays(1)) {
+            LocalDateTime windowStart = day.atTime(dayStart);
+            LocalDateTime windowEnd = dayEnd.isAfter(dayStart) ? day.atTime(dayEnd) : day.plusDays(1).atTime(dayEnd);
+            if (windowStart.isBefore(start)) {
+                windowStart = start;
+            }
+            if (windowEnd.isAfter(end)) {
+                windowEnd = end;
+            }
+            if (!windowStart.isBefore(windowEnd)) {
+                continue;
+            }
+            TimeSlot previous = windows.isEmpty() ? null : windows.get(windows.size() - 1);
+            if (previous != null && !windowStart.isAfter(previous.getEndTime())) {
+                // Contiguous days (whole-day or overnight hours) form a single window
+                previous.setEndTime(windowEnd);
+            } else {
+                windows.add(new TimeSlot(windowStart, windowEnd));
+            }
+        }
+        return windows;
+    }
+
+    /**
+     * Subtract merged busy intervals from sorted, non-overlapping windows in one sweep
+     */
+    public static List<TimeSlot> subtract(List<TimeSlot> windows, List<TimeSlot> mergedBusy) {
+        List<TimeSlot> free = new ArrayList<>();
+        int b = 0;
+        for (TimeSlot window : windows) {
+            LocalDateTime cursor = window.getStartTime();
+            while (b < mergedBusy.size() && !mergedBusy.get(b).getEndTime().isAfter(cursor)) {
+                b++;
+            }
+            int i = b;
+            while (i < mergedBusy.size() && mergedBusy.get(i).getStartTime().isBefore(window.getEndTime())) {
+                TimeSlot busy = mergedBusy.get(i);
+                if (busy.getStartTime().isAfter(cursor)) {
+                    free.add(new TimeSlot(cursor, busy.getStartTime()));
+                }
+                if (busy.getEndTime().isAfter(cursor)) {
+                    cursor = busy.getEndTime();
+                }
+                if (!cursor.isBefore(window.getEndTime())) {
+                    break;
+                }
+                i++;
+            }
+            if (cursor.isBefore(window.getEndTime())) {
+                free.add(new TimeSlot(cursor, window.getEndTime()));
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Free intervals of the range inside working hours, given unsorted busy intervals
+     */
+    public static List<TimeSlot> freeIntervals(LocalDateTime start, LocalDateTime end,
+                                               LocalTime dayStart, LocalTime dayEnd, List<TimeSlot> busy) {
+        return subtract(workingWindows(start, end, dayStart, dayEnd), merge(busy));
+    }
+
+    /**
+     * Intersect two sorted lists of non-overlapping intervals
+     */
+    public static List<TimeSlot> intersect(List<TimeSlot> first, List<TimeSlot> second) {
+        List<TimeSlot> result = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < first.size() && j < second.size()) {
+            TimeSlot a = first.get(i);
+            TimeSlot b = second.get(j);
+            LocalDateTime start = a.getStartTime().isAfter(b.getStartTime()) ? a.getStartTime() : b.getStartTime();
+            LocalDateTime end = a.getEndTime().isBefore(b.getEndTime()) ? a.getEndTime() : b.getEndTime();
+            if (start.isBefore(end)) {
+                result.add(new TimeSlot(start, end));
+            }
+            if (a.getEndTime().isBefore(b.getEndTime())) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Cut free intervals into fixed-length slots aligned to a grid starting at the origin
+     */
+    public static List<TimeSlot> slots(List<TimeSlot> free, LocalDateTime origin, Duration slotLength) {
+        if (slotLength.isZero() || slotLength.isNegative()) {
+            throw new IllegalArgumentException("Slot length must be positive");
+        }
+        long step = slotLength.getSeconds();
+        List<TimeSlot> slots = new ArrayList<>();
+        for (TimeSlot interval : free) {
+            long offset = Duration.between(origin, interval.getStartTime()).getSeconds();
+            long firstIndex = Math.floorDiv(offset + step - 1, step);
+            LocalDateTime slotStart = origin.plusSeconds(firstIndex * step);
+            LocalDateTime slotEnd = slotStart.plus(slotLength);
+            while (!slotEnd.isAfter(interval.getEndTime())) {
+                slots.add(new TimeSlot(slotStart, slotEnd));
+                slotStart = slotEnd;
+                slotEnd = slotStart.plus(slotLength);
+            }
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,22 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.ScheduleConflict;
+
+import java.util.List;
+
+/**
+ * Thrown when a booking overlaps existing schedules of its instructor, student or room.
+ */
+public class BookingConflictException extends RuntimeException {
+
+    private final List<ScheduleConflict> conflicts;
+
+    public BookingConflictException(List<ScheduleConflict> conflicts) {
+        super("Schedule conflicts with " + conflicts.size() + " existing booking(s)");
+        this.conflicts = conflicts;
+    }
+
+    public List<ScheduleConflict> getConflicts() {
+        return conflicts;
+    }
+}
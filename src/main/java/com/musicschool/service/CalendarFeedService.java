@@ -0,0 +1,185 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Schedule;
+import com.musicschool.repository.ScheduleExceptionRepository;
+import com.musicschool.repository.ScheduleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Service writing iCalendar (RFC 5545) feeds of instructor, student and room schedules.
+ *
+ * Feeds are streamed from a database cursor straight to the response, one VEVENT per row;
+ * recurring series are written once with their RRULE and EXDATEs instead of being expanded.
+ * The feed window starts a configurable number of days back and is aligned to the day, so
+ * the version (row count and latest change) stays stable between changes.
+ */
+@Service
+@Transactional(readOnly = true)
+public class CalendarFeedService {
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @Autowired
+    private ScheduleExceptionRepository scheduleExceptionRepository;
+
+    @Value("${scheduling.calendar.lookback-days:90}")
+    private int lookbackDays;
+
+    @Value("${scheduling.calendar.flush-every:200}")
+    private int flushEvery;
+
+    public enum FeedType {
+        INSTRUCTOR, STUDENT, ROOM
+    }
+
+    /**
+     * Version of a feed, used for ETag and Last-Modified validation
+     */
+    public FeedVersion getFeedVersion(FeedType type, String key) {
+        LocalDateTime from = windowStart();
+        List<Object[]> rows = switch (type) {
+            case INSTRUCTOR -> scheduleRepository.findInstructorFeedVersion(Long.valueOf(key), from);
+            case STUDENT -> scheduleRepository.findStudentFeedVersion(Long.valueOf(key), from);
+            case ROOM -> scheduleRepository.findRoomFeedVersion(key, from);
+        };
+        Object[] row = rows.isEmpty() ? new Object[] {0L, null} : rows.get(0);
+        long count = row[0] != null ? ((Number) row[0]).longValue() : 0;
+        LocalDateTime lastModified = row[1] != null ? (LocalDateTime) row[1] : from;
+        return new FeedVersion(type, key, from, count, lastModified);
+    }
+
+    /**
+     * Write the feed of the given version window to the output stream
+     */
+    public void writeFeed(FeedVersion version, OutputStream out) throws IOException {
+        FeedType type = version.getType();
+        String key = version.getKey();
+        Map<Long, List<LocalDateTime>> excluded = findExcludedStarts(type, key);
+
+        ICalendarWriter writer = new ICalendarWriter(out);
+        writer.begin(calendarName(type, key));
+        try (Stream<Object[]> rows = streamRows(type, key, version.getFrom())) {
+            int[] written = {0};
+            rows.forEach(row -> {
+                try {
+                    writeEvent(writer, row, excluded);
+                    if (++written[0] % flushEvery == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.end();
+    }
+
+    private void writeEvent(ICalendarWriter writer, Object[] row, Map<Long, List<LocalDateTime>> excluded)
+            throws IOException {
+        Long id = (Long) row[0];
+        String rule = (String) row[7];
+        writer.event("schedule-" + id + "@musicschool",
+            (LocalDateTime) row[1], (LocalDateTime) row[2],
+            (String) row[3], (String) row[4], (String) row[5],
+            row[6] == Schedule.ScheduleStatus.CANCELLED,
+            rule, rule != null ? excluded.getOrDefault(id, Collections.emptyList()) : null,
+            (LocalDateTime) row[8]);
+    }
+
+    private Stream<Object[]> streamRows(FeedType type, String key, LocalDateTime from) {
+        return switch (type) {
+            case INSTRUCTOR -> scheduleRepository.streamInstructorFeed(Long.valueOf(key), from);
+            case STUDENT -> scheduleRepository.streamStudentFeed(Long.valueOf(key), from);
+            case ROOM -> scheduleRepository.streamRoomFeed(key, from);
+        };
+    }
+
+    /**
+     * EXDATEs of all series in the feed, read up front so the row cursor is the only open query
+     */
+    private Map<Long, List<LocalDateTime>> findExcludedStarts(FeedType type, String key) {
+        List<Object[]> rows = switch (type) {
+            case INSTRUCTOR -> scheduleExceptionRepository.findExcludedStartsForInstructor(Long.valueOf(key));
+            case STUDENT -> scheduleExceptionRepository.findExcludedStartsForStudent(Long.valueOf(key));
+            case ROOM -> scheduleExceptionRepository.findExcludedStartsForRoom(key);
+        };
+        Map<Long, List<LocalDateTime>> excluded = new HashMap<>();
+        for (Object[] row : rows) {
+            excluded.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((LocalDateTime) row[1]);
+        }
+        return excluded;
+    }
+
+    private LocalDateTime windowStart() {
+        return LocalDate.now().minusDays(lookbackDays).atStartOfDay();
+    }
+
+    private String calendarName(FeedType type, String key) {
+        return switch (type) {
+            case INSTRUCTOR -> "Instructor " + key + " schedule";
+            case STUDENT -> "Student " + key + " schedule";
+            case ROOM -> "Room " + key + " schedule";
+        };
+    }
+
+    /**
+     * Inner class for feed versions
+     */
+    public static class FeedVersion {
+        private final FeedType type;
+        private final String key;
+        private final LocalDateTime from;
+        private final long count;
+        private final LocalDateTime lastModified;
+
+        public FeedVersion(FeedType type, String key, LocalDateTime from, long count, LocalDateTime lastModified) {
+            this.type = type;
+            this.key = key;
+            this.from = from;
+            this.count = count;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Strong validator: changes when a row in the window is added, removed or modified,
+         * or when the window moves to the next day
+         */
+        public String getETag() {
+            return "\"" + type.name().toLowerCase() + "-" + Integer.toHexString(key.hashCode()) + "-"
+                + from.toLocalDate() + "-" + count + "-" + lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + "\"";
+        }
+
+        /**
+         * Last change in epoch milliseconds, truncated to seconds as HTTP dates are
+         */
+        public long getLastModifiedMillis() {
+            return lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() / 1000 * 1000;
+        }
+
+        // Getters
+        public FeedType getType() { return type; }
+        public String getKey() { return key; }
+        public LocalDateTime getFrom() { return from; }
+        public long getCount() { return count; }
+        public LocalDateTime getLastModified() { return lastModified; }
+    }
+}
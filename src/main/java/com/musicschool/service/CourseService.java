@@ -1,7 +1,9 @@
 package com.musicschool.service;
 
 import com.musicschool.entity.Course;
+import com.musicschool.entity.Enrollment;
 import com.musicschool.repository.CourseRepository;
+import com.musicschool.repository.EnrollmentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -9,7 +11,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -20,10 +24,12 @@ import java.util.Optional;
 public class CourseService {
 
     private final CourseRepository courseRepository;
+    private final EnrollmentRepository enrollmentRepository;
 
     @Autowired
-    public CourseService(CourseRepository courseRepository) {
+    public CourseService(CourseRepository courseRepository, EnrollmentRepository enrollmentRepository) {
         this.courseRepository = courseRepository;
+        this.enrollmentRepository = enrollmentRepository;
     }
 
     /**
@@ -135,4 +141,43 @@ public class CourseService {
     public long count() {
         return courseRepository.count();
     }
+
+    /**
+     * Share of finished enrollments (completed or dropped) that were completed, per course id;
+     * courses without finished enrollments are left out
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Double> getCompletionRates() {
+        return completionRates(enrollmentRepository.countByCourseAndStatus());
+    }
+
+    /**
+     * Completion rates of the courses of one tenant
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Double> getCompletionRates(Long tenantId) {
+        return completionRates(enrollmentRepository.countByCourseAndStatusForTenant(tenantId));
+    }
+
+    // Helper methods
+    private static Map<Long, Double> completionRates(List<Object[]> countsByCourseAndStatus) {
+        Map<Long, long[]> counts = new HashMap<>();
+        for (Object[] row : countsByCourseAndStatus) {
+            long[] finished = counts.computeIfAbsent((Long) row[0], k -> new long[2]);
+            long count = ((Number) row[2]).longValue();
+            if (row[1] == Enrollment.EnrollmentStatus.COMPLETED) {
+                finished[0] += count;
+                finished[1] += count;
+            } else if (row[1] == Enrollment.EnrollmentStatus.DROPPED) {
+                finished[1] += count;
+            }
+        }
+        Map<Long, Double> rates = new HashMap<>();
+        counts.forEach((courseId, finished) -> {
+            if (finished[1] > 0) {
+                rates.put(courseId, (double) finished[0] / finished[1]);
+            }
+        });
+        return rates;
+    }
 }
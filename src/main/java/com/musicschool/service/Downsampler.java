@@ -0,0 +1,71 @@
+package com.musicschool.service;
+
+/**
+ * Largest-Triangle-Three-Buckets (LTTB) downsampling of time series.
+ *
+ * The first and last points are always kept; every other output point is the one from its
+ * bucket forming the largest triangle with the previously kept point and the average of the
+ * next bucket. Peaks and dips survive, unlike with plain averaging or striding, so a chart
+ * drawn from a few hundred points looks like one drawn from the full series.
+ */
+public final class Downsampler {
+
+    private Downsampler() {}
+
+    /**
+     * Indices of the points to keep, ascending; all indices when size does not exceed threshold
+     */
+    public static int[] lttb(long[] timestamps, double[] values, int size, int threshold) {
+        if (threshold >= size || size <= 2) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        if (threshold < 3) {
+            return threshold <= 1 ? new int[] {0} : new int[] {0, size - 1};
+        }
+
+        int[] selected = new int[threshold];
+        int kept = 0;
+        selected[kept++] = 0;
+        // Points between the first and last are split into threshold - 2 buckets
+        double every = (double) (size - 2) / (threshold - 2);
+        long origin = timestamps[0];
+        int previous = 0;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int nextStart = (int) ((bucket + 1) * every) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * every) + 1, size);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += timestamps[i] - origin;
+                averageY += values[i];
+            }
+            int nextCount = Math.max(1, nextEnd - nextStart);
+            averageX /= nextCount;
+            averageY /= nextCount;
+
+            double previousX = timestamps[previous] - origin;
+            double previousY = values[previous];
+            int start = (int) (bucket * every) + 1;
+            int end = (int) ((bucket + 1) * every) + 1;
+            double largest = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((previousX - averageX) * (values[i] - previousY)
+                    - (previousX - (timestamps[i] - origin)) * (averageY - previousY));
+                if (area > largest) {
+                    largest = area;
+                    chosen = i;
+                }
+            }
+            selected[kept++] = chosen;
+            previous = chosen;
+        }
+        selected[kept] = size - 1;
+        return selected;
+    }
+}
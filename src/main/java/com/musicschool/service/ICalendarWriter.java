@@ -0,0 +1,110 @@
+package com.musicschool.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * Minimal RFC 5545 writer emitting one VEVENT at a time straight to an output stream.
+ * Times are written as floating local times, matching how schedules are stored.
+ */
+public class ICalendarWriter implements AutoCloseable {
+
+    private static final DateTimeFormatter LOCAL = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter UTC = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private final Writer writer;
+
+    public ICalendarWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+    }
+
+    public void begin(String calendarName) throws IOException {
+        line("BEGIN:VCALENDAR");
+        line("VERSION:2.0");
+        line("PRODID:-//Music School//Schedule Feed//EN");
+        line("CALSCALE:GREGORIAN");
+        line("METHOD:PUBLISH");
+        line("X-WR-CALNAME:" + escape(calendarName));
+    }
+
+    /**
+     * Write one event; rule and excluded starts are only set for recurring series
+     */
+    public void event(String uid, LocalDateTime start, LocalDateTime end, String summary, String description,
+                      String location, boolean cancelled, String rule, Collection<LocalDateTime> excludedStarts,
+                      LocalDateTime lastModified) throws IOException {
+        line("BEGIN:VEVENT");
+        line("UID:" + uid);
+        String modified = lastModified.atZone(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).format(UTC);
+        line("DTSTAMP:" + modified);
+        line("LAST-MODIFIED:" + modified);
+        line("DTSTART:" + start.format(LOCAL));
+        line("DTEND:" + end.format(LOCAL));
+        if (summary != null) {
+            line("SUMMARY:" + escape(summary));
+        }
+        if (description != null) {
+            line("DESCRIPTION:" + escape(description));
+        }
+        if (location != null) {
+            line("LOCATION:" + escape(location));
+        }
+        line("STATUS:" + (cancelled ? "CANCELLED" : "CONFIRMED"));
+        if (rule != null) {
+            line("RRULE:" + rule);
+            if (excludedStarts != null && !excludedStarts.isEmpty()) {
+                line("EXDATE:" + excludedStarts.stream().sorted().map(LOCAL::format).collect(Collectors.joining(",")));
+            }
+        }
+        line("END:VEVENT");
+    }
+
+    public void end() throws IOException {
+        line("END:VCALENDAR");
+        writer.flush();
+    }
+
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    private void line(String content) throws IOException {
+        // Fold at 75 octets without splitting multi-byte characters
+        int octets = 0;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            int size = c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isHighSurrogate(c) ? 4 : Character.isLowSurrogate(c) ? 0 : 3;
+            if (octets + size > MAX_LINE_OCTETS) {
+                writer.write("\r\n ");
+                octets = 1;
+            }
+            writer.write(c);
+            octets += size;
+        }
+        writer.write("\r\n");
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\")
+            .replace(";", "\\;")
+            .replace(",", "\\,")
+            .replace("\r\n", "\\n")
+            .replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,276 @@
+package com.musicschool.service;
+
+import com.musicschool.repository.CourseRepository;
+import com.musicschool.repository.EnrollmentRepository;
+import com.musicschool.repository.InstructorRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * In-memory leaderboards of courses by enrollment count and instructors by course count.
+ *
+ * Counts are loaded once at startup with one GROUP BY query each, then kept current by
+ * InsightsLeaderboardListener as enrollments and courses are created, reassigned or removed;
+ * changes are applied after their transaction commits. Each board is ordered by count, so
+ * reading the top entries does not depend on the number of rows. Callers fall back to SQL
+ * while the boards are not loaded.
+ *
+ * The listener only sees this node's changes, so the boards are reloaded periodically to pick
+ * up changes made by other nodes and bulk updates that bypass Hibernate entity events. The
+ * previous boards keep answering queries while a reload runs.
+ */
+@Component
+public class InsightsLeaderboard {
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private InstructorRepository instructorRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Value("${analytics.leaderboard.enabled:true}")
+    private boolean enabled;
+
+    private final Board courseEnrollments = new Board();
+    private final Board instructorCourses = new Board();
+    // Ids changed while loading; their counts are read again once the load is done
+    private final Set<Long> dirtyCourses = new HashSet<>();
+    private final Set<Long> dirtyInstructors = new HashSet<>();
+    private boolean loading;
+    private volatile boolean loaded;
+
+    /**
+     * Load both boards once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (loading) {
+                return;
+            }
+            loading = true;
+            dirtyCourses.clear();
+            dirtyInstructors.clear();
+        }
+        List<Object[]> courseCounts;
+        List<Object[]> instructorCounts;
+        try {
+            courseCounts = courseRepository.countEnrollmentsPerCourse();
+            instructorCounts = instructorRepository.countCoursesPerInstructor();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading = false;
+            }
+            throw e;
+        }
+
+        Set<Long> recountCourses;
+        Set<Long> recountInstructors;
+        synchronized (this) {
+            courseEnrollments.clear();
+            for (Object[] row : courseCounts) {
+                courseEnrollments.set((Long) row[0], ((Number) row[1]).longValue());
+            }
+            instructorCourses.clear();
+            for (Object[] row : instructorCounts) {
+                instructorCourses.set((Long) row[0], ((Number) row[1]).longValue());
+            }
+            recountCourses = new HashSet<>(dirtyCourses);
+            recountInstructors = new HashSet<>(dirtyInstructors);
+            loading = false;
+            loaded = true;
+        }
+        for (Long courseId : recountCourses) {
+            long count = enrollmentRepository.countByCourseId(courseId);
+            synchronized (this) {
+                courseEnrollments.set(courseId, count);
+            }
+        }
+        for (Long instructorId : recountInstructors) {
+            long count = courseRepository.countByInstructorId(instructorId);
+            synchronized (this) {
+                instructorCourses.set(instructorId, count);
+            }
+        }
+    }
+
+    /**
+     * Reload both boards from SQL, picking up changes made on other nodes
+     */
+    @Scheduled(fixedDelayString = "${analytics.leaderboard.refresh-millis:300000}",
+               initialDelayString = "${analytics.leaderboard.refresh-millis:300000}")
+    public void refresh() {
+        if (isLoaded()) {
+            load();
+        }
+    }
+
+    /**
+     * Whether the boards have been loaded and can answer queries
+     */
+    public boolean isLoaded() {
+        return enabled && loaded;
+    }
+
+    /**
+     * Ids of the courses with the most enrollments, ties by id
+     */
+    public synchronized List<Long> topCourses(int limit) {
+        return courseEnrollments.top(limit);
+    }
+
+    /**
+     * Ids of the instructors with the most courses, ties by id
+     */
+    public synchronized List<Long> topInstructors(int limit) {
+        return instructorCourses.top(limit);
+    }
+
+    /**
+     * Enrollment count of a course on the board
+     */
+    public synchronized long courseEnrollmentCount(Long courseId) {
+        return courseEnrollments.get(courseId);
+    }
+
+    /**
+     * Course count of an instructor on the board
+     */
+    public synchronized long instructorCourseCount(Long instructorId) {
+        return instructorCourses.get(instructorId);
+    }
+
+    /**
+     * Change the enrollment count of a course once the current transaction commits
+     */
+    public void enrollmentsChanged(Long courseId, long delta) {
+        afterCommit(() -> apply(courseEnrollments, dirtyCourses, courseId, delta, false));
+    }
+
+    /**
+     * Change the course count of an instructor once the current transaction commits
+     */
+    public void coursesChanged(Long instructorId, long delta) {
+        afterCommit(() -> apply(instructorCourses, dirtyInstructors, instructorId, delta, false));
+    }
+
+    /**
+     * Add a new course (with no enrollments yet) or remove a deleted one
+     */
+    public void courseAdded(Long courseId, boolean added) {
+        afterCommit(() -> apply(courseEnrollments, dirtyCourses, courseId, 0, !added));
+    }
+
+    /**
+     * Add a new instructor (with no courses yet) or remove a deleted one
+     */
+    public void instructorAdded(Long instructorId, boolean added) {
+        afterCommit(() -> apply(instructorCourses, dirtyInstructors, instructorId, 0, !added));
+    }
+
+    // Helper methods
+    private synchronized void apply(Board board, Set<Long> dirty, Long id, long delta, boolean remove) {
+        if (id == null) {
+            return;
+        }
+        if (loading) {
+            // Recounted once the load is done; a reload still applies it to the boards in use
+            dirty.add(id);
+        }
+        if (!loaded) {
+            return;
+        } else if (remove) {
+            board.remove(id);
+        } else if (delta == 0) {
+            board.set(id, board.get(id));
+        } else if (board.contains(id)) {
+            // Deltas for removed rows (cascaded deletes) must not bring them back
+            board.set(id, Math.max(0, board.get(id) + delta));
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Counts per id, also kept ordered by count (descending) then id
+     */
+    private static final class Board {
+        private static final Comparator<long[]> ORDER = Comparator.<long[]>comparingLong(e -> -e[1])
+            .thenComparingLong(e -> e[0]);
+
+        private final Map<Long, Long> counts = new HashMap<>();
+        private final TreeSet<long[]> ranking = new TreeSet<>(ORDER);
+
+        long get(Long id) {
+            return counts.getOrDefault(id, 0L);
+        }
+
+        boolean contains(Long id) {
+            return counts.containsKey(id);
+        }
+
+        void set(Long id, long count) {
+            remove(id);
+            counts.put(id, count);
+            ranking.add(new long[] {id, count});
+        }
+
+        void remove(Long id) {
+            Long previous = counts.remove(id);
+            if (previous != null) {
+                ranking.remove(new long[] {id, previous});
+            }
+        }
+
+        void clear() {
+            counts.clear();
+            ranking.clear();
+        }
+
+        List<Long> top(int limit) {
+            List<Long> ids = new ArrayList<>(limit);
+            for (long[] entry : ranking) {
+                if (ids.size() == limit) {
+                    break;
+                }
+                ids.add(entry[0]);
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.musicschool.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Service answering chart queries over one metric from the in-memory metric store, which
+ * reads the analytics table until it is loaded.
+ *
+ * Points of the range are optionally aggregated into fixed steps, then reduced with LTTB to
+ * at most maxPoints (the chart's pixel width), so the response size depends on the chart and
+ * not on the length of the history. Results are written as columnar JSON (one array of
+ * timestamps, one of values) or CSV straight to the response stream.
+ */
+@Service
+public class MetricSeriesService {
+
+    @Autowired
+    private MetricStore metricStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${analytics.series.max-points:10000}")
+    private int maxPointsLimit;
+
+    @Value("${analytics.series.max-buckets:1000000}")
+    private long maxBuckets;
+
+    public enum Format {
+        JSON, CSV
+    }
+
+    /**
+     * Points of a metric (school-wide, or of one tenant when tenantId is set) in
+     * [startDate, endDate], aggregated per step when stepMillis is set and downsampled to at
+     * most maxPoints
+     */
+    public MetricSeries query(String metricName, Long tenantId, LocalDate startDate, LocalDate endDate,
+                              Long stepMillis, MetricStore.Aggregation aggregation, int maxPoints) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new RuntimeException("Invalid date range");
+        }
+        if (maxPoints < 2 || maxPoints > maxPointsLimit) {
+            throw new RuntimeException("maxPoints must be between 2 and " + maxPointsLimit);
+        }
+        long from = MetricStore.epochMillis(startDate.atStartOfDay());
+        long to = MetricStore.epochMillis(endDate.plusDays(1).atStartOfDay());
+
+        long[] timestamps;
+        double[] values;
+        int size;
+        if (stepMillis != null) {
+            if (stepMillis <= 0 || (to - from) / stepMillis > maxBuckets) {
+                throw new RuntimeException("Step must be positive and give at most " + maxBuckets + " buckets");
+            }
+            MetricStore.Buckets buckets = metricStore.aggregate(metricName, tenantId, from, to, stepMillis, aggregation);
+            timestamps = new long[buckets.size()];
+            values = new double[buckets.size()];
+            size = 0;
+            // Empty buckets are left out rather than sent as gaps
+            for (int i = 0; i < buckets.size(); i++) {
+                if (buckets.count(i) > 0) {
+                    timestamps[size] = buckets.bucketStart(i);
+                    values[size++] = buckets.value(i);
+                }
+            }
+        } else {
+            MetricStore.Slice slice = metricStore.read(metricName, tenantId, from, to);
+            timestamps = slice.getTimestamps();
+            values = slice.getValues();
+            size = slice.size();
+        }
+
+        int sourcePoints = size;
+        if (size > maxPoints) {
+            int[] keep = Downsampler.lttb(timestamps, values, size, maxPoints);
+            long[] keptTimestamps = new long[keep.length];
+            double[] keptValues = new double[keep.length];
+            for (int i = 0; i < keep.length; i++) {
+                keptTimestamps[i] = timestamps[keep[i]];
+                keptValues[i] = values[keep[i]];
+            }
+            timestamps = keptTimestamps;
+            values = keptValues;
+            size = keep.length;
+        }
+        return new MetricSeries(metricName, stepMillis != null ? aggregation : null, stepMillis, sourcePoints,
+            timestamps, values, size);
+    }
+
+    /**
+     * Write a series in the requested format
+     */
+    public void write(MetricSeries series, Format format, OutputStream out) throws IOException {
+        if (format == Format.CSV) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+            writeCsv(series, writer);
+            writer.flush();
+        } else {
+            writeJson(series, out);
+        }
+    }
+
+    // Helper methods
+    private void writeJson(MetricSeries series, OutputStream out) throws IOException {
+        // The response stream belongs to the caller; the generator only flushes it
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartObject();
+            generator.writeStringField("metric", series.getMetricName());
+            generator.writeStringField("aggregation",
+                series.getAggregation() != null ? series.getAggregation().name() : null);
+            generator.writeFieldName("stepMillis");
+            if (series.getStepMillis() != null) {
+                generator.writeNumber(series.getStepMillis());
+            } else {
+                generator.writeNull();
+            }
+            generator.writeNumberField("sourcePoints", series.getSourcePoints());
+            generator.writeNumberField("points", series.size());
+            generator.writeFieldName("timestamps");
+            generator.writeArray(series.timestamps, 0, series.size());
+            generator.writeArrayFieldStart("values");
+            for (int i = 0; i < series.size(); i++) {
+                double value = series.values[i];
+                // Whole numbers without a fraction, non-finite values as null, as in CSV
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    generator.writeNull();
+                } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                    generator.writeNumber((long) value);
+                } else {
+                    generator.writeNumber(value);
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeCsv(MetricSeries series, Writer writer) throws IOException {
+        writer.write("timestamp,value\n");
+        for (int i = 0; i < series.size(); i++) {
+            writer.write(Instant.ofEpochMilli(series.timestamps[i]).atOffset(ZoneOffset.UTC).toLocalDateTime().toString());
+            writer.write(',');
+            writer.write(number(series.values[i]));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Shortest form of a value; whole numbers without a fraction, non-finite values as null
+     */
+    private static String number(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Inner class for a queried series, held as parallel timestamp (epoch millis, UTC) and value arrays
+     */
+    public static class MetricSeries {
+        private final String metricName;
+        private final MetricStore.Aggregation aggregation;
+        private final Long stepMillis;
+        private final int sourcePoints;
+        private final long[] timestamps;
+        private final double[] values;
+        private final int size;
+
+        public MetricSeries(String metricName, MetricStore.Aggregation aggregation, Long stepMillis, int sourcePoints,
+                            long[] timestamps, double[] values, int size) {
+            this.metricName = metricName;
+            this.aggregation = aggregation;
+            this.stepMillis = stepMillis;
+            this.sourcePoints = sourcePoints;
+            this.timestamps = timestamps;
+            this.values = values;
+            this.size = size;
+        }
+
+        // Getters
+        public String getMetricName() { return metricName; }
+        public MetricStore.Aggregation getAggregation() { return aggregation; }
+        public Long getStepMillis() { return stepMillis; }
+        public int getSourcePoints() { return sourcePoints; }
+        public int size() { return size; }
+    }
+}
@@ -0,0 +1,657 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Analytics;
+import com.musicschool.repository.AnalyticsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory columnar store of the analytics time series.
+ *
+ * A series is one metric for the whole school (rows without a tenant) or for one tenant, so
+ * per-tenant rows written by sharded collection never mix into the school-wide series.
+ * Series keys are dictionary-encoded to dense ids. Each series keeps its values in a
+ * double[] and its timestamps (epoch millis, UTC) as zigzag varints of the delta-of-delta,
+ * so regularly spaced points cost one byte each. A checkpoint every CHECKPOINT_INTERVAL
+ * points lets range reads start decoding close to the window instead of at the beginning.
+ *
+ * The store is loaded from the analytics table at startup and appended to as metrics are
+ * saved; until it is loaded, or when it is disabled, reads go to the table instead. Appends arriving out of order re-encode the affected series. Metrics saved by other
+ * nodes are picked up by a periodic refresh, which reads the rows created since the previous
+ * refresh (less an overlap for clock skew and late commits, deduplicated by id). Rows deleted
+ * or replaced elsewhere, or committed too late for the overlap, leave the store's point count
+ * different from the table's; once the table's count is stable the store is reloaded.
+ */
+@Component
+public class MetricStore {
+
+    private static final int CHECKPOINT_INTERVAL = 256;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Value("${analytics.metric-store.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.metric-store.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    @Value("${analytics.metric-store.refresh-overlap-minutes:15}")
+    private long refreshOverlapMinutes;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<SeriesKey, Integer> dictionary = new HashMap<>();
+    private final List<SeriesKey> names = new ArrayList<>();
+    private final List<Analytics.MetricType> types = new ArrayList<>();
+    private final List<Series> series = new ArrayList<>();
+    private final List<Analytics> appendedWhileLoading = new ArrayList<>();
+    // Ids and creation times of the rows created since tailFrom that are already stored
+    private final Map<Long, LocalDateTime> recentIds = new HashMap<>();
+    private LocalDateTime tailFrom;
+    private long points;
+    private long lastTableCount = -1;
+    private volatile boolean loaded;
+
+    public enum Aggregation {
+        SUM, AVG, MIN, MAX, LAST, COUNT
+    }
+
+    /**
+     * Load every stored metric point once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // Points are read in id order, which is not time order per metric; buffer per
+        // metric, then sort and encode each series once
+        Map<SeriesKey, Buffer> buffers = new HashMap<>();
+        Map<SeriesKey, Analytics.MetricType> metricTypes = new HashMap<>();
+        Map<Long, LocalDateTime> createdDuringLoad = new HashMap<>();
+        // Ids arrive in ascending order; kept to recognise buffered appends the scan already read
+        long[] scannedIds = new long[1024];
+        int scanned = 0;
+        LocalDateTime loadFrom = LocalDateTime.now().minusMinutes(refreshOverlapMinutes);
+        long loadedPoints = 0;
+        long afterId = 0;
+        List<Object[]> rows;
+        do {
+            rows = analyticsRepository.findMetricPointsAfter(afterId, PageRequest.of(0, loadBatchSize));
+            for (Object[] row : rows) {
+                afterId = (Long) row[0];
+                if (scanned == scannedIds.length) {
+                    scannedIds = Arrays.copyOf(scannedIds, scanned * 2);
+                }
+                scannedIds[scanned++] = afterId;
+                LocalDateTime createdAt = (LocalDateTime) row[7];
+                if (createdAt != null && !createdAt.isBefore(loadFrom)) {
+                    createdDuringLoad.put(afterId, createdAt);
+                }
+                String name = (String) row[2];
+                if (name == null || row[5] == null) {
+                    continue;
+                }
+                loadedPoints++;
+                SeriesKey key = new SeriesKey(name, (Long) row[6]);
+                metricTypes.putIfAbsent(key, (Analytics.MetricType) row[1]);
+                buffers.computeIfAbsent(key, k -> new Buffer())
+                    .add(epochMillis((LocalDateTime) row[3], (LocalDate) row[4]), ((BigDecimal) row[5]).doubleValue());
+            }
+        } while (rows.size() == loadBatchSize);
+
+        lock.writeLock().lock();
+        try {
+            dictionary.clear();
+            names.clear();
+            types.clear();
+            series.clear();
+            recentIds.clear();
+            recentIds.putAll(createdDuringLoad);
+            tailFrom = loadFrom;
+            points = loadedPoints;
+            lastTableCount = -1;
+            for (Map.Entry<SeriesKey, Buffer> entry : buffers.entrySet()) {
+                Series s = series(entry.getKey(), metricTypes.get(entry.getKey()));
+                Buffer buffer = entry.getValue();
+                buffer.sort();
+                for (int i = 0; i < buffer.size; i++) {
+                    s.append(buffer.timestamps[i], buffer.values[i]);
+                }
+            }
+            // Metrics committed while the table was being read. Pooled sequences hand out ids
+            // out of commit order, so any of them may have been missed; skip only those read
+            for (Analytics metric : appendedWhileLoading) {
+                if (metric.getId() == null || Arrays.binarySearch(scannedIds, 0, scanned, metric.getId()) < 0) {
+                    store(metric);
+                }
+            }
+            appendedWhileLoading.clear();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add the metrics other nodes saved since the previous refresh, reloading the store when
+     * its point count no longer matches the table
+     */
+    @Scheduled(fixedDelayString = "${analytics.metric-store.refresh-millis:60000}",
+               initialDelayString = "${analytics.metric-store.refresh-millis:60000}")
+    public void refresh() {
+        if (!isLoaded()) {
+            return;
+        }
+        LocalDateTime since;
+        lock.readLock().lock();
+        try {
+            since = tailFrom;
+        } finally {
+            lock.readLock().unlock();
+        }
+        LocalDateTime nextTailFrom = LocalDateTime.now().minusMinutes(refreshOverlapMinutes);
+        List<Object[]> rows = analyticsRepository.findMetricPointsCreatedSince(since);
+        long tableCount = analyticsRepository.countMetricPoints();
+        boolean reload;
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                if (recentIds.putIfAbsent(id, (LocalDateTime) row[7]) != null
+                        || row[2] == null || row[5] == null) {
+                    continue;
+                }
+                series(new SeriesKey((String) row[2], (Long) row[6]), (Analytics.MetricType) row[1])
+                    .insert(epochMillis((LocalDateTime) row[3], (LocalDate) row[4]), ((BigDecimal) row[5]).doubleValue());
+                points++;
+            }
+            recentIds.values().removeIf(createdAt -> createdAt.isBefore(nextTailFrom));
+            tailFrom = nextTailFrom;
+            // Rows committed between the two queries also make the counts differ; wait until the
+            // table's count holds still before paying for a reload
+            reload = tableCount != points && tableCount == lastTableCount;
+            lastTableCount = tableCount;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (reload) {
+            load();
+        }
+    }
+
+    /**
+     * Whether the store has been loaded and can answer queries
+     */
+    public boolean isLoaded() {
+        return enabled && loaded;
+    }
+
+    /**
+     * Append saved metrics once the surrounding transaction commits
+     */
+    public void appendAfterCommit(List<Analytics> metrics) {
+        if (!enabled || metrics.isEmpty()) {
+            return;
+        }
+        Runnable action = () -> append(metrics);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Reload the whole store once the surrounding transaction commits, after rows were
+     * deleted or replaced
+     */
+    public void reloadAfterCommit() {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    load();
+                }
+            });
+        } else {
+            load();
+        }
+    }
+
+    /**
+     * Append metric points to their series
+     */
+    public void append(List<Analytics> metrics) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                appendedWhileLoading.addAll(metrics);
+                return;
+            }
+            for (Analytics metric : metrics) {
+                store(metric);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Names of the stored school-wide metrics, optionally restricted to one metric type
+     */
+    public List<String> metricNames(Analytics.MetricType type) {
+        lock.readLock().lock();
+        try {
+            List<String> result = new ArrayList<>();
+            for (int id = 0; id < names.size(); id++) {
+                if (names.get(id).tenantId() == null && (type == null || types.get(id) == type)) {
+                    result.add(names.get(id).name());
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Points of a school-wide metric in [from, to), copied into a contiguous slice
+     */
+    public Slice read(String metricName, long from, long to) {
+        return read(metricName, null, from, to);
+    }
+
+    /**
+     * Points of a metric of one tenant (null for the whole school) in [from, to)
+     */
+    public Slice read(String metricName, Long tenantId, long from, long to) {
+        if (!isLoaded()) {
+            Slice slice = new Slice();
+            readTable(metricName, tenantId, from, to, slice::add);
+            return slice;
+        }
+        lock.readLock().lock();
+        try {
+            Integer id = dictionary.get(new SeriesKey(metricName, tenantId));
+            Slice slice = new Slice();
+            if (id != null) {
+                series.get(id).scan(from, to, slice::add);
+            }
+            return slice;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Aggregate the points of a school-wide metric in [from, to) into buckets of stepMillis
+     */
+    public Buckets aggregate(String metricName, long from, long to, long stepMillis, Aggregation aggregation) {
+        return aggregate(metricName, null, from, to, stepMillis, aggregation);
+    }
+
+    /**
+     * Aggregate the points of a metric of one tenant (null for the whole school) in [from, to)
+     */
+    public Buckets aggregate(String metricName, Long tenantId, long from, long to, long stepMillis,
+                             Aggregation aggregation) {
+        if (stepMillis <= 0 || to <= from) {
+            throw new IllegalArgumentException("Invalid aggregation window");
+        }
+        Buckets buckets = new Buckets(from, stepMillis, (int) ((to - from + stepMillis - 1) / stepMillis), aggregation);
+        if (!isLoaded()) {
+            readTable(metricName, tenantId, from, to, buckets::add);
+            return buckets;
+        }
+        lock.readLock().lock();
+        try {
+            Integer id = dictionary.get(new SeriesKey(metricName, tenantId));
+            if (id != null) {
+                series.get(id).scan(from, to, buckets::add);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return buckets;
+    }
+
+    public static long epochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static long epochMillis(LocalDateTime timestamp, LocalDate dateRecorded) {
+        if (timestamp != null) {
+            return epochMillis(timestamp);
+        }
+        return epochMillis(dateRecorded != null ? dateRecorded.atStartOfDay() : LocalDateTime.now());
+    }
+
+    /**
+     * Points of a series read from the analytics table, for reads while the store is not loaded
+     */
+    private void readTable(String metricName, Long tenantId, long from, long to, PointConsumer consumer) {
+        for (Object[] row : analyticsRepository.findMetricPoints(metricName, tenantId != null ? tenantId : -1L,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(from), ZoneOffset.UTC),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(to), ZoneOffset.UTC))) {
+            consumer.accept(epochMillis((LocalDateTime) row[0]), ((BigDecimal) row[1]).doubleValue());
+        }
+    }
+
+    private void store(Analytics metric) {
+        // Remember the id so the refresh does not add the row a second time
+        if (metric.getId() != null && recentIds.putIfAbsent(metric.getId(),
+                metric.getCreatedAt() != null ? metric.getCreatedAt() : LocalDateTime.now()) != null) {
+            return;
+        }
+        if (metric.getMetricName() != null && metric.getMetricValue() != null) {
+            series(new SeriesKey(metric.getMetricName(), metric.getTenantId()), metric.getMetricType())
+                .insert(epochMillis(metric.getTimestamp(), metric.getDateRecorded()), metric.getMetricValue().doubleValue());
+            points++;
+        }
+    }
+
+    private Series series(SeriesKey key, Analytics.MetricType type) {
+        Integer id = dictionary.get(key);
+        if (id == null) {
+            id = names.size();
+            dictionary.put(key, id);
+            names.add(key);
+            types.add(type);
+            series.add(new Series());
+        }
+        return series.get(id);
+    }
+
+    /**
+     * Metric name and tenant of a series; a null tenant is the whole school
+     */
+    private record SeriesKey(String name, Long tenantId) {}
+
+    @FunctionalInterface
+    private interface PointConsumer {
+        void accept(long timestamp, double value);
+    }
+
+    /**
+     * One metric: delta-of-delta encoded timestamps and raw double values
+     */
+    private static final class Series {
+        private byte[] timestamps = new byte[64];
+        private int bytes;
+        private double[] values = new double[16];
+        private int size;
+        private long lastTimestamp;
+        private long lastDelta;
+
+        // Decoder state at points 0, CHECKPOINT_INTERVAL, 2 * CHECKPOINT_INTERVAL, ...
+        private int[] checkpointOffsets = new int[4];
+        private long[] checkpointTimestamps = new long[4];
+        private long[] checkpointDeltas = new long[4];
+
+        void insert(long timestamp, double value) {
+            if (size == 0 || timestamp >= lastTimestamp) {
+                append(timestamp, value);
+                return;
+            }
+            // Out of order: decode, merge the point in and re-encode
+            Buffer buffer = new Buffer();
+            scan(Long.MIN_VALUE, Long.MAX_VALUE, buffer::add);
+            buffer.add(timestamp, value);
+            buffer.sort();
+            bytes = 0;
+            size = 0;
+            for (int i = 0; i < buffer.size; i++) {
+                append(buffer.timestamps[i], buffer.values[i]);
+            }
+        }
+
+        void append(long timestamp, double value) {
+            long delta = size == 0 ? 0 : timestamp - lastTimestamp;
+            if (size % CHECKPOINT_INTERVAL == 0) {
+                int checkpoint = size / CHECKPOINT_INTERVAL;
+                if (checkpoint == checkpointOffsets.length) {
+                    checkpointOffsets = Arrays.copyOf(checkpointOffsets, checkpoint * 2);
+                    checkpointTimestamps = Arrays.copyOf(checkpointTimestamps, checkpoint * 2);
+                    checkpointDeltas = Arrays.copyOf(checkpointDeltas, checkpoint * 2);
+                }
+                // The checkpoint holds the point itself in full; decoding resumes after it
+                checkpointTimestamps[checkpoint] = timestamp;
+                checkpointDeltas[checkpoint] = delta;
+                checkpointOffsets[checkpoint] = bytes;
+            } else {
+                writeVarLong(zigzag(delta - lastDelta));
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            lastTimestamp = timestamp;
+            lastDelta = delta;
+        }
+
+        /**
+         * Feed the points in [from, to) in time order, starting at the last checkpoint before from
+         */
+        void scan(long from, long to, PointConsumer consumer) {
+            if (size == 0) {
+                return;
+            }
+            int checkpoints = (size - 1) / CHECKPOINT_INTERVAL + 1;
+            int low = 0;
+            int high = checkpoints - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                // Strictly before from: points equal to from may also precede a checkpoint at from
+                if (checkpointTimestamps[mid] < from) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            int index = low * CHECKPOINT_INTERVAL;
+            int offset = checkpointOffsets[low];
+            long timestamp = checkpointTimestamps[low];
+            long delta = checkpointDeltas[low];
+            while (true) {
+                if (timestamp >= to) {
+                    return;
+                }
+                if (timestamp >= from) {
+                    consumer.accept(timestamp, values[index]);
+                }
+                if (++index == size) {
+                    return;
+                }
+                if (index % CHECKPOINT_INTERVAL == 0) {
+                    int checkpoint = index / CHECKPOINT_INTERVAL;
+                    timestamp = checkpointTimestamps[checkpoint];
+                    delta = checkpointDeltas[checkpoint];
+                    offset = checkpointOffsets[checkpoint];
+                } else {
+                    long encoded = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = timestamps[offset++];
+                        encoded |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    delta += (encoded >>> 1) ^ -(encoded & 1);
+                    timestamp += delta;
+                }
+            }
+        }
+
+        private void writeVarLong(long value) {
+            if (bytes + 10 > timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, Math.max(timestamps.length * 2, bytes + 10));
+            }
+            while ((value & ~0x7FL) != 0) {
+                timestamps[bytes++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            timestamps[bytes++] = (byte) value;
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    /**
+     * Growable pair of primitive arrays used while loading
+     */
+    private static final class Buffer {
+        private long[] timestamps = new long[16];
+        private double[] values = new double[16];
+        private int size;
+
+        void add(long timestamp, double value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            timestamps[size] = timestamp;
+            values[size++] = value;
+        }
+
+        void sort() {
+            for (int i = 1; i < size; i++) {
+                if (timestamps[i] < timestamps[i - 1]) {
+                    sortByIndex();
+                    return;
+                }
+            }
+        }
+
+        private void sortByIndex() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+            long[] sortedTimestamps = new long[size];
+            double[] sortedValues = new double[size];
+            for (int i = 0; i < size; i++) {
+                sortedTimestamps[i] = timestamps[order[i]];
+                sortedValues[i] = values[order[i]];
+            }
+            timestamps = sortedTimestamps;
+            values = sortedValues;
+        }
+    }
+
+    /**
+     * Contiguous copy of the points of one metric
+     */
+    public static class Slice {
+        private long[] timestamps = new long[16];
+        private double[] values = new double[16];
+        private int size;
+
+        void add(long timestamp, double value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            timestamps[size] = timestamp;
+            values[size++] = value;
+        }
+
+        // Getters; only the first size entries of the arrays are valid
+        public long[] getTimestamps() { return timestamps; }
+        public double[] getValues() { return values; }
+        public int size() { return size; }
+    }
+
+    /**
+     * Fixed-step buckets aggregated in place over primitive arrays
+     */
+    public static class Buckets {
+        private final long start;
+        private final long step;
+        private final Aggregation aggregation;
+        private final double[] values;
+        private final int[] counts;
+
+        Buckets(long start, long step, int buckets, Aggregation aggregation) {
+            this.start = start;
+            this.step = step;
+            this.aggregation = aggregation;
+            this.values = new double[buckets];
+            this.counts = new int[buckets];
+        }
+
+        void add(long timestamp, double value) {
+            int bucket = (int) ((timestamp - start) / step);
+            int count = counts[bucket]++;
+            switch (aggregation) {
+                case SUM, AVG -> values[bucket] += value;
+                case MIN -> values[bucket] = count == 0 ? value : Math.min(values[bucket], value);
+                case MAX -> values[bucket] = count == 0 ? value : Math.max(values[bucket], value);
+                case LAST -> values[bucket] = value;
+                case COUNT -> values[bucket] = count + 1;
+            }
+        }
+
+        /**
+         * Aggregated value of a bucket, or NaN when it has no points
+         */
+        public double value(int bucket) {
+            if (counts[bucket] == 0) {
+                return Double.NaN;
+            }
+            return aggregation == Aggregation.AVG ? values[bucket] / counts[bucket] : values[bucket];
+        }
+
+        public long bucketStart(int bucket) {
+            return start + bucket * step;
+        }
+
+        public int count(int bucket) {
+            return counts[bucket];
+        }
+
+        public int size() {
+            return values.length;
+        }
+    }
+}
@@ -29,6 +29,9 @@ public class PaymentService {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
     @Value("${stripe.secret-key}")
     private String stripeSecretKey;
 
@@ -89,10 +92,15 @@ public class PaymentService {
             Payment payment = payments.get(0);
 
             if (paymentIntent.getStatus().equals("succeeded")) {
+                boolean newlyCompleted = payment.getStatus() != Payment.PaymentStatus.COMPLETED;
                 payment.setStatus(Payment.PaymentStatus.COMPLETED);
                 payment.setProcessedAt(LocalDateTime.now());
                 payment.setTransactionId(paymentIntent.getLatestCharge());
                 payment.setPaymentMethod("card");
+                // Webhooks may be delivered more than once; count each payment only once
+                if (newlyCompleted) {
+                    analyticsRollupService.recordPaymentCompleted(payment);
+                }
             } else if (paymentIntent.getStatus().equals("requires_payment_method")) {
                 payment.setStatus(Payment.PaymentStatus.FAILED);
                 payment.setFailureReason("Payment method required");
@@ -140,6 +148,7 @@ public class PaymentService {
             }
             payment.setRefundAmount(refundAmount);
             payment.setRefundReason(reason);
+            analyticsRollupService.recordRefund(payment, refundAmount);
 
             return paymentRepository.save(payment);
 
@@ -0,0 +1,93 @@
+package com.musicschool.service;
+
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Paragraph;
+import com.itextpdf.layout.element.Table;
+import com.itextpdf.layout.properties.UnitValue;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * PDF report writer built on iText large tables: rows are laid out and their pages written to
+ * the output stream every flushEvery rows, so only the rows since the last flush are in memory.
+ */
+public class PdfReportWriter implements ReportTableWriter {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final PdfDocument pdf;
+    private final Document document;
+    private final int flushEvery;
+    private Table table;
+    private int rows;
+
+    public PdfReportWriter(OutputStream out, String title, int flushEvery) {
+        PdfWriter writer = new PdfWriter(out);
+        // The caller owns the response stream
+        writer.setCloseStream(false);
+        this.pdf = new PdfDocument(writer);
+        this.document = new Document(pdf, PageSize.A4.rotate());
+        this.flushEvery = flushEvery;
+        document.add(new Paragraph(title).setFontSize(16).setBold());
+    }
+
+    @Override
+    public void section(String title, String... columns) {
+        completeTable();
+        document.add(new Paragraph(title).setFontSize(12).setBold());
+        table = new Table(UnitValue.createPercentArray(columns.length), true).useAllAvailableWidth();
+        for (String column : columns) {
+            table.addHeaderCell(new Cell().add(new Paragraph(column).setBold()));
+        }
+        document.add(table);
+        rows = 0;
+    }
+
+    @Override
+    public void row(Object... values) {
+        for (Object value : values) {
+            table.addCell(new Cell().add(new Paragraph(format(value)).setFontSize(9)));
+        }
+        if (++rows % flushEvery == 0) {
+            table.flush();
+        }
+    }
+
+    @Override
+    public void finish() {
+        completeTable();
+        document.close();
+    }
+
+    @Override
+    public void close() {
+        // Nothing is buffered outside the document
+    }
+
+    private void completeTable() {
+        if (table != null) {
+            table.complete();
+            table = null;
+        }
+    }
+
+    private static String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        if (value instanceof LocalDateTime time) {
+            return time.format(TIMESTAMP);
+        }
+        return value.toString();
+    }
+}
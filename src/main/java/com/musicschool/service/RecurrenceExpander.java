@@ -0,0 +1,104 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Schedule;
+import com.musicschool.repository.ScheduleExceptionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Expands recurring series templates into their occurrences for a query window.
+ *
+ * Occurrences are transient Schedule objects without an id; their parentScheduleId points
+ * to the series row. Excluded occurrences are read for all series of a window in one query.
+ */
+@Component
+public class RecurrenceExpander {
+
+    @Autowired
+    private ScheduleExceptionRepository scheduleExceptionRepository;
+
+    /**
+     * Replace the series templates among the rows by their occurrences overlapping [from, to)
+     */
+    public List<Schedule> expand(List<Schedule> rows, LocalDateTime from, LocalDateTime to) {
+        List<Schedule> series = rows.stream().filter(Schedule::isSeries).collect(Collectors.toList());
+        if (series.isEmpty()) {
+            return rows;
+        }
+
+        Duration longest = series.stream()
+            .map(s -> Duration.between(s.getStartTime(), s.getEndTime()))
+            .max(Comparator.naturalOrder()).get();
+        Map<Long, Set<LocalDateTime>> excluded = findExcludedStarts(
+            series.stream().map(Schedule::getId).collect(Collectors.toSet()), from.minus(longest), to);
+
+        List<Schedule> expanded = new ArrayList<>(rows.size());
+        for (Schedule row : rows) {
+            if (row.isSeries()) {
+                expanded.addAll(occurrences(row, from, to, excluded.getOrDefault(row.getId(), Collections.emptySet())));
+            } else {
+                expanded.add(row);
+            }
+        }
+        expanded.sort(Comparator.comparing(Schedule::getStartTime));
+        return expanded;
+    }
+
+    /**
+     * Occurrences of a series overlapping [from, to), skipping the excluded starts
+     */
+    public List<Schedule> occurrences(Schedule series, LocalDateTime from, LocalDateTime to,
+                                      Set<LocalDateTime> excluded) {
+        Duration duration = Duration.between(series.getStartTime(), series.getEndTime());
+        List<Schedule> occurrences = new ArrayList<>();
+        for (LocalDateTime start : RecurrenceRule.parse(series.getRecurrenceRule())
+                .between(series.getStartTime(), duration, from, to)) {
+            if (!excluded.contains(start)) {
+                occurrences.add(occurrence(series, start, duration));
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * Transient copy of a series at one occurrence start
+     */
+    public Schedule occurrence(Schedule series, LocalDateTime start, Duration duration) {
+        Schedule occurrence = new Schedule(start, start.plus(duration), series.getType());
+        occurrence.setTitle(series.getTitle());
+        occurrence.setDescription(series.getDescription());
+        occurrence.setStatus(series.getStatus());
+        occurrence.setRoom(series.getRoom());
+        occurrence.setInstructor(series.getInstructor());
+        occurrence.setStudent(series.getStudent());
+        occurrence.setCourse(series.getCourse());
+        occurrence.setNotes(series.getNotes());
+        occurrence.setRecurring(true);
+        occurrence.setParentScheduleId(series.getId());
+        return occurrence;
+    }
+
+    private Map<Long, Set<LocalDateTime>> findExcludedStarts(Set<Long> seriesIds, LocalDateTime from, LocalDateTime to) {
+        Map<Long, Set<LocalDateTime>> excluded = new HashMap<>();
+        seriesIds.remove(null);
+        if (seriesIds.isEmpty()) {
+            return excluded;
+        }
+        for (Object[] row : scheduleExceptionRepository.findExcludedStarts(seriesIds, from, to)) {
+            excluded.computeIfAbsent((Long) row[0], k -> new HashSet<>()).add((LocalDateTime) row[1]);
+        }
+        return excluded;
+    }
+}
@@ -0,0 +1,252 @@
+package com.musicschool.service;
+
+import com.musicschool.service.SchedulingService.RecurrencePattern.Frequency;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * RRULE-style recurrence rule (RFC 5545 subset: FREQ, INTERVAL, COUNT, UNTIL and BYDAY).
+ *
+ * Occurrences are expanded lazily for a query window. For rules producing a fixed number of
+ * occurrences per period the expansion jumps straight to the first period touching the window,
+ * so the cost depends on the window size rather than on how far the series started before it.
+ * BYDAY is supported for DAILY (as a filter) and WEEKLY (as the days of each week).
+ * MONTHLY and YEARLY rules repeat the day of month of the first occurrence; as in RFC 5545,
+ * periods without that day (the 31st of a 30-day month, February 29 outside leap years) have
+ * no occurrence rather than one clamped to the end of the month.
+ */
+public final class RecurrenceRule {
+
+    private static final DateTimeFormatter UNTIL_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final Map<String, DayOfWeek> DAY_CODES = Map.of(
+        "MO", DayOfWeek.MONDAY, "TU", DayOfWeek.TUESDAY, "WE", DayOfWeek.WEDNESDAY, "TH", DayOfWeek.THURSDAY,
+        "FR", DayOfWeek.FRIDAY, "SA", DayOfWeek.SATURDAY, "SU", DayOfWeek.SUNDAY);
+
+    private final Frequency frequency;
+    private final int interval;
+    private final Integer count;
+    private final LocalDateTime until;
+    private final List<DayOfWeek> byDay;
+
+    public RecurrenceRule(Frequency frequency, int interval, Integer count, LocalDateTime until, List<DayOfWeek> byDay) {
+        if (frequency == null) {
+            throw new IllegalArgumentException("Recurrence frequency is required");
+        }
+        if (interval < 1) {
+            throw new IllegalArgumentException("Recurrence interval must be positive");
+        }
+        List<DayOfWeek> days = byDay == null ? Collections.emptyList() : new ArrayList<>(new TreeSet<>(byDay));
+        if (!days.isEmpty() && frequency != Frequency.DAILY && frequency != Frequency.WEEKLY) {
+            throw new IllegalArgumentException("BYDAY is only supported for DAILY and WEEKLY rules");
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count != null && count > 0 ? count : null;
+        this.until = until;
+        this.byDay = days;
+    }
+
+    /**
+     * Parse a rule such as "FREQ=WEEKLY;INTERVAL=1;COUNT=10;BYDAY=MO,WE"
+     */
+    public static RecurrenceRule parse(String rule) {
+        Frequency frequency = null;
+        int interval = 1;
+        Integer count = null;
+        LocalDateTime until = null;
+        List<DayOfWeek> byDay = new ArrayList<>();
+        String body = rule.startsWith("RRULE:") ? rule.substring(6) : rule;
+        for (String part : body.split(";")) {
+            String[] pair = part.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid recurrence rule: " + rule);
+            }
+            switch (pair[0]) {
+                case "FREQ" -> frequency = Frequency.valueOf(pair[1]);
+                case "INTERVAL" -> interval = Integer.parseInt(pair[1]);
+                case "COUNT" -> count = Integer.parseInt(pair[1]);
+                case "UNTIL" -> until = LocalDateTime.parse(pair[1].replace("Z", ""), UNTIL_FORMAT);
+                case "BYDAY" -> {
+                    for (String code : pair[1].split(",")) {
+                        DayOfWeek day = DAY_CODES.get(code);
+                        if (day == null) {
+                            throw new IllegalArgumentException("Invalid BYDAY value: " + code);
+                        }
+                        byDay.add(day);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unsupported recurrence rule part: " + pair[0]);
+            }
+        }
+        return new RecurrenceRule(frequency, interval, count, until, byDay);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder rule = new StringBuilder("FREQ=").append(frequency).append(";INTERVAL=").append(interval);
+        if (count != null) {
+            rule.append(";COUNT=").append(count);
+        }
+        if (until != null) {
+            rule.append(";UNTIL=").append(until.format(UNTIL_FORMAT));
+        }
+        if (!byDay.isEmpty()) {
+            rule.append(";BYDAY=");
+            for (int i = 0; i < byDay.size(); i++) {
+                rule.append(i > 0 ? "," : "").append(byDay.get(i).name(), 0, 2);
+            }
+        }
+        return rule.toString();
+    }
+
+    /**
+     * Whether the series ends after a count or at a date
+     */
+    public boolean isBounded() {
+        return count != null || until != null;
+    }
+
+    /**
+     * Start of the last occurrence of a bounded series, or null when there is none or the series is unbounded
+     */
+    public LocalDateTime lastStart(LocalDateTime dtStart) {
+        if (!isBounded()) {
+            return null;
+        }
+        LocalDateTime last = null;
+        long emitted = 0;
+        for (long period = 0; ; period++) {
+            for (LocalDateTime candidate : candidates(dtStart, period)) {
+                if ((count != null && emitted >= count) || (until != null && candidate.isAfter(until))) {
+                    return last;
+                }
+                last = candidate;
+                emitted++;
+            }
+        }
+    }
+
+    /**
+     * Starts of the occurrences lasting the given duration that overlap the half-open window [from, to)
+     */
+    public List<LocalDateTime> between(LocalDateTime dtStart, Duration duration, LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime> starts = new ArrayList<>();
+        if (!dtStart.isBefore(to)) {
+            return starts;
+        }
+        long period = firstPeriod(dtStart, from.minus(duration));
+        long emitted = countBefore(dtStart, period);
+        for (; ; period++) {
+            for (LocalDateTime candidate : candidates(dtStart, period)) {
+                if ((count != null && emitted >= count) || (until != null && candidate.isAfter(until))
+                    || !candidate.isBefore(to)) {
+                    return starts;
+                }
+                emitted++;
+                if (candidate.plus(duration).isAfter(from)) {
+                    starts.add(candidate);
+                }
+            }
+        }
+    }
+
+    /**
+     * Occurrence starts generated by the given period of the rule, in order and not before dtStart
+     */
+    private List<LocalDateTime> candidates(LocalDateTime dtStart, long period) {
+        long step = period * interval;
+        switch (frequency) {
+            case DAILY: {
+                LocalDateTime day = dtStart.plusDays(step);
+                return byDay.isEmpty() || byDay.contains(day.getDayOfWeek())
+                    ? List.of(day) : Collections.emptyList();
+            }
+            case WEEKLY: {
+                if (byDay.isEmpty()) {
+                    return List.of(dtStart.plusWeeks(step));
+                }
+                LocalDateTime weekStart = weekAnchor(dtStart).plusWeeks(step);
+                List<LocalDateTime> days = new ArrayList<>(byDay.size());
+                for (DayOfWeek day : byDay) {
+                    LocalDateTime candidate = weekStart.plusDays(day.getValue() - 1);
+                    if (!candidate.isBefore(dtStart)) {
+                        days.add(candidate);
+                    }
+                }
+                return days;
+            }
+            case MONTHLY:
+                return sameDayOfMonth(dtStart, dtStart.plusMonths(step));
+            default:
+                return sameDayOfMonth(dtStart, dtStart.plusYears(step));
+        }
+    }
+
+    /**
+     * Last period that cannot be skipped when looking for occurrences starting at or after the given time
+     */
+    private long firstPeriod(LocalDateTime dtStart, LocalDateTime earliest) {
+        if (!earliest.isAfter(dtStart) || perPeriod(dtStart) < 0) {
+            return 0;
+        }
+        long units = switch (frequency) {
+            case DAILY -> ChronoUnit.DAYS.between(dtStart, earliest);
+            case WEEKLY -> ChronoUnit.WEEKS.between(weekAnchor(dtStart), earliest);
+            case MONTHLY -> ChronoUnit.MONTHS.between(dtStart, earliest);
+            case YEARLY -> ChronoUnit.YEARS.between(dtStart, earliest);
+        };
+        return Math.max(0, units / interval - 1);
+    }
+
+    /**
+     * Occurrences generated by the periods before the given one
+     */
+    private long countBefore(LocalDateTime dtStart, long period) {
+        if (period == 0) {
+            return 0;
+        }
+        return candidates(dtStart, 0).size() + (period - 1) * perPeriod(dtStart);
+    }
+
+    /**
+     * Occurrences per full period, or -1 when it varies from period to period
+     */
+    private int perPeriod(LocalDateTime dtStart) {
+        if (frequency == Frequency.DAILY && !byDay.isEmpty()) {
+            return -1;
+        }
+        if (frequency == Frequency.MONTHLY && dtStart.getDayOfMonth() > 28
+            || frequency == Frequency.YEARLY && dtStart.getMonthValue() == 2 && dtStart.getDayOfMonth() == 29) {
+            // Some periods lack the day of month
+            return -1;
+        }
+        return frequency == Frequency.WEEKLY && !byDay.isEmpty() ? byDay.size() : 1;
+    }
+
+    /**
+     * The candidate as the only occurrence of its period, or none when plusMonths/plusYears clamped its day
+     */
+    private static List<LocalDateTime> sameDayOfMonth(LocalDateTime dtStart, LocalDateTime candidate) {
+        return candidate.getDayOfMonth() == dtStart.getDayOfMonth() ? List.of(candidate) : Collections.emptyList();
+    }
+
+    private static LocalDateTime weekAnchor(LocalDateTime dtStart) {
+        return dtStart.minusDays(dtStart.getDayOfWeek().getValue() - 1);
+    }
+
+    // Getters
+    public Frequency getFrequency() { return frequency; }
+    public int getInterval() { return interval; }
+    public Integer getCount() { return count; }
+    public LocalDateTime getUntil() { return until; }
+    public List<DayOfWeek> getByDay() { return byDay; }
+}
@@ -0,0 +1,112 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Report;
+import com.musicschool.repository.CourseRepository;
+import com.musicschool.repository.EnrollmentRepository;
+import com.musicschool.repository.InstructorRepository;
+import com.musicschool.repository.PaymentRepository;
+import com.musicschool.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed cache of report results in the "reports" cache (heap, then disk).
+ *
+ * The key is a SHA-256 of the report type, period and a data version of the rows the report
+ * reads: their count and latest created/updated time. Reports of closed periods keep the same
+ * key and are computed once; any insert, update or delete of their rows gives a new key, so
+ * entries never need invalidating and stale ones simply age out. Course attendance reports are
+ * built from pre-aggregated counters and are not cached.
+ */
+@Component
+public class ReportCache {
+
+    public static final String CACHE_NAME = "reports";
+
+    // Bump when the content of a cached report changes shape
+    private static final String KEY_VERSION = "2";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private InstructorRepository instructorRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Value("${reports.cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Cached report of the given type and period, generated on a miss
+     */
+    public Map<String, Object> get(Report.ReportType type, LocalDate startDate, LocalDate endDate,
+                                   Supplier<Map<String, Object>> generator) {
+        Cache cache = enabled ? cacheManager.getCache(CACHE_NAME) : null;
+        String version = cache != null ? dataVersion(type, startDate, endDate) : null;
+        if (version == null) {
+            return generator.get();
+        }
+        // Instructor performance covers all time: every period shares one entry
+        String period = type == Report.ReportType.INSTRUCTOR_PERFORMANCE ? "all" : startDate + "|" + endDate;
+        return cache.get(key(type, period, version), generator::get);
+    }
+
+    // Helper methods
+    private String dataVersion(Report.ReportType type, LocalDate startDate, LocalDate endDate) {
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+        return switch (type) {
+            case REVENUE_ANALYSIS, FINANCIAL_SUMMARY -> version(paymentRepository.findProcessedDataVersion(from, to));
+            case STUDENT_ENROLLMENT -> version(studentRepository.findCreatedDataVersion(from, to));
+            case INSTRUCTOR_PERFORMANCE -> version(instructorRepository.findDataVersion()) + ";"
+                + version(courseRepository.findDataVersion()) + ";"
+                + version(enrollmentRepository.findDataVersion());
+            case COURSE_ATTENDANCE, CUSTOM -> null;
+        };
+    }
+
+    private static String version(List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return "0";
+        }
+        StringBuilder version = new StringBuilder();
+        for (Object value : rows.get(0)) {
+            version.append(value).append(',');
+        }
+        return version.toString();
+    }
+
+    private static String key(Report.ReportType type, String period, String version) {
+        String content = KEY_VERSION + "|" + type + "|" + period + "|" + version;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
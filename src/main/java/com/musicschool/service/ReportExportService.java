@@ -0,0 +1,201 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Payment;
+import com.musicschool.entity.Report;
+import com.musicschool.repository.PaymentRepository;
+import com.musicschool.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Service exporting ReportingService reports as PDF or XLSX documents.
+ *
+ * A document starts with the report's figures as a summary table. Reports built on payments or
+ * enrollments are followed by their detail lines, read from a database cursor and written row
+ * by row, so the heap used does not grow with the number of lines. PDF pages reach the client
+ * as they are laid out; an XLSX workbook is spooled to a temporary file and sent once complete.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ReportExportService {
+
+    private static final EnumSet<Payment.PaymentStatus> EXPORTED_PAYMENTS =
+        EnumSet.of(Payment.PaymentStatus.COMPLETED, Payment.PaymentStatus.REFUNDED);
+
+    @Autowired
+    private ReportingService reportingService;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Value("${reports.export.flush-every:500}")
+    private int flushEvery;
+
+    @Value("${reports.export.row-window:100}")
+    private int rowWindow;
+
+    public enum ExportFormat {
+        PDF("application/pdf", "pdf"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        private final String contentType;
+        private final String extension;
+
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+    }
+
+    /**
+     * Check an export request before the response starts streaming
+     */
+    public void validate(Report.ReportType type, LocalDate startDate, LocalDate endDate) {
+        if (type == Report.ReportType.CUSTOM) {
+            throw new RuntimeException("Custom reports cannot be exported");
+        }
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new RuntimeException("Invalid report period");
+        }
+    }
+
+    /**
+     * Write the report of the given type and period to the output stream
+     */
+    public void export(Report.ReportType type, LocalDate startDate, LocalDate endDate, ExportFormat format,
+                       OutputStream out) throws IOException {
+        validate(type, startDate, endDate);
+        String title = title(type) + " " + startDate + " to " + endDate;
+        try (ReportTableWriter writer = format == ExportFormat.PDF
+                ? new PdfReportWriter(out, title, flushEvery)
+                : new XlsxReportWriter(out, rowWindow)) {
+            writeSummary(writer, generate(type, startDate, endDate));
+            writeDetails(writer, type, startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+            writer.finish();
+        }
+    }
+
+    private Map<String, Object> generate(Report.ReportType type, LocalDate startDate, LocalDate endDate) {
+        return switch (type) {
+            case STUDENT_ENROLLMENT -> reportingService.generateStudentEnrollmentReport(startDate, endDate);
+            case REVENUE_ANALYSIS -> reportingService.generateRevenueReport(startDate, endDate);
+            case INSTRUCTOR_PERFORMANCE -> reportingService.generateInstructorPerformanceReport(startDate, endDate);
+            case COURSE_ATTENDANCE -> reportingService.generateCourseAttendanceReport(startDate, endDate);
+            case FINANCIAL_SUMMARY -> reportingService.generateFinancialSummaryReport(startDate, endDate);
+            case CUSTOM -> throw new RuntimeException("Custom reports cannot be exported");
+        };
+    }
+
+    /**
+     * Scalar figures and maps go to one summary table (map entries as "name / key"); lists of
+     * per-entity stats get a table of their own
+     */
+    @SuppressWarnings("unchecked")
+    private void writeSummary(ReportTableWriter writer, Map<String, Object> report) throws IOException {
+        Map<String, Object> figures = new TreeMap<>(report);
+        List<Map.Entry<String, Object>> tables = new ArrayList<>();
+        writer.section("Summary", "Figure", "Value");
+        for (Map.Entry<String, Object> entry : figures.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Map<?, ?> map) {
+                for (Map.Entry<?, ?> item : new TreeMap<>(map).entrySet()) {
+                    writer.row(entry.getKey() + " / " + item.getKey(), item.getValue());
+                }
+            } else if (value instanceof List<?>) {
+                tables.add(entry);
+            } else {
+                writer.row(entry.getKey(), value);
+            }
+        }
+        for (Map.Entry<String, Object> entry : tables) {
+            List<Map<String, Object>> items = (List<Map<String, Object>>) entry.getValue();
+            if (items.isEmpty()) {
+                continue;
+            }
+            String[] columns = new TreeMap<>(items.get(0)).keySet().toArray(new String[0]);
+            writer.section(entry.getKey(), columns);
+            for (Map<String, Object> item : items) {
+                Object[] values = new Object[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    values[i] = item.get(columns[i]);
+                }
+                writer.row(values);
+            }
+        }
+    }
+
+    private void writeDetails(ReportTableWriter writer, Report.ReportType type, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        switch (type) {
+            case REVENUE_ANALYSIS, FINANCIAL_SUMMARY -> {
+                writer.section("Payments", "Id", "Processed", "Student", "Course", "Type", "Status",
+                    "Amount", "Refunded");
+                try (Stream<Object[]> rows = paymentRepository.streamPaymentLines(EXPORTED_PAYMENTS, from, to)) {
+                    writeRows(writer, rows.map(row -> new Object[] {row[0], row[1], name(row[2], row[3]), row[4],
+                        row[5], row[6], row[7], row[8]}));
+                }
+            }
+            case STUDENT_ENROLLMENT -> {
+                writer.section("Enrollments", "Id", "Enrolled", "Student", "Level");
+                try (Stream<Object[]> rows = studentRepository.streamEnrollmentLines(from, to)) {
+                    writeRows(writer, rows.map(row -> new Object[] {row[0], row[1], name(row[2], row[3]), row[4]}));
+                }
+            }
+            default -> {
+                // Per-entity reports are fully described by their summary tables
+            }
+        }
+    }
+
+    private void writeRows(ReportTableWriter writer, Stream<Object[]> rows) throws IOException {
+        try {
+            rows.forEach(row -> {
+                try {
+                    writer.row(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static String name(Object firstName, Object lastName) {
+        if (firstName == null && lastName == null) {
+            return null;
+        }
+        return ((firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "")).trim();
+    }
+
+    private static String title(Report.ReportType type) {
+        return switch (type) {
+            case STUDENT_ENROLLMENT -> "Student enrollment report";
+            case REVENUE_ANALYSIS -> "Revenue report";
+            case INSTRUCTOR_PERFORMANCE -> "Instructor performance report";
+            case COURSE_ATTENDANCE -> "Course attendance report";
+            case FINANCIAL_SUMMARY -> "Financial summary";
+            case CUSTOM -> "Custom report";
+        };
+    }
+}
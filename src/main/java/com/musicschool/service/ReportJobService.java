@@ -0,0 +1,239 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Report;
+import com.musicschool.repository.ReportRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service generating reports asynchronously through the Report status lifecycle.
+ *
+ * Submitting stores a PENDING report and hands its id to a bounded worker pool. A worker
+ * claims the report with a conditional PENDING to GENERATING update, so a report is generated
+ * by one worker even across nodes, computes it and stores the result in the report's payload
+ * column in the transaction that completes it, so any node can serve it. A sweep re-dispatches
+ * pending reports that were never picked up (full queue, restart), retries stalled ones and
+ * drops results past their retention. On shutdown, reports still generating after a grace
+ * period go back to PENDING without using up an attempt.
+ */
+@Service
+public class ReportJobService {
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private ReportingService reportingService;
+
+    @Autowired
+    private ReportPayloadCodec reportPayloadCodec;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${reports.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${reports.jobs.pending-timeout-minutes:5}")
+    private long pendingTimeoutMinutes;
+
+    @Value("${reports.jobs.generating-timeout-minutes:30}")
+    private long generatingTimeoutMinutes;
+
+    @Value("${reports.jobs.retention-days:7}")
+    private long retentionDays;
+
+    @Value("${reports.jobs.shutdown-grace-seconds:10}")
+    private long shutdownGraceSeconds;
+
+    private final ThreadPoolExecutor executor;
+
+    // Attempt of each report a worker of this node is generating
+    private final Map<Long, Integer> running = new ConcurrentHashMap<>();
+
+    public ReportJobService(@Value("${reports.jobs.workers:2}") int workers,
+                            @Value("${reports.jobs.queue-capacity:100}") int queueCapacity) {
+        AtomicInteger threads = new AtomicInteger();
+        // Bounded queue: when it is full the report stays PENDING and the sweep dispatches it later
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "report-worker-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queue a report of the given type and period; returns the PENDING report
+     */
+    public Report submit(Report.ReportType type, LocalDate startDate, LocalDate endDate, String createdBy) {
+        if (type == Report.ReportType.CUSTOM) {
+            throw new RuntimeException("Custom reports cannot be generated");
+        }
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new RuntimeException("Invalid report period");
+        }
+        Report report = new Report(type + " " + startDate + " to " + endDate, type, createdBy);
+        report.setPeriodStart(startDate);
+        report.setPeriodEnd(endDate);
+        report.setStatus(Report.ReportStatus.PENDING);
+        report = reportRepository.save(report);
+        dispatch(report.getId());
+        return report;
+    }
+
+    /**
+     * Current state of a report
+     */
+    public Report getReport(Long id) {
+        return reportRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Report not found"));
+    }
+
+    /**
+     * Write the result of a completed report as JSON
+     */
+    public void writeResult(Report report, OutputStream out) throws IOException {
+        reportPayloadCodec.writeJson(report.getPayload(), out);
+    }
+
+    /**
+     * Re-dispatch forgotten pending reports, retry stalled ones and drop expired results
+     */
+    @Scheduled(fixedDelayString = "${reports.jobs.sweep-millis:60000}",
+               initialDelayString = "${reports.jobs.sweep-millis:60000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Report report : reportRepository.findOldPendingReports(Report.ReportStatus.PENDING,
+                now.minusMinutes(pendingTimeoutMinutes))) {
+            dispatch(report.getId());
+        }
+        for (Report report : reportRepository.findStalledReports(now.minusMinutes(generatingTimeoutMinutes))) {
+            fail(report.getId(), report.getAttempts(), "Generation stalled");
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            reportRepository.clearExpiredPayloads(now.minusDays(retentionDays)));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Queued reports are still PENDING and are picked up by the next sweep on any node
+        executor.shutdown();
+        executor.getQueue().clear();
+        if (!executor.awaitTermination(shutdownGraceSeconds, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+        for (Map.Entry<Long, Integer> entry : running.entrySet()) {
+            requeue(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Helper methods
+    private void dispatch(Long reportId) {
+        try {
+            executor.execute(() -> generate(reportId));
+        } catch (RejectedExecutionException e) {
+            // Left PENDING for the sweep
+        }
+    }
+
+    private void generate(Long reportId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Integer claimed = tx.execute(status -> reportRepository.claim(reportId, LocalDateTime.now()));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+        Report report = getReport(reportId);
+        int attempt = report.getAttempts();
+        running.put(reportId, attempt);
+        try {
+            Map<String, Object> data = compute(report);
+            progress(reportId, 80);
+            byte[] payload = reportPayloadCodec.encode(data);
+
+            // Only the current attempt stores its result, so a stalled attempt finishing late is dropped
+            tx.executeWithoutResult(status -> {
+                Report completed = getReport(reportId);
+                if (completed.getStatus() != Report.ReportStatus.GENERATING || completed.getAttempts() != attempt) {
+                    return;
+                }
+                completed.setPayload(payload);
+                completed.setFileSize((long) payload.length);
+                completed.setProgress(100);
+                completed.setGeneratedAt(LocalDateTime.now());
+                completed.setCompletedAt(LocalDateTime.now());
+                completed.setStatus(Report.ReportStatus.COMPLETED);
+            });
+        } catch (RuntimeException e) {
+            if (executor.isShutdown()) {
+                // Most likely interrupted by the shutdown
+                requeue(reportId, attempt);
+            } else {
+                fail(reportId, attempt, e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        } finally {
+            running.remove(reportId);
+        }
+    }
+
+    private Map<String, Object> compute(Report report) {
+        LocalDate start = report.getPeriodStart();
+        LocalDate end = report.getPeriodEnd();
+        progress(report.getId(), 10);
+        return switch (report.getType()) {
+            case STUDENT_ENROLLMENT -> reportingService.generateStudentEnrollmentReport(start, end);
+            case REVENUE_ANALYSIS -> reportingService.generateRevenueReport(start, end);
+            case INSTRUCTOR_PERFORMANCE -> reportingService.generateInstructorPerformanceReport(start, end);
+            case COURSE_ATTENDANCE -> reportingService.generateCourseAttendanceReport(start, end);
+            case FINANCIAL_SUMMARY -> reportingService.generateFinancialSummaryReport(start, end);
+            case CUSTOM -> throw new RuntimeException("Custom reports cannot be generated");
+        };
+    }
+
+    /**
+     * Put a report interrupted by the shutdown back to PENDING; it is not at fault, so the
+     * attempt is not counted
+     */
+    private void requeue(Long reportId, int attempt) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            reportRepository.requeue(reportId, attempt));
+    }
+
+    private void progress(Long reportId, int progress) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            reportRepository.updateProgress(reportId, progress));
+    }
+
+    /**
+     * Record a failed attempt: back to PENDING for another try, or FAILED once attempts run out.
+     * Ignored when the report has since moved on to another attempt or completed.
+     */
+    private void fail(Long reportId, int attempt, String error) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Report report = getReport(reportId);
+            if (report.getStatus() != Report.ReportStatus.GENERATING || report.getAttempts() != attempt) {
+                return;
+            }
+            report.setErrorMessage(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+            report.setStatus(report.getAttempts() >= maxAttempts
+                ? Report.ReportStatus.FAILED : Report.ReportStatus.PENDING);
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package com.musicschool.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary encoding of saved report data: a format version byte followed by the report as
+ * gzip-compressed JSON, written with Jackson's streaming generator. Decimals are read back as
+ * BigDecimal, so a decoded report has the same structure and values as the one saved.
+ */
+@Component
+public class ReportPayloadCodec {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final TypeReference<Map<String, Object>> REPORT_TYPE = new TypeReference<>() {};
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Encode report data for the payload column
+     */
+    public byte[] encode(Map<String, Object> data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(FORMAT_VERSION);
+        // Closing the generator closes the gzip stream, which writes its trailer
+        try (JsonGenerator generator = objectMapper.getFactory()
+                .createGenerator(new GZIPOutputStream(bytes), JsonEncoding.UTF8)) {
+            objectMapper.writeValue(generator, data);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not encode report payload", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a payload written by encode
+     */
+    public Map<String, Object> decode(byte[] payload) {
+        try (InputStream in = open(payload)) {
+            return objectMapper.readerFor(REPORT_TYPE)
+                .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                .readValue(in);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not decode report payload", e);
+        }
+    }
+
+    /**
+     * Write the JSON of a payload written by encode, without parsing it
+     */
+    public void writeJson(byte[] payload, OutputStream out) throws IOException {
+        try (InputStream in = open(payload)) {
+            in.transferTo(out);
+        }
+    }
+
+    // Helper methods
+    private static InputStream open(byte[] payload) throws IOException {
+        if (payload == null || payload.length == 0) {
+            throw new RuntimeException("Report has no payload");
+        }
+        if (payload[0] != FORMAT_VERSION) {
+            throw new RuntimeException("Unsupported report payload format " + payload[0]);
+        }
+        return new GZIPInputStream(new ByteArrayInputStream(payload, 1, payload.length - 1));
+    }
+}
@@ -0,0 +1,31 @@
+package com.musicschool.service;
+
+import java.io.IOException;
+
+/**
+ * Writer of a report as a title followed by tables, one row at a time, so exports can be fed
+ * from a database cursor. Implementations hold at most a bounded window of rows in memory.
+ */
+public interface ReportTableWriter extends AutoCloseable {
+
+    /**
+     * Start a new table with the given column headers
+     */
+    void section(String title, String... columns) throws IOException;
+
+    /**
+     * Append a row to the current table
+     */
+    void row(Object... values) throws IOException;
+
+    /**
+     * Complete the document and write what is left to the output stream
+     */
+    void finish() throws IOException;
+
+    /**
+     * Release resources (temporary files) whether or not the document was finished
+     */
+    @Override
+    void close();
+}
@@ -42,10 +42,27 @@ public class ReportingService {
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private ReportCache reportCache;
+
+    @Autowired
+    private ReportPayloadCodec reportPayloadCodec;
+
     /**
      * Generate student enrollment report
      */
     public Map<String, Object> generateStudentEnrollmentReport(LocalDate startDate, LocalDate endDate) {
+        return reportCache.get(Report.ReportType.STUDENT_ENROLLMENT, startDate, endDate,
+            () -> buildStudentEnrollmentReport(startDate, endDate));
+    }
+
+    private Map<String, Object> buildStudentEnrollmentReport(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> report = new HashMap<>();
         
         // Total enrollments
@@ -63,12 +80,14 @@ public class ReportingService {
             ));
         report.put("enrollmentsByLevel", enrollmentsByLevel);
         
-        // Monthly enrollment trends
+        // Monthly enrollment trends, the first and last months clamped to the period like the
+        // other figures (and like the data version the cached report is keyed by)
         Map<String, Long> monthlyTrends = new HashMap<>();
         LocalDate current = startDate.withDayOfMonth(1);
         while (!current.isAfter(endDate)) {
-            LocalDate monthStart = current;
+            LocalDate monthStart = current.isBefore(startDate) ? startDate : current;
             LocalDate monthEnd = current.withDayOfMonth(current.lengthOfMonth());
+            monthEnd = monthEnd.isAfter(endDate) ? endDate : monthEnd;
             long count = studentRepository.countByCreatedAtBetween(
                 monthStart.atStartOfDay(), 
                 monthEnd.atTime(23, 59, 59)
@@ -85,47 +104,19 @@ public class ReportingService {
      * Generate revenue analysis report
      */
     public Map<String, Object> generateRevenueReport(LocalDate startDate, LocalDate endDate) {
+        return reportCache.get(Report.ReportType.REVENUE_ANALYSIS, startDate, endDate,
+            () -> buildRevenueReport(startDate, endDate));
+    }
+
+    private Map<String, Object> buildRevenueReport(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> report = new HashMap<>();
+        RevenueSummary summary = summarizeRevenue(startDate, endDate);
         
-        // Total revenue
-        BigDecimal totalRevenue = paymentRepository.findByProcessedAtBetween(
-            startDate.atStartOfDay(), 
-            endDate.atTime(23, 59, 59)
-        ).stream()
-        .filter(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED)
-        .map(Payment::getAmount)
-        .reduce(BigDecimal.ZERO, BigDecimal::add);
-        report.put("totalRevenue", totalRevenue);
-        
-        // Revenue by course
-        Map<String, BigDecimal> revenueByCourse = paymentRepository.findByProcessedAtBetween(
-            startDate.atStartOfDay(), 
-            endDate.atTime(23, 59, 59)
-        ).stream()
-        .filter(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED && p.getCourse() != null)
-        .collect(Collectors.groupingBy(
-            p -> p.getCourse().getName(),
-            Collectors.reducing(BigDecimal.ZERO, Payment::getAmount, BigDecimal::add)
-        ));
-        report.put("revenueByCourse", revenueByCourse);
-        
-        // Monthly revenue trends
-        Map<String, BigDecimal> monthlyRevenue = new HashMap<>();
-        LocalDate current = startDate.withDayOfMonth(1);
-        while (!current.isAfter(endDate)) {
-            LocalDate monthStart = current;
-            LocalDate monthEnd = current.withDayOfMonth(current.lengthOfMonth());
-            BigDecimal monthRevenue = paymentRepository.findByProcessedAtBetween(
-                monthStart.atStartOfDay(), 
-                monthEnd.atTime(23, 59, 59)
-            ).stream()
-            .filter(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED)
-            .map(Payment::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-            monthlyRevenue.put(current.toString(), monthRevenue);
-            current = current.plusMonths(1);
-        }
-        report.put("monthlyRevenue", monthlyRevenue);
+        report.put("totalRevenue", summary.totalRevenue);
+        report.put("revenueByCourse", summary.revenueByCourse);
+        report.put("monthlyRevenue", summary.monthlyRevenue);
+        report.put("totalRefunds", summary.totalRefunds);
+        report.put("netRevenue", summary.totalRevenue.subtract(summary.totalRefunds));
         
         return report;
     }
@@ -134,6 +125,11 @@ public class ReportingService {
      * Generate instructor performance report
      */
     public Map<String, Object> generateInstructorPerformanceReport(LocalDate startDate, LocalDate endDate) {
+        return reportCache.get(Report.ReportType.INSTRUCTOR_PERFORMANCE, startDate, endDate,
+            () -> buildInstructorPerformanceReport(startDate, endDate));
+    }
+
+    private Map<String, Object> buildInstructorPerformanceReport(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> report = new HashMap<>();
         
         List<Instructor> instructors = instructorRepository.findAll();
@@ -166,12 +162,21 @@ public class ReportingService {
         List<Course> courses = courseRepository.findAll();
         List<Map<String, Object>> courseStats = new ArrayList<>();
         
+        // Counters and grouped counts for all courses up front, instead of per-course collections
+        Map<Long, AttendanceService.CourseAttendance> attendance = attendanceService.getAllCourseAttendance();
+        Map<Long, Double> completionRates = courseService.getCompletionRates();
+        Map<Long, Long> enrollmentCounts = new HashMap<>();
+        for (Object[] row : courseRepository.countEnrollmentsPerCourse()) {
+            enrollmentCounts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        
         for (Course course : courses) {
             Map<String, Object> stats = new HashMap<>();
             stats.put("courseName", course.getName());
-            stats.put("totalEnrollments", course.getEnrollments().size());
-            stats.put("attendanceRate", calculateAttendanceRate(course));
-            stats.put("completionRate", calculateCompletionRate(course));
+            stats.put("totalEnrollments", enrollmentCounts.getOrDefault(course.getId(), 0L));
+            AttendanceService.CourseAttendance courseAttendance = attendance.get(course.getId());
+            stats.put("attendanceRate", courseAttendance != null ? courseAttendance.getAttendanceRate() : 0.0);
+            stats.put("completionRate", completionRates.getOrDefault(course.getId(), 0.0));
             courseStats.add(stats);
         }
         
@@ -183,28 +188,16 @@ public class ReportingService {
      * Generate financial summary report
      */
     public Map<String, Object> generateFinancialSummaryReport(LocalDate startDate, LocalDate endDate) {
+        return reportCache.get(Report.ReportType.FINANCIAL_SUMMARY, startDate, endDate,
+            () -> buildFinancialSummaryReport(startDate, endDate));
+    }
+
+    private Map<String, Object> buildFinancialSummaryReport(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> report = new HashMap<>();
         
-        // Total revenue
-        BigDecimal totalRevenue = paymentRepository.findByProcessedAtBetween(
-            startDate.atStartOfDay(), 
-            endDate.atTime(23, 59, 59)
-        ).stream()
-        .filter(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED)
-        .map(Payment::getAmount)
-        .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Total refunds
-        BigDecimal totalRefunds = paymentRepository.findByProcessedAtBetween(
-            startDate.atStartOfDay(), 
-            endDate.atTime(23, 59, 59)
-        ).stream()
-        .filter(p -> p.getStatus() == Payment.PaymentStatus.REFUNDED)
-        .map(Payment::getRefundAmount)
-        .filter(Objects::nonNull)
-        .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Net revenue
+        RevenueSummary summary = summarizeRevenue(startDate, endDate);
+        BigDecimal totalRevenue = summary.totalRevenue;
+        BigDecimal totalRefunds = summary.totalRefunds;
         BigDecimal netRevenue = totalRevenue.subtract(totalRefunds);
         
         report.put("totalRevenue", totalRevenue);
@@ -223,11 +216,21 @@ public class ReportingService {
                            Map<String, Object> data, String createdBy) {
         Report report = new Report(name, type, createdBy);
         report.setDescription(description);
-        report.setParameters(convertMapToJson(data));
+        report.setPayload(reportPayloadCodec.encode(data));
         report.setStatus(Report.ReportStatus.COMPLETED);
         return reportRepository.save(report);
     }
 
+    /**
+     * Data of a saved report, as it was saved
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getReportData(Long id) {
+        Report report = reportRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Report not found"));
+        return reportPayloadCodec.decode(report.getPayload());
+    }
+
     // Helper methods
     private double calculateAverageRating(Instructor instructor) {
         // This would typically come from a rating/review system
@@ -235,33 +238,41 @@ public class ReportingService {
         return 4.5;
     }
 
-    private double calculateAttendanceRate(Course course) {
-        // This would typically come from attendance records
-        // For now, return a mock value
-        return 0.85;
-    }
-
-    private double calculateCompletionRate(Course course) {
-        // This would typically come from completion records
-        // For now, return a mock value
-        return 0.78;
-    }
-
-    private String convertMapToJson(Map<String, Object> data) {
-        // Simple JSON conversion - in production, use a proper JSON library
-        StringBuilder json = new StringBuilder("{");
-        boolean first = true;
-        for (Map.Entry<String, Object> entry : data.entrySet()) {
-            if (!first) json.append(",");
-            json.append("\"").append(entry.getKey()).append("\":");
-            if (entry.getValue() instanceof String) {
-                json.append("\"").append(entry.getValue()).append("\"");
-            } else {
-                json.append(entry.getValue());
+    /**
+     * Completed revenue (in total, per course and per month) and refunds of a period, read with
+     * one grouped query whatever the number of months
+     */
+    private RevenueSummary summarizeRevenue(LocalDate startDate, LocalDate endDate) {
+        RevenueSummary summary = new RevenueSummary();
+        // Every month of the period is listed, zero included
+        for (LocalDate month = startDate.withDayOfMonth(1); !month.isAfter(endDate); month = month.plusMonths(1)) {
+            summary.monthlyRevenue.put(month.toString(), BigDecimal.ZERO);
+        }
+        
+        List<Object[]> rows = paymentRepository.sumRevenueByMonthCourseAndStatus(
+            EnumSet.of(Payment.PaymentStatus.COMPLETED, Payment.PaymentStatus.REFUNDED),
+            startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        for (Object[] row : rows) {
+            Payment.PaymentStatus status = (Payment.PaymentStatus) row[3];
+            if (status == Payment.PaymentStatus.REFUNDED) {
+                summary.totalRefunds = summary.totalRefunds.add((BigDecimal) row[5]);
+                continue;
+            }
+            BigDecimal amount = (BigDecimal) row[4];
+            summary.totalRevenue = summary.totalRevenue.add(amount);
+            if (row[2] != null) {
+                summary.revenueByCourse.merge((String) row[2], amount, BigDecimal::add);
             }
-            first = false;
+            LocalDate month = LocalDate.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue(), 1);
+            summary.monthlyRevenue.merge(month.toString(), amount, BigDecimal::add);
         }
-        json.append("}");
-        return json.toString();
+        return summary;
+    }
+
+    private static final class RevenueSummary {
+        private BigDecimal totalRevenue = BigDecimal.ZERO;
+        private BigDecimal totalRefunds = BigDecimal.ZERO;
+        private final Map<String, BigDecimal> revenueByCourse = new HashMap<>();
+        private final Map<String, BigDecimal> monthlyRevenue = new TreeMap<>();
     }
 }
@@ -0,0 +1,110 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Schedule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped in-process locks keyed by the instructor, student and room of a booking.
+ *
+ * Bookings touching disjoint resources proceed in parallel; bookings sharing a resource
+ * run their check-then-insert one at a time. Stripes are held until the surrounding
+ * transaction completes so the next booking sees the committed row. Within one call they
+ * are taken in ascending order; a transaction locking more resources in a later call
+ * waits only for stripes above those it holds, and tries the others for a bounded time,
+ * so two transactions can never wait on each other indefinitely. Transactions booking
+ * several entries should lock all of them in their first call. Guards a single
+ * application node; across nodes the database transaction isolation has the final word.
+ */
+@Component
+public class ResourceLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final long outOfOrderTimeoutMillis;
+
+    public ResourceLockManager(@Value("${scheduling.booking.lock-stripes:1024}") int stripeCount,
+                               @Value("${scheduling.booking.out-of-order-lock-timeout-ms:2000}") long outOfOrderTimeoutMillis) {
+        stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.outOfOrderTimeoutMillis = outOfOrderTimeoutMillis;
+    }
+
+    /**
+     * Lock the resources of the given schedules until the current transaction completes
+     */
+    public void lockForTransaction(Schedule... schedules) {
+        TreeSet<Integer> indexes = stripesOf(schedules);
+        if (indexes.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Resource locks require an active transaction");
+        }
+        TreeSet<Integer> held = heldByTransaction();
+        indexes.removeAll(held);
+        try {
+            for (int index : indexes) {
+                if (held.isEmpty() || index > held.last()) {
+                    stripes[index].lockInterruptibly();
+                } else if (!stripes[index].tryLock(outOfOrderTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new RuntimeException("Timed out waiting for a booking lock taken out of order");
+                }
+                held.add(index);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a booking lock", e);
+        }
+    }
+
+    /**
+     * Stripes held by the current transaction, released when it completes
+     */
+    @SuppressWarnings("unchecked")
+    private TreeSet<Integer> heldByTransaction() {
+        TreeSet<Integer> held = (TreeSet<Integer>) TransactionSynchronizationManager.getResource(this);
+        if (held != null) {
+            return held;
+        }
+        TreeSet<Integer> acquired = new TreeSet<>();
+        TransactionSynchronizationManager.bindResource(this, acquired);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ResourceLockManager.this);
+                for (int index : acquired.descendingSet()) {
+                    stripes[index].unlock();
+                }
+            }
+        });
+        return acquired;
+    }
+
+    private TreeSet<Integer> stripesOf(Schedule... schedules) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Schedule schedule : schedules) {
+            if (schedule.getInstructor() != null && schedule.getInstructor().getId() != null) {
+                indexes.add(stripe("instructor:" + schedule.getInstructor().getId()));
+            }
+            if (schedule.getStudent() != null && schedule.getStudent().getId() != null) {
+                indexes.add(stripe("student:" + schedule.getStudent().getId()));
+            }
+            if (schedule.getRoom() != null) {
+                indexes.add(stripe("room:" + schedule.getRoom()));
+            }
+        }
+        return indexes;
+    }
+
+    private int stripe(String key) {
+        return Math.floorMod(key.hashCode() * 0x9E3779B9, stripes.length);
+    }
+}
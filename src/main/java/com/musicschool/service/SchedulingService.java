@@ -5,16 +5,21 @@ import com.musicschool.entity.ScheduleConflict;
 import com.musicschool.entity.Student;
 import com.musicschool.entity.Instructor;
 import com.musicschool.entity.Course;
+import com.musicschool.entity.ScheduleException;
 import com.musicschool.repository.ScheduleRepository;
 import com.musicschool.repository.ScheduleConflictRepository;
 import com.musicschool.repository.StudentRepository;
 import com.musicschool.repository.InstructorRepository;
 import com.musicschool.repository.CourseRepository;
+import com.musicschool.repository.ScheduleExceptionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.LocalTime;
 import java.time.DayOfWeek;
 import java.util.*;
@@ -42,52 +47,122 @@ public class SchedulingService {
     @Autowired
     private CourseRepository courseRepository;
 
+    @Autowired
+    private ScheduleExceptionRepository scheduleExceptionRepository;
+
+    @Autowired
+    private RecurrenceExpander recurrenceExpander;
+
+    @Autowired
+    private ResourceLockManager resourceLockManager;
+
+    @Autowired
+    private AnalyticsRollupService analyticsRollupService;
+
+    @Value("${scheduling.working-hours.start:00:00}")
+    private String workingHoursStart;
+
+    @Value("${scheduling.working-hours.end:00:00}")
+    private String workingHoursEnd;
+
+    private static final int DEFAULT_SLOT_MINUTES = 60;
+
+    // Conflict check horizon for series without COUNT or UNTIL
+    private static final int UNBOUNDED_SERIES_CHECK_DAYS = 365;
+
     /**
      * Create a new schedule entry
      */
     public Schedule createSchedule(Schedule schedule) {
-        // Check for conflicts before saving
+        checkDuration(schedule.getStartTime(), schedule.getEndTime());
+        resourceLockManager.lockForTransaction(schedule);
+        
+        // Save first so conflicts reference a persistent schedule, then record them for review
+        Schedule saved = scheduleRepository.save(schedule);
+        refreshConflicts(saved, null);
+        if (saved.getStatus() != Schedule.ScheduleStatus.CANCELLED) {
+            analyticsRollupService.recordLesson(saved, 1);
+        }
+        return saved;
+    }
+
+    /**
+     * Book a schedule entry only if it is free of conflicts.
+     * The check and the insert run under the booking's resource locks, so concurrent
+     * bookings of the same instructor, student or room cannot both pass the check. The
+     * check reads the database so that, under serializable isolation, overlapping bookings
+     * committed by other nodes are seen too.
+     */
+    public Schedule bookSchedule(Schedule schedule) {
+        checkDuration(schedule.getStartTime(), schedule.getEndTime());
+        resourceLockManager.lockForTransaction(schedule);
+        
         List<ScheduleConflict> conflicts = detectConflicts(schedule);
         if (!conflicts.isEmpty()) {
-            // Save conflicts for review
-            scheduleConflictRepository.saveAll(conflicts);
+            throw new BookingConflictException(conflicts);
         }
-        
-        return scheduleRepository.save(schedule);
+        return createSchedule(schedule);
     }
 
     /**
-     * Create recurring schedule entries
+     * Create a recurring series.
+     * The series is stored as a single template row carrying an RRULE and expanded lazily by
+     * range queries. Occurrences clashing with existing bookings are checked against a single
+     * windowed fetch per resource and excluded from the series. Unbounded series are checked
+     * for the first year only. Returns the occurrences kept within the checked window; like
+     * range query results these are transient copies of the series without an id, with
+     * parentScheduleId set to the stored series row.
      */
     public List<Schedule> createRecurringSchedule(Schedule template, RecurrencePattern pattern) {
-        List<Schedule> schedules = new ArrayList<>();
-        LocalDateTime currentStart = template.getStartTime();
-        LocalDateTime currentEnd = template.getEndTime();
-        
-        for (int i = 0; i < pattern.getOccurrences(); i++) {
-            Schedule schedule = new Schedule(currentStart, currentEnd, template.getType());
-            schedule.setTitle(template.getTitle());
-            schedule.setDescription(template.getDescription());
-            schedule.setInstructor(template.getInstructor());
-            schedule.setStudent(template.getStudent());
-            schedule.setCourse(template.getCourse());
-            schedule.setRoom(template.getRoom());
-            schedule.setRecurring(true);
-            schedule.setParentScheduleId(template.getId());
-            schedule.setRecurrencePattern(pattern.toJson());
-            
-            // Check for conflicts
-            List<ScheduleConflict> conflicts = detectConflicts(schedule);
-            if (conflicts.isEmpty()) {
-                schedules.add(scheduleRepository.save(schedule));
+        checkDuration(template.getStartTime(), template.getEndTime());
+        resourceLockManager.lockForTransaction(template);
+        RecurrenceRule rule = pattern.toRule();
+        Duration duration = Duration.between(template.getStartTime(), template.getEndTime());
+        LocalDateTime lastStart = rule.lastStart(template.getStartTime());
+        LocalDateTime checkUntil = lastStart != null
+            ? lastStart.plus(duration)
+            : template.getStartTime().plusDays(UNBOUNDED_SERIES_CHECK_DAYS);
+        List<LocalDateTime> starts = rule.between(template.getStartTime(), duration, template.getStartTime(), checkUntil);
+        if (starts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        Schedule series = new Schedule(starts.get(0), starts.get(0).plus(duration), template.getType());
+        series.setTitle(template.getTitle());
+        series.setDescription(template.getDescription());
+        series.setInstructor(template.getInstructor());
+        series.setStudent(template.getStudent());
+        series.setCourse(template.getCourse());
+        series.setRoom(template.getRoom());
+        series.setNotes(template.getNotes());
+        series.setRecurring(true);
+        series.setRecurrenceRule(rule.toString());
+        series.setSeriesEnd(lastStart != null ? lastStart.plus(duration) : null);
+        series.setCountedInRollups(true);
+        
+        List<Schedule> occurrences = starts.stream()
+            .map(start -> recurrenceExpander.occurrence(series, start, duration))
+            .collect(Collectors.toList());
+        List<Schedule> conflictFree = findConflictFree(occurrences);
+        if (conflictFree.isEmpty()) {
+            return conflictFree;
+        }
+        
+        Schedule saved = scheduleRepository.save(series);
+        Set<LocalDateTime> kept = conflictFree.stream().map(Schedule::getStartTime).collect(Collectors.toSet());
+        List<ScheduleException> exclusions = new ArrayList<>();
+        for (LocalDateTime start : starts) {
+            if (!kept.contains(start)) {
+                ScheduleException exclusion = new ScheduleException(saved.getId(), start);
+                exclusion.setReason("Conflicts with an existing booking");
+                exclusions.add(exclusion);
             }
-            
-            // Calculate next occurrence
-            currentStart = calculateNextOccurrence(currentStart, pattern);
-            currentEnd = calculateNextOccurrence(currentEnd, pattern);
         }
+        scheduleExceptionRepository.saveAll(exclusions);
+        analyticsRollupService.recordLesson(saved, 1);
         
-        return schedules;
+        conflictFree.forEach(occurrence -> occurrence.setParentScheduleId(saved.getId()));
+        return conflictFree;
     }
 
     /**
@@ -97,12 +172,12 @@ public class SchedulingService {
         List<ScheduleConflict> conflicts = new ArrayList<>();
         
         // Check instructor conflicts
-        List<Schedule> instructorConflicts = scheduleRepository.findByInstructorAndTimeRange(
+        List<Schedule> instructorConflicts = instructorSchedules(
             schedule.getInstructor(), schedule.getStartTime(), schedule.getEndTime());
         for (Schedule conflict : instructorConflicts) {
-            if (!conflict.getId().equals(schedule.getId())) {
+            if (!isSameEntry(conflict, schedule)) {
                 ScheduleConflict scheduleConflict = new ScheduleConflict(
-                    schedule, conflict, ScheduleConflict.ConflictType.INSTRUCTOR_DOUBLE_BOOKING);
+                    schedule, persistentOf(conflict), ScheduleConflict.ConflictType.INSTRUCTOR_DOUBLE_BOOKING);
                 scheduleConflict.setDescription("Instructor " + schedule.getInstructor().getFullName() + 
                     " is already scheduled at this time");
                 conflicts.add(scheduleConflict);
@@ -111,12 +186,12 @@ public class SchedulingService {
         
         // Check student conflicts
         if (schedule.getStudent() != null) {
-            List<Schedule> studentConflicts = scheduleRepository.findByStudentAndTimeRange(
+            List<Schedule> studentConflicts = studentSchedules(
                 schedule.getStudent(), schedule.getStartTime(), schedule.getEndTime());
             for (Schedule conflict : studentConflicts) {
-                if (!conflict.getId().equals(schedule.getId())) {
+                if (!isSameEntry(conflict, schedule)) {
                     ScheduleConflict scheduleConflict = new ScheduleConflict(
-                        schedule, conflict, ScheduleConflict.ConflictType.STUDENT_DOUBLE_BOOKING);
+                        schedule, persistentOf(conflict), ScheduleConflict.ConflictType.STUDENT_DOUBLE_BOOKING);
                     scheduleConflict.setDescription("Student " + schedule.getStudent().getFullName() + 
                         " is already scheduled at this time");
                     conflicts.add(scheduleConflict);
@@ -126,12 +201,12 @@ public class SchedulingService {
         
         // Check room conflicts
         if (schedule.getRoom() != null) {
-            List<Schedule> roomConflicts = scheduleRepository.findByRoomAndTimeRange(
-                schedule.getRoom(), schedule.getStartTime(), schedule.getEndTime());
+            List<Schedule> roomConflicts = roomSchedules(
+                List.of(schedule.getRoom()), schedule.getStartTime(), schedule.getEndTime());
             for (Schedule conflict : roomConflicts) {
-                if (!conflict.getId().equals(schedule.getId())) {
+                if (!isSameEntry(conflict, schedule)) {
                     ScheduleConflict scheduleConflict = new ScheduleConflict(
-                        schedule, conflict, ScheduleConflict.ConflictType.ROOM_DOUBLE_BOOKING);
+                        schedule, persistentOf(conflict), ScheduleConflict.ConflictType.ROOM_DOUBLE_BOOKING);
                     scheduleConflict.setDescription("Room " + schedule.getRoom() + 
                         " is already booked at this time");
                     conflicts.add(scheduleConflict);
@@ -157,66 +232,117 @@ public class SchedulingService {
     }
 
     /**
-     * Get instructor availability
+     * Get instructor availability in hourly slots
      */
     public List<TimeSlot> getInstructorAvailability(Long instructorId, LocalDateTime startDate, LocalDateTime endDate) {
+        return getInstructorAvailability(instructorId, startDate, endDate, DEFAULT_SLOT_MINUTES);
+    }
+
+    /**
+     * Get instructor availability in slots of the given length
+     */
+    public List<TimeSlot> getInstructorAvailability(Long instructorId, LocalDateTime startDate, LocalDateTime endDate,
+                                                    int slotMinutes) {
+        return AvailabilityEngine.slots(getInstructorFreeIntervals(instructorId, startDate, endDate),
+            startDate, Duration.ofMinutes(slotMinutes));
+    }
+
+    /**
+     * Get merged free intervals of an instructor within working hours
+     */
+    public List<TimeSlot> getInstructorFreeIntervals(Long instructorId, LocalDateTime startDate, LocalDateTime endDate) {
         Instructor instructor = instructorRepository.findById(instructorId)
             .orElseThrow(() -> new RuntimeException("Instructor not found"));
         
-        List<Schedule> existingSchedules = scheduleRepository.findByInstructorAndTimeRange(
-            instructor, startDate, endDate);
-        
-        List<TimeSlot> availability = new ArrayList<>();
-        LocalDateTime current = startDate;
-        
-        while (current.isBefore(endDate)) {
-            LocalDateTime slotEnd = current.plusHours(1);
-            
-            final LocalDateTime slotStart = current;
-            boolean isAvailable = existingSchedules.stream()
-                .noneMatch(s -> isTimeOverlapping(slotStart, slotEnd, s.getStartTime(), s.getEndTime()));
-            
-            if (isAvailable) {
-                availability.add(new TimeSlot(slotStart, slotEnd));
-            }
-            
-            current = current.plusHours(1);
-        }
-        
-        return availability;
+        List<Schedule> existingSchedules = instructorSchedules(instructor, startDate, endDate);
+        return freeIntervals(existingSchedules, startDate, endDate);
     }
 
     /**
-     * Get room availability
+     * Get room availability in hourly slots
      */
     public List<TimeSlot> getRoomAvailability(String room, LocalDateTime startDate, LocalDateTime endDate) {
-        List<Schedule> existingSchedules = scheduleRepository.findByRoomAndTimeRange(room, startDate, endDate);
-        
-        List<TimeSlot> availability = new ArrayList<>();
-        LocalDateTime current = startDate;
-        
-        while (current.isBefore(endDate)) {
-            LocalDateTime slotEnd = current.plusHours(1);
-            
-            final LocalDateTime slotStart = current;
-            boolean isAvailable = existingSchedules.stream()
-                .noneMatch(s -> isTimeOverlapping(slotStart, slotEnd, s.getStartTime(), s.getEndTime()));
-            
-            if (isAvailable) {
-                availability.add(new TimeSlot(slotStart, slotEnd));
+        return getRoomAvailability(room, startDate, endDate, DEFAULT_SLOT_MINUTES);
+    }
+
+    /**
+     * Get room availability in slots of the given length
+     */
+    public List<TimeSlot> getRoomAvailability(String room, LocalDateTime startDate, LocalDateTime endDate,
+                                              int slotMinutes) {
+        return AvailabilityEngine.slots(getRoomFreeIntervals(room, startDate, endDate),
+            startDate, Duration.ofMinutes(slotMinutes));
+    }
+
+    /**
+     * Get merged free intervals of a room within working hours
+     */
+    public List<TimeSlot> getRoomFreeIntervals(String room, LocalDateTime startDate, LocalDateTime endDate) {
+        List<Schedule> existingSchedules = roomSchedules(List.of(room), startDate, endDate);
+        return freeIntervals(existingSchedules, startDate, endDate);
+    }
+
+    /**
+     * Find the earliest slots in which the instructor, the student and one of the candidate
+     * rooms are all free. Busy lists are fetched once per resource kind and intersected
+     * server-side in a single sweep.
+     */
+    public List<SlotCandidate> findCommonFreeSlots(Long instructorId, Long studentId, List<String> rooms,
+                                                   LocalDateTime startDate, LocalDateTime endDate,
+                                                   int durationMinutes, int limit) {
+        Instructor instructor = instructorRepository.findById(instructorId)
+            .orElseThrow(() -> new RuntimeException("Instructor not found"));
+        Student student = studentRepository.findById(studentId)
+            .orElseThrow(() -> new RuntimeException("Student not found"));
+        
+        // Instructor and student busy times collapse into one sorted busy list
+        List<TimeSlot> personBusy = new ArrayList<>(toBusySlots(instructorSchedules(instructor, startDate, endDate)));
+        personBusy.addAll(toBusySlots(studentSchedules(student, startDate, endDate)));
+        List<TimeSlot> personFree = AvailabilityEngine.freeIntervals(startDate, endDate,
+            LocalTime.parse(workingHoursStart), LocalTime.parse(workingHoursEnd), personBusy);
+        
+        Map<String, List<TimeSlot>> roomBusy = new LinkedHashMap<>();
+        for (String room : rooms) {
+            roomBusy.put(room, new ArrayList<>());
+        }
+        if (!rooms.isEmpty()) {
+            for (Schedule schedule : roomSchedules(rooms, startDate, endDate)) {
+                if (schedule.getStatus() != Schedule.ScheduleStatus.CANCELLED) {
+                    roomBusy.get(schedule.getRoom()).add(new TimeSlot(schedule.getStartTime(), schedule.getEndTime()));
+                }
             }
-            
-            current = current.plusHours(1);
         }
         
-        return availability;
+        Duration duration = Duration.ofMinutes(durationMinutes);
+        List<SlotCandidate> candidates = new ArrayList<>();
+        for (Map.Entry<String, List<TimeSlot>> entry : roomBusy.entrySet()) {
+            List<TimeSlot> commonFree = AvailabilityEngine.subtract(personFree, AvailabilityEngine.merge(entry.getValue()));
+            // Each room can contribute at most the N earliest slots to the overall top N
+            AvailabilityEngine.slots(commonFree, startDate, duration).stream()
+                .limit(limit)
+                .forEach(slot -> candidates.add(new SlotCandidate(slot.getStartTime(), slot.getEndTime(), entry.getKey())));
+        }
+        
+        return candidates.stream()
+            .sorted(Comparator.comparing(SlotCandidate::getStartTime))
+            .limit(limit)
+            .collect(Collectors.toList());
     }
 
     /**
      * Get schedule for a specific date range
      */
     public List<Schedule> getScheduleForDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return scheduleRepository.findByStartTimeBetweenOrderByStartTime(startDate, endDate);
+        List<Schedule> schedules = scheduleRepository.findByStartTimeBetweenOrderByStartTime(startDate, endDate).stream()
+            .filter(s -> !s.isSeries())
+            .collect(Collectors.toList());
+        // Series occurrences starting within the range, matching the inclusive bounds above
+        recurrenceExpander.expand(scheduleRepository.findSeriesInRange(startDate, endDate.plusNanos(1)),
+                startDate, endDate.plusNanos(1)).stream()
+            .filter(s -> !s.getStartTime().isBefore(startDate))
+            .forEach(schedules::add);
+        schedules.sort(Comparator.comparing(Schedule::getStartTime));
+        return schedules;
     }
 
     /**
@@ -226,7 +352,7 @@ public class SchedulingService {
         Instructor instructor = instructorRepository.findById(instructorId)
             .orElseThrow(() -> new RuntimeException("Instructor not found"));
         
-        return scheduleRepository.findByInstructorAndTimeRange(instructor, startDate, endDate);
+        return instructorSchedules(instructor, startDate, endDate);
     }
 
     /**
@@ -236,7 +362,7 @@ public class SchedulingService {
         Student student = studentRepository.findById(studentId)
             .orElseThrow(() -> new RuntimeException("Student not found"));
         
-        return scheduleRepository.findByStudentAndTimeRange(student, startDate, endDate);
+        return studentSchedules(student, startDate, endDate);
     }
 
     /**
@@ -246,11 +372,17 @@ public class SchedulingService {
         Schedule schedule = scheduleRepository.findById(scheduleId)
             .orElseThrow(() -> new RuntimeException("Schedule not found"));
         
+        if (schedule.getStatus() != Schedule.ScheduleStatus.CANCELLED) {
+            analyticsRollupService.recordLesson(schedule, -1);
+            analyticsRollupService.recordCancellation(schedule);
+        }
         schedule.setStatus(Schedule.ScheduleStatus.CANCELLED);
         schedule.setCancelledAt(LocalDateTime.now());
         schedule.setCancellationReason(reason);
         
-        return scheduleRepository.save(schedule);
+        Schedule saved = scheduleRepository.save(schedule);
+        refreshConflicts(saved, "Resolved automatically: schedule cancelled");
+        return saved;
     }
 
     /**
@@ -260,40 +392,292 @@ public class SchedulingService {
         Schedule schedule = scheduleRepository.findById(scheduleId)
             .orElseThrow(() -> new RuntimeException("Schedule not found"));
         
+        if (schedule.isSeries()) {
+            throw new RuntimeException("Recurring series occurrences are rescheduled individually");
+        }
+        checkDuration(newStartTime, newEndTime);
+        resourceLockManager.lockForTransaction(schedule);
+        
         LocalDateTime oldStartTime = schedule.getStartTime();
         LocalDateTime oldEndTime = schedule.getEndTime();
         
+        if (schedule.getStatus() != Schedule.ScheduleStatus.CANCELLED) {
+            analyticsRollupService.recordLesson(schedule, -1);
+        }
         schedule.setRescheduledFrom(oldStartTime);
         schedule.setStartTime(newStartTime);
         schedule.setEndTime(newEndTime);
         schedule.setStatus(Schedule.ScheduleStatus.RESCHEDULED);
         
-        // Check for new conflicts
-        List<ScheduleConflict> conflicts = detectConflicts(schedule);
-        if (!conflicts.isEmpty()) {
-            scheduleConflictRepository.saveAll(conflicts);
-        }
+        // Recompute only the conflicts adjacent to the moved schedule
+        Schedule saved = scheduleRepository.save(schedule);
+        refreshConflicts(saved, "Resolved automatically: schedule rescheduled");
+        analyticsRollupService.recordLesson(saved, 1);
+        return saved;
+    }
+
+    /**
+     * Cancel a single occurrence of a recurring series by excluding it from the series
+     */
+    public ScheduleException cancelOccurrence(Long seriesId, LocalDateTime originalStart, String reason) {
+        Schedule series = findSeriesOccurrence(seriesId, originalStart);
+        
+        analyticsRollupService.recordOccurrenceExcluded(series, originalStart, true);
+        ScheduleException exclusion = new ScheduleException(seriesId, originalStart);
+        exclusion.setReason(reason);
+        ScheduleException saved = scheduleExceptionRepository.save(exclusion);
+        touch(series);
+        refreshConflicts(series, "Resolved automatically: occurrence cancelled");
+        return saved;
+    }
+
+    /**
+     * Move a single occurrence of a recurring series: the occurrence is excluded from the
+     * series and stored as a detached schedule entry at the new time
+     */
+    public Schedule rescheduleOccurrence(Long seriesId, LocalDateTime originalStart,
+                                         LocalDateTime newStartTime, LocalDateTime newEndTime) {
+        checkDuration(newStartTime, newEndTime);
+        Schedule series = findSeriesOccurrence(seriesId, originalStart);
+        
+        Schedule moved = recurrenceExpander.occurrence(series, newStartTime, Duration.between(newStartTime, newEndTime));
+        moved.setRecurring(false);
+        moved.setRescheduledFrom(originalStart);
+        moved.setStatus(Schedule.ScheduleStatus.RESCHEDULED);
+        // Lock the series and the moved entry together; createSchedule then holds them already
+        resourceLockManager.lockForTransaction(series, moved);
+        
+        // The moved entry is counted on its new day by createSchedule
+        analyticsRollupService.recordOccurrenceExcluded(series, originalStart, false);
+        ScheduleException exclusion = new ScheduleException(seriesId, originalStart);
+        exclusion.setReason("Rescheduled");
+        scheduleExceptionRepository.save(exclusion);
+        touch(series);
+        refreshConflicts(series, "Resolved automatically: occurrence rescheduled");
         
-        return scheduleRepository.save(schedule);
+        Schedule saved = createSchedule(moved);
+        exclusion.setReplacementScheduleId(saved.getId());
+        return saved;
     }
 
     // Helper methods
-    private boolean isTimeOverlapping(LocalDateTime start1, LocalDateTime end1, 
-                                    LocalDateTime start2, LocalDateTime end2) {
-        return start1.isBefore(end2) && end1.isAfter(start2);
-    }
-
-    private LocalDateTime calculateNextOccurrence(LocalDateTime current, RecurrencePattern pattern) {
-        switch (pattern.getFrequency()) {
-            case DAILY:
-                return current.plusDays(pattern.getInterval());
-            case WEEKLY:
-                return current.plusWeeks(pattern.getInterval());
-            case MONTHLY:
-                return current.plusMonths(pattern.getInterval());
-            default:
-                return current.plusDays(1);
+    /**
+     * Reject entries that do not end after they start or outlast Schedule.MAX_DURATION
+     */
+    private void checkDuration(LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime == null || endTime == null || !endTime.isAfter(startTime)) {
+            throw new IllegalArgumentException("Schedule must end after it starts");
+        }
+        if (Duration.between(startTime, endTime).compareTo(Schedule.MAX_DURATION) > 0) {
+            throw new IllegalArgumentException("Schedule cannot last longer than "
+                + Schedule.MAX_DURATION.toHours() + " hours");
+        }
+    }
+
+    /**
+     * Mark a series as modified when only its exceptions changed, so calendar feeds revalidate
+     */
+    private void touch(Schedule series) {
+        series.setUpdatedAt(LocalDateTime.now());
+        scheduleRepository.save(series);
+    }
+
+    /**
+     * Bring the unresolved conflict edges adjacent to a schedule up to date after it was
+     * created, moved or cancelled. Edges that no longer hold are resolved with the given note,
+     * new ones are added once per (schedule pair, type). Edges between other schedules are
+     * untouched. Series are only re-verified: their occurrences are kept conflict-free when
+     * the series is created.
+     */
+    private void refreshConflicts(Schedule schedule, String resolutionNote) {
+        List<ScheduleConflict> changed = new ArrayList<>();
+        Map<String, ScheduleConflict> current = new HashMap<>();
+        for (ScheduleConflict edge : scheduleConflictRepository.findUnresolvedConflictsForSchedule(schedule.getId())) {
+            Schedule other = otherEnd(edge, schedule);
+            if (other == null || current.putIfAbsent(edgeKey(other, edge.getConflictType()), edge) != null) {
+                // Legacy rows without a counterpart and duplicates cannot be kept current
+                changed.add(resolveAutomatically(edge, resolutionNote));
+            }
+        }
+        
+        boolean cancelled = schedule.getStatus() == Schedule.ScheduleStatus.CANCELLED;
+        if (schedule.isSeries()) {
+            Set<LocalDateTime> excluded = scheduleExceptionRepository.findBySeriesId(schedule.getId()).stream()
+                .map(ScheduleException::getOriginalStart)
+                .collect(Collectors.toSet());
+            for (ScheduleConflict edge : current.values()) {
+                if (cancelled || !seriesStillOverlaps(schedule, otherEnd(edge, schedule), excluded)) {
+                    changed.add(resolveAutomatically(edge, resolutionNote));
+                }
+            }
+        } else {
+            Map<String, ScheduleConflict> detected = new LinkedHashMap<>();
+            if (!cancelled) {
+                for (ScheduleConflict conflict : detectConflicts(schedule)) {
+                    detected.putIfAbsent(edgeKey(conflict.getConflictingSchedule(), conflict.getConflictType()), conflict);
+                }
+            }
+            for (Map.Entry<String, ScheduleConflict> entry : current.entrySet()) {
+                if (!detected.containsKey(entry.getKey())) {
+                    changed.add(resolveAutomatically(entry.getValue(), resolutionNote));
+                }
+            }
+            for (Map.Entry<String, ScheduleConflict> entry : detected.entrySet()) {
+                if (!current.containsKey(entry.getKey())) {
+                    changed.add(normalized(entry.getValue()));
+                }
+            }
+        }
+        
+        if (!changed.isEmpty()) {
+            scheduleConflictRepository.saveAll(changed);
+        }
+    }
+
+    private Schedule otherEnd(ScheduleConflict edge, Schedule schedule) {
+        Schedule first = edge.getSchedule();
+        Schedule second = edge.getConflictingSchedule();
+        if (first == null || second == null) {
+            return null;
         }
+        return schedule.getId().equals(first.getId()) ? second : first;
+    }
+
+    private String edgeKey(Schedule other, ScheduleConflict.ConflictType type) {
+        return other.getId() + ":" + type;
+    }
+
+    private ScheduleConflict resolveAutomatically(ScheduleConflict edge, String resolutionNote) {
+        edge.setResolved(true);
+        edge.setResolvedAt(LocalDateTime.now());
+        edge.setResolutionNotes(resolutionNote != null ? resolutionNote : "Resolved automatically");
+        return edge;
+    }
+
+    private ScheduleConflict normalized(ScheduleConflict conflict) {
+        // Edges are undirected: the lower schedule id is always stored first
+        Schedule first = conflict.getSchedule();
+        Schedule second = conflict.getConflictingSchedule();
+        if (first.getId() > second.getId()) {
+            conflict.setSchedule(second);
+            conflict.setConflictingSchedule(first);
+        }
+        return conflict;
+    }
+
+    private boolean seriesStillOverlaps(Schedule series, Schedule other, Set<LocalDateTime> excluded) {
+        if (other.getStatus() == Schedule.ScheduleStatus.CANCELLED) {
+            return false;
+        }
+        if (other.isSeries()) {
+            return true;
+        }
+        return !recurrenceExpander.occurrences(series, other.getStartTime(), other.getEndTime(), excluded).isEmpty();
+    }
+
+    private Schedule findSeriesOccurrence(Long seriesId, LocalDateTime originalStart) {
+        Schedule series = scheduleRepository.findById(seriesId)
+            .orElseThrow(() -> new RuntimeException("Schedule not found"));
+        if (!series.isSeries()) {
+            throw new RuntimeException("Schedule is not a recurring series");
+        }
+        List<LocalDateTime> starts = RecurrenceRule.parse(series.getRecurrenceRule())
+            .between(series.getStartTime(), Duration.between(series.getStartTime(), series.getEndTime()),
+                originalStart, originalStart.plusSeconds(1));
+        if (!starts.contains(originalStart)
+            || scheduleExceptionRepository.existsBySeriesIdAndOriginalStart(seriesId, originalStart)) {
+            throw new RuntimeException("Occurrence not found");
+        }
+        return series;
+    }
+
+    // Single lessons and series templates come from separate index lookups and are merged
+    // here, with the series expanded into the occurrences that fall within the window
+    private List<Schedule> instructorSchedules(Instructor instructor, LocalDateTime start, LocalDateTime end) {
+        return withSeries(scheduleRepository.findByInstructorAndTimeRange(instructor, start, end),
+            scheduleRepository.findInstructorSeriesInRange(instructor, start, end), start, end);
+    }
+
+    private List<Schedule> studentSchedules(Student student, LocalDateTime start, LocalDateTime end) {
+        return withSeries(scheduleRepository.findByStudentAndTimeRange(student, start, end),
+            scheduleRepository.findStudentSeriesInRange(student, start, end), start, end);
+    }
+
+    private List<Schedule> roomSchedules(List<String> rooms, LocalDateTime start, LocalDateTime end) {
+        return withSeries(scheduleRepository.findByRoomsAndTimeRange(rooms, start, end),
+            scheduleRepository.findRoomSeriesInRange(rooms, start, end), start, end);
+    }
+
+    private List<Schedule> withSeries(List<Schedule> lessons, List<Schedule> series,
+                                      LocalDateTime start, LocalDateTime end) {
+        List<Schedule> rows = new ArrayList<>(lessons);
+        rows.addAll(series);
+        return recurrenceExpander.expand(rows, start, end);
+    }
+
+    private boolean isSameEntry(Schedule candidate, Schedule schedule) {
+        Long candidateId = candidate.getId() != null ? candidate.getId() : candidate.getParentScheduleId();
+        return candidateId != null && candidateId.equals(schedule.getId());
+    }
+
+    private Schedule persistentOf(Schedule schedule) {
+        // Expanded occurrences are transient; conflicts reference their series row
+        return schedule.getId() == null && schedule.getParentScheduleId() != null
+            ? scheduleRepository.getReferenceById(schedule.getParentScheduleId())
+            : schedule;
+    }
+
+    private List<TimeSlot> freeIntervals(List<Schedule> schedules, LocalDateTime startDate, LocalDateTime endDate) {
+        return AvailabilityEngine.freeIntervals(startDate, endDate,
+            LocalTime.parse(workingHoursStart), LocalTime.parse(workingHoursEnd), toBusySlots(schedules));
+    }
+
+    private List<TimeSlot> toBusySlots(List<Schedule> schedules) {
+        return schedules.stream()
+            .filter(s -> s.getStatus() != Schedule.ScheduleStatus.CANCELLED)
+            .map(s -> new TimeSlot(s.getStartTime(), s.getEndTime()))
+            .collect(Collectors.toList());
+    }
+
+    private List<Schedule> findConflictFree(List<Schedule> occurrences) {
+        Schedule first = occurrences.get(0);
+        LocalDateTime windowStart = occurrences.stream()
+            .map(Schedule::getStartTime).min(Comparator.naturalOrder()).get();
+        LocalDateTime windowEnd = occurrences.stream()
+            .map(Schedule::getEndTime).max(Comparator.naturalOrder()).get();
+        
+        // One windowed fetch per resource shared by every occurrence of the series
+        IntervalTree instructorBusy = first.getInstructor() == null ? null : toIntervalTree(
+            instructorSchedules(first.getInstructor(), windowStart, windowEnd));
+        IntervalTree studentBusy = first.getStudent() == null ? null : toIntervalTree(
+            studentSchedules(first.getStudent(), windowStart, windowEnd));
+        IntervalTree roomBusy = first.getRoom() == null ? null : toIntervalTree(
+            roomSchedules(List.of(first.getRoom()), windowStart, windowEnd));
+        
+        return occurrences.stream()
+            .filter(s -> !overlapsAny(instructorBusy, s) && !overlapsAny(studentBusy, s) && !overlapsAny(roomBusy, s))
+            .collect(Collectors.toList());
+    }
+
+    private IntervalTree toIntervalTree(List<Schedule> schedules) {
+        IntervalTree tree = new IntervalTree();
+        long key = 0;
+        for (Schedule schedule : schedules) {
+            if (schedule.getStatus() != Schedule.ScheduleStatus.CANCELLED) {
+                // Expanded occurrences have no id; only overlap presence matters here
+                tree.insert(key++, toEpochSecond(schedule.getStartTime()), toEpochSecond(schedule.getEndTime()));
+            }
+        }
+        return tree;
+    }
+
+    private boolean overlapsAny(IntervalTree busy, Schedule schedule) {
+        return busy != null && !busy.findOverlapping(
+            toEpochSecond(schedule.getStartTime()), toEpochSecond(schedule.getEndTime())).isEmpty();
+    }
+
+    private long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
     }
 
     /**
@@ -315,6 +699,29 @@ public class SchedulingService {
         public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
     }
 
+    /**
+     * Inner class for candidate booking slots
+     */
+    public static class SlotCandidate {
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private String room;
+        
+        public SlotCandidate(LocalDateTime startTime, LocalDateTime endTime, String room) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.room = room;
+        }
+        
+        // Getters and setters
+        public LocalDateTime getStartTime() { return startTime; }
+        public void setStartTime(LocalDateTime startTime) { this.startTime = startTime; }
+        public LocalDateTime getEndTime() { return endTime; }
+        public void setEndTime(LocalDateTime endTime) { this.endTime = endTime; }
+        public String getRoom() { return room; }
+        public void setRoom(String room) { this.room = room; }
+    }
+
     /**
      * Inner class for recurrence patterns
      */
@@ -323,6 +730,7 @@ public class SchedulingService {
         private int interval;
         private int occurrences;
         private List<DayOfWeek> daysOfWeek;
+        private LocalDateTime until;
         
         public RecurrencePattern(Frequency frequency, int interval, int occurrences) {
             this.frequency = frequency;
@@ -330,10 +738,9 @@ public class SchedulingService {
             this.occurrences = occurrences;
         }
         
-        public String toJson() {
-            // Simple JSON representation
-            return String.format("{\"frequency\":\"%s\",\"interval\":%d,\"occurrences\":%d}", 
-                frequency.toString(), interval, occurrences);
+        public RecurrenceRule toRule() {
+            // Zero or negative occurrences without an end date describe an open-ended series
+            return new RecurrenceRule(frequency, interval, occurrences > 0 ? occurrences : null, until, daysOfWeek);
         }
         
         // Getters and setters
@@ -345,6 +752,8 @@ public class SchedulingService {
         public void setOccurrences(int occurrences) { this.occurrences = occurrences; }
         public List<DayOfWeek> getDaysOfWeek() { return daysOfWeek; }
         public void setDaysOfWeek(List<DayOfWeek> daysOfWeek) { this.daysOfWeek = daysOfWeek; }
+        public LocalDateTime getUntil() { return until; }
+        public void setUntil(LocalDateTime until) { this.until = until; }
         
         public enum Frequency {
             DAILY, WEEKLY, MONTHLY, YEARLY
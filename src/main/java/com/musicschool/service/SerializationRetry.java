@@ -0,0 +1,71 @@
+package com.musicschool.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Re-runs a transactional service call that failed with a serialization failure.
+ *
+ * CockroachDB runs transactions at SERIALIZABLE isolation and aborts one of two conflicting
+ * transactions with SQLSTATE 40001, expecting the client to retry it; this is how overlapping
+ * bookings committed through different nodes are resolved. The call must start and end its own
+ * transaction: inside an outer transaction it runs once and failures propagate to the caller.
+ */
+@Component
+public class SerializationRetry {
+
+    private static final String SERIALIZATION_FAILURE = "40001";
+
+    @Value("${scheduling.booking.serialization-retries:3}")
+    private int maxRetries;
+
+    @Value("${scheduling.booking.retry-backoff-ms:50}")
+    private long backoffMillis;
+
+    /**
+     * Run the call, retrying it with jittered backoff while it fails with a serialization failure
+     */
+    public <T> T run(Supplier<T> call) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return call.get();
+        }
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries || !isSerializationFailure(e)) {
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    // Helper methods
+    static boolean isSerializationFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && SERIALIZATION_FAILURE.equals(sql.getSQLState())) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void backOff(int attempt) {
+        long delay = backoffMillis << attempt;
+        try {
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying a transaction", e);
+        }
+    }
+}
@@ -20,16 +20,24 @@ public class StudentService {
 
     private final StudentRepository studentRepository;
 
+    private final AnalyticsRollupService analyticsRollupService;
+
     @Autowired
-    public StudentService(StudentRepository studentRepository) {
+    public StudentService(StudentRepository studentRepository, AnalyticsRollupService analyticsRollupService) {
         this.studentRepository = studentRepository;
+        this.analyticsRollupService = analyticsRollupService;
     }
 
     /**
      * Save a student.
      */
     public Student save(Student student) {
-        return studentRepository.save(student);
+        boolean isNew = student.getId() == null;
+        Student saved = studentRepository.save(student);
+        if (isNew) {
+            analyticsRollupService.recordEnrollment(saved);
+        }
+        return saved;
     }
 
     /**
@@ -0,0 +1,26 @@
+package com.musicschool.service;
+
+import java.util.List;
+
+/**
+ * Thrown when a timetable cannot be applied because some courses could not be placed
+ * without conflicts within the time budget.
+ */
+public class TimetableInfeasibleException extends RuntimeException {
+
+    private final TimetableSolver.Result result;
+
+    public TimetableInfeasibleException(TimetableSolver.Result result) {
+        super("No conflict-free timetable found within the time budget ("
+            + result.getConflictedCourses() + " courses still conflicting)");
+        this.result = result;
+    }
+
+    public TimetableSolver.Result getResult() {
+        return result;
+    }
+
+    public List<Long> getConflictedCourseIds() {
+        return result.getConflictedCourseIds();
+    }
+}
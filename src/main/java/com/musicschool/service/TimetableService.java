@@ -0,0 +1,298 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Course;
+import com.musicschool.entity.Schedule;
+import com.musicschool.repository.CourseRepository;
+import com.musicschool.repository.EnrollmentRepository;
+import com.musicschool.service.TimetableSolver.Assignment;
+import com.musicschool.service.TimetableSolver.BlockedTime;
+import com.musicschool.service.TimetableSolver.CourseSpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Service generating conflict-free weekly timetables for a term's courses.
+ *
+ * The courses and the time already taken are read in a short read-only transaction and the
+ * search runs outside any transaction, so no connection is held for the time budget. Applying
+ * a timetable writes it in a transaction of its own.
+ */
+@Service
+public class TimetableService {
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private SchedulingService schedulingService;
+
+    @Autowired
+    private ResourceLockManager resourceLockManager;
+
+    @Autowired
+    private SerializationRetry serializationRetry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${scheduling.timetable.time-budget-seconds:10}")
+    private int defaultTimeBudgetSeconds;
+
+    @Value("${scheduling.timetable.max-time-budget-seconds:60}")
+    private int maxTimeBudgetSeconds;
+
+    @Value("${scheduling.timetable.workers:0}")
+    private int defaultWorkers;
+
+    @Value("${scheduling.timetable.max-workers:8}")
+    private int maxWorkers;
+
+    @Value("${scheduling.timetable.slot-minutes:30}")
+    private int slotMinutes;
+
+    @Value("${scheduling.timetable.day-start:09:00}")
+    private String defaultDayStart;
+
+    @Value("${scheduling.timetable.day-end:21:00}")
+    private String defaultDayEnd;
+
+    private static final List<DayOfWeek> DEFAULT_DAYS = List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
+        DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY, DayOfWeek.SATURDAY);
+
+    /**
+     * Solve the term timetable without saving anything
+     */
+    public TimetableSolver.Result solve(TimetableRequest request) {
+        validate(request);
+        return solve(request, prepare(request));
+    }
+
+    /**
+     * Solve the term timetable and, when it is conflict-free, store it on the courses and
+     * create the weekly recurring schedules for the whole term. Weeks clashing with existing
+     * bookings are not booked and are listed in the result, which is then not feasible.
+     * Nothing is stored when some courses could not be placed without conflicts.
+     */
+    public TimetableSolver.Result solveAndApply(TimetableRequest request) {
+        validate(request);
+        TimetableSolver.Result result = solve(request, prepare(request));
+        if (!result.isFeasible()) {
+            throw new TimetableInfeasibleException(result);
+        }
+        serializationRetry.run(() -> new TransactionTemplate(transactionManager).execute(status -> {
+            apply(request, result);
+            return null;
+        }));
+        return result;
+    }
+
+    /**
+     * Reject requests the solver cannot work with
+     */
+    public void validate(TimetableRequest request) {
+        if (request.getTermStart() == null || request.getTermEnd() == null) {
+            throw new IllegalArgumentException("Term start and end dates are required");
+        }
+        if (request.getTermEnd().isBefore(request.getTermStart())) {
+            throw new IllegalArgumentException("Term end must not be before term start");
+        }
+        if (!dayEnd(request).isAfter(dayStart(request))) {
+            throw new IllegalArgumentException("Day end must be after day start");
+        }
+        if (request.getTimeBudgetSeconds() != null && request.getTimeBudgetSeconds() <= 0) {
+            throw new IllegalArgumentException("Time budget must be positive");
+        }
+    }
+
+    private void apply(TimetableRequest request, TimetableSolver.Result result) {
+        Map<Long, Course> coursesById = courseRepository.findAllById(result.getAssignments().stream()
+                .map(Assignment::getCourseId).collect(Collectors.toList())).stream()
+            .collect(Collectors.toMap(Course::getId, course -> course));
+        Map<Schedule, Integer> series = new LinkedHashMap<>();
+        for (Assignment assignment : result.getAssignments()) {
+            Course course = coursesById.get(assignment.getCourseId());
+            course.setScheduleDay(assignment.getDay().name());
+            course.setScheduleTime(assignment.getStartTime());
+            course.setRoom(assignment.getRoom());
+
+            LocalDate firstDay = request.getTermStart().with(TemporalAdjusters.nextOrSame(assignment.getDay()));
+            if (firstDay.isAfter(request.getTermEnd())) {
+                continue;
+            }
+            int occurrences = (int) ChronoUnit.WEEKS.between(firstDay, request.getTermEnd()) + 1;
+            Schedule template = new Schedule(firstDay.atTime(assignment.getStartTime()),
+                firstDay.atTime(assignment.getEndTime()), Schedule.ScheduleType.GROUP_CLASS);
+            template.setTitle(course.getName());
+            template.setCourse(course);
+            template.setInstructor(course.getInstructor());
+            template.setRoom(assignment.getRoom());
+            series.put(template, occurrences);
+        }
+        // Every series is booked in this transaction: lock all their resources in one ordered call
+        resourceLockManager.lockForTransaction(series.keySet().toArray(new Schedule[0]));
+        // The solver only sees the first week; weeks clashing later are left out of their series
+        Map<Long, List<LocalDateTime>> dropped = new TreeMap<>();
+        for (Map.Entry<Schedule, Integer> entry : series.entrySet()) {
+            Schedule template = entry.getKey();
+            Set<LocalDateTime> booked = schedulingService.createRecurringSchedule(template,
+                    new SchedulingService.RecurrencePattern(
+                        SchedulingService.RecurrencePattern.Frequency.WEEKLY, 1, entry.getValue()))
+                .stream().map(Schedule::getStartTime).collect(Collectors.toSet());
+            for (int week = 0; week < entry.getValue(); week++) {
+                LocalDateTime start = template.getStartTime().plusWeeks(week);
+                if (!booked.contains(start)) {
+                    dropped.computeIfAbsent(template.getCourse().getId(), k -> new ArrayList<>()).add(start);
+                }
+            }
+        }
+        courseRepository.saveAll(coursesById.values());
+        result.setDroppedOccurrences(dropped);
+    }
+
+    private TimetableSolver.Result solve(TimetableRequest request, TimetableSolver solver) {
+        int budget = request.getTimeBudgetSeconds() != null ? request.getTimeBudgetSeconds() : defaultTimeBudgetSeconds;
+        int workers = request.getWorkers() != null ? request.getWorkers() : defaultWorkers;
+        if (workers <= 0) {
+            workers = Runtime.getRuntime().availableProcessors();
+        }
+        return solver.solve(Duration.ofSeconds(Math.min(budget, maxTimeBudgetSeconds)), Math.min(workers, maxWorkers));
+    }
+
+    /**
+     * Build the solver from the courses and the time already taken, in one read-only transaction
+     */
+    private TimetableSolver prepare(TimetableRequest request) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> prepare(request, loadCourses(request)));
+    }
+
+    private TimetableSolver prepare(TimetableRequest request, List<Course> courses) {
+        Set<Long> courseIds = courses.stream().map(Course::getId).collect(Collectors.toSet());
+
+        // Student groups come from one projection instead of walking each course's enrollments
+        Map<Long, List<Long>> studentsByCourse = new HashMap<>();
+        if (!courseIds.isEmpty()) {
+            for (Object[] row : enrollmentRepository.findActiveCourseStudentPairs(courseIds)) {
+                studentsByCourse.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((Long) row[1]);
+            }
+        }
+
+        List<CourseSpec> specs = new ArrayList<>();
+        for (Course course : courses) {
+            if (course.getInstructor() == null) {
+                throw new RuntimeException("Course " + course.getName() + " has no instructor");
+            }
+            CourseSpec spec = new CourseSpec(course.getId(), course.getInstructor().getId(),
+                course.getDurationMinutes() != null ? course.getDurationMinutes() : 60,
+                studentsByCourse.getOrDefault(course.getId(), Collections.emptyList()));
+            if (course.getScheduleDay() != null) {
+                spec.setPreferredDay(DayOfWeek.valueOf(course.getScheduleDay().toUpperCase()));
+            }
+            spec.setPreferredStart(course.getScheduleTime());
+            spec.setPreferredRoom(course.getRoom());
+            specs.add(spec);
+        }
+
+        List<String> rooms = request.getRooms() != null && !request.getRooms().isEmpty()
+            ? request.getRooms()
+            : courses.stream().map(Course::getRoom).filter(Objects::nonNull).distinct().sorted()
+                .collect(Collectors.toList());
+        List<DayOfWeek> days = request.getDays() != null && !request.getDays().isEmpty()
+            ? request.getDays() : DEFAULT_DAYS;
+        return new TimetableSolver(specs, rooms, days, dayStart(request), dayEnd(request), slotMinutes,
+            findBlockedTimes(request.getTermStart(), courseIds));
+    }
+
+    private LocalTime dayStart(TimetableRequest request) {
+        return request.getDayStart() != null ? request.getDayStart() : LocalTime.parse(defaultDayStart);
+    }
+
+    private LocalTime dayEnd(TimetableRequest request) {
+        return request.getDayEnd() != null ? request.getDayEnd() : LocalTime.parse(defaultDayEnd);
+    }
+
+    private List<Course> loadCourses(TimetableRequest request) {
+        if (request.getCourseIds() != null && !request.getCourseIds().isEmpty()) {
+            return courseRepository.findAllById(request.getCourseIds());
+        }
+        return courseRepository.findActiveCourses();
+    }
+
+    /**
+     * Instructor and room time already taken in the first week of the term by schedules
+     * that are not part of the courses being placed
+     */
+    private List<BlockedTime> findBlockedTimes(LocalDate termStart, Set<Long> courseIds) {
+        LocalDateTime weekStart = termStart.atStartOfDay();
+        List<BlockedTime> blocked = new ArrayList<>();
+        for (Schedule schedule : schedulingService.getScheduleForDateRange(weekStart, weekStart.plusWeeks(1))) {
+            if (schedule.getStatus() == Schedule.ScheduleStatus.CANCELLED
+                || (schedule.getCourse() != null && courseIds.contains(schedule.getCourse().getId()))) {
+                continue;
+            }
+            DayOfWeek day = schedule.getStartTime().getDayOfWeek();
+            LocalTime start = schedule.getStartTime().toLocalTime();
+            LocalTime end = schedule.getEndTime().toLocalDate().isAfter(schedule.getStartTime().toLocalDate())
+                ? LocalTime.MAX : schedule.getEndTime().toLocalTime();
+            if (schedule.getInstructor() != null) {
+                blocked.add(new BlockedTime(schedule.getInstructor().getId(), null, day, start, end));
+            }
+            if (schedule.getRoom() != null) {
+                blocked.add(new BlockedTime(null, schedule.getRoom(), day, start, end));
+            }
+        }
+        return blocked;
+    }
+
+    /**
+     * Inner class for timetable requests
+     */
+    public static class TimetableRequest {
+        private LocalDate termStart;
+        private LocalDate termEnd;
+        private List<Long> courseIds;
+        private List<String> rooms;
+        private List<DayOfWeek> days;
+        private LocalTime dayStart;
+        private LocalTime dayEnd;
+        private Integer timeBudgetSeconds;
+        private Integer workers;
+
+        // Getters and setters
+        public LocalDate getTermStart() { return termStart; }
+        public void setTermStart(LocalDate termStart) { this.termStart = termStart; }
+        public LocalDate getTermEnd() { return termEnd; }
+        public void setTermEnd(LocalDate termEnd) { this.termEnd = termEnd; }
+        public List<Long> getCourseIds() { return courseIds; }
+        public void setCourseIds(List<Long> courseIds) { this.courseIds = courseIds; }
+        public List<String> getRooms() { return rooms; }
+        public void setRooms(List<String> rooms) { this.rooms = rooms; }
+        public List<DayOfWeek> getDays() { return days; }
+        public void setDays(List<DayOfWeek> days) { this.days = days; }
+        public LocalTime getDayStart() { return dayStart; }
+        public void setDayStart(LocalTime dayStart) { this.dayStart = dayStart; }
+        public LocalTime getDayEnd() { return dayEnd; }
+        public void setDayEnd(LocalTime dayEnd) { this.dayEnd = dayEnd; }
+        public Integer getTimeBudgetSeconds() { return timeBudgetSeconds; }
+        public void setTimeBudgetSeconds(Integer timeBudgetSeconds) { this.timeBudgetSeconds = timeBudgetSeconds; }
+        public Integer getWorkers() { return workers; }
+        public void setWorkers(Integer workers) { this.workers = workers; }
+    }
+}
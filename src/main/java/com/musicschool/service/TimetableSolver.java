@@ -0,0 +1,574 @@
+package com.musicschool.service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Weekly timetable solver placing courses on (day, start time, room) without conflicts.
+ *
+ * Runs a portfolio of independent min-conflicts local searches in parallel, each with its
+ * own random seed, and keeps the best timetable found within the time budget. Hard
+ * constraints: an instructor, a room or a student group cannot be in two places at once,
+ * and blocked instructor/room times stay free. Soft constraint: keep the course's
+ * preferred day, time and room where possible.
+ */
+public class TimetableSolver {
+
+    private static final int HARD_WEIGHT = 1000;
+    private static final double NOISE = 0.05;
+
+    private final List<CourseSpec> courses;
+    private final List<String> rooms;
+    private final List<DayOfWeek> days;
+    private final LocalTime dayStart;
+    private final int granularityMinutes;
+    private final int ticksPerDay;
+
+    private final int[] length;
+    private final int[] instructor;
+    private final int[][] linked;
+    private final int[] preferredDay;
+    private final int[] preferredTick;
+    private final int[] preferredRoom;
+    private final boolean[][][] instructorBlocked;
+    private final boolean[][][] roomBlocked;
+    private final int instructorCount;
+
+    public TimetableSolver(List<CourseSpec> courses, List<String> rooms, List<DayOfWeek> days,
+                           LocalTime dayStart, LocalTime dayEnd, int granularityMinutes,
+                           List<BlockedTime> blockedTimes) {
+        if (rooms.isEmpty() || days.isEmpty()) {
+            throw new IllegalArgumentException("At least one room and one day are required");
+        }
+        if (!dayEnd.isAfter(dayStart)) {
+            throw new IllegalArgumentException("Day end must be after day start");
+        }
+        this.courses = courses;
+        this.rooms = rooms;
+        this.days = days;
+        this.dayStart = dayStart;
+        this.granularityMinutes = granularityMinutes;
+        this.ticksPerDay = (int) (Duration.between(dayStart, dayEnd).toMinutes() / granularityMinutes);
+
+        int n = courses.size();
+        length = new int[n];
+        instructor = new int[n];
+        preferredDay = new int[n];
+        preferredTick = new int[n];
+        preferredRoom = new int[n];
+        Map<Long, Integer> instructorIndex = new HashMap<>();
+        Map<Long, List<Integer>> coursesByStudent = new HashMap<>();
+        for (int c = 0; c < n; c++) {
+            CourseSpec spec = courses.get(c);
+            length[c] = Math.max(1, (spec.getDurationMinutes() + granularityMinutes - 1) / granularityMinutes);
+            if (length[c] > ticksPerDay) {
+                throw new IllegalArgumentException("Course " + spec.getCourseId() + " does not fit into a day");
+            }
+            instructor[c] = instructorIndex.computeIfAbsent(spec.getInstructorId(), k -> instructorIndex.size());
+            preferredDay[c] = spec.getPreferredDay() != null ? days.indexOf(spec.getPreferredDay()) : -1;
+            preferredTick[c] = spec.getPreferredStart() != null ? toTick(spec.getPreferredStart()) : -1;
+            preferredRoom[c] = spec.getPreferredRoom() != null ? rooms.indexOf(spec.getPreferredRoom()) : -1;
+            for (Long studentId : spec.getStudentIds()) {
+                coursesByStudent.computeIfAbsent(studentId, k -> new ArrayList<>()).add(c);
+            }
+        }
+        instructorCount = instructorIndex.size();
+
+        List<Set<Integer>> links = new ArrayList<>();
+        for (int c = 0; c < n; c++) {
+            links.add(new HashSet<>());
+        }
+        for (List<Integer> group : coursesByStudent.values()) {
+            for (int a : group) {
+                for (int b : group) {
+                    if (a != b) {
+                        links.get(a).add(b);
+                    }
+                }
+            }
+        }
+        linked = new int[n][];
+        for (int c = 0; c < n; c++) {
+            linked[c] = links.get(c).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        instructorBlocked = new boolean[instructorCount][days.size()][ticksPerDay];
+        roomBlocked = new boolean[rooms.size()][days.size()][ticksPerDay];
+        for (BlockedTime blocked : blockedTimes) {
+            int d = days.indexOf(blocked.getDay());
+            if (d < 0) {
+                continue;
+            }
+            boolean[][] target = null;
+            if (blocked.getInstructorId() != null && instructorIndex.containsKey(blocked.getInstructorId())) {
+                target = instructorBlocked[instructorIndex.get(blocked.getInstructorId())];
+            } else if (blocked.getRoom() != null && rooms.contains(blocked.getRoom())) {
+                target = roomBlocked[rooms.indexOf(blocked.getRoom())];
+            }
+            if (target == null) {
+                continue;
+            }
+            int from = Math.max(0, Math.floorDiv(minutesFromDayStart(blocked.getStart()), granularityMinutes));
+            int to = Math.min(ticksPerDay, ceilDiv(minutesFromDayStart(blocked.getEnd()), granularityMinutes));
+            for (int t = from; t < to; t++) {
+                target[d][t] = true;
+            }
+        }
+    }
+
+    /**
+     * Solve within the time budget using the given number of parallel searches
+     */
+    public Result solve(Duration timeBudget, int workers) {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + timeBudget.toNanos();
+        AtomicBoolean solved = new AtomicBoolean(false);
+        AtomicLong iterations = new AtomicLong();
+        Best best = new Best();
+
+        if (courses.isEmpty()) {
+            return toResult(best, 0, 0, workers);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                long seed = 31L * w + 17;
+                futures.add(executor.submit(() -> new Search(seed).run(deadline, solved, iterations, best)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Timetable solving interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Timetable solving failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return toResult(best, iterations.get(), (System.nanoTime() - startedAt) / 1_000_000, workers);
+    }
+
+    private Result toResult(Best best, long iterations, long elapsedMillis, int workers) {
+        List<Assignment> assignments = new ArrayList<>();
+        List<Long> conflictedCourseIds = new ArrayList<>();
+        if (best.day != null) {
+            for (int c = 0; c < courses.size(); c++) {
+                LocalTime start = dayStart.plusMinutes((long) best.tick[c] * granularityMinutes);
+                assignments.add(new Assignment(courses.get(c).getCourseId(), days.get(best.day[c]), start,
+                    start.plusMinutes(courses.get(c).getDurationMinutes()), rooms.get(best.room[c])));
+            }
+            for (int c : new Search(0).conflicted(best.day, best.tick, best.room)) {
+                conflictedCourseIds.add(courses.get(c).getCourseId());
+            }
+        }
+        return new Result(assignments, conflictedCourseIds, best.softPenalty, iterations,
+            elapsedMillis, best.foundAfterMillis, workers);
+    }
+
+    private int toTick(LocalTime time) {
+        int tick = Math.floorDiv(minutesFromDayStart(time), granularityMinutes);
+        return tick >= 0 && tick < ticksPerDay ? tick : -1;
+    }
+
+    private int minutesFromDayStart(LocalTime time) {
+        return (int) Duration.between(dayStart, time).toMinutes();
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return -Math.floorDiv(-a, b);
+    }
+
+    /**
+     * Best timetable found by any search so far
+     */
+    private class Best {
+        private int[] day;
+        private int[] tick;
+        private int[] room;
+        private int conflictedCourses = Integer.MAX_VALUE;
+        private int softPenalty = Integer.MAX_VALUE;
+        private long foundAfterMillis;
+
+        synchronized void offer(int[] day, int[] tick, int[] room, int conflicted, int soft, long elapsedMillis) {
+            if (conflicted < conflictedCourses || (conflicted == conflictedCourses && soft < softPenalty)) {
+                this.day = day.clone();
+                this.tick = tick.clone();
+                this.room = room.clone();
+                this.conflictedCourses = conflicted;
+                this.softPenalty = soft;
+                this.foundAfterMillis = elapsedMillis;
+            }
+        }
+    }
+
+    /**
+     * One min-conflicts local search with its own occupancy grids
+     */
+    private class Search {
+        private final Random random;
+        private final int n = courses.size();
+        private final int[] day = new int[n];
+        private final int[] tick = new int[n];
+        private final int[] room = new int[n];
+        private final int[][][] instructorLoad = new int[instructorCount][days.size()][ticksPerDay];
+        private final int[][][] roomLoad = new int[rooms.size()][days.size()][ticksPerDay];
+        private final int[][] timeCost = new int[days.size()][ticksPerDay];
+        private final long startedAt = System.nanoTime();
+
+        Search(long seed) {
+            this.random = new Random(seed);
+        }
+
+        void run(long deadline, AtomicBoolean solved, AtomicLong iterations, Best best) {
+            initialize();
+            int softRounds = 0;
+            long local = 0;
+            while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                int course = pickConflicted();
+                if (course < 0) {
+                    if (softRounds == 0) {
+                        solved.set(true);
+                        report(best);
+                    }
+                    if (++softRounds > n * 5) {
+                        break;
+                    }
+                    course = random.nextInt(n);
+                } else if (solved.get()) {
+                    // Another search already found a conflict-free timetable
+                    break;
+                }
+                move(course, softRounds > 0);
+                if (++local % 64 == 0) {
+                    iterations.addAndGet(64);
+                    report(best);
+                }
+            }
+            iterations.addAndGet(local % 64);
+            report(best);
+        }
+
+        private void initialize() {
+            Integer[] order = new Integer[n];
+            for (int c = 0; c < n; c++) {
+                order[c] = c;
+            }
+            // Most constrained courses first: longest and most linked
+            Arrays.sort(order, (a, b) -> Integer.compare(
+                length[b] * 4 + linked[b].length, length[a] * 4 + linked[a].length));
+            for (int c = 0; c < n; c++) {
+                day[c] = -1;
+            }
+            for (int c : order) {
+                move(c, false);
+            }
+        }
+
+        private void move(int c, boolean feasibleOnly) {
+            int previousDay = day[c];
+            int previousTick = tick[c];
+            int previousRoom = room[c];
+            if (day[c] >= 0) {
+                place(c, -1);
+                day[c] = -1;
+            }
+            for (int d = 0; d < days.size(); d++) {
+                for (int t = 0; t + length[c] <= ticksPerDay; t++) {
+                    timeCost[d][t] = instructorCost(c, d, t) + linkedCost(c, d, t);
+                }
+            }
+            int bestDay = -1;
+            int bestTick = -1;
+            int bestRoom = -1;
+            long bestScore = Long.MAX_VALUE;
+            int ties = 0;
+            boolean noisy = !feasibleOnly && random.nextDouble() < NOISE;
+            for (int d = 0; d < days.size(); d++) {
+                for (int t = 0; t + length[c] <= ticksPerDay; t++) {
+                    for (int r = 0; r < rooms.size(); r++) {
+                        int hard = timeCost[d][t] + roomCost(c, d, t, r);
+                        if (feasibleOnly && hard > 0) {
+                            continue;
+                        }
+                        long score = noisy ? random.nextInt(1 << 20) : (long) hard * HARD_WEIGHT + softCost(c, d, t, r);
+                        if (score < bestScore) {
+                            bestScore = score;
+                            bestDay = d;
+                            bestTick = t;
+                            bestRoom = r;
+                            ties = 1;
+                        } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                            bestDay = d;
+                            bestTick = t;
+                            bestRoom = r;
+                        }
+                    }
+                }
+            }
+            if (bestDay < 0) {
+                // No conflict-free spot: keep the course where it was, or anywhere if it was unplaced
+                boolean placed = previousDay >= 0;
+                bestDay = placed ? previousDay : random.nextInt(days.size());
+                bestTick = placed ? previousTick : random.nextInt(ticksPerDay - length[c] + 1);
+                bestRoom = placed ? previousRoom : random.nextInt(rooms.size());
+            }
+            day[c] = bestDay;
+            tick[c] = bestTick;
+            room[c] = bestRoom;
+            place(c, 1);
+        }
+
+        private void place(int c, int delta) {
+            int[] instructorRow = instructorLoad[instructor[c]][day[c]];
+            int[] roomRow = roomLoad[room[c]][day[c]];
+            for (int t = tick[c]; t < tick[c] + length[c]; t++) {
+                instructorRow[t] += delta;
+                roomRow[t] += delta;
+            }
+        }
+
+        private int instructorCost(int c, int d, int t) {
+            int cost = 0;
+            int[] load = instructorLoad[instructor[c]][d];
+            boolean[] blocked = instructorBlocked[instructor[c]][d];
+            for (int k = t; k < t + length[c]; k++) {
+                cost += load[k] + (blocked[k] ? 1 : 0);
+            }
+            return cost;
+        }
+
+        private int roomCost(int c, int d, int t, int r) {
+            int cost = 0;
+            int[] load = roomLoad[r][d];
+            boolean[] blocked = roomBlocked[r][d];
+            for (int k = t; k < t + length[c]; k++) {
+                cost += load[k] + (blocked[k] ? 1 : 0);
+            }
+            return cost;
+        }
+
+        private int linkedCost(int c, int d, int t) {
+            int cost = 0;
+            for (int other : linked[c]) {
+                if (day[other] == d && tick[other] < t + length[c] && t < tick[other] + length[other]) {
+                    cost++;
+                }
+            }
+            return cost;
+        }
+
+        private int softCost(int c, int d, int t, int r) {
+            int cost = 0;
+            if (preferredDay[c] >= 0 && preferredDay[c] != d) {
+                cost++;
+            }
+            if (preferredTick[c] >= 0 && preferredTick[c] != t) {
+                cost++;
+            }
+            if (preferredRoom[c] >= 0 && preferredRoom[c] != r) {
+                cost++;
+            }
+            return cost;
+        }
+
+        private int hardCostInPlace(int c) {
+            place(c, -1);
+            int cost = instructorCost(c, day[c], tick[c]) + linkedCost(c, day[c], tick[c])
+                + roomCost(c, day[c], tick[c], room[c]);
+            place(c, 1);
+            return cost;
+        }
+
+        /**
+         * Courses breaking a hard constraint in the given timetable
+         */
+        List<Integer> conflicted(int[] bestDay, int[] bestTick, int[] bestRoom) {
+            List<Integer> conflicted = new ArrayList<>();
+            for (int c = 0; c < n; c++) {
+                day[c] = bestDay[c];
+                tick[c] = bestTick[c];
+                room[c] = bestRoom[c];
+                place(c, 1);
+            }
+            for (int c = 0; c < n; c++) {
+                if (hardCostInPlace(c) > 0) {
+                    conflicted.add(c);
+                }
+            }
+            return conflicted;
+        }
+
+        private int pickConflicted() {
+            int offset = random.nextInt(n);
+            for (int i = 0; i < n; i++) {
+                int c = (offset + i) % n;
+                if (hardCostInPlace(c) > 0) {
+                    return c;
+                }
+            }
+            return -1;
+        }
+
+        private void report(Best best) {
+            int conflicted = 0;
+            int soft = 0;
+            for (int c = 0; c < n; c++) {
+                if (hardCostInPlace(c) > 0) {
+                    conflicted++;
+                }
+                soft += softCost(c, day[c], tick[c], room[c]);
+            }
+            best.offer(day, tick, room, conflicted, soft, (System.nanoTime() - startedAt) / 1_000_000);
+        }
+    }
+
+    /**
+     * Course to place with its resources and preferences
+     */
+    public static class CourseSpec {
+        private final Long courseId;
+        private final Long instructorId;
+        private final int durationMinutes;
+        private final List<Long> studentIds;
+        private DayOfWeek preferredDay;
+        private LocalTime preferredStart;
+        private String preferredRoom;
+
+        public CourseSpec(Long courseId, Long instructorId, int durationMinutes, List<Long> studentIds) {
+            this.courseId = courseId;
+            this.instructorId = instructorId;
+            this.durationMinutes = durationMinutes;
+            this.studentIds = studentIds;
+        }
+
+        // Getters and setters
+        public Long getCourseId() { return courseId; }
+        public Long getInstructorId() { return instructorId; }
+        public int getDurationMinutes() { return durationMinutes; }
+        public List<Long> getStudentIds() { return studentIds; }
+        public DayOfWeek getPreferredDay() { return preferredDay; }
+        public void setPreferredDay(DayOfWeek preferredDay) { this.preferredDay = preferredDay; }
+        public LocalTime getPreferredStart() { return preferredStart; }
+        public void setPreferredStart(LocalTime preferredStart) { this.preferredStart = preferredStart; }
+        public String getPreferredRoom() { return preferredRoom; }
+        public void setPreferredRoom(String preferredRoom) { this.preferredRoom = preferredRoom; }
+    }
+
+    /**
+     * Weekly time an instructor or a room is not available
+     */
+    public static class BlockedTime {
+        private final Long instructorId;
+        private final String room;
+        private final DayOfWeek day;
+        private final LocalTime start;
+        private final LocalTime end;
+
+        public BlockedTime(Long instructorId, String room, DayOfWeek day, LocalTime start, LocalTime end) {
+            this.instructorId = instructorId;
+            this.room = room;
+            this.day = day;
+            this.start = start;
+            this.end = end;
+        }
+
+        // Getters
+        public Long getInstructorId() { return instructorId; }
+        public String getRoom() { return room; }
+        public DayOfWeek getDay() { return day; }
+        public LocalTime getStart() { return start; }
+        public LocalTime getEnd() { return end; }
+    }
+
+    /**
+     * Weekly placement of a course
+     */
+    public static class Assignment {
+        private final Long courseId;
+        private final DayOfWeek day;
+        private final LocalTime startTime;
+        private final LocalTime endTime;
+        private final String room;
+
+        public Assignment(Long courseId, DayOfWeek day, LocalTime startTime, LocalTime endTime, String room) {
+            this.courseId = courseId;
+            this.day = day;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.room = room;
+        }
+
+        // Getters
+        public Long getCourseId() { return courseId; }
+        public DayOfWeek getDay() { return day; }
+        public LocalTime getStartTime() { return startTime; }
+        public LocalTime getEndTime() { return endTime; }
+        public String getRoom() { return room; }
+    }
+
+    /**
+     * Solver outcome with progress metrics
+     */
+    public static class Result {
+        private final List<Assignment> assignments;
+        private final List<Long> conflictedCourseIds;
+        private final int softPenalty;
+        private final long iterations;
+        private final long elapsedMillis;
+        private final long bestFoundAfterMillis;
+        private final int workers;
+        private Map<Long, List<LocalDateTime>> droppedOccurrences = Collections.emptyMap();
+
+        public Result(List<Assignment> assignments, List<Long> conflictedCourseIds, int softPenalty, long iterations,
+                      long elapsedMillis, long bestFoundAfterMillis, int workers) {
+            this.assignments = assignments;
+            this.conflictedCourseIds = conflictedCourseIds;
+            this.softPenalty = assignments.isEmpty() ? 0 : softPenalty;
+            this.iterations = iterations;
+            this.elapsedMillis = elapsedMillis;
+            this.bestFoundAfterMillis = bestFoundAfterMillis;
+            this.workers = workers;
+        }
+
+        // Getters
+        public List<Assignment> getAssignments() { return assignments; }
+        public int getConflictedCourses() { return conflictedCourseIds.size(); }
+        public List<Long> getConflictedCourseIds() { return conflictedCourseIds; }
+        public int getSoftPenalty() { return softPenalty; }
+        public long getIterations() { return iterations; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public long getBestFoundAfterMillis() { return bestFoundAfterMillis; }
+        public int getWorkers() { return workers; }
+        public boolean isFeasible() { return conflictedCourseIds.isEmpty() && droppedOccurrences.isEmpty(); }
+
+        /**
+         * Weekly occurrences per course id that were not booked when the timetable was applied,
+         * because they clash with schedules outside the first week of the term
+         */
+        public Map<Long, List<LocalDateTime>> getDroppedOccurrences() { return droppedOccurrences; }
+        public void setDroppedOccurrences(Map<Long, List<LocalDateTime>> droppedOccurrences) {
+            this.droppedOccurrences = droppedOccurrences;
+        }
+    }
+}
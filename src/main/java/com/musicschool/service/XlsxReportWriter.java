@@ -0,0 +1,106 @@
+package com.musicschool.service;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * XLSX report writer built on POI's streaming workbook: one sheet per table, with only the last
+ * rowWindow rows in memory and older rows spilled to a compressed temporary file. The workbook
+ * is zipped to the output stream by finish(); tables longer than a sheet continue on a new one.
+ */
+public class XlsxReportWriter implements ReportTableWriter {
+
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final OutputStream out;
+    private final SXSSFWorkbook workbook;
+    private final CellStyle headerStyle;
+    private final CellStyle timestampStyle;
+    private Sheet sheet;
+    private String title;
+    private String[] columns;
+    private int sheets;
+    private int rowIndex;
+
+    public XlsxReportWriter(OutputStream out, int rowWindow) {
+        this.out = out;
+        this.workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        this.headerStyle = workbook.createCellStyle();
+        headerStyle.setFont(bold);
+        this.timestampStyle = workbook.createCellStyle();
+        timestampStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd hh:mm"));
+    }
+
+    @Override
+    public void section(String title, String... columns) {
+        this.title = title;
+        this.columns = columns;
+        this.sheets = 0;
+        newSheet();
+    }
+
+    @Override
+    public void row(Object... values) {
+        if (rowIndex == MAX_ROWS) {
+            newSheet();
+        }
+        Row row = sheet.createRow(rowIndex++);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            Cell cell = row.createCell(i);
+            if (value instanceof Number number) {
+                cell.setCellValue(number.doubleValue());
+            } else if (value instanceof LocalDateTime time) {
+                cell.setCellValue(time);
+                cell.setCellStyle(timestampStyle);
+            } else {
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        workbook.write(out);
+    }
+
+    @Override
+    public void close() {
+        // Deletes the temporary files of every sheet
+        workbook.dispose();
+        try {
+            workbook.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    private void newSheet() {
+        sheets++;
+        String name = sheets == 1 ? title : title + " " + sheets;
+        sheet = workbook.createSheet(WorkbookUtil.createSafeSheetName(name));
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < columns.length; i++) {
+            Cell cell = header.createCell(i);
+            cell.setCellValue(columns[i]);
+            cell.setCellStyle(headerStyle);
+        }
+        rowIndex = 1;
+    }
+}
@@ -0,0 +1,58 @@
+package com.musicschool.service.metrics;
+
+import com.musicschool.entity.Analytics;
+import com.musicschool.service.AttendanceService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Attendance rate and peak hours of the day, read from the hourly attendance counters (or the
+ * attendance records, for one tenant).
+ */
+@Component
+public class AttendanceMetricCollector implements MetricCollector {
+
+    private static final int PEAK_HOURS = 3;
+
+    @Autowired
+    private AttendanceService attendanceService;
+
+    @Override
+    public String getName() {
+        return "attendance";
+    }
+
+    @Override
+    public List<Analytics> collect(LocalDate date, Long tenantId) {
+        List<AttendanceService.HourAttendance> hours = tenantId == null
+            ? attendanceService.getHourlyAttendance(date) : attendanceService.getHourlyAttendance(date, tenantId);
+        List<Analytics> metrics = new ArrayList<>();
+        
+        // Average attendance rate; no rate is recorded for days without attendance taken
+        long attended = hours.stream().mapToLong(AttendanceService.HourAttendance::getAttended).sum();
+        long absent = hours.stream().mapToLong(AttendanceService.HourAttendance::getAbsent).sum();
+        if (attended + absent > 0) {
+            BigDecimal attendanceRate = BigDecimal.valueOf(attended)
+                .divide(BigDecimal.valueOf(attended + absent), 4, RoundingMode.HALF_UP);
+            metrics.add(MetricCollector.metric(Analytics.MetricType.ATTENDANCE, "average_attendance_rate",
+                attendanceRate, date));
+        }
+        
+        // Peak hours: the lesson start hours with the most students attending
+        hours.stream()
+            .filter(hour -> hour.getAttended() > 0)
+            .sorted(Comparator.comparingLong(AttendanceService.HourAttendance::getAttended).reversed()
+                .thenComparingInt(AttendanceService.HourAttendance::getHour))
+            .limit(PEAK_HOURS)
+            .forEach(hour -> metrics.add(MetricCollector.metric(Analytics.MetricType.PEAK_HOURS,
+                String.format("peak_hour_%02d_00", hour.getHour()), BigDecimal.valueOf(hour.getAttended()), date)));
+        return metrics;
+    }
+}
@@ -0,0 +1,58 @@
+package com.musicschool.service.metrics;
+
+import com.musicschool.entity.Analytics;
+import com.musicschool.repository.CourseRepository;
+import com.musicschool.service.CourseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Completion rate and duration per course.
+ */
+@Component
+public class CourseMetricCollector implements MetricCollector {
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private CourseService courseService;
+
+    @Override
+    public String getName() {
+        return "course";
+    }
+
+    @Override
+    public List<Analytics> collect(LocalDate date, Long tenantId) {
+        List<Analytics> metrics = new ArrayList<>();
+        Map<Long, Double> completionRates = tenantId == null
+            ? courseService.getCompletionRates() : courseService.getCompletionRates(tenantId);
+        List<Object[]> rows = tenantId == null
+            ? courseRepository.findCourseDurations() : courseRepository.findCourseDurationsForTenant(tenantId);
+        for (Object[] row : rows) {
+            Long courseId = (Long) row[0];
+            
+            // Course completion rate, once the course has finished enrollments
+            Double completionRate = completionRates.get(courseId);
+            if (completionRate != null) {
+                metrics.add(MetricCollector.metric(Analytics.MetricType.COURSE_COMPLETION_RATE,
+                    "course_completion_" + courseId, BigDecimal.valueOf(completionRate).setScale(4, RoundingMode.HALF_UP), date));
+            }
+            
+            // Average course duration
+            if (row[1] != null) {
+                metrics.add(MetricCollector.metric(Analytics.MetricType.AVERAGE_COURSE_DURATION,
+                    "avg_duration_" + courseId, new BigDecimal((Integer) row[1]), date));
+            }
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,56 @@
+package com.musicschool.service.metrics;
+
+import com.musicschool.entity.Analytics;
+import com.musicschool.repository.StudentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * New students of the day in total and per level.
+ */
+@Component
+public class EnrollmentMetricCollector implements MetricCollector {
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Override
+    public String getName() {
+        return "enrollment";
+    }
+
+    @Override
+    public List<Analytics> collect(LocalDate date, Long tenantId) {
+        long dailyEnrollments = 0;
+        Map<String, Long> enrollmentsByLevel = new TreeMap<>();
+        LocalDateTime from = date.atStartOfDay();
+        LocalDateTime to = date.plusDays(1).atStartOfDay();
+        List<Object[]> rows = tenantId == null
+            ? studentRepository.countCreatedByLevel(from, to)
+            : studentRepository.countCreatedByLevelForTenant(from, to, tenantId);
+        for (Object[] row : rows) {
+            long count = ((Number) row[1]).longValue();
+            dailyEnrollments += count;
+            if (row[0] != null) {
+                enrollmentsByLevel.put(row[0].toString(), count);
+            }
+        }
+        
+        List<Analytics> metrics = new ArrayList<>();
+        metrics.add(MetricCollector.metric(Analytics.MetricType.ENROLLMENT, "daily_enrollments",
+            new BigDecimal(dailyEnrollments), date));
+        for (Map.Entry<String, Long> entry : enrollmentsByLevel.entrySet()) {
+            metrics.add(MetricCollector.metric(Analytics.MetricType.ENROLLMENT,
+                "enrollments_by_level_" + entry.getKey(), new BigDecimal(entry.getValue()), date));
+        }
+        return metrics;
+    }
+}
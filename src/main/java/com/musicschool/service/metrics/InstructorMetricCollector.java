@@ -0,0 +1,47 @@
+package com.musicschool.service.metrics;
+
+import com.musicschool.entity.Analytics;
+import com.musicschool.repository.InstructorRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hours and satisfaction per instructor.
+ */
+@Component
+public class InstructorMetricCollector implements MetricCollector {
+
+    @Autowired
+    private InstructorRepository instructorRepository;
+
+    @Override
+    public String getName() {
+        return "instructor";
+    }
+
+    @Override
+    public List<Analytics> collect(LocalDate date, Long tenantId) {
+        List<Analytics> metrics = new ArrayList<>();
+        List<Object[]> rows = tenantId == null
+            ? instructorRepository.countCoursesPerInstructor()
+            : instructorRepository.countCoursesPerInstructorForTenant(tenantId);
+        for (Object[] row : rows) {
+            Long instructorId = (Long) row[0];
+            
+            // Hours worked (mock calculation)
+            BigDecimal hoursWorked = new BigDecimal(((Number) row[1]).longValue() * 2); // 2 hours per course
+            metrics.add(MetricCollector.metric(Analytics.MetricType.INSTRUCTOR_HOURS,
+                "instructor_hours_" + instructorId, hoursWorked, date));
+            
+            // Student satisfaction (mock data)
+            metrics.add(MetricCollector.metric(Analytics.MetricType.STUDENT_SATISFACTION,
+                "instructor_satisfaction_" + instructorId, new BigDecimal("4.5"), date));
+        }
+        return metrics;
+    }
+}
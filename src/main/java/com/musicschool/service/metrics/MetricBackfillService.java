@@ -0,0 +1,216 @@
+package com.musicschool.service.metrics;
+
+import com.musicschool.entity.Analytics;
+import com.musicschool.entity.Payment;
+import com.musicschool.repository.AnalyticsRepository;
+import com.musicschool.repository.PaymentRepository;
+import com.musicschool.repository.StudentRepository;
+import com.musicschool.repository.TenantRepository;
+import com.musicschool.service.MetricStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * Service computing revenue and enrollment metrics for a past date range in one pass.
+ *
+ * Payments and students of the whole range are read once and bucketed by day with a
+ * parallel (fork-join) reduction, for the whole school and for every tenant (tenant 0 for rows
+ * without a tenant) as sharded collection writes them. The range's existing REVENUE and
+ * ENROLLMENT rows of the school and of those tenants are then replaced in one transaction, so
+ * rerunning a backfill never duplicates metrics. Other metric types describe the current state
+ * of the school and cannot be reconstructed.
+ */
+@Service
+public class MetricBackfillService {
+
+    private static final EnumSet<Analytics.MetricType> BACKFILLED_TYPES =
+        EnumSet.of(Analytics.MetricType.REVENUE, Analytics.MetricType.ENROLLMENT);
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private MetricStore metricStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${analytics.backfill.max-days:3660}")
+    private int maxDays;
+
+    /**
+     * Recompute the metrics of every day in [startDate, endDate]
+     */
+    public BackfillReport backfill(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new RuntimeException("Invalid backfill range");
+        }
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (days > maxDays) {
+            throw new RuntimeException("Backfill range exceeds " + maxDays + " days");
+        }
+        long started = System.nanoTime();
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        List<Object[]> payments = readOnly.execute(status ->
+            paymentRepository.findRevenueFacts(Payment.PaymentStatus.COMPLETED, from, to));
+        List<Object[]> students = readOnly.execute(status -> studentRepository.findEnrollmentFacts(from, to));
+        List<Long> tenantIds = new ArrayList<>();
+        tenantIds.add(0L);
+        tenantIds.addAll(readOnly.execute(status -> tenantRepository.findAllIds()));
+
+        Map<LocalDate, DayBucket> revenueByDay = payments.parallelStream()
+            .collect(byDay(row -> row[1], row -> (BigDecimal) row[2]));
+        Map<LocalDate, DayBucket> enrollmentsByDay = students.parallelStream()
+            .collect(byDay(row -> row[1], row -> BigDecimal.ONE));
+        Map<Long, TreeMap<LocalDate, DayBucket>> revenueByTenant = payments.parallelStream()
+            .collect(Collectors.groupingBy(row -> ((Number) row[3]).longValue(),
+                byDay(row -> row[1], row -> (BigDecimal) row[2])));
+        Map<Long, TreeMap<LocalDate, DayBucket>> enrollmentsByTenant = students.parallelStream()
+            .collect(Collectors.groupingBy(row -> ((Number) row[2]).longValue(),
+                byDay(row -> row[1], row -> BigDecimal.ONE)));
+
+        List<Analytics> metrics = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            // Every day gets its totals, zero included, as the daily collectors write them
+            addMetrics(metrics, date, null, revenueByDay.get(date), enrollmentsByDay.get(date));
+            for (Long tenantId : tenantIds) {
+                addMetrics(metrics, date, tenantId,
+                    revenueByTenant.getOrDefault(tenantId, new TreeMap<>()).get(date),
+                    enrollmentsByTenant.getOrDefault(tenantId, new TreeMap<>()).get(date));
+            }
+        }
+
+        Integer deleted = new TransactionTemplate(transactionManager).execute(status -> {
+            int removed = analyticsRepository.deleteByMetricTypesAndDateRange(BACKFILLED_TYPES, startDate, endDate,
+                tenantIds);
+            analyticsRepository.saveAll(metrics);
+            return removed;
+        });
+
+        // Replaced points cannot be removed from the metric store one by one; rebuild it
+        metricStore.load();
+
+        return new BackfillReport(startDate, endDate, payments.size(), students.size(),
+            deleted != null ? deleted : 0, metrics.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private static void addMetrics(List<Analytics> metrics, LocalDate date, Long tenantId, DayBucket revenue,
+                                   DayBucket enrollments) {
+        revenue = revenue != null ? revenue : new DayBucket();
+        enrollments = enrollments != null ? enrollments : new DayBucket();
+        List<Analytics> day = new ArrayList<>();
+        day.add(metric(Analytics.MetricType.REVENUE, "daily_revenue", revenue.total, date));
+        for (Map.Entry<String, BigDecimal> entry : revenue.byKey.entrySet()) {
+            day.add(metric(Analytics.MetricType.REVENUE, "revenue_by_instrument_" + entry.getKey(),
+                entry.getValue(), date));
+        }
+        day.add(metric(Analytics.MetricType.ENROLLMENT, "daily_enrollments", enrollments.total, date));
+        for (Map.Entry<String, BigDecimal> entry : enrollments.byKey.entrySet()) {
+            day.add(metric(Analytics.MetricType.ENROLLMENT, "enrollments_by_level_" + entry.getKey(),
+                entry.getValue(), date));
+        }
+        day.forEach(metric -> metric.setTenantId(tenantId));
+        metrics.addAll(day);
+    }
+
+    /**
+     * Groups fact rows (timestamp first) by day, summing values in total and per key
+     */
+    private static Collector<Object[], ?, TreeMap<LocalDate, DayBucket>> byDay(
+            Function<Object[], Object> key, Function<Object[], BigDecimal> value) {
+        return Collectors.groupingBy(row -> ((LocalDateTime) row[0]).toLocalDate(), TreeMap::new,
+            Collector.of(DayBucket::new, (bucket, row) -> bucket.add(key.apply(row), value.apply(row)), DayBucket::merge));
+    }
+
+    private static Analytics metric(Analytics.MetricType metricType, String metricName, BigDecimal metricValue,
+                                    LocalDate date) {
+        Analytics analytics = MetricCollector.metric(metricType, metricName, metricValue, date);
+        // Place historical points on their own day in time series, not on the day of the backfill
+        analytics.setTimestamp(date.atStartOfDay());
+        return analytics;
+    }
+
+    private static final class DayBucket {
+        private BigDecimal total = BigDecimal.ZERO;
+        private final Map<String, BigDecimal> byKey = new TreeMap<>();
+
+        void add(Object key, BigDecimal value) {
+            if (value == null) {
+                return;
+            }
+            total = total.add(value);
+            if (key != null) {
+                byKey.merge(key.toString(), value, BigDecimal::add);
+            }
+        }
+
+        DayBucket merge(DayBucket other) {
+            total = total.add(other.total);
+            other.byKey.forEach((k, v) -> byKey.merge(k, v, BigDecimal::add));
+            return this;
+        }
+    }
+
+    /**
+     * Inner class for backfill reports
+     */
+    public static class BackfillReport {
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final int paymentsScanned;
+        private final int studentsScanned;
+        private final int metricsDeleted;
+        private final int metricsWritten;
+        private final long elapsedMillis;
+
+        public BackfillReport(LocalDate startDate, LocalDate endDate, int paymentsScanned, int studentsScanned,
+                              int metricsDeleted, int metricsWritten, long elapsedMillis) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.paymentsScanned = paymentsScanned;
+            this.studentsScanned = studentsScanned;
+            this.metricsDeleted = metricsDeleted;
+            this.metricsWritten = metricsWritten;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        // Getters
+        public LocalDate getStartDate() { return startDate; }
+        public LocalDate getEndDate() { return endDate; }
+        public int getPaymentsScanned() { return paymentsScanned; }
+        public int getStudentsScanned() { return studentsScanned; }
+        public int getMetricsDeleted() { return metricsDeleted; }
+        public int getMetricsWritten() { return metricsWritten; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+}
@@ -0,0 +1,299 @@
+package com.musicschool.service.metrics;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Leases on metric_collection_leases, the table coordinating scheduled collection across nodes.
+ *
+ * Every lease is taken or renewed with a single conditional UPDATE (or upsert) that only
+ * succeeds while the row is free, expired or already held by this node, so two nodes never
+ * hold the same shard. Lease times use the database clock, which keeps node clock skew out
+ * of expiry decisions.
+ */
+@Component
+public class MetricCollectionLeases {
+
+    public static final String LEADER = "leader";
+
+    private static final String ACQUIRE_LEADER =
+        "INSERT INTO metric_collection_leases (collection_date, shard_key, owner, lease_until) " +
+        "VALUES (?, '" + LEADER + "', ?, NOW() + (? * INTERVAL '1 second')) " +
+        "ON CONFLICT (collection_date, shard_key) DO UPDATE SET owner = excluded.owner, " +
+        "lease_until = excluded.lease_until, updated_at = NOW() " +
+        "WHERE metric_collection_leases.completed_at IS NULL AND (metric_collection_leases.owner = excluded.owner " +
+        "OR metric_collection_leases.lease_until IS NULL OR metric_collection_leases.lease_until < NOW())";
+
+    private static final String PLAN_SHARD =
+        "INSERT INTO metric_collection_leases (collection_date, shard_key, tenant_id) VALUES (?, ?, ?) " +
+        "ON CONFLICT (collection_date, shard_key) DO NOTHING";
+
+    private static final String FIND_CLAIMABLE =
+        "SELECT shard_key FROM metric_collection_leases WHERE collection_date = ? AND shard_key <> '" + LEADER + "' " +
+        "AND completed_at IS NULL AND attempts < ? AND (owner IS NULL OR lease_until IS NULL OR lease_until < NOW()) " +
+        "ORDER BY attempts, shard_key LIMIT ?";
+
+    private static final String CLAIM =
+        "UPDATE metric_collection_leases SET owner = ?, lease_until = NOW() + (? * INTERVAL '1 second'), " +
+        "attempts = attempts + 1, updated_at = NOW() WHERE collection_date = ? AND shard_key = ? " +
+        "AND completed_at IS NULL AND (owner IS NULL OR lease_until IS NULL OR lease_until < NOW())";
+
+    private static final String CHECKPOINT =
+        "UPDATE metric_collection_leases SET completed_collectors = ?, lease_until = NOW() + (? * INTERVAL '1 second'), " +
+        "updated_at = NOW() WHERE collection_date = ? AND shard_key = ? AND owner = ? AND completed_at IS NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${analytics.collection.scheduler.node-id:}")
+    private String nodeId;
+
+    @Value("${analytics.collection.scheduler.lease-seconds:900}")
+    private long leaseSeconds;
+
+    @Value("${analytics.collection.scheduler.max-attempts:5}")
+    private int maxAttempts;
+
+    @PostConstruct
+    public void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+    }
+
+    /**
+     * Identity this node holds leases under
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Take or renew the leader lease of a collection date; false when another node holds it
+     * or the run is already complete
+     */
+    public boolean acquireLeader(LocalDate date) {
+        return jdbcTemplate.update(ACQUIRE_LEADER, Date.valueOf(date), nodeId, leaseSeconds) > 0;
+    }
+
+    /**
+     * Create the shard rows of a date that do not exist yet
+     */
+    public void planShards(LocalDate date, Collection<Long> tenantIds) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Long tenantId : tenantIds) {
+            rows.add(new Object[] {Date.valueOf(date), shardKey(tenantId), tenantId});
+        }
+        jdbcTemplate.batchUpdate(PLAN_SHARD, rows);
+    }
+
+    /**
+     * Claim the next free or expired shard of a date, or null when none is left
+     */
+    public Shard claimNext(LocalDate date) {
+        // A few candidates, since other nodes may claim some between the read and the update
+        for (String shardKey : jdbcTemplate.query(FIND_CLAIMABLE, (rs, i) -> rs.getString(1),
+                Date.valueOf(date), maxAttempts, 5)) {
+            if (jdbcTemplate.update(CLAIM, nodeId, leaseSeconds, Date.valueOf(date), shardKey) > 0) {
+                // Read the checkpoint after claiming, so a commit by the previous owner is not missed
+                return findShard(date, shardKey);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A lease row with its checkpoint; the leader row has no tenant
+     */
+    public Shard findShard(LocalDate date, String shardKey) {
+        return jdbcTemplate.query(
+            "SELECT tenant_id, completed_collectors FROM metric_collection_leases " +
+            "WHERE collection_date = ? AND shard_key = ?",
+            (rs, i) -> new Shard(date, shardKey, (Long) rs.getObject(1), collectors(rs.getString(2))),
+            Date.valueOf(date), shardKey).get(0);
+    }
+
+    /**
+     * Record the collectors a shard has stored and renew its lease; must run in the
+     * transaction storing the metrics. Fails when the lease has passed to another node.
+     */
+    public void checkpoint(Shard shard) {
+        int updated = jdbcTemplate.update(CHECKPOINT, String.join(",", shard.getCompletedCollectors()), leaseSeconds,
+            Date.valueOf(shard.getDate()), shard.getShardKey(), nodeId);
+        if (updated == 0) {
+            throw new RuntimeException("Lease on shard " + shard.getShardKey() + " was lost");
+        }
+    }
+
+    /**
+     * Mark a shard (or, with LEADER, the whole run) held by this node as complete
+     */
+    public void complete(LocalDate date, String shardKey) {
+        jdbcTemplate.update("UPDATE metric_collection_leases SET completed_at = NOW(), lease_until = NULL, " +
+            "last_error = NULL, updated_at = NOW() WHERE collection_date = ? AND shard_key = ? AND owner = ?",
+            Date.valueOf(date), shardKey, nodeId);
+    }
+
+    /**
+     * Give up a shard after a failed attempt so another node (or a later poll) can retry it
+     */
+    public void release(LocalDate date, String shardKey, String error) {
+        jdbcTemplate.update("UPDATE metric_collection_leases SET owner = NULL, lease_until = NULL, last_error = ?, " +
+            "updated_at = NOW() WHERE collection_date = ? AND shard_key = ? AND owner = ?",
+            error, Date.valueOf(date), shardKey, nodeId);
+    }
+
+    /**
+     * Record the error of a failed attempt on a lease this node keeps holding
+     */
+    public void recordError(LocalDate date, String shardKey, String error) {
+        jdbcTemplate.update("UPDATE metric_collection_leases SET last_error = ?, updated_at = NOW() " +
+            "WHERE collection_date = ? AND shard_key = ? AND owner = ?", error, Date.valueOf(date), shardKey, nodeId);
+    }
+
+    /**
+     * Collection dates whose run is not complete, oldest first
+     */
+    public List<LocalDate> findOpenRuns() {
+        return jdbcTemplate.query("SELECT collection_date FROM metric_collection_leases " +
+            "WHERE shard_key = '" + LEADER + "' AND completed_at IS NULL ORDER BY collection_date",
+            (rs, i) -> rs.getDate(1).toLocalDate());
+    }
+
+    /**
+     * Shards of a date that are neither complete nor out of attempts
+     */
+    public long countPendingShards(LocalDate date) {
+        Long pending = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM metric_collection_leases " +
+            "WHERE collection_date = ? AND shard_key <> '" + LEADER + "' AND completed_at IS NULL AND attempts < ?",
+            Long.class, Date.valueOf(date), maxAttempts);
+        return pending != null ? pending : 0;
+    }
+
+    /**
+     * Every lease row of a date, leader first
+     */
+    public List<LeaseStatus> findStatus(LocalDate date) {
+        return jdbcTemplate.query("SELECT shard_key, tenant_id, owner, lease_until, completed_collectors, attempts, " +
+            "completed_at, last_error FROM metric_collection_leases WHERE collection_date = ? " +
+            "ORDER BY CASE WHEN shard_key = '" + LEADER + "' THEN 0 ELSE 1 END, shard_key",
+            (rs, i) -> new LeaseStatus(rs.getString(1), (Long) rs.getObject(2), rs.getString(3),
+                toLocalDateTime(rs.getTimestamp(4)), collectors(rs.getString(5)), rs.getInt(6),
+                toLocalDateTime(rs.getTimestamp(7)), rs.getString(8), rs.getInt(6) >= maxAttempts),
+            Date.valueOf(date));
+    }
+
+    /**
+     * Delete the lease rows of dates before the given one
+     */
+    public int purgeBefore(LocalDate date) {
+        return jdbcTemplate.update("DELETE FROM metric_collection_leases WHERE collection_date < ?", Date.valueOf(date));
+    }
+
+    public static String shardKey(Long tenantId) {
+        return "tenant-" + tenantId;
+    }
+
+    // Helper methods
+    private static Set<String> collectors(String completed) {
+        Set<String> names = new LinkedHashSet<>();
+        if (completed != null && !completed.isEmpty()) {
+            names.addAll(Arrays.asList(completed.split(",")));
+        }
+        return names;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+
+    /**
+     * A shard claimed by this node, with the collectors already stored for it
+     */
+    public static class Shard {
+        private final LocalDate date;
+        private final String shardKey;
+        private final Long tenantId;
+        private final Set<String> completedCollectors;
+
+        public Shard(LocalDate date, String shardKey, Long tenantId, Set<String> completedCollectors) {
+            this.date = date;
+            this.shardKey = shardKey;
+            this.tenantId = tenantId;
+            this.completedCollectors = completedCollectors;
+        }
+
+        // Getters
+        public LocalDate getDate() { return date; }
+        public String getShardKey() { return shardKey; }
+        public Long getTenantId() { return tenantId; }
+        public Set<String> getCompletedCollectors() { return completedCollectors; }
+    }
+
+    /**
+     * Inner class for the state of one lease row; a shard is failed once it is out of attempts
+     * without completing, and is no longer retried
+     */
+    public static class LeaseStatus {
+        private final String shardKey;
+        private final Long tenantId;
+        private final String owner;
+        private final LocalDateTime leaseUntil;
+        private final Set<String> completedCollectors;
+        private final int attempts;
+        private final LocalDateTime completedAt;
+        private final String lastError;
+        private final boolean outOfAttempts;
+
+        public LeaseStatus(String shardKey, Long tenantId, String owner, LocalDateTime leaseUntil,
+                           Set<String> completedCollectors, int attempts, LocalDateTime completedAt,
+                           String lastError, boolean outOfAttempts) {
+            this.shardKey = shardKey;
+            this.tenantId = tenantId;
+            this.owner = owner;
+            this.leaseUntil = leaseUntil;
+            this.completedCollectors = completedCollectors;
+            this.attempts = attempts;
+            this.completedAt = completedAt;
+            this.lastError = lastError;
+            this.outOfAttempts = outOfAttempts;
+        }
+
+        // Getters
+        public String getShardKey() { return shardKey; }
+        public Long getTenantId() { return tenantId; }
+        public String getOwner() { return owner; }
+        public LocalDateTime getLeaseUntil() { return leaseUntil; }
+        public Set<String> getCompletedCollectors() { return completedCollectors; }
+        public int getAttempts() { return attempts; }
+        public LocalDateTime getCompletedAt() { return completedAt; }
+        public boolean isCompleted() { return completedAt != null; }
+        public String getLastError() { return lastError; }
+        public boolean isFailed() { return completedAt == null && outOfAttempts; }
+    }
+}
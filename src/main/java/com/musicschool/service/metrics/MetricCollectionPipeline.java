@@ -0,0 +1,270 @@
+package com.musicschool.service.metrics;
+
+import com.musicschool.entity.Analytics;
+import com.musicschool.repository.AnalyticsRepository;
+import com.musicschool.service.MetricStore;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * Runs all MetricCollector beans for a day and stores what they produce.
+ *
+ * Collectors run concurrently on virtual threads, at most max-concurrency at a time so they
+ * never hold more than that many pooled connections, each in its own read-only transaction.
+ * A collector that fails or times out is reported and left out; the others are still stored,
+ * together, in one write transaction. Storing replaces the rows already recorded for the same
+ * day, tenant and metric name, so rerunning a collection never duplicates metrics. Every run
+ * is timed per collector in Micrometer
+ * (analytics.collector.duration, analytics.collector.rows).
+ *
+ * Sharded runs (see MetricCollectionScheduler) collect one tenant and pass a checkpoint: each
+ * collector's metrics are then stored as soon as it finishes, in the same transaction as the
+ * checkpoint, so a run resumed elsewhere skips exactly the collectors already stored.
+ */
+@Service
+public class MetricCollectionPipeline {
+
+    @Autowired
+    private List<MetricCollector> collectors;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Autowired
+    private MetricStore metricStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${analytics.collection.max-concurrency:4}")
+    private int maxConcurrency;
+
+    @Value("${analytics.collection.timeout-seconds:300}")
+    private long timeoutSeconds;
+
+    // Collectors mostly wait on the database, so a virtual thread each is enough
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("metric-collector-", 0).factory());
+
+    /**
+     * Collect and store the metrics of one day for the whole school
+     */
+    public CollectionReport collect(LocalDate date) {
+        return collect(date, null, Collections.emptySet(), null);
+    }
+
+    /**
+     * Collect and store the metrics of one day for one tenant (null for the whole school),
+     * leaving out the collectors named in skip. With a checkpoint, each successful collector is
+     * stored in its own transaction that also calls checkpoint with the collector's name; an
+     * exception from the checkpoint rolls that collector back and aborts the run.
+     */
+    public CollectionReport collect(LocalDate date, Long tenantId, Set<String> skip, Consumer<String> checkpoint) {
+        long started = System.nanoTime();
+        Semaphore permits = new Semaphore(Math.max(1, maxConcurrency));
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        List<MetricCollector> selected = collectors.stream()
+            .filter(collector -> !skip.contains(collector.getName()))
+            .toList();
+        List<Future<CollectorResult>> futures = new ArrayList<>();
+        for (MetricCollector collector : selected) {
+            futures.add(executor.submit(() -> run(collector, date, tenantId, permits, readOnly)));
+        }
+
+        List<CollectorResult> results = new ArrayList<>();
+        List<Analytics> metrics = new ArrayList<>();
+        long deadline = started + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        for (int i = 0; i < futures.size(); i++) {
+            CollectorResult result = await(selected.get(i), futures.get(i), deadline);
+            results.add(result);
+            if (checkpoint != null && result.isSucceeded()) {
+                try {
+                    store(result.metrics, () -> checkpoint.accept(result.getName()));
+                } catch (RuntimeException e) {
+                    futures.subList(i + 1, futures.size()).forEach(future -> future.cancel(true));
+                    throw e;
+                }
+            }
+            metrics.addAll(result.metrics);
+        }
+
+        if (checkpoint == null) {
+            store(metrics, () -> {});
+        }
+        return new CollectionReport(date, metrics.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), results);
+    }
+
+    /**
+     * Names of the registered collectors
+     */
+    public List<String> getCollectorNames() {
+        return collectors.stream().map(MetricCollector::getName).toList();
+    }
+
+    /**
+     * Store metrics in place of the rows of the same day, tenant and name, and run the given
+     * action, in one write transaction
+     */
+    private void store(List<Analytics> metrics, Runnable inTransaction) {
+        Map<LocalDate, Map<Long, Set<String>>> names = new HashMap<>();
+        for (Analytics metric : metrics) {
+            if (metric.getMetricName() != null) {
+                // HashMap keys allow the null tenant of school-wide rows
+                names.computeIfAbsent(metric.getDateRecorded(), date -> new HashMap<>())
+                    .computeIfAbsent(metric.getTenantId(), tenant -> new HashSet<>())
+                    .add(metric.getMetricName());
+            }
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            int replaced = 0;
+            for (Map.Entry<LocalDate, Map<Long, Set<String>>> day : names.entrySet()) {
+                for (Map.Entry<Long, Set<String>> tenant : day.getValue().entrySet()) {
+                    replaced += tenant.getKey() == null
+                        ? analyticsRepository.deleteSchoolMetrics(day.getKey(), tenant.getValue())
+                        : analyticsRepository.deleteTenantMetrics(day.getKey(), tenant.getKey(), tenant.getValue());
+                }
+            }
+            // Sequence ids let Hibernate send these as JDBC batches (hibernate.jdbc.batch_size)
+            analyticsRepository.saveAll(metrics);
+            inTransaction.run();
+            if (replaced > 0) {
+                // Replaced points cannot be removed from the metric store one by one
+                metricStore.reloadAfterCommit();
+            } else {
+                metricStore.appendAfterCommit(metrics);
+            }
+        });
+    }
+
+    private CollectorResult run(MetricCollector collector, LocalDate date, Long tenantId, Semaphore permits,
+                                TransactionTemplate readOnly) throws InterruptedException {
+        permits.acquire();
+        long started = System.nanoTime();
+        String outcome = "success";
+        try {
+            List<Analytics> metrics = readOnly.execute(status -> collector.collect(date, tenantId));
+            metrics = metrics != null ? metrics : Collections.emptyList();
+            if (tenantId != null) {
+                metrics.forEach(metric -> metric.setTenantId(tenantId));
+            }
+            meterRegistry.counter("analytics.collector.rows", "collector", collector.getName())
+                .increment(metrics.size());
+            return new CollectorResult(collector.getName(), metrics, elapsedMillis(started), null);
+        } catch (RuntimeException e) {
+            outcome = "failure";
+            return new CollectorResult(collector.getName(), Collections.emptyList(), elapsedMillis(started),
+                e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            permits.release();
+            Timer.builder("analytics.collector.duration")
+                .description("Time taken by one metric collector run")
+                .tag("collector", collector.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private CollectorResult await(MetricCollector collector, Future<CollectorResult> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            meterRegistry.counter("analytics.collector.timeouts", "collector", collector.getName()).increment();
+            return new CollectorResult(collector.getName(), Collections.emptyList(),
+                TimeUnit.SECONDS.toMillis(timeoutSeconds), "Timed out");
+        } catch (ExecutionException e) {
+            return new CollectorResult(collector.getName(), Collections.emptyList(), 0,
+                String.valueOf(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return new CollectorResult(collector.getName(), Collections.emptyList(), 0, "Interrupted");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+
+    /**
+     * Inner class for collection run reports
+     */
+    public static class CollectionReport {
+        private final LocalDate date;
+        private final int metricsWritten;
+        private final long elapsedMillis;
+        private final List<CollectorResult> collectors;
+
+        public CollectionReport(LocalDate date, int metricsWritten, long elapsedMillis, List<CollectorResult> collectors) {
+            this.date = date;
+            this.metricsWritten = metricsWritten;
+            this.elapsedMillis = elapsedMillis;
+            this.collectors = collectors;
+        }
+
+        // Getters
+        public LocalDate getDate() { return date; }
+        public int getMetricsWritten() { return metricsWritten; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public List<CollectorResult> getCollectors() { return collectors; }
+    }
+
+    /**
+     * Inner class for the outcome of one collector
+     */
+    public static class CollectorResult {
+        private final String name;
+        private final List<Analytics> metrics;
+        private final long elapsedMillis;
+        private final String error;
+
+        public CollectorResult(String name, List<Analytics> metrics, long elapsedMillis, String error) {
+            this.name = name;
+            this.metrics = metrics;
+            this.elapsedMillis = elapsedMillis;
+            this.error = error;
+        }
+
+        // Getters
+        public String getName() { return name; }
+        public int getMetricCount() { return metrics.size(); }
+        public long getElapsedMillis() { return elapsedMillis; }
+        public String getError() { return error; }
+        public boolean isSucceeded() { return error == null; }
+    }
+}
@@ -0,0 +1,185 @@
+package com.musicschool.service.metrics;
+
+import com.musicschool.repository.TenantRepository;
+import com.musicschool.service.AnalyticsSketchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Runs the nightly metric collection split into one shard per tenant across all nodes.
+ *
+ * At the scheduled time every node tries to become leader of the run for the previous day;
+ * the leader creates a shard row per tenant (plus tenant 0 for rows without a tenant). Every
+ * node then claims shards one at a time and collects them through MetricCollectionPipeline,
+ * checkpointing after each collector. A node that dies loses its leases when they expire and
+ * any node polling afterwards resumes the shard from its checkpoint. Once no shard is pending,
+ * the leader collects the school-wide metrics, checkpointed on its own lease row: rates, peak
+ * hours and other non-additive metrics cannot be derived from the per-tenant rows. It then
+ * builds the day's sketches, marks the run complete and purges old lease rows. The error of a
+ * failed attempt is kept on its lease row, and shards out of attempts show as failed in the
+ * run status.
+ */
+@Component
+public class MetricCollectionScheduler {
+
+    @Autowired
+    private MetricCollectionLeases leases;
+
+    @Autowired
+    private MetricCollectionPipeline metricCollectionPipeline;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private AnalyticsSketchService analyticsSketchService;
+
+    @Value("${analytics.collection.scheduler.enabled:false}")
+    private boolean enabled;
+
+    @Value("${analytics.collection.scheduler.retention-days:30}")
+    private int retentionDays;
+
+    /**
+     * Start the run for the previous day and work on it
+     */
+    @Scheduled(cron = "${analytics.collection.scheduler.cron:0 30 1 * * *}")
+    public void runNightly() {
+        if (!enabled) {
+            return;
+        }
+        startRun(LocalDate.now().minusDays(1));
+        work();
+    }
+
+    /**
+     * Pick up shards planned by other nodes or abandoned by failed ones
+     */
+    @Scheduled(fixedDelayString = "${analytics.collection.scheduler.poll-millis:60000}",
+               initialDelayString = "${analytics.collection.scheduler.poll-millis:60000}")
+    public void poll() {
+        if (enabled) {
+            work();
+        }
+    }
+
+    /**
+     * Open the run of a date, planning its shards when this node becomes leader; returns the
+     * state of the run's leases
+     */
+    public List<MetricCollectionLeases.LeaseStatus> startRun(LocalDate date) {
+        lead(date);
+        return leases.findStatus(date);
+    }
+
+    /**
+     * State of the run of a date
+     */
+    public List<MetricCollectionLeases.LeaseStatus> getRunStatus(LocalDate date) {
+        return leases.findStatus(date);
+    }
+
+    /**
+     * Claim and collect shards of every open run until none is left, then finish the runs
+     * this node leads; one pass at a time per node
+     */
+    public synchronized void work() {
+        for (LocalDate date : leases.findOpenRuns()) {
+            MetricCollectionLeases.Shard shard;
+            // A failed shard is left for the next poll rather than retried straight away
+            while ((shard = leases.claimNext(date)) != null && collect(shard)) {
+                // next shard
+            }
+            if (leases.countPendingShards(date) == 0 && lead(date)) {
+                // Re-planning can add tenants created since; they are collected on the next pass
+                if (leases.countPendingShards(date) == 0) {
+                    finish(date);
+                }
+            }
+        }
+    }
+
+    // Helper methods
+    private boolean lead(LocalDate date) {
+        if (!leases.acquireLeader(date)) {
+            return false;
+        }
+        List<Long> tenantIds = new ArrayList<>();
+        tenantIds.add(0L);
+        tenantIds.addAll(tenantRepository.findAllIds());
+        leases.planShards(date, tenantIds);
+        return true;
+    }
+
+    private boolean collect(MetricCollectionLeases.Shard shard) {
+        Set<String> completed = shard.getCompletedCollectors();
+        String error;
+        try {
+            MetricCollectionPipeline.CollectionReport report = metricCollectionPipeline.collect(shard.getDate(),
+                shard.getTenantId(), new LinkedHashSet<>(completed), collector -> {
+                    completed.add(collector);
+                    leases.checkpoint(shard);
+                });
+            error = errors(report);
+            if (error == null) {
+                leases.complete(shard.getDate(), shard.getShardKey());
+                return true;
+            }
+        } catch (RuntimeException e) {
+            // Lost lease or storage failure: the shard is retried from its last checkpoint
+            error = describe(e);
+        }
+        leases.release(shard.getDate(), shard.getShardKey(), error);
+        return false;
+    }
+
+    private void finish(LocalDate date) {
+        // Failures are recorded on the leader row and retried from the checkpoint on the next pass
+        try {
+            MetricCollectionLeases.Shard leader = leases.findShard(date, MetricCollectionLeases.LEADER);
+            Set<String> completed = leader.getCompletedCollectors();
+            MetricCollectionPipeline.CollectionReport report = metricCollectionPipeline.collect(date, null,
+                new LinkedHashSet<>(completed), collector -> {
+                    completed.add(collector);
+                    leases.checkpoint(leader);
+                });
+            String error = errors(report);
+            if (error != null) {
+                leases.recordError(date, MetricCollectionLeases.LEADER, error);
+                return;
+            }
+            analyticsSketchService.buildDailySketches(date);
+        } catch (RuntimeException e) {
+            leases.recordError(date, MetricCollectionLeases.LEADER, describe(e));
+            return;
+        }
+        leases.complete(date, MetricCollectionLeases.LEADER);
+        leases.purgeBefore(date.minusDays(retentionDays));
+    }
+
+    /**
+     * Errors of the failed collectors of a report, one "collector: error" per line, or null
+     */
+    private static String errors(MetricCollectionPipeline.CollectionReport report) {
+        StringBuilder errors = new StringBuilder();
+        for (MetricCollectionPipeline.CollectorResult result : report.getCollectors()) {
+            if (!result.isSucceeded()) {
+                errors.append(errors.length() > 0 ? "\n" : "").append(result.getName()).append(": ")
+                    .append(result.getError());
+            }
+        }
+        return errors.length() > 0 ? errors.toString() : null;
+    }
+
+    private static String describe(RuntimeException e) {
+        return e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+    }
+}
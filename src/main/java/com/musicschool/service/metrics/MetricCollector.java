@@ -0,0 +1,39 @@
+package com.musicschool.service.metrics;
+
+import com.musicschool.entity.Analytics;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A pluggable source of daily analytics metrics.
+ *
+ * Every collector bean is picked up by MetricCollectionPipeline and runs concurrently with
+ * the others in its own read-only transaction. Collectors only compute metrics; the pipeline
+ * stores the results of all successful collectors in one batch. A collector either covers the
+ * whole school or, for sharded runs, one tenant; tenant 0 stands for rows without a tenant.
+ */
+public interface MetricCollector {
+
+    /**
+     * Name used in timer tags and collection reports
+     */
+    String getName();
+
+    /**
+     * Compute the metrics of one day, for one tenant or the whole school when tenantId is null
+     */
+    List<Analytics> collect(LocalDate date, Long tenantId);
+
+    /**
+     * Build a metric recorded for the given day
+     */
+    static Analytics metric(Analytics.MetricType metricType, String metricName, BigDecimal metricValue, LocalDate date) {
+        Analytics analytics = new Analytics(metricType, metricName, metricValue);
+        analytics.setDateRecorded(date);
+        analytics.setTimestamp(LocalDateTime.now());
+        return analytics;
+    }
+}
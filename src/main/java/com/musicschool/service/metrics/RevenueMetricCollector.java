@@ -0,0 +1,57 @@
+package com.musicschool.service.metrics;
+
+import com.musicschool.entity.Analytics;
+import com.musicschool.entity.Payment;
+import com.musicschool.repository.PaymentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Daily revenue in total and per course instrument.
+ */
+@Component
+public class RevenueMetricCollector implements MetricCollector {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Override
+    public String getName() {
+        return "revenue";
+    }
+
+    @Override
+    public List<Analytics> collect(LocalDate date, Long tenantId) {
+        // One aggregate query over the day's payments gives both the total and the split
+        BigDecimal dailyRevenue = BigDecimal.ZERO;
+        Map<String, BigDecimal> revenueByInstrument = new TreeMap<>();
+        LocalDateTime from = date.atStartOfDay();
+        LocalDateTime to = date.plusDays(1).atStartOfDay();
+        List<Object[]> rows = tenantId == null
+            ? paymentRepository.sumRevenueByInstrument(Payment.PaymentStatus.COMPLETED, from, to)
+            : paymentRepository.sumRevenueByInstrumentForTenant(Payment.PaymentStatus.COMPLETED, from, to, tenantId);
+        for (Object[] row : rows) {
+            BigDecimal amount = row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO;
+            dailyRevenue = dailyRevenue.add(amount);
+            if (row[0] != null) {
+                revenueByInstrument.put(row[0].toString(), amount);
+            }
+        }
+        
+        List<Analytics> metrics = new ArrayList<>();
+        metrics.add(MetricCollector.metric(Analytics.MetricType.REVENUE, "daily_revenue", dailyRevenue, date));
+        for (Map.Entry<String, BigDecimal> entry : revenueByInstrument.entrySet()) {
+            metrics.add(MetricCollector.metric(Analytics.MetricType.REVENUE,
+                "revenue_by_instrument_" + entry.getKey(), entry.getValue(), date));
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,10 @@
+-- V10: Indexes for the daily analytics aggregates
+-- The daily job groups the rows of one [day, next day) window; leading with the timestamp
+-- turns each aggregate into a single index range scan instead of a full table scan.
+
+CREATE INDEX IF NOT EXISTS idx_students_created_at ON students (created_at, level);
+
+-- processed_at is mapped on Payment but was never part of the initial schema
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS processed_at TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_payments_processed_at ON payments (processed_at, status);
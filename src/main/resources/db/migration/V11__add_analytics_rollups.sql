@@ -0,0 +1,74 @@
+-- V11: Pre-aggregated analytics rollups
+-- One row per (tenant, granularity, period, metric) holding a running sum. The application
+-- upserts deltas as payments, students and lessons change; dashboards read these rows
+-- instead of aggregating raw history. tenant_id 0 collects rows without a tenant.
+
+CREATE SEQUENCE IF NOT EXISTS analytics_rollups_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS analytics_rollups (
+    id BIGINT PRIMARY KEY DEFAULT nextval('analytics_rollups_id_seq'),
+    tenant_id BIGINT NOT NULL DEFAULT 0,
+    granularity VARCHAR(10) NOT NULL,
+    period_start DATE NOT NULL,
+    metric_name VARCHAR(100) NOT NULL,
+    metric_value DECIMAL(19,4) NOT NULL DEFAULT 0,
+    sample_count BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT NOW(),
+    updated_at TIMESTAMP DEFAULT NOW(),
+    UNIQUE (tenant_id, granularity, period_start, metric_name)
+);
+
+-- Seed the rollups from existing history. Lessons count concrete schedule rows only;
+-- recurring series templates are expanded on demand and not rolled up.
+ALTER TABLE payments ADD COLUMN IF NOT EXISTS processed_at TIMESTAMP;
+
+INSERT INTO analytics_rollups (tenant_id, granularity, period_start, metric_name, metric_value, sample_count)
+SELECT tenant_id, 'DAY', day, metric_name, metric_value, sample_count FROM (
+    SELECT COALESCE(st.tenant_id, 0) AS tenant_id, CAST(p.processed_at AS DATE) AS day, 'revenue' AS metric_name,
+           SUM(p.amount) AS metric_value, COUNT(*) AS sample_count
+    FROM payments p LEFT JOIN students st ON st.id = p.student_id
+    WHERE p.status = 'COMPLETED' AND p.processed_at IS NOT NULL
+    GROUP BY 1, 2
+    UNION ALL
+    SELECT COALESCE(st.tenant_id, 0), CAST(p.processed_at AS DATE), 'payments_completed', COUNT(*), COUNT(*)
+    FROM payments p LEFT JOIN students st ON st.id = p.student_id
+    WHERE p.status = 'COMPLETED' AND p.processed_at IS NOT NULL
+    GROUP BY 1, 2
+    UNION ALL
+    SELECT COALESCE(tenant_id, 0), CAST(created_at AS DATE), 'enrollments', COUNT(*), COUNT(*)
+    FROM students
+    WHERE created_at IS NOT NULL
+    GROUP BY 1, 2
+    UNION ALL
+    SELECT COALESCE(c.tenant_id, 0), CAST(s.start_time AS DATE), 'lessons_scheduled', COUNT(*), COUNT(*)
+    FROM schedules s LEFT JOIN courses c ON c.id = s.course_id
+    WHERE s.recurrence_rule IS NULL AND (s.status IS NULL OR s.status <> 'CANCELLED')
+    GROUP BY 1, 2
+    UNION ALL
+    SELECT COALESCE(c.tenant_id, 0), CAST(s.start_time AS DATE), 'lesson_minutes',
+           SUM(EXTRACT(EPOCH FROM (s.end_time - s.start_time)) / 60), COUNT(*)
+    FROM schedules s LEFT JOIN courses c ON c.id = s.course_id
+    WHERE s.recurrence_rule IS NULL AND (s.status IS NULL OR s.status <> 'CANCELLED')
+    GROUP BY 1, 2
+    UNION ALL
+    SELECT COALESCE(c.tenant_id, 0), CAST(s.start_time AS DATE), 'lessons_cancelled', COUNT(*), COUNT(*)
+    FROM schedules s LEFT JOIN courses c ON c.id = s.course_id
+    WHERE s.recurrence_rule IS NULL AND s.status = 'CANCELLED'
+    GROUP BY 1, 2
+) AS seed
+ON CONFLICT (tenant_id, granularity, period_start, metric_name) DO NOTHING;
+
+-- Weeks (starting Monday) and months are summed from the seeded days
+INSERT INTO analytics_rollups (tenant_id, granularity, period_start, metric_name, metric_value, sample_count)
+SELECT tenant_id, 'WEEK', CAST(date_trunc('week', period_start) AS DATE), metric_name,
+       SUM(metric_value), SUM(sample_count)
+FROM analytics_rollups WHERE granularity = 'DAY'
+GROUP BY tenant_id, CAST(date_trunc('week', period_start) AS DATE), metric_name
+ON CONFLICT (tenant_id, granularity, period_start, metric_name) DO NOTHING;
+
+INSERT INTO analytics_rollups (tenant_id, granularity, period_start, metric_name, metric_value, sample_count)
+SELECT tenant_id, 'MONTH', CAST(date_trunc('month', period_start) AS DATE), metric_name,
+       SUM(metric_value), SUM(sample_count)
+FROM analytics_rollups WHERE granularity = 'DAY'
+GROUP BY tenant_id, CAST(date_trunc('month', period_start) AS DATE), metric_name
+ON CONFLICT (tenant_id, granularity, period_start, metric_name) DO NOTHING;
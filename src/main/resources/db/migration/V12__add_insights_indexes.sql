@@ -0,0 +1,11 @@
+-- V12: Indexes for the performance insights
+-- Foreign keys are not indexed automatically. Counting enrollments per course and courses per
+-- instructor (GROUP BY ... ORDER BY COUNT ... LIMIT) then reads each child table once in key
+-- order instead of joining through full scans.
+
+CREATE INDEX IF NOT EXISTS idx_enrollments_course_id ON enrollments (course_id);
+
+CREATE INDEX IF NOT EXISTS idx_courses_instructor_id ON courses (instructor_id);
+
+-- Total revenue sums one status; the stored amount makes it an index-only scan
+CREATE INDEX IF NOT EXISTS idx_payments_status_amount ON payments (status) INCLUDE (amount);
@@ -0,0 +1,40 @@
+-- V13: Attendance records and incrementally maintained attendance counters
+-- A record per (schedule, occurrence, student); recurring series share one schedule row, so
+-- the occurrence start is part of the key. Check-ins and absences add to the counters in the
+-- same transaction, so attendance rates and peak hours are read from a handful of rows.
+
+CREATE SEQUENCE IF NOT EXISTS attendance_records_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS attendance_records (
+    id BIGINT PRIMARY KEY DEFAULT nextval('attendance_records_id_seq'),
+    schedule_id BIGINT NOT NULL REFERENCES schedules(id),
+    occurrence_start TIMESTAMP NOT NULL,
+    student_id BIGINT NOT NULL REFERENCES students(id),
+    course_id BIGINT REFERENCES courses(id),
+    status VARCHAR(20) NOT NULL,
+    checked_in_at TIMESTAMP,
+    created_at TIMESTAMP DEFAULT NOW(),
+    updated_at TIMESTAMP DEFAULT NOW(),
+    UNIQUE (schedule_id, occurrence_start, student_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_attendance_records_student ON attendance_records (student_id, occurrence_start);
+
+-- Running totals per course
+CREATE TABLE IF NOT EXISTS attendance_course_counters (
+    course_id BIGINT PRIMARY KEY REFERENCES courses(id),
+    present_count BIGINT NOT NULL DEFAULT 0,
+    late_count BIGINT NOT NULL DEFAULT 0,
+    absent_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT NOW()
+);
+
+-- Running totals per day and hour of the lesson start
+CREATE TABLE IF NOT EXISTS attendance_hour_counters (
+    counter_date DATE NOT NULL,
+    hour_of_day INT NOT NULL,
+    attended_count BIGINT NOT NULL DEFAULT 0,
+    absent_count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT NOW(),
+    PRIMARY KEY (counter_date, hour_of_day)
+);
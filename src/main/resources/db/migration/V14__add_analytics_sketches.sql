@@ -0,0 +1,22 @@
+-- V14: Daily mergeable sketches per metric and dimension
+-- Each row holds a serialized HyperLogLog (distinct counts) or DDSketch (quantiles) for one
+-- day; weekly, monthly and yearly answers merge the daily rows instead of rescanning history.
+
+CREATE SEQUENCE IF NOT EXISTS analytics_sketches_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS analytics_sketches (
+    id BIGINT PRIMARY KEY DEFAULT nextval('analytics_sketches_id_seq'),
+    sketch_date DATE NOT NULL,
+    sketch_type VARCHAR(20) NOT NULL,
+    metric_name VARCHAR(100) NOT NULL,
+    dimension VARCHAR(100) NOT NULL,
+    payload BYTEA NOT NULL,
+    sample_count BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT NOW(),
+    updated_at TIMESTAMP DEFAULT NOW(),
+    UNIQUE (sketch_type, metric_name, dimension, sketch_date)
+);
+
+-- Building a day's sketches reads that day's attendance
+CREATE INDEX IF NOT EXISTS idx_attendance_records_occurrence ON attendance_records (occurrence_start)
+    INCLUDE (student_id, course_id, status);
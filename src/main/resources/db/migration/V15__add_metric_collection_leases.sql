@@ -0,0 +1,41 @@
+-- V15: Tenant-sharded metric collection
+-- Scheduled collection runs one shard per tenant (tenant 0 for rows without a tenant) and tags
+-- the metrics it writes with that tenant. Rows collected for the whole school keep a NULL tenant.
+
+-- analytics was created by Hibernate (ddl-auto) and is missing on a fresh database
+CREATE TABLE IF NOT EXISTS analytics (
+    id BIGINT PRIMARY KEY DEFAULT nextval('analytics_id_seq'),
+    metric_type VARCHAR(255) NOT NULL,
+    metric_name VARCHAR(255),
+    metric_value DECIMAL(15,4),
+    date_recorded DATE,
+    timestamp TIMESTAMP,
+    dimensions TEXT,
+    category VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP
+);
+
+ALTER TABLE analytics ADD COLUMN IF NOT EXISTS tenant_id BIGINT;
+
+CREATE INDEX IF NOT EXISTS idx_analytics_tenant_date ON analytics (tenant_id, date_recorded);
+
+-- One 'leader' row per collection date plans the shards and finishes the run; one row per
+-- tenant shard is leased by the node working on it. completed_collectors is the shard's
+-- checkpoint, updated in the same transaction as the metrics of each collector.
+CREATE TABLE IF NOT EXISTS metric_collection_leases (
+    collection_date DATE NOT NULL,
+    shard_key VARCHAR(50) NOT NULL,
+    tenant_id BIGINT,
+    owner VARCHAR(200),
+    lease_until TIMESTAMP,
+    completed_collectors VARCHAR(1000) NOT NULL DEFAULT '',
+    attempts INT NOT NULL DEFAULT 0,
+    completed_at TIMESTAMP,
+    created_at TIMESTAMP DEFAULT NOW(),
+    updated_at TIMESTAMP DEFAULT NOW(),
+    PRIMARY KEY (collection_date, shard_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_metric_collection_leases_open ON metric_collection_leases (shard_key, collection_date)
+    WHERE completed_at IS NULL;
@@ -0,0 +1,16 @@
+-- V16: Asynchronous report generation
+-- Reports submitted as jobs carry their period, progress and retry state; the result is
+-- written to file_path by a worker. The type column is widened for INSTRUCTOR_PERFORMANCE.
+
+ALTER TABLE reports ALTER COLUMN type TYPE VARCHAR(30);
+
+ALTER TABLE reports ADD COLUMN IF NOT EXISTS period_start DATE;
+ALTER TABLE reports ADD COLUMN IF NOT EXISTS period_end DATE;
+ALTER TABLE reports ADD COLUMN IF NOT EXISTS progress INT NOT NULL DEFAULT 0;
+ALTER TABLE reports ADD COLUMN IF NOT EXISTS attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE reports ADD COLUMN IF NOT EXISTS error_message VARCHAR(1000);
+ALTER TABLE reports ADD COLUMN IF NOT EXISTS started_at TIMESTAMP;
+ALTER TABLE reports ADD COLUMN IF NOT EXISTS completed_at TIMESTAMP;
+
+-- The sweeper looks reports up by status and age
+CREATE INDEX IF NOT EXISTS idx_reports_status_generated ON reports (status, generated_at);
@@ -0,0 +1,5 @@
+-- V17: Compressed report payloads
+-- Saved report data is stored as a format version byte followed by gzip-compressed JSON,
+-- replacing the hand-built JSON previously written to the parameters column.
+
+ALTER TABLE reports ADD COLUMN IF NOT EXISTS payload BYTEA;
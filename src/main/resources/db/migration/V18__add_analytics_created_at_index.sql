@@ -0,0 +1,5 @@
+-- V18: Index for tailing new analytics rows
+-- Every node refreshes its in-memory metric store with the rows created since its last
+-- refresh; the index keeps that a short range scan.
+
+CREATE INDEX IF NOT EXISTS idx_analytics_created_at ON analytics (created_at);
@@ -0,0 +1,5 @@
+-- V19: Errors of metric collection shards
+-- A shard released after a failed attempt keeps the error, so runs that stop with shards out
+-- of attempts show why. The leader row records failures of the school-wide collection.
+
+ALTER TABLE metric_collection_leases ADD COLUMN IF NOT EXISTS last_error TEXT;
@@ -0,0 +1,13 @@
+-- V20: Partial indexes for series templates per resource
+-- Overlap lookups fetch single lessons through the V5 indexes and series templates through
+-- these, so neither predicate has to be OR'd into the other's range scan. Only templates
+-- carry a recurrence rule, which keeps these indexes small.
+
+CREATE INDEX IF NOT EXISTS idx_schedules_instructor_series ON schedules (instructor_id, start_time)
+    WHERE recurrence_rule IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_schedules_student_series ON schedules (student_id, start_time)
+    WHERE recurrence_rule IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_schedules_room_series ON schedules (room, start_time)
+    WHERE recurrence_rule IS NOT NULL;
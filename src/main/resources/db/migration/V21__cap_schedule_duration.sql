@@ -0,0 +1,10 @@
+-- V21: Cap the length of a schedule entry
+-- Overlap lookups only scan start_time from :start - 12 hours (Schedule.MAX_DURATION), so a
+-- longer entry would be missed by conflict checks. The service rejects such entries; this
+-- also covers rows written through the repository REST endpoints.
+-- NOT VALID leaves existing rows unchecked; list any that exceed the cap with
+--   SELECT id, start_time, end_time FROM schedules WHERE end_time > start_time + INTERVAL '12 hours';
+-- then shorten or split them and run VALIDATE CONSTRAINT chk_schedules_max_duration.
+
+ALTER TABLE schedules ADD CONSTRAINT chk_schedules_max_duration
+    CHECK (end_time <= start_time + INTERVAL '12 hours') NOT VALID;
@@ -0,0 +1,10 @@
+-- V22: Track which recurring series are included in the analytics rollups
+-- The V11 seed counted concrete schedule rows only, while series created since have added
+-- and removed their occurrences as they changed. Series from before the seed stay NULL and
+-- are skipped, so cancelling them cannot drive the rollups negative.
+
+ALTER TABLE schedules ADD COLUMN IF NOT EXISTS counted_in_rollups BOOLEAN;
+
+UPDATE schedules SET counted_in_rollups = TRUE
+WHERE recurrence_rule IS NOT NULL
+  AND created_at >= (SELECT installed_on FROM flyway_schema_history WHERE version = '11');
@@ -0,0 +1,9 @@
+-- V5: Composite indexes for schedule overlap lookups
+-- Conflict detection filters on "start_time < :end AND end_time > :start" per resource.
+-- Leading with the resource column keeps each lookup to a single index range scan.
+
+CREATE INDEX IF NOT EXISTS idx_schedules_instructor_time ON schedules (instructor_id, start_time, end_time);
+
+CREATE INDEX IF NOT EXISTS idx_schedules_student_time ON schedules (student_id, start_time, end_time);
+
+CREATE INDEX IF NOT EXISTS idx_schedules_room_time ON schedules (room, start_time, end_time);
@@ -0,0 +1,41 @@
+-- V6: Sequence-based ids for JDBC batch inserts
+-- Entities now draw ids from "<table>_id_seq" with Hibernate's pooled optimizer (allocation size 50).
+-- PostgreSQL already created these sequences for the SERIAL keys; CockroachDB backs SERIAL with
+-- unique_rowid() instead, so any missing sequence is created here. Each sequence must advance by
+-- the allocation size so pooled blocks never overlap.
+
+CREATE SEQUENCE IF NOT EXISTS tenant_id_seq INCREMENT BY 50;
+ALTER SEQUENCE tenant_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS students_id_seq INCREMENT BY 50;
+ALTER SEQUENCE students_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS instructors_id_seq INCREMENT BY 50;
+ALTER SEQUENCE instructors_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS courses_id_seq INCREMENT BY 50;
+ALTER SEQUENCE courses_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS enrollments_id_seq INCREMENT BY 50;
+ALTER SEQUENCE enrollments_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS schedules_id_seq INCREMENT BY 50;
+ALTER SEQUENCE schedules_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS payments_id_seq INCREMENT BY 50;
+ALTER SEQUENCE payments_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS audit_logs_id_seq INCREMENT BY 50;
+ALTER SEQUENCE audit_logs_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS reports_id_seq INCREMENT BY 50;
+ALTER SEQUENCE reports_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS schedule_conflicts_id_seq INCREMENT BY 50;
+ALTER SEQUENCE schedule_conflicts_id_seq INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS analytics_id_seq INCREMENT BY 50;
+ALTER SEQUENCE analytics_id_seq INCREMENT BY 50;
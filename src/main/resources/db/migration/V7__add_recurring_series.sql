@@ -0,0 +1,23 @@
+-- V7: Lazily expanded recurring series
+-- A series is stored once as a template row carrying an RRULE; its occurrences are expanded
+-- per query window. series_end bounds the template in range queries (NULL = unbounded).
+-- Excluded occurrences (EXDATE) live in schedule_exceptions; a moved occurrence also gets a
+-- detached schedules row pointing back to the series through parent_schedule_id.
+
+ALTER TABLE schedules ADD COLUMN IF NOT EXISTS recurrence_rule VARCHAR(255);
+ALTER TABLE schedules ADD COLUMN IF NOT EXISTS series_end TIMESTAMP;
+
+CREATE SEQUENCE IF NOT EXISTS schedule_exceptions_id_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS schedule_exceptions (
+    id BIGINT PRIMARY KEY DEFAULT nextval('schedule_exceptions_id_seq'),
+    series_id BIGINT NOT NULL,
+    original_start TIMESTAMP NOT NULL,
+    replacement_schedule_id BIGINT,
+    reason VARCHAR(255),
+    created_at TIMESTAMP DEFAULT NOW(),
+    updated_at TIMESTAMP DEFAULT NOW(),
+    FOREIGN KEY (series_id) REFERENCES schedules(id),
+    FOREIGN KEY (replacement_schedule_id) REFERENCES schedules(id),
+    UNIQUE (series_id, original_start)
+);
@@ -0,0 +1,37 @@
+-- V8: Schedule conflicts as an incrementally maintained graph
+-- Each unresolved row is an undirected edge (schedule_id < conflicting_schedule_id, conflict_type).
+-- Moving or cancelling a schedule recomputes only its adjacent edges and resolves stale ones,
+-- so the unresolved set stays proportional to real conflicts.
+
+-- Align the table with the entity
+ALTER TABLE schedule_conflicts ADD COLUMN IF NOT EXISTS conflicting_schedule_id BIGINT REFERENCES schedules(id);
+ALTER TABLE schedule_conflicts ADD COLUMN IF NOT EXISTS description VARCHAR(500);
+ALTER TABLE schedule_conflicts ADD COLUMN IF NOT EXISTS resolution_notes VARCHAR(1000);
+ALTER TABLE schedule_conflicts ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP DEFAULT NOW();
+-- INSTRUCTOR_DOUBLE_BOOKING does not fit the original VARCHAR(20)
+ALTER TABLE schedule_conflicts ALTER COLUMN conflict_type TYPE VARCHAR(30);
+
+-- Normalize edge direction
+UPDATE schedule_conflicts
+SET schedule_id = conflicting_schedule_id, conflicting_schedule_id = schedule_id
+WHERE conflicting_schedule_id IS NOT NULL AND schedule_id > conflicting_schedule_id;
+
+-- Keep one unresolved row per edge
+UPDATE schedule_conflicts
+SET resolved = TRUE, resolved_at = NOW(), resolution_notes = 'Resolved automatically: duplicate conflict'
+WHERE resolved = FALSE
+  AND conflicting_schedule_id IS NOT NULL
+  AND id NOT IN (
+      SELECT MIN(id) FROM schedule_conflicts
+      WHERE resolved = FALSE AND conflicting_schedule_id IS NOT NULL
+      GROUP BY schedule_id, conflicting_schedule_id, conflict_type
+  );
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_schedule_conflicts_open_edge
+    ON schedule_conflicts (schedule_id, conflicting_schedule_id, conflict_type) WHERE resolved = FALSE;
+
+CREATE INDEX IF NOT EXISTS idx_schedule_conflicts_open_conflicting
+    ON schedule_conflicts (conflicting_schedule_id) WHERE resolved = FALSE;
+
+CREATE INDEX IF NOT EXISTS idx_schedule_conflicts_open_type
+    ON schedule_conflicts (conflict_type) WHERE resolved = FALSE;
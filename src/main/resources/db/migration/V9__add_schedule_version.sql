@@ -0,0 +1,5 @@
+-- V9: Optimistic locking for schedules
+-- Concurrent reschedules or cancellations of the same entry now fail with an optimistic lock
+-- error instead of silently overwriting each other.
+
+ALTER TABLE schedules ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,105 @@
+package com.musicschool.config;
+
+import com.musicschool.entity.Course;
+import com.musicschool.entity.Enrollment;
+import com.musicschool.entity.Instructor;
+import com.musicschool.entity.Student;
+import com.musicschool.entity.Tenant;
+import com.musicschool.repository.CourseRepository;
+import com.musicschool.repository.EnrollmentRepository;
+import com.musicschool.repository.InstructorRepository;
+import com.musicschool.repository.StudentRepository;
+import com.musicschool.repository.TenantRepository;
+import com.musicschool.service.InsightsLeaderboard;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The leaderboard follows courses and enrollments as they are created, reassigned and deleted.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class InsightsLeaderboardListenerTest {
+
+    // More entries than the test database holds
+    private static final int EVERYONE = 100_000;
+
+    @Autowired
+    private InsightsLeaderboard leaderboard;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private InstructorRepository instructorRepository;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Test
+    void boardsFollowCoursesAndEnrollments() {
+        assertTrue(leaderboard.isLoaded());
+        String key = UUID.randomUUID().toString();
+        Tenant tenant = tenantRepository.save(new Tenant("Leaderboard", "leaderboard-" + key, "admin@musicschool.test"));
+        Instructor first = instructor(key + "-1");
+        Instructor second = instructor(key + "-2");
+        assertTrue(leaderboard.topInstructors(EVERYONE).contains(first.getId()));
+
+        Course piano = course("Piano", first, tenant);
+        Course violin = course("Violin", first, tenant);
+        assertEquals(2, leaderboard.instructorCourseCount(first.getId()));
+
+        Student student = studentRepository.save(new Student("Board", "Student",
+            "board-" + key + "@musicschool.test", LocalDate.of(2010, 1, 1)));
+        Enrollment enrollment = enrollmentRepository.save(new Enrollment(student, piano));
+        assertEquals(1, leaderboard.courseEnrollmentCount(piano.getId()));
+
+        // Reassignments move the counts from the previous instructor and course
+        Course reassigned = courseRepository.findById(violin.getId()).orElseThrow();
+        reassigned.setInstructor(second);
+        courseRepository.save(reassigned);
+        assertEquals(1, leaderboard.instructorCourseCount(first.getId()));
+        assertEquals(1, leaderboard.instructorCourseCount(second.getId()));
+
+        Enrollment moved = enrollmentRepository.findById(enrollment.getId()).orElseThrow();
+        moved.setCourse(violin);
+        enrollmentRepository.save(moved);
+        assertEquals(0, leaderboard.courseEnrollmentCount(piano.getId()));
+        assertEquals(1, leaderboard.courseEnrollmentCount(violin.getId()));
+
+        // Deleting a course takes it and its instructor's count off the boards
+        courseRepository.delete(courseRepository.findById(violin.getId()).orElseThrow());
+        assertFalse(leaderboard.topCourses(EVERYONE).contains(violin.getId()));
+        assertEquals(0, leaderboard.instructorCourseCount(second.getId()));
+        assertEquals(1, leaderboard.instructorCourseCount(first.getId()));
+    }
+
+    // Helper methods
+    private Instructor instructor(String key) {
+        Instructor instructor = new Instructor("Board", "Instructor", "board-" + key + "@musicschool.test",
+            LocalDate.of(1980, 1, 1));
+        instructor.setHireDate(LocalDate.of(2020, 9, 1));
+        return instructorRepository.save(instructor);
+    }
+
+    private Course course(String name, Instructor instructor, Tenant tenant) {
+        Course course = new Course(name, instructor, Course.Instrument.PIANO, Course.CourseLevel.BEGINNER);
+        course.setTenant(tenant);
+        return courseRepository.save(course);
+    }
+}
@@ -0,0 +1,111 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Schedule;
+import com.musicschool.repository.AnalyticsRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Unit tests for buffering rollup deltas per transaction.
+ */
+@ExtendWith(MockitoExtension.class)
+class AnalyticsRollupServiceTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2030, 1, 7, 10, 0);
+
+    @Mock
+    private AnalyticsRollupRepository rollupRepository;
+
+    @Mock
+    private RecurrenceExpander recurrenceExpander;
+
+    @InjectMocks
+    private AnalyticsRollupService analyticsRollupService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(analyticsRollupService, "enabled", true);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void mergesDeltasAndUpsertsThemInKeyOrderBeforeCommit() {
+        analyticsRollupService.recordLesson(lesson(MONDAY, 60), 1);
+        analyticsRollupService.recordLesson(lesson(MONDAY.plusHours(4), 45), 1);
+        // Added and removed again within the transaction: nets out on Tuesday
+        Schedule moved = lesson(MONDAY.plusDays(1), 60);
+        analyticsRollupService.recordLesson(moved, 1);
+        analyticsRollupService.recordLesson(moved, -1);
+
+        verifyNoInteractions(rollupRepository);
+        commit();
+
+        InOrder order = inOrder(rollupRepository);
+        for (String granularity : new String[] {"DAY", "WEEK", "MONTH"}) {
+            LocalDate period = granularity.equals("MONTH") ? LocalDate.of(2030, 1, 1) : LocalDate.of(2030, 1, 7);
+            order.verify(rollupRepository).addDelta(0L, granularity, period, AnalyticsRollupService.LESSON_MINUTES,
+                BigDecimal.valueOf(105), 2L);
+            order.verify(rollupRepository).addDelta(0L, granularity, period, AnalyticsRollupService.LESSONS_SCHEDULED,
+                BigDecimal.valueOf(2), 2L);
+        }
+        verify(rollupRepository, never()).addDelta(anyLong(), eq("DAY"), eq(LocalDate.of(2030, 1, 8)), anyString(),
+            any(), anyLong());
+        order.verifyNoMoreInteractions();
+    }
+
+    @Test
+    void skipsSeriesCreatedBeforeTheRollupsWereSeeded() {
+        Schedule series = lesson(MONDAY, 60);
+        series.setId(10L);
+        series.setRecurrenceRule("FREQ=WEEKLY;COUNT=10");
+        series.setSeriesEnd(MONDAY.plusWeeks(9).plusHours(1));
+
+        analyticsRollupService.recordLesson(series, -1);
+        analyticsRollupService.recordCancellation(series);
+        analyticsRollupService.recordOccurrenceExcluded(series, MONDAY.plusWeeks(1), true);
+        commit();
+
+        verifyNoInteractions(rollupRepository, recurrenceExpander);
+    }
+
+    private static Schedule lesson(LocalDateTime start, int minutes) {
+        return new Schedule(start, start.plusMinutes(minutes), Schedule.ScheduleType.LESSON);
+    }
+
+    private static void commit() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
@@ -0,0 +1,92 @@
+package com.musicschool.service;
+
+import com.musicschool.service.SchedulingService.TimeSlot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hourly availability of a room over one month: the previous loop, which checked every
+ * busy interval for every hour of the range, against AvailabilityEngine.
+ *
+ * Both start from the busy intervals already loaded, so only the computation is measured.
+ * Run with:
+ *   mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/test.classpath
+ *   java -cp target/test-classes:target/classes:$(cat target/test.classpath) \
+ *       com.musicschool.service.AvailabilityBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvailabilityBenchmark {
+
+    private static final LocalDateTime START = LocalDateTime.of(2030, 3, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(31);
+
+    @Param({"100", "1000"})
+    private int schedules;
+
+    private List<TimeSlot> busy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        busy = new ArrayList<>(schedules);
+        for (int i = 0; i < schedules; i++) {
+            // Lessons of 30 to 120 minutes between 8:00 and 20:00, on a quarter-hour grid
+            LocalDateTime start = START.plusDays(random.nextInt(31)).plusHours(8).plusMinutes(15L * random.nextInt(48));
+            busy.add(new TimeSlot(start, start.plusMinutes(30L * (1 + random.nextInt(4)))));
+        }
+    }
+
+    @Benchmark
+    public List<TimeSlot> hourlyScan() {
+        List<TimeSlot> availability = new ArrayList<>();
+        LocalDateTime current = START;
+        while (current.isBefore(END)) {
+            LocalDateTime slotEnd = current.plusHours(1);
+            final LocalDateTime slotStart = current;
+            boolean isAvailable = busy.stream()
+                .noneMatch(s -> slotStart.isBefore(s.getEndTime()) && slotEnd.isAfter(s.getStartTime()));
+            if (isAvailable) {
+                availability.add(new TimeSlot(slotStart, slotEnd));
+            }
+            current = current.plusHours(1);
+        }
+        return availability;
+    }
+
+    @Benchmark
+    public List<TimeSlot> availabilityEngine() {
+        return AvailabilityEngine.slots(
+            AvailabilityEngine.freeIntervals(START, END, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT, busy),
+            START, Duration.ofHours(1));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AvailabilityBenchmark.class.getSimpleName()).build()).run();
+    }
+}
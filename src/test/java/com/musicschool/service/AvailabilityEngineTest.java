@@ -0,0 +1,136 @@
+package com.musicschool.service;
+
+import com.musicschool.service.SchedulingService.TimeSlot;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for the sweep-line availability engine, checked against slot-by-slot scans.
+ */
+class AvailabilityEngineTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 3, 1, 0, 0);
+
+    @Test
+    void matchesHourlyScan() {
+        Random random = new Random(42);
+        for (int run = 0; run < 300; run++) {
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(48) * 30L);
+            LocalDateTime end = start.plusHours(1 + random.nextInt(24 * 14));
+            List<TimeSlot> busy = randomBusy(random, start, end, random.nextInt(60));
+
+            List<TimeSlot> expected = hourlyScan(start, end, busy);
+            List<TimeSlot> actual = AvailabilityEngine.slots(
+                AvailabilityEngine.freeIntervals(start, end, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT, busy),
+                start, Duration.ofHours(1));
+
+            assertSameSlots(expected, actual);
+        }
+    }
+
+    @Test
+    void matchesSlotScanWithWorkingHours() {
+        Random random = new Random(7);
+        int[] slotMinutes = {15, 30, 45, 60, 90, 120};
+        for (int run = 0; run < 300; run++) {
+            LocalDateTime start = BASE.plusMinutes(random.nextInt(96) * 15L);
+            LocalDateTime end = start.plusMinutes(15L * (1 + random.nextInt(4 * 24 * 5)));
+            LocalTime dayStart = LocalTime.of(random.nextInt(24), random.nextInt(4) * 15);
+            // Equal bounds mean the whole day, an earlier end wraps past midnight
+            LocalTime dayEnd = random.nextInt(5) == 0 ? dayStart : LocalTime.of(random.nextInt(24), random.nextInt(4) * 15);
+            Duration slotLength = Duration.ofMinutes(slotMinutes[random.nextInt(slotMinutes.length)]);
+            List<TimeSlot> busy = randomBusy(random, start, end, random.nextInt(40));
+
+            List<TimeSlot> expected = slotScan(start, end, dayStart, dayEnd, busy, slotLength);
+            List<TimeSlot> actual = AvailabilityEngine.slots(
+                AvailabilityEngine.freeIntervals(start, end, dayStart, dayEnd, busy), start, slotLength);
+
+            assertSameSlots(expected, actual);
+        }
+    }
+
+    @Test
+    void mergesOverlappingAndTouchingIntervals() {
+        List<TimeSlot> merged = AvailabilityEngine.merge(List.of(
+            slot(10, 11), slot(8, 9), slot(9, 10), slot(12, 14), slot(13, 13), slot(12, 13)));
+
+        assertSameSlots(List.of(slot(8, 11), slot(12, 14)), merged);
+    }
+
+    @Test
+    void rejectsNonPositiveSlotLength() {
+        List<TimeSlot> free = List.of(slot(8, 12));
+
+        assertThrows(IllegalArgumentException.class, () -> AvailabilityEngine.slots(free, BASE, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class,
+            () -> AvailabilityEngine.slots(free, BASE, Duration.ofMinutes(-30)));
+    }
+
+    // Helper methods
+    /**
+     * The hourly loop the engine replaced: every hour of the range, checked against every busy interval
+     */
+    private static List<TimeSlot> hourlyScan(LocalDateTime start, LocalDateTime end, List<TimeSlot> busy) {
+        return slotScan(start, end, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT, busy, Duration.ofHours(1));
+    }
+
+    private static List<TimeSlot> slotScan(LocalDateTime start, LocalDateTime end, LocalTime dayStart,
+                                           LocalTime dayEnd, List<TimeSlot> busy, Duration slotLength) {
+        List<TimeSlot> slots = new ArrayList<>();
+        for (LocalDateTime current = start; !current.plus(slotLength).isAfter(end); current = current.plus(slotLength)) {
+            LocalDateTime slotStart = current;
+            LocalDateTime slotEnd = current.plus(slotLength);
+            boolean free = busy.stream().noneMatch(b -> b.getStartTime().isBefore(slotEnd) && b.getEndTime().isAfter(slotStart));
+            // Times are on a 15-minute grid, so checking each quarter hour covers the slot
+            for (LocalDateTime t = slotStart; free && t.isBefore(slotEnd); t = t.plusMinutes(15)) {
+                free = isWorkingTime(t.toLocalTime(), dayStart, dayEnd);
+            }
+            if (free) {
+                slots.add(new TimeSlot(slotStart, slotEnd));
+            }
+        }
+        return slots;
+    }
+
+    private static boolean isWorkingTime(LocalTime time, LocalTime dayStart, LocalTime dayEnd) {
+        if (dayStart.equals(dayEnd)) {
+            return true;
+        }
+        if (dayStart.isBefore(dayEnd)) {
+            return !time.isBefore(dayStart) && time.isBefore(dayEnd);
+        }
+        return !time.isBefore(dayStart) || time.isBefore(dayEnd);
+    }
+
+    private static List<TimeSlot> randomBusy(Random random, LocalDateTime start, LocalDateTime end, int count) {
+        long minutes = Duration.between(start, end).toMinutes();
+        List<TimeSlot> busy = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Some intervals start before or end after the range
+            LocalDateTime busyStart = start.plusMinutes(15L * (random.nextInt((int) (minutes / 15) + 8) - 4));
+            busy.add(new TimeSlot(busyStart, busyStart.plusMinutes(15L * (1 + random.nextInt(16)))));
+        }
+        return busy;
+    }
+
+    private static TimeSlot slot(int startHour, int endHour) {
+        return new TimeSlot(BASE.plusHours(startHour), BASE.plusHours(endHour));
+    }
+
+    private static void assertSameSlots(List<TimeSlot> expected, List<TimeSlot> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getStartTime(), actual.get(i).getStartTime());
+            assertEquals(expected.get(i).getEndTime(), actual.get(i).getEndTime());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.musicschool.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for LTTB downsampling.
+ */
+class DownsamplerTest {
+
+    @Test
+    void keepsEveryPointUpToTheThreshold() {
+        long[] timestamps = {0, 10, 20, 30};
+        double[] values = {1, 2, 3, 4};
+
+        assertArrayEquals(new int[] {0, 1, 2, 3}, Downsampler.lttb(timestamps, values, 4, 4));
+        assertArrayEquals(new int[] {0, 1, 2}, Downsampler.lttb(timestamps, values, 3, 10));
+    }
+
+    @Test
+    void picksThePointFormingTheLargestTriangle() {
+        long[] timestamps = {0, 1, 2, 3, 4};
+        double[] values = {0, 1, 10, 1, 0};
+
+        assertArrayEquals(new int[] {0, 2, 4}, Downsampler.lttb(timestamps, values, 5, 3));
+    }
+
+    @Test
+    void keepsSpikesOfAFlatSeries() {
+        int size = 10_000;
+        long[] timestamps = new long[size];
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = i * 60_000L;
+        }
+        values[1234] = 500;
+        values[7777] = -300;
+
+        int[] kept = Downsampler.lttb(timestamps, values, size, 100);
+
+        assertTrue(contains(kept, 1234));
+        assertTrue(contains(kept, 7777));
+    }
+
+    @Test
+    void keepsFirstAndLastAndOnePointPerBucket() {
+        Random random = new Random(7);
+        for (int run = 0; run < 200; run++) {
+            int size = 3 + random.nextInt(2000);
+            int threshold = 3 + random.nextInt(size);
+            long[] timestamps = new long[size];
+            double[] values = new double[size];
+            long timestamp = random.nextInt(1000);
+            for (int i = 0; i < size; i++) {
+                timestamp += 1 + random.nextInt(100);
+                timestamps[i] = timestamp;
+                values[i] = random.nextGaussian() * 100;
+            }
+
+            int[] kept = Downsampler.lttb(timestamps, values, size, threshold);
+
+            assertEquals(Math.min(size, threshold), kept.length);
+            assertEquals(0, kept[0]);
+            assertEquals(size - 1, kept[kept.length - 1]);
+            for (int i = 1; i < kept.length; i++) {
+                assertTrue(kept[i - 1] < kept[i]);
+            }
+            if (threshold < size) {
+                // Interior point i comes from bucket i - 1 of the size - 2 interior points
+                double every = (double) (size - 2) / (threshold - 2);
+                for (int i = 1; i < kept.length - 1; i++) {
+                    assertTrue(kept[i] >= (int) ((i - 1) * every) + 1);
+                    assertTrue(kept[i] < (int) (i * every) + 1);
+                }
+            }
+        }
+    }
+
+    // Helper methods
+    private static boolean contains(int[] indices, int index) {
+        for (int i : indices) {
+            if (i == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,125 @@
+package com.musicschool.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the HyperLogLog distinct-count sketch: error bounds, merges and serialization.
+ */
+class HyperLogLogTest {
+
+    private static final int PRECISION = 12;
+    // Three standard errors at precision 12 (1.04 / sqrt(4096))
+    private static final double MAX_ERROR = 3 * 1.04 / Math.sqrt(1 << PRECISION);
+
+    @Test
+    void estimatesWithinErrorBound() {
+        for (int distinct : new int[] {10, 100, 1_000, 10_000, 100_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog(PRECISION);
+            for (long id = 1; id <= distinct; id++) {
+                sketch.add(id);
+            }
+            assertWithinBound(distinct, sketch.estimate());
+        }
+    }
+
+    @Test
+    void ignoresRepeatedValues() {
+        HyperLogLog once = new HyperLogLog(PRECISION);
+        for (long id = 0; id < 5_000; id++) {
+            once.add(id);
+        }
+        // Every id ten times, in random order
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            LongStream.range(0, 5_000).forEach(ids::add);
+        }
+        Collections.shuffle(ids, new Random(42));
+        HyperLogLog repeated = new HyperLogLog(PRECISION);
+        ids.forEach(repeated::add);
+
+        assertEquals(0, new HyperLogLog(PRECISION).estimate());
+        assertArrayEquals(once.toBytes(), repeated.toBytes());
+    }
+
+    @Test
+    void mergeEqualsSketchOfTheUnion() {
+        // Daily active students: overlapping sets merged into a weekly count
+        HyperLogLog week = new HyperLogLog(PRECISION);
+        HyperLogLog union = new HyperLogLog(PRECISION);
+        for (int day = 0; day < 7; day++) {
+            HyperLogLog daily = new HyperLogLog(PRECISION);
+            for (long id = day * 2_000L; id < day * 2_000L + 10_000; id++) {
+                daily.add(id);
+                union.add(id);
+            }
+            week.merge(daily);
+            // Merging the same day twice changes nothing
+            week.merge(daily);
+        }
+
+        assertArrayEquals(union.toBytes(), week.toBytes());
+        assertWithinBound(22_000, week.estimate());
+    }
+
+    @Test
+    void mergeIsOrderIndependent() {
+        HyperLogLog first = sketch(0, 30_000);
+        HyperLogLog second = sketch(20_000, 50_000);
+        HyperLogLog left = sketch(0, 0);
+        left.merge(first);
+        left.merge(second);
+        HyperLogLog right = sketch(0, 0);
+        right.merge(second);
+        right.merge(first);
+
+        assertArrayEquals(left.toBytes(), right.toBytes());
+        assertWithinBound(50_000, left.estimate());
+    }
+
+    @Test
+    void rejectsMergeOfDifferentPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(12).merge(new HyperLogLog(14)));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(19));
+    }
+
+    @Test
+    void roundTripsSparseAndDenseForms() {
+        for (int distinct : new int[] {0, 50, 100_000}) {
+            HyperLogLog sketch = sketch(0, distinct);
+            byte[] bytes = sketch.toBytes();
+            HyperLogLog copy = HyperLogLog.fromBytes(bytes);
+
+            assertEquals(PRECISION, copy.getPrecision());
+            assertEquals(sketch.estimate(), copy.estimate());
+            assertArrayEquals(bytes, copy.toBytes());
+        }
+        // A few values are stored sparsely, far below the 4 KB of registers
+        assertTrue(sketch(0, 50).toBytes().length < 200);
+    }
+
+    // Helper methods
+    private static HyperLogLog sketch(long fromId, long toId) {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (long id = fromId; id < toId; id++) {
+            sketch.add(id);
+        }
+        return sketch;
+    }
+
+    private static void assertWithinBound(long expected, long estimate) {
+        double error = Math.abs(estimate - expected) / (double) expected;
+        assertTrue(error <= MAX_ERROR, "estimate " + estimate + " for " + expected + " distinct values");
+    }
+}
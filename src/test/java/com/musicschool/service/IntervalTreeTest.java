@@ -0,0 +1,80 @@
+package com.musicschool.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the interval tree against a linear scan of the same intervals.
+ */
+class IntervalTreeTest {
+
+    @Test
+    void halfOpenIntervalsOnlyOverlapWhenTheyShareTime() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(1, 10, 20);
+
+        assertEquals(List.of(1L), tree.findOverlapping(19, 30));
+        assertEquals(List.of(1L), tree.findOverlapping(0, 11));
+        assertTrue(tree.findOverlapping(20, 30).isEmpty());
+        assertTrue(tree.findOverlapping(0, 10).isEmpty());
+    }
+
+    @Test
+    void removeOnlyDropsTheMatchingEntry() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(1, 10, 20);
+        tree.insert(2, 10, 30);
+
+        tree.remove(1, 10);
+
+        assertEquals(List.of(2L), tree.findOverlapping(0, 100));
+        assertEquals(1, tree.size());
+        tree.remove(2, 10);
+        assertTrue(tree.isEmpty());
+    }
+
+    @Test
+    void randomInsertsAndRemovesMatchLinearScan() {
+        Random random = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        Map<Long, long[]> live = new HashMap<>();
+        long nextId = 0;
+
+        for (int step = 0; step < 20_000; step++) {
+            if (live.isEmpty() || random.nextInt(3) > 0) {
+                long start = random.nextInt(10_000);
+                long end = start + 1 + random.nextInt(200);
+                tree.insert(nextId, start, end);
+                live.put(nextId++, new long[] {start, end});
+            } else {
+                List<Long> ids = new ArrayList<>(live.keySet());
+                long id = ids.get(random.nextInt(ids.size()));
+                tree.remove(id, live.remove(id)[0]);
+            }
+
+            if (step % 50 == 0) {
+                long from = random.nextInt(10_000);
+                long to = from + 1 + random.nextInt(500);
+                List<Long> expected = new ArrayList<>();
+                for (Map.Entry<Long, long[]> entry : live.entrySet()) {
+                    if (entry.getValue()[0] < to && entry.getValue()[1] > from) {
+                        expected.add(entry.getKey());
+                    }
+                }
+                List<Long> found = tree.findOverlapping(from, to);
+                expected.sort(null);
+                found.sort(null);
+                assertEquals(expected, found, "overlaps of [" + from + ", " + to + ")");
+                assertEquals(live.size(), tree.size());
+            }
+        }
+    }
+}
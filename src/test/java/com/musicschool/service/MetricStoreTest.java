@@ -0,0 +1,161 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Analytics;
+import com.musicschool.repository.AnalyticsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the columnar metric store, checked against a naive sorted map.
+ */
+@ExtendWith(MockitoExtension.class)
+class MetricStoreTest {
+
+    private static final String METRIC = "daily_revenue";
+
+    @Mock
+    private AnalyticsRepository analyticsRepository;
+
+    @InjectMocks
+    private MetricStore metricStore;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(metricStore, "enabled", true);
+        ReflectionTestUtils.setField(metricStore, "loadBatchSize", 1000);
+    }
+
+    @Test
+    void matchesNaiveMapWithOutOfOrderAppends() {
+        metricStore.load();
+        Random random = new Random(42);
+        // Timestamps from a narrow range, so many points share one, also across checkpoints
+        TreeMap<Long, List<Double>> expected = new TreeMap<>();
+        for (int i = 0; i < 3000; i++) {
+            long timestamp = random.nextInt(1500) * 60_000L;
+            double value = random.nextInt(1000);
+            expected.computeIfAbsent(timestamp, k -> new ArrayList<>()).add(value);
+            metricStore.append(List.of(metric(null, timestamp, value, null)));
+        }
+
+        for (int query = 0; query < 500; query++) {
+            long from = random.nextInt(1600) * 60_000L - 50 * 60_000L;
+            long to = from + random.nextInt(400) * 60_000L + 1;
+            MetricStore.Slice slice = metricStore.read(METRIC, from, to);
+            List<Long> timestamps = new ArrayList<>();
+            List<Double> values = new ArrayList<>();
+            expected.subMap(from, to).forEach((timestamp, points) -> points.stream().sorted().forEach(value -> {
+                timestamps.add(timestamp);
+                values.add(value);
+            }));
+            assertEquals(timestamps.size(), slice.size());
+            for (int i = 0; i < slice.size(); i++) {
+                assertEquals(timestamps.get(i), slice.getTimestamps()[i]);
+                if (i > 0) {
+                    assertTrue(slice.getTimestamps()[i - 1] <= slice.getTimestamps()[i]);
+                }
+            }
+            // Points sharing a timestamp may come back in any order
+            double[] actualValues = sortedPerTimestamp(slice);
+            assertArrayEquals(values.stream().mapToDouble(Double::doubleValue).toArray(), actualValues);
+
+            long step = (random.nextInt(120) + 1) * 60_000L;
+            MetricStore.Buckets sums = metricStore.aggregate(METRIC, from, to, step, MetricStore.Aggregation.SUM);
+            MetricStore.Buckets maxima = metricStore.aggregate(METRIC, from, to, step, MetricStore.Aggregation.MAX);
+            for (int bucket = 0; bucket < sums.size(); bucket++) {
+                long bucketStart = from + bucket * step;
+                List<Double> inBucket = new ArrayList<>();
+                expected.subMap(bucketStart, Math.min(bucketStart + step, to)).values().forEach(inBucket::addAll);
+                assertEquals(inBucket.size(), sums.count(bucket));
+                if (!inBucket.isEmpty()) {
+                    assertEquals(inBucket.stream().mapToDouble(Double::doubleValue).sum(), sums.value(bucket), 1e-6);
+                    assertEquals(inBucket.stream().mapToDouble(Double::doubleValue).max().getAsDouble(),
+                        maxima.value(bucket));
+                }
+            }
+        }
+    }
+
+    @Test
+    void readsEveryPointAtACheckpointTimestamp() {
+        metricStore.load();
+        // 600 points at one timestamp span three checkpoints
+        for (int i = 0; i < 600; i++) {
+            metricStore.append(List.of(metric(null, 1000, i, null)));
+        }
+
+        assertEquals(600, metricStore.read(METRIC, 1000, 1001).size());
+    }
+
+    @Test
+    void replaysAppendsMissedByTheLoadOnce() {
+        when(analyticsRepository.findMetricPointsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            // Committed while the first page is read: id 2 is in the page, id 5 (from another
+            // node's sequence block) is not
+            metricStore.append(List.of(metric(2L, 2_000, 2, null), metric(5L, 5_000, 5, null)));
+            List<Object[]> rows = new ArrayList<>();
+            for (long id : new long[] {1, 2, 3, 10}) {
+                rows.add(row(id, id * 1_000, id));
+            }
+            return rows;
+        });
+
+        metricStore.load();
+
+        MetricStore.Slice slice = metricStore.read(METRIC, 0, 20_000);
+        assertEquals(5, slice.size());
+        assertArrayEquals(new long[] {1_000, 2_000, 3_000, 5_000, 10_000},
+            Arrays.copyOf(slice.getTimestamps(), slice.size()));
+    }
+
+    // Helper methods
+    private static Analytics metric(Long id, long timestamp, double value, Long tenantId) {
+        Analytics metric = new Analytics(Analytics.MetricType.REVENUE, METRIC, BigDecimal.valueOf(value));
+        metric.setId(id);
+        metric.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC));
+        metric.setTenantId(tenantId);
+        return metric;
+    }
+
+    private static Object[] row(long id, long timestamp, double value) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC);
+        return new Object[] {id, Analytics.MetricType.REVENUE, METRIC, time, LocalDate.of(1970, 1, 1),
+            BigDecimal.valueOf(value), null, time};
+    }
+
+    private static double[] sortedPerTimestamp(MetricStore.Slice slice) {
+        double[] values = Arrays.copyOf(slice.getValues(), slice.size());
+        int start = 0;
+        for (int i = 1; i <= slice.size(); i++) {
+            if (i == slice.size() || slice.getTimestamps()[i] != slice.getTimestamps()[start]) {
+                Arrays.sort(values, start, i);
+                start = i;
+            }
+        }
+        return values;
+    }
+}
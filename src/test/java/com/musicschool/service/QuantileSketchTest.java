@@ -0,0 +1,141 @@
+package com.musicschool.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the DDSketch quantile sketch, checked against exact quantiles of sorted values.
+ */
+class QuantileSketchTest {
+
+    private static final double ACCURACY = 0.01;
+    private static final double[] QUANTILES = {0, 0.01, 0.05, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 1};
+
+    @Test
+    void quantilesWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        double[] values = new double[100_000];
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal, like lesson payments: many small values and a long tail
+            values[i] = Math.exp(4 + 1.5 * random.nextGaussian());
+            sketch.add(values[i]);
+        }
+
+        assertQuantiles(values, sketch, ACCURACY);
+        assertEquals(values.length, sketch.getCount());
+    }
+
+    @Test
+    void mergeEqualsSketchOfAllValues() {
+        Random random = new Random(7);
+        double[] values = new double[70_000];
+        QuantileSketch all = new QuantileSketch(ACCURACY, 2048);
+        QuantileSketch merged = new QuantileSketch(ACCURACY, 2048);
+        // Daily sketches of different sizes and ranges merged into one
+        int offset = 0;
+        for (int day = 0; day < 7; day++) {
+            QuantileSketch daily = new QuantileSketch(ACCURACY, 2048);
+            int size = 1_000 * (day + 1) * 2 + (day == 6 ? 14_000 : 0);
+            for (int i = 0; i < size; i++) {
+                double value = day == 3 && i % 10 == 0 ? 0 : (day + 1) * 100 * random.nextDouble();
+                values[offset++] = value;
+                daily.add(value);
+                all.add(value);
+            }
+            merged.merge(daily);
+        }
+        merged.merge(new QuantileSketch(ACCURACY, 2048));
+
+        assertEquals(values.length, offset);
+        assertArrayEquals(all.toBytes(), merged.toBytes());
+        assertQuantiles(values, merged, ACCURACY);
+    }
+
+    @Test
+    void collapsingKeepsUpperQuantilesAccurate() {
+        Random random = new Random(11);
+        double[] values = new double[50_000];
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 100);
+        for (int i = 0; i < values.length; i++) {
+            // Spans far more bins than the sketch keeps
+            values[i] = Math.pow(10, 6 * random.nextDouble());
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double q : new double[] {0.9, 0.95, 0.99, 0.999}) {
+            double exact = values[(int) Math.floor(q * (values.length - 1))];
+            assertEquals(exact, sketch.quantile(q), exact * ACCURACY * 1.000001, "quantile " + q);
+        }
+        assertEquals(values[0], sketch.getMin());
+        assertEquals(values[values.length - 1], sketch.getMax());
+    }
+
+    @Test
+    void handlesEmptyAndZeroValues() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+        assertTrue(Double.isNaN(sketch.quantile(0.5)));
+        assertTrue(Double.isNaN(sketch.getMin()));
+
+        for (int i = 0; i < 60; i++) {
+            sketch.add(0);
+        }
+        for (int i = 1; i <= 40; i++) {
+            sketch.add(i);
+        }
+
+        assertEquals(0, sketch.quantile(0.5));
+        assertEquals(40, sketch.quantile(1));
+        assertEquals(20, sketch.quantile(0.8), 20 * ACCURACY);
+    }
+
+    @Test
+    void rejectsInvalidInput() {
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(-1));
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(new QuantileSketch(0.02, 2048)));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(0, 2048));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(ACCURACY, 0));
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        Random random = new Random(3);
+        QuantileSketch sketch = new QuantileSketch(ACCURACY, 2048);
+        for (int i = 0; i < 1_000; i++) {
+            sketch.add(random.nextInt(500));
+        }
+
+        QuantileSketch copy = QuantileSketch.fromBytes(sketch.toBytes());
+
+        assertArrayEquals(sketch.toBytes(), copy.toBytes());
+        for (double q : QUANTILES) {
+            assertEquals(sketch.quantile(q), copy.quantile(q));
+        }
+    }
+
+    // Helper methods
+    /**
+     * Every checked quantile is within the relative accuracy of the exact value at rank floor(q * (n - 1))
+     */
+    private static void assertQuantiles(double[] values, QuantileSketch sketch, double accuracy) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            double exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            // Tiny slack for floating-point rounding of the bin bounds
+            assertEquals(exact, sketch.quantile(q), exact * accuracy * 1.000001, "quantile " + q);
+        }
+    }
+}
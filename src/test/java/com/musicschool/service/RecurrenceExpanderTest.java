@@ -0,0 +1,95 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Schedule;
+import com.musicschool.repository.ScheduleExceptionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for expanding series rows into their occurrences.
+ */
+@ExtendWith(MockitoExtension.class)
+class RecurrenceExpanderTest {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2030, 1, 7, 17, 0);
+
+    @Mock
+    private ScheduleExceptionRepository scheduleExceptionRepository;
+
+    @InjectMocks
+    private RecurrenceExpander recurrenceExpander;
+
+    @Test
+    void returnsRowsWithoutSeriesUnchanged() {
+        List<Schedule> rows = List.of(single(1L, MONDAY), single(2L, MONDAY.plusDays(1)));
+
+        assertSame(rows, recurrenceExpander.expand(rows, MONDAY, MONDAY.plusWeeks(1)));
+        verifyNoInteractions(scheduleExceptionRepository);
+    }
+
+    @Test
+    void expandsSeriesSkippingExcludedStarts() {
+        Schedule weekly = series(10L, MONDAY, "FREQ=WEEKLY;BYDAY=MO,TH");
+        Schedule single = single(1L, MONDAY.plusDays(2));
+        // Cancelled Thursday of the first week
+        when(scheduleExceptionRepository.findExcludedStarts(eq(Set.of(10L)), any(), any()))
+            .thenReturn(List.<Object[]>of(new Object[] {10L, MONDAY.plusDays(3)}));
+
+        List<Schedule> expanded = recurrenceExpander.expand(List.of(weekly, single), MONDAY, MONDAY.plusWeeks(2));
+
+        assertEquals(List.of(MONDAY, MONDAY.plusDays(2), MONDAY.plusWeeks(1), MONDAY.plusWeeks(1).plusDays(3)),
+            expanded.stream().map(Schedule::getStartTime).collect(Collectors.toList()));
+        assertSame(single, expanded.get(1));
+        for (Schedule occurrence : List.of(expanded.get(0), expanded.get(2), expanded.get(3))) {
+            assertNull(occurrence.getId());
+            assertEquals(10L, occurrence.getParentScheduleId());
+            assertNull(occurrence.getRecurrenceRule());
+            assertEquals(occurrence.getStartTime().plusHours(1), occurrence.getEndTime());
+            assertEquals("Room 1", occurrence.getRoom());
+        }
+    }
+
+    @Test
+    void includesOccurrencesStartedBeforeTheWindow() {
+        Schedule daily = series(10L, MONDAY, "FREQ=DAILY;COUNT=5");
+
+        List<Schedule> expanded = recurrenceExpander.occurrences(daily, MONDAY.plusDays(2).plusMinutes(30),
+            MONDAY.plusDays(3), Set.of());
+
+        assertEquals(List.of(MONDAY.plusDays(2)),
+            expanded.stream().map(Schedule::getStartTime).collect(Collectors.toList()));
+    }
+
+    // Helper methods
+    private static Schedule single(Long id, LocalDateTime start) {
+        Schedule schedule = new Schedule(start, start.plusHours(1), Schedule.ScheduleType.LESSON);
+        schedule.setId(id);
+        schedule.setRoom("Room 2");
+        return schedule;
+    }
+
+    private static Schedule series(Long id, LocalDateTime start, String rule) {
+        Schedule schedule = new Schedule(start, start.plusHours(1), Schedule.ScheduleType.LESSON);
+        schedule.setId(id);
+        schedule.setRoom("Room 1");
+        schedule.setRecurring(true);
+        schedule.setRecurrenceRule(rule);
+        return schedule;
+    }
+}
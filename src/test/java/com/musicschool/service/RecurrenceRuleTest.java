@@ -0,0 +1,162 @@
+package com.musicschool.service;
+
+import com.musicschool.service.SchedulingService.RecurrencePattern.Frequency;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for RRULE expansion, checked against a day-by-day expansion of the whole series.
+ */
+class RecurrenceRuleTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 17, 30);
+    private static final int HORIZON_DAYS = 3 * 366;
+
+    @Test
+    void parsesAndFormatsRules() {
+        RecurrenceRule rule = RecurrenceRule.parse("RRULE:FREQ=WEEKLY;INTERVAL=2;COUNT=10;BYDAY=WE,MO");
+
+        assertEquals(Frequency.WEEKLY, rule.getFrequency());
+        assertEquals(2, rule.getInterval());
+        assertEquals(10, rule.getCount());
+        assertEquals(List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY), rule.getByDay());
+        assertEquals("FREQ=WEEKLY;INTERVAL=2;COUNT=10;BYDAY=MO,WE", rule.toString());
+        assertEquals(LocalDateTime.of(2030, 6, 30, 12, 0),
+            RecurrenceRule.parse("FREQ=DAILY;UNTIL=20300630T120000Z").getUntil());
+    }
+
+    @Test
+    void rejectsInvalidRules() {
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=WEEKLY;BYDAY=XX"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=WEEKLY;BYSETPOS=1"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=MONTHLY;BYDAY=MO"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("FREQ=DAILY;INTERVAL=0"));
+        assertThrows(IllegalArgumentException.class, () -> RecurrenceRule.parse("INTERVAL=2"));
+    }
+
+    @Test
+    void skipsMonthsWithoutTheDayOfMonth() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=MONTHLY;COUNT=4");
+        LocalDateTime dtStart = LocalDateTime.of(2030, 1, 31, 10, 0);
+
+        List<LocalDateTime> starts = rule.between(dtStart, Duration.ofHours(1), dtStart, dtStart.plusYears(1));
+
+        assertEquals(List.of(dtStart, dtStart.withMonth(3), dtStart.withMonth(5), dtStart.withMonth(7)), starts);
+        assertEquals(dtStart.withMonth(7), rule.lastStart(dtStart));
+    }
+
+    @Test
+    void skipsFebruary29OutsideLeapYears() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=YEARLY");
+        LocalDateTime dtStart = LocalDateTime.of(2028, 2, 29, 10, 0);
+
+        List<LocalDateTime> starts = rule.between(dtStart, Duration.ofHours(1), dtStart, dtStart.plusYears(9));
+
+        assertEquals(List.of(dtStart, dtStart.withYear(2032), dtStart.withYear(2036)), starts);
+        assertNull(rule.lastStart(dtStart));
+    }
+
+    @Test
+    void matchesFullExpansion() {
+        Random random = new Random(42);
+        Frequency[] frequencies = Frequency.values();
+        for (int run = 0; run < 2000; run++) {
+            Frequency frequency = frequencies[random.nextInt(frequencies.length)];
+            int interval = 1 + random.nextInt(3);
+            List<DayOfWeek> byDay = new ArrayList<>();
+            if ((frequency == Frequency.DAILY || frequency == Frequency.WEEKLY) && random.nextBoolean()) {
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    if (random.nextInt(3) == 0) {
+                        byDay.add(day);
+                    }
+                }
+            }
+            Integer count = random.nextInt(3) == 0 ? 1 + random.nextInt(40) : null;
+            // Late days of the month and February 29 exercise the skipped periods
+            LocalDateTime dtStart = random.nextInt(4) == 0
+                ? LocalDateTime.of(2028 + random.nextInt(2), 1 + random.nextInt(12), 1, 9, 0)
+                    .withDayOfMonth(1).plusMonths(1).minusDays(1 + random.nextInt(3))
+                : BASE.plusDays(random.nextInt(400)).plusMinutes(30L * random.nextInt(4));
+            LocalDateTime until = count == null && random.nextBoolean()
+                ? dtStart.plusDays(random.nextInt(HORIZON_DAYS / 2)) : null;
+            Duration duration = Duration.ofMinutes(30L * (1 + random.nextInt(6)));
+            RecurrenceRule rule = new RecurrenceRule(frequency, interval, count, until, byDay);
+
+            List<LocalDateTime> all = expandAll(frequency, interval, count, until, byDay, dtStart);
+            LocalDateTime from = dtStart.plusDays(random.nextInt(HORIZON_DAYS / 2) - 30).plusMinutes(15L * random.nextInt(96));
+            LocalDateTime to = from.plusDays(random.nextInt(120)).plusMinutes(15L * random.nextInt(96) + 1);
+            List<LocalDateTime> expected = new ArrayList<>();
+            for (LocalDateTime start : all) {
+                if (start.isBefore(to) && start.plus(duration).isAfter(from)) {
+                    expected.add(start);
+                }
+            }
+
+            String description = rule + " from " + dtStart + " in [" + from + ", " + to + ")";
+            assertEquals(expected, rule.between(dtStart, duration, from, to), description);
+            // A COUNT series may run past the horizon of the full expansion
+            if (rule.isBounded() && (count == null || all.size() == count)) {
+                assertEquals(all.isEmpty() ? null : all.get(all.size() - 1), rule.lastStart(dtStart), description);
+            }
+        }
+    }
+
+    @Test
+    void skipsWeekdaysBeforeTheFirstOccurrence() {
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY;COUNT=3;BYDAY=MO,FR");
+        // A Wednesday: Monday of the first week is before the series starts
+        LocalDateTime dtStart = LocalDateTime.of(2030, 1, 2, 18, 0);
+
+        List<LocalDateTime> starts = rule.between(dtStart, Duration.ofHours(1), dtStart, dtStart.plusMonths(1));
+
+        assertEquals(List.of(LocalDateTime.of(2030, 1, 4, 18, 0), LocalDateTime.of(2030, 1, 7, 18, 0),
+            LocalDateTime.of(2030, 1, 11, 18, 0)), starts);
+        assertTrue(rule.isBounded());
+    }
+
+    // Helper methods
+    /**
+     * Every occurrence of the series within the horizon, found by checking each day from the first one
+     */
+    private static List<LocalDateTime> expandAll(Frequency frequency, int interval, Integer count,
+                                                 LocalDateTime until, List<DayOfWeek> byDay, LocalDateTime dtStart) {
+        List<LocalDateTime> starts = new ArrayList<>();
+        LocalDate first = dtStart.toLocalDate();
+        LocalDate firstWeek = first.minusDays(first.getDayOfWeek().getValue() - 1);
+        for (LocalDate day = first; day.isBefore(first.plusDays(HORIZON_DAYS)); day = day.plusDays(1)) {
+            boolean matches = switch (frequency) {
+                case DAILY -> ChronoUnit.DAYS.between(first, day) % interval == 0
+                    && (byDay.isEmpty() || byDay.contains(day.getDayOfWeek()));
+                case WEEKLY -> ChronoUnit.WEEKS.between(firstWeek, day) % interval == 0
+                    && (byDay.isEmpty() ? day.getDayOfWeek() == first.getDayOfWeek() : byDay.contains(day.getDayOfWeek()));
+                case MONTHLY -> ChronoUnit.MONTHS.between(YearMonth.from(first), YearMonth.from(day)) % interval == 0
+                    && day.getDayOfMonth() == first.getDayOfMonth();
+                case YEARLY -> (day.getYear() - first.getYear()) % interval == 0
+                    && day.getMonth() == first.getMonth() && day.getDayOfMonth() == first.getDayOfMonth();
+            };
+            if (!matches) {
+                continue;
+            }
+            LocalDateTime start = day.atTime(dtStart.toLocalTime());
+            if ((count != null && starts.size() == count) || (until != null && start.isAfter(until))) {
+                break;
+            }
+            starts.add(start);
+        }
+        return starts;
+    }
+}
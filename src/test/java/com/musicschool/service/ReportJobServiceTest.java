@@ -0,0 +1,194 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Report;
+import com.musicschool.repository.ReportRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Report jobs through their status lifecycle: generation, stalled attempts, the conditional
+ * claim and result retention.
+ */
+@SpringBootTest(properties = {"reports.jobs.workers=4", "reports.jobs.max-attempts=3",
+    "reports.jobs.sweep-millis=3600000"})
+@ActiveProfiles("test")
+class ReportJobServiceTest {
+
+    private static final LocalDate FROM = LocalDate.of(2030, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2030, 1, 31);
+
+    @Autowired
+    private ReportJobService reportJobService;
+
+    @Autowired
+    private ReportRepository reportRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private ReportingService reportingService;
+
+    // Holds generation until the test lets it finish
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+    }
+
+    @Test
+    void submittedReportIsGeneratedAndCompleted() throws Exception {
+        when(reportingService.generateRevenueReport(any(), any())).thenAnswer(invocation -> {
+            gate.await();
+            return Map.of("totalRevenue", 1250);
+        });
+
+        Report report = reportJobService.submit(Report.ReportType.REVENUE_ANALYSIS, FROM, TO, "admin");
+        assertEquals(Report.ReportStatus.PENDING, report.getStatus());
+
+        Report generating = awaitReport(report.getId(), r -> r.getStatus() == Report.ReportStatus.GENERATING);
+        assertEquals(1, generating.getAttempts());
+        assertNotNull(generating.getStartedAt());
+        assertNull(generating.getPayload());
+
+        gate.countDown();
+        Report completed = awaitReport(report.getId(), r -> r.getStatus() == Report.ReportStatus.COMPLETED);
+        assertEquals(100, completed.getProgress());
+        assertEquals(1, completed.getAttempts());
+        assertNotNull(completed.getCompletedAt());
+        assertEquals((long) completed.getPayload().length, completed.getFileSize());
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        reportJobService.writeResult(completed, json);
+        assertTrue(json.toString().contains("\"totalRevenue\":1250"), json::toString);
+    }
+
+    @Test
+    void stalledAttemptsAreRetriedUntilMaxAttempts() throws Exception {
+        // Every attempt hangs until the end of the test
+        when(reportingService.generateStudentEnrollmentReport(any(), any())).thenAnswer(invocation -> {
+            gate.await();
+            return Map.of("newEnrollments", 3);
+        });
+
+        Long id = reportJobService.submit(Report.ReportType.STUDENT_ENROLLMENT, FROM, TO, "admin").getId();
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            int expected = attempt;
+            awaitReport(id, r -> r.getStatus() == Report.ReportStatus.GENERATING && r.getAttempts() == expected);
+
+            // Past the generating timeout: the sweep gives up on this attempt
+            update(id, r -> r.setStartedAt(LocalDateTime.now().minusHours(1)));
+            reportJobService.sweep();
+            Report swept = reportRepository.findById(id).orElseThrow();
+            assertEquals(attempt < 3 ? Report.ReportStatus.PENDING : Report.ReportStatus.FAILED, swept.getStatus());
+            assertEquals("Generation stalled", swept.getErrorMessage());
+
+            // Past the pending timeout: the next sweep dispatches the retry
+            update(id, r -> r.setGeneratedAt(LocalDateTime.now().minusHours(1)));
+            reportJobService.sweep();
+        }
+
+        // Out of attempts, and the hung attempts finishing late do not complete it
+        gate.countDown();
+        Thread.sleep(500);
+        Report failed = reportRepository.findById(id).orElseThrow();
+        assertEquals(Report.ReportStatus.FAILED, failed.getStatus());
+        assertEquals(3, failed.getAttempts());
+        assertNull(failed.getPayload());
+    }
+
+    @Test
+    void claimIsRejectedForASecondWorker() {
+        Report report = new Report("Claim test", Report.ReportType.REVENUE_ANALYSIS, "admin");
+        report.setStatus(Report.ReportStatus.PENDING);
+        Long id = reportRepository.save(report).getId();
+
+        assertEquals(1, claim(id));
+        assertEquals(0, claim(id));
+
+        Report claimed = reportRepository.findById(id).orElseThrow();
+        assertEquals(Report.ReportStatus.GENERATING, claimed.getStatus());
+        assertEquals(1, claimed.getAttempts());
+
+        // A shutdown hands the attempt back without counting it, after which it can be claimed again
+        assertEquals(0, requeue(id, 2));
+        assertEquals(1, requeue(id, 1));
+        assertEquals(0, reportRepository.findById(id).orElseThrow().getAttempts());
+        assertEquals(1, claim(id));
+    }
+
+    @Test
+    void sweepDropsResultsPastTheirRetention() {
+        Long expired = reportRepository.save(completedReport(LocalDateTime.now().minusDays(8))).getId();
+        Long recent = reportRepository.save(completedReport(LocalDateTime.now().minusDays(1))).getId();
+
+        reportJobService.sweep();
+
+        Report dropped = reportRepository.findById(expired).orElseThrow();
+        assertNull(dropped.getPayload());
+        assertNull(dropped.getFileSize());
+        assertEquals(Report.ReportStatus.COMPLETED, dropped.getStatus());
+        assertNotNull(reportRepository.findById(recent).orElseThrow().getPayload());
+    }
+
+    // Helper methods
+    private Report awaitReport(Long id, Predicate<Report> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            Report report = reportRepository.findById(id).orElseThrow();
+            if (condition.test(report)) {
+                return report;
+            }
+            Thread.sleep(20);
+        }
+        return fail("Report " + id + " did not reach the expected state: "
+            + reportRepository.findById(id).orElseThrow().getStatus());
+    }
+
+    private int claim(Long id) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+            reportRepository.claim(id, LocalDateTime.now()));
+    }
+
+    private int requeue(Long id, int attempt) {
+        return new TransactionTemplate(transactionManager).execute(status ->
+            reportRepository.requeue(id, attempt));
+    }
+
+    private void update(Long id, Consumer<Report> change) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            change.accept(reportRepository.findById(id).orElseThrow()));
+    }
+
+    private static Report completedReport(LocalDateTime completedAt) {
+        Report report = new Report("Retention test", Report.ReportType.REVENUE_ANALYSIS, "admin");
+        report.setStatus(Report.ReportStatus.COMPLETED);
+        report.setPayload(new byte[] {1, 2, 3});
+        report.setFileSize(3L);
+        report.setCompletedAt(completedAt);
+        return report;
+    }
+}
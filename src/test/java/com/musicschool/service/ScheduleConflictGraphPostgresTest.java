@@ -0,0 +1,47 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Schedule;
+import com.musicschool.entity.ScheduleConflict;
+import com.musicschool.repository.ScheduleConflictRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The conflict graph tests on the migrated schema, where the partial unique index of V8
+ * keeps a single open row per edge.
+ */
+@ActiveProfiles("postgres")
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = ".+")
+class ScheduleConflictGraphPostgresTest extends ScheduleConflictGraphTest {
+
+    @Autowired
+    private SchedulingService schedulingService;
+
+    @Autowired
+    private ScheduleConflictRepository scheduleConflictRepository;
+
+    @Test
+    void uniqueIndexRejectsASecondOpenRowForAnEdge() {
+        LocalDateTime start = LocalDateTime.of(2032, 6, 7, 10, 0);
+        // No shared resource, so the service records no edge of its own between the two
+        Schedule first = schedulingService.createSchedule(new Schedule(start, start.plusHours(1), Schedule.ScheduleType.LESSON));
+        Schedule second = schedulingService.createSchedule(new Schedule(start, start.plusHours(1), Schedule.ScheduleType.LESSON));
+
+        ScheduleConflict open = scheduleConflictRepository.save(
+            new ScheduleConflict(first, second, ScheduleConflict.ConflictType.ROOM_DOUBLE_BOOKING));
+        assertThrows(DataIntegrityViolationException.class, () -> scheduleConflictRepository.save(
+            new ScheduleConflict(first, second, ScheduleConflict.ConflictType.ROOM_DOUBLE_BOOKING)));
+
+        // Resolved rows are history and do not count against the index
+        open.setResolved(true);
+        scheduleConflictRepository.save(open);
+        scheduleConflictRepository.save(new ScheduleConflict(first, second, ScheduleConflict.ConflictType.ROOM_DOUBLE_BOOKING));
+    }
+}
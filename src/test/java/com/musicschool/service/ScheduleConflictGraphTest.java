@@ -0,0 +1,106 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Instructor;
+import com.musicschool.entity.Schedule;
+import com.musicschool.entity.ScheduleConflict;
+import com.musicschool.entity.ScheduleConflict.ConflictType;
+import com.musicschool.repository.InstructorRepository;
+import com.musicschool.repository.ScheduleConflictRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Conflict edges are created, kept unique and resolved as schedules are booked, moved and cancelled.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ScheduleConflictGraphTest {
+
+    private static final LocalDateTime TEN = LocalDateTime.of(2032, 5, 3, 10, 0);
+
+    @Autowired
+    private SchedulingService schedulingService;
+
+    @Autowired
+    private ScheduleConflictRepository scheduleConflictRepository;
+
+    @Autowired
+    private InstructorRepository instructorRepository;
+
+    @Test
+    void overlappingSchedulesGetOneOpenEdgePerSharedResource() {
+        Instructor instructor = instructor();
+        String room = "Graph Room " + UUID.randomUUID();
+        Schedule first = schedulingService.createSchedule(lesson(TEN, instructor, room));
+        Schedule second = schedulingService.createSchedule(lesson(TEN.plusMinutes(30), instructor, room));
+
+        List<ScheduleConflict> edges = scheduleConflictRepository.findUnresolvedConflictsForSchedule(second.getId());
+        assertEquals(Set.of(ConflictType.INSTRUCTOR_DOUBLE_BOOKING, ConflictType.ROOM_DOUBLE_BOOKING),
+            edges.stream().map(ScheduleConflict::getConflictType).collect(Collectors.toSet()));
+        for (ScheduleConflict edge : edges) {
+            // Undirected: the lower schedule id is stored first
+            assertEquals(first.getId(), edge.getSchedule().getId());
+            assertEquals(second.getId(), edge.getConflictingSchedule().getId());
+        }
+
+        // Moving within the clash keeps the same edges instead of adding duplicates
+        schedulingService.reschedule(second.getId(), TEN.plusMinutes(15), TEN.plusMinutes(75));
+        List<ScheduleConflict> kept = scheduleConflictRepository.findUnresolvedConflictsForSchedule(second.getId());
+        assertEquals(ids(edges), ids(kept));
+        assertEquals(2, scheduleConflictRepository.findConflictsForSchedule(second.getId()).size());
+    }
+
+    @Test
+    void movingOrCancellingAScheduleResolvesItsEdges() {
+        String room = "Graph Room " + UUID.randomUUID();
+        Schedule first = schedulingService.createSchedule(lesson(TEN, instructor(), room));
+        Schedule moved = schedulingService.createSchedule(lesson(TEN.plusMinutes(30), instructor(), room));
+        Schedule cancelled = schedulingService.createSchedule(lesson(TEN.minusMinutes(30), instructor(), room));
+        assertEquals(2, scheduleConflictRepository.findUnresolvedConflictsForSchedule(first.getId()).size());
+
+        schedulingService.reschedule(moved.getId(), TEN.plusHours(3), TEN.plusHours(4));
+        assertResolved(moved, "Resolved automatically: schedule rescheduled");
+
+        schedulingService.cancelSchedule(cancelled.getId(), "Student ill");
+        assertResolved(cancelled, "Resolved automatically: schedule cancelled");
+
+        assertTrue(scheduleConflictRepository.findUnresolvedConflictsForSchedule(first.getId()).isEmpty());
+    }
+
+    private void assertResolved(Schedule schedule, String resolutionNotes) {
+        assertTrue(scheduleConflictRepository.findUnresolvedConflictsForSchedule(schedule.getId()).isEmpty());
+        List<ScheduleConflict> edges = scheduleConflictRepository.findConflictsForSchedule(schedule.getId());
+        assertEquals(1, edges.size());
+        assertEquals(resolutionNotes, edges.get(0).getResolutionNotes());
+    }
+
+    private Instructor instructor() {
+        Instructor instructor = new Instructor("Graph", "Instructor",
+            "graph-" + UUID.randomUUID() + "@musicschool.test", LocalDate.of(1980, 1, 1));
+        instructor.setHireDate(LocalDate.of(2020, 9, 1));
+        return instructorRepository.save(instructor);
+    }
+
+    private static Schedule lesson(LocalDateTime start, Instructor instructor, String room) {
+        Schedule schedule = new Schedule(start, start.plusHours(1), Schedule.ScheduleType.LESSON);
+        schedule.setInstructor(instructor);
+        schedule.setRoom(room);
+        return schedule;
+    }
+
+    private static Set<Long> ids(List<ScheduleConflict> edges) {
+        return edges.stream().map(ScheduleConflict::getId).collect(Collectors.toSet());
+    }
+}
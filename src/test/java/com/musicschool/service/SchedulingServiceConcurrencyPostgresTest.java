@@ -0,0 +1,13 @@
+package com.musicschool.service;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * The concurrent booking stress test and throughput comparison on PostgreSQL, where each
+ * booking waits on database round trips that bookings of other resources can overlap.
+ */
+@ActiveProfiles("postgres")
+@EnabledIfEnvironmentVariable(named = "TEST_POSTGRES_URL", matches = ".+")
+class SchedulingServiceConcurrencyPostgresTest extends SchedulingServiceConcurrencyTest {
+}
@@ -0,0 +1,69 @@
+package com.musicschool.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for retrying transactions aborted with a serialization failure.
+ */
+class SerializationRetryTest {
+
+    private final SerializationRetry retry = new SerializationRetry();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(retry, "maxRetries", 3);
+        ReflectionTestUtils.setField(retry, "backoffMillis", 1L);
+    }
+
+    @Test
+    void retriesSerializationFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retry.run(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw serializationFailure();
+            }
+            return "booked";
+        });
+
+        assertEquals("booked", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void givesUpAfterTheLastRetry() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(CannotAcquireLockException.class, () -> retry.run(() -> {
+            attempts.incrementAndGet();
+            throw serializationFailure();
+        }));
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(BookingConflictException.class, () -> retry.run(() -> {
+            attempts.incrementAndGet();
+            throw new BookingConflictException(List.of());
+        }));
+        assertEquals(1, attempts.get());
+    }
+
+    private static CannotAcquireLockException serializationFailure() {
+        return new CannotAcquireLockException("restart transaction",
+            new SQLException("TransactionRetryWithProtoRefreshError", "40001"));
+    }
+}
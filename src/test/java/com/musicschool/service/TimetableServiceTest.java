@@ -0,0 +1,105 @@
+package com.musicschool.service;
+
+import com.musicschool.entity.Course;
+import com.musicschool.entity.Instructor;
+import com.musicschool.repository.CourseRepository;
+import com.musicschool.repository.EnrollmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for applying solved timetables.
+ */
+@ExtendWith(MockitoExtension.class)
+class TimetableServiceTest {
+
+    @Mock
+    private CourseRepository courseRepository;
+
+    @Mock
+    private EnrollmentRepository enrollmentRepository;
+
+    @Mock
+    private SchedulingService schedulingService;
+
+    @Mock
+    private ResourceLockManager resourceLockManager;
+
+    @Mock
+    private SerializationRetry serializationRetry;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private TimetableService timetableService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(timetableService, "defaultTimeBudgetSeconds", 1);
+        ReflectionTestUtils.setField(timetableService, "maxTimeBudgetSeconds", 1);
+        ReflectionTestUtils.setField(timetableService, "defaultWorkers", 1);
+        ReflectionTestUtils.setField(timetableService, "maxWorkers", 1);
+        ReflectionTestUtils.setField(timetableService, "slotMinutes", 30);
+        ReflectionTestUtils.setField(timetableService, "defaultDayStart", "09:00");
+        ReflectionTestUtils.setField(timetableService, "defaultDayEnd", "21:00");
+    }
+
+    @Test
+    void infeasibleTimetableIsReportedWithoutBookingAnything() {
+        // Three one-hour courses of one instructor in a two-hour day
+        Instructor instructor = new Instructor();
+        instructor.setId(7L);
+        List<Course> courses = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Course course = new Course();
+            course.setId(id);
+            course.setName("Course " + id);
+            course.setInstructor(instructor);
+            course.setDurationMinutes(60);
+            courses.add(course);
+        }
+        when(courseRepository.findAllById(List.of(1L, 2L, 3L))).thenReturn(courses);
+        when(enrollmentRepository.findActiveCourseStudentPairs(Set.of(1L, 2L, 3L))).thenReturn(List.of());
+        when(schedulingService.getScheduleForDateRange(any(), any())).thenReturn(List.of());
+
+        TimetableService.TimetableRequest request = new TimetableService.TimetableRequest();
+        request.setTermStart(LocalDate.of(2030, 9, 2));
+        request.setTermEnd(LocalDate.of(2030, 12, 20));
+        request.setCourseIds(List.of(1L, 2L, 3L));
+        request.setRooms(List.of("Room 1"));
+        request.setDays(List.of(DayOfWeek.MONDAY));
+        request.setDayStart(LocalTime.of(9, 0));
+        request.setDayEnd(LocalTime.of(11, 0));
+
+        TimetableInfeasibleException e = assertThrows(TimetableInfeasibleException.class,
+            () -> timetableService.solveAndApply(request));
+
+        assertEquals(2, e.getConflictedCourseIds().size());
+        assertEquals(3, e.getResult().getAssignments().size());
+        verifyNoInteractions(serializationRetry, resourceLockManager);
+        verify(schedulingService, never()).createRecurringSchedule(any(), any());
+        verify(courseRepository, never()).saveAll(any());
+    }
+}
@@ -0,0 +1,167 @@
+package com.musicschool.service;
+
+import com.musicschool.service.TimetableSolver.Assignment;
+import com.musicschool.service.TimetableSolver.BlockedTime;
+import com.musicschool.service.TimetableSolver.CourseSpec;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for the timetable solver, checking its timetables pair by pair.
+ */
+class TimetableSolverTest {
+
+    private static final List<DayOfWeek> DAYS = List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
+        DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY);
+    private static final LocalTime DAY_START = LocalTime.of(9, 0);
+    private static final LocalTime DAY_END = LocalTime.of(21, 0);
+
+    @Test
+    void placesCoursesWithoutBreakingHardConstraints() {
+        Random random = new Random(42);
+        List<String> rooms = List.of("Room 1", "Room 2", "Room 3", "Room 4", "Room 5", "Room 6");
+        List<CourseSpec> courses = randomCourses(random, 120, 20, 150);
+        List<BlockedTime> blocked = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            LocalTime start = DAY_START.plusMinutes(30L * random.nextInt(20));
+            DayOfWeek day = DAYS.get(random.nextInt(DAYS.size()));
+            blocked.add(new BlockedTime(1L + random.nextInt(20), null, day, start, start.plusHours(2)));
+            blocked.add(new BlockedTime(null, rooms.get(random.nextInt(rooms.size())), day, start, start.plusHours(1)));
+        }
+
+        TimetableSolver.Result result = new TimetableSolver(courses, rooms, DAYS, DAY_START, DAY_END, 30, blocked)
+            .solve(Duration.ofSeconds(20), 2);
+
+        assertTrue(result.isFeasible());
+        assertTrue(result.getConflictedCourseIds().isEmpty());
+        assertEquals(courses.stream().map(CourseSpec::getCourseId).collect(Collectors.toSet()),
+            result.getAssignments().stream().map(Assignment::getCourseId).collect(Collectors.toSet()));
+        assertEquals(Collections.emptySet(),
+            brokenHardConstraints(courses, result.getAssignments(), blocked, DAY_START, DAY_END));
+    }
+
+    @Test
+    void reportsCoursesThatCannotBePlaced() {
+        // One instructor, one room and two free hours for three one-hour courses
+        List<CourseSpec> courses = List.of(
+            new CourseSpec(1L, 7L, 60, List.of()),
+            new CourseSpec(2L, 7L, 60, List.of()),
+            new CourseSpec(3L, 7L, 60, List.of()));
+
+        TimetableSolver.Result result = new TimetableSolver(courses, List.of("Room 1"), List.of(DayOfWeek.MONDAY),
+            LocalTime.of(9, 0), LocalTime.of(11, 0), 30, List.of()).solve(Duration.ofMillis(300), 2);
+
+        assertFalse(result.isFeasible());
+        assertEquals(3, result.getAssignments().size());
+        assertEquals(result.getConflictedCourses(), result.getConflictedCourseIds().size());
+        assertTrue(Set.of(1L, 2L, 3L).containsAll(result.getConflictedCourseIds()));
+        assertEquals(brokenHardConstraints(courses, result.getAssignments(), List.of(), LocalTime.of(9, 0),
+                LocalTime.of(11, 0)),
+            new HashSet<>(result.getConflictedCourseIds()));
+    }
+
+    @Test
+    void keepsPreferencesThatDoNotClash() {
+        CourseSpec piano = new CourseSpec(1L, 1L, 60, List.of(100L));
+        piano.setPreferredDay(DayOfWeek.TUESDAY);
+        piano.setPreferredStart(LocalTime.of(17, 0));
+        piano.setPreferredRoom("Room 2");
+        CourseSpec violin = new CourseSpec(2L, 2L, 90, List.of(100L));
+        violin.setPreferredDay(DayOfWeek.TUESDAY);
+        violin.setPreferredStart(LocalTime.of(18, 0));
+        violin.setPreferredRoom("Room 1");
+
+        TimetableSolver.Result result = new TimetableSolver(List.of(piano, violin), List.of("Room 1", "Room 2"),
+            DAYS, DAY_START, DAY_END, 30, List.of()).solve(Duration.ofSeconds(5), 1);
+
+        assertTrue(result.isFeasible());
+        assertEquals(0, result.getSoftPenalty());
+        Map<Long, Assignment> byCourse = result.getAssignments().stream()
+            .collect(Collectors.toMap(Assignment::getCourseId, assignment -> assignment));
+        assertEquals(LocalTime.of(17, 0), byCourse.get(1L).getStartTime());
+        assertEquals("Room 2", byCourse.get(1L).getRoom());
+        assertEquals(LocalTime.of(19, 30), byCourse.get(2L).getEndTime());
+        assertEquals(DayOfWeek.TUESDAY, byCourse.get(2L).getDay());
+    }
+
+    /**
+     * Courses of 30 to 120 minutes; each student takes two or three of them
+     */
+    private static List<CourseSpec> randomCourses(Random random, int count, int instructors, int students) {
+        List<List<Long>> groups = new ArrayList<>();
+        for (int c = 0; c < count; c++) {
+            groups.add(new ArrayList<>());
+        }
+        for (long student = 1; student <= students; student++) {
+            int taken = 2 + random.nextInt(2);
+            for (int k = 0; k < taken; k++) {
+                List<Long> group = groups.get(random.nextInt(count));
+                if (!group.contains(student)) {
+                    group.add(student);
+                }
+            }
+        }
+        List<CourseSpec> courses = new ArrayList<>();
+        for (int c = 0; c < count; c++) {
+            courses.add(new CourseSpec(1000L + c, 1L + c % instructors, 30 * (1 + random.nextInt(4)), groups.get(c)));
+        }
+        return courses;
+    }
+
+    /**
+     * Ids of courses sharing an instructor, room or student with an overlapping course,
+     * placed outside the day or on blocked time
+     */
+    private static Set<Long> brokenHardConstraints(List<CourseSpec> courses, List<Assignment> assignments,
+                                                   List<BlockedTime> blocked, LocalTime dayStart, LocalTime dayEnd) {
+        Map<Long, CourseSpec> specs = new HashMap<>();
+        for (CourseSpec course : courses) {
+            specs.put(course.getCourseId(), course);
+        }
+        Set<Long> broken = new HashSet<>();
+        for (Assignment a : assignments) {
+            CourseSpec spec = specs.get(a.getCourseId());
+            if (a.getStartTime().isBefore(dayStart) || a.getEndTime().isAfter(dayEnd)) {
+                broken.add(a.getCourseId());
+            }
+            for (BlockedTime b : blocked) {
+                boolean sameResource = spec.getInstructorId().equals(b.getInstructorId()) || a.getRoom().equals(b.getRoom());
+                if (sameResource && b.getDay() == a.getDay() && overlaps(a.getStartTime(), a.getEndTime(), b.getStart(), b.getEnd())) {
+                    broken.add(a.getCourseId());
+                }
+            }
+            for (Assignment other : assignments) {
+                if (other == a || other.getDay() != a.getDay()
+                    || !overlaps(a.getStartTime(), a.getEndTime(), other.getStartTime(), other.getEndTime())) {
+                    continue;
+                }
+                CourseSpec otherSpec = specs.get(other.getCourseId());
+                if (spec.getInstructorId().equals(otherSpec.getInstructorId()) || a.getRoom().equals(other.getRoom())
+                    || !Collections.disjoint(spec.getStudentIds(), otherSpec.getStudentIds())) {
+                    broken.add(a.getCourseId());
+                }
+            }
+        }
+        return broken;
+    }
+
+    private static boolean overlaps(LocalTime start, LocalTime end, LocalTime otherStart, LocalTime otherEnd) {
+        return start.isBefore(otherEnd) && otherStart.isBefore(end);
+    }
+}
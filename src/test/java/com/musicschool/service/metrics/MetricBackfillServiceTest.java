@@ -0,0 +1,84 @@
+package com.musicschool.service.metrics;
+
+import com.musicschool.entity.Analytics;
+import com.musicschool.repository.AnalyticsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reruns of backfills and collections replace the rows of each day, metric and tenant.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MetricBackfillServiceTest {
+
+    @Autowired
+    private MetricBackfillService metricBackfillService;
+
+    @Autowired
+    private MetricCollectionPipeline metricCollectionPipeline;
+
+    @Autowired
+    private AnalyticsRepository analyticsRepository;
+
+    @Test
+    void rerunningABackfillReplacesItsRows() {
+        LocalDate start = LocalDate.of(2003, 2, 1);
+        LocalDate end = LocalDate.of(2003, 2, 3);
+        LocalDate day = start.plusDays(1);
+        // A row of a tenant the backfill does not cover must survive it untouched
+        Analytics other = MetricCollector.metric(Analytics.MetricType.REVENUE, "daily_revenue", new BigDecimal("42"), day);
+        other.setTenantId(4242L);
+        analyticsRepository.save(other);
+
+        metricBackfillService.backfill(start, end);
+        List<Analytics> first = analyticsRepository.findByDateRecordedBetween(start, end);
+        MetricBackfillService.BackfillReport rerun = metricBackfillService.backfill(start, end);
+        List<Analytics> second = analyticsRepository.findByDateRecordedBetween(start, end);
+
+        assertEquals(first.size(), second.size());
+        assertEquals(first.size() - 1, rerun.getMetricsDeleted());
+        assertEquals(rerun.getMetricsWritten(), rerun.getMetricsDeleted());
+        assertEquals(1, count(second, day, "daily_revenue", null));
+        assertEquals(1, count(second, day, "daily_revenue", 0L));
+        assertEquals(1, count(second, day, "daily_enrollments", 0L));
+        Analytics kept = second.stream()
+            .filter(metric -> Long.valueOf(4242L).equals(metric.getTenantId()))
+            .findFirst().orElseThrow();
+        assertEquals(0, new BigDecimal("42").compareTo(kept.getMetricValue()));
+    }
+
+    @Test
+    void rerunningACollectionReplacesItsRows() {
+        LocalDate date = LocalDate.of(2003, 3, 5);
+
+        metricCollectionPipeline.collect(date);
+        metricCollectionPipeline.collect(date, 0L, Collections.emptySet(), null);
+        List<Analytics> first = analyticsRepository.findByDateRecordedBetween(date, date);
+        metricCollectionPipeline.collect(date);
+        metricCollectionPipeline.collect(date, 0L, Collections.emptySet(), null);
+        List<Analytics> second = analyticsRepository.findByDateRecordedBetween(date, date);
+
+        assertEquals(first.size(), second.size());
+        assertEquals(1, count(second, date, "daily_revenue", null));
+        assertEquals(1, count(second, date, "daily_revenue", 0L));
+    }
+
+    // Helper methods
+    private static long count(List<Analytics> metrics, LocalDate date, String name, Long tenantId) {
+        return metrics.stream()
+            .filter(metric -> date.equals(metric.getDateRecorded()) && name.equals(metric.getMetricName())
+                && Objects.equals(tenantId, metric.getTenantId()))
+            .count();
+    }
+}